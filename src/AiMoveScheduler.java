@@ -0,0 +1,369 @@
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Schedules the AI moves of all the games of the process on a fixed number of search slots, one per processor.
+ * <p>
+ * Each game registers a {@link Session}, and its AI moves wait for a slot instead of all searching at once:
+ * <ul>
+ *     <li>Sessions share the slots fairly: the waiting move of the session that used the least search time
+ *     goes first, so one expensive game cannot starve many cheap ones. A session returning from idle starts at
+ *     the usage of the last scheduled move, it does not bank the time it did not use.</li>
+ *     <li>{@link Priority#INTERACTIVE} moves go before {@link Priority#BATCH} ones, which still get one slot
+ *     in {@value #BATCH_SHARE} while both wait, so analysis is slowed down but not starved.</li>
+ *     <li>Under overload the search depth degrades instead of the latency: when more moves are running and
+ *     waiting than there are slots, a granted move searches half as deep per doubling of the load,
+ *     down to {@value #MIN_DEGRADED_DEPTH} plies.</li>
+ * </ul>
+ * Background searches, such as pondering, only take a slot that no move is waiting for, see {@link Session#tryAcquire}.
+ */
+public final class AiMoveScheduler {
+
+    /**
+     * The scheduling class of the AI moves of a game.
+     */
+    public enum Priority {
+        /** Games played by a user waiting for the reply. */
+        INTERACTIVE,
+        /** Analysis, tournaments and other games nobody watches move by move. */
+        BATCH
+    }
+
+    /** The shallowest search depth of a degraded move. */
+    static final int MIN_DEGRADED_DEPTH = 2;
+
+    /** One grant in this many goes to a batch move while interactive moves are waiting too. */
+    static final int BATCH_SHARE = 8;
+
+    // The scheduler of the process.
+    private static final AiMoveScheduler instance = new AiMoveScheduler(Runtime.getRuntime().availableProcessors());
+
+    // Number of moves searching at the same time.
+    private final int slots;
+
+    // Guards the queues and the counters below.
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Waiting moves of each priority, the session with the least usage first.
+    private final PriorityQueue<Request> interactiveQueue = new PriorityQueue<>(Request.ORDER);
+    private final PriorityQueue<Request> batchQueue = new PriorityQueue<>(Request.ORDER);
+
+    // Number of granted moves still searching.
+    private int running;
+
+    // Usage of the session of the last granted move, where sessions returning from idle start.
+    private long virtualTime;
+
+    // Interactive moves granted in a row while a batch move was waiting.
+    private int interactiveStreak;
+
+    // Order of arrival of the moves, breaking ties between sessions of equal usage.
+    private long sequence;
+
+    // Moves granted, and the ones granted with a reduced depth.
+    private long grantedMoves;
+    private long degradedMoves;
+
+    /**
+     * Constructs a scheduler.
+     *
+     * @param slots The number of moves searching at the same time.
+     */
+    AiMoveScheduler(int slots) {
+        if (slots < 1) {
+            throw new IllegalArgumentException("The scheduler needs at least one slot: " + slots);
+        }
+        this.slots = slots;
+    }
+
+    /**
+     * Returns the scheduler shared by the games of the process.
+     *
+     * @return The scheduler.
+     */
+    public static AiMoveScheduler get() {
+        return instance;
+    }
+
+    /**
+     * Registers a game whose AI moves are scheduled.
+     *
+     * @param priority The priority of the moves of the game.
+     * @return The session of the game.
+     */
+    public Session register(Priority priority) {
+        return new Session(priority);
+    }
+
+    /**
+     * Returns the number of moves waiting for a slot.
+     *
+     * @return The number of queued moves.
+     */
+    public int queuedMoves() {
+        lock.lock();
+        try {
+            return interactiveQueue.size() + batchQueue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of moves granted so far.
+     *
+     * @return The number of granted moves.
+     */
+    public long grantedMoves() {
+        lock.lock();
+        try {
+            return grantedMoves;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of moves granted with a reduced search depth because of the load.
+     *
+     * @return The number of degraded moves.
+     */
+    public long degradedMoves() {
+        lock.lock();
+        try {
+            return degradedMoves;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Computes the search depth of a move from the load of the scheduler.
+     *
+     * @param load The moves running and waiting per slot.
+     * @param emptyCells The number of empty cells of the board, the depth of a full search.
+     * @param maxSearchDepth The depth configured for the game.
+     * @return The configured depth if the scheduler is not overloaded, otherwise half of it per doubling of the load.
+     */
+    static int depthBudget(double load, int emptyCells, int maxSearchDepth) {
+        int fullDepth = Math.min(maxSearchDepth, emptyCells);
+        int halvings = load <= 1 ? 0 : (int) Math.floor(Math.log(load) / Math.log(2));
+        int depth = Math.max(Math.min(MIN_DEGRADED_DEPTH, fullDepth), fullDepth >> Math.min(halvings, 31));
+        return depth >= fullDepth ? maxSearchDepth : depth;
+    }
+
+    /**
+     * Grants the free slots to the waiting moves. Called with the lock held.
+     */
+    private void dispatch() {
+        while (running < slots) {
+            Request request = next();
+            if (request == null) {
+                return;
+            }
+            running++;
+            grantedMoves++;
+            virtualTime = Math.max(virtualTime, request.usage);
+            double load = (double) (running + interactiveQueue.size() + batchQueue.size()) / slots;
+            request.depth = depthBudget(load, request.emptyCells, request.maxSearchDepth);
+            if (request.depth != request.maxSearchDepth) {
+                degradedMoves++;
+            }
+            request.granted.signal();
+        }
+    }
+
+    /**
+     * Removes the next move to grant from the queues. Called with the lock held.
+     */
+    private Request next() {
+        if (batchQueue.isEmpty()) {
+            interactiveStreak = 0;
+            return interactiveQueue.poll();
+        }
+        if (!interactiveQueue.isEmpty() && interactiveStreak < BATCH_SHARE - 1) {
+            interactiveStreak++;
+            return interactiveQueue.poll();
+        }
+        interactiveStreak = 0;
+        return batchQueue.poll();
+    }
+
+    /**
+     * The AI moves of one game, which the scheduler shares the slots among.
+     * The moves of a session are requested one at a time, by the thread of its game.
+     */
+    public final class Session {
+
+        // The priority of the moves of the session.
+        private final Priority priority;
+
+        // Search time used by the granted moves of the session, in nanoseconds, guarded by the scheduler lock.
+        private long usage;
+
+        private Session(Priority priority) {
+            this.priority = priority;
+        }
+
+        /**
+         * Waits for a search slot.
+         *
+         * @param emptyCells The number of empty cells of the board to search.
+         * @param maxSearchDepth The search depth configured for the game.
+         * @return The grant of the slot, to be closed when the search is done.
+         */
+        public Grant acquire(int emptyCells, int maxSearchDepth) {
+            long start = System.nanoTime();
+            lock.lock();
+            try {
+                usage = Math.max(usage, virtualTime);
+                Request request = new Request(usage, sequence++, emptyCells, maxSearchDepth, lock.newCondition());
+                (priority == Priority.INTERACTIVE ? interactiveQueue : batchQueue).add(request);
+                dispatch();
+                while (request.depth == 0) {
+                    request.granted.awaitUninterruptibly();
+                }
+                return new Grant(this, request.depth, request.depth != maxSearchDepth, System.nanoTime() - start);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Takes a search slot without waiting, if one is free and no move is waiting for a slot.
+         * Background searches use it, so they never delay or degrade the moves of the games.
+         *
+         * @param maxSearchDepth The search depth configured for the game.
+         * @return The grant of the slot, to be closed when the search is done, or {@code null} if the scheduler is saturated.
+         */
+        public Grant tryAcquire(int maxSearchDepth) {
+            lock.lock();
+            try {
+                if (running >= slots || !interactiveQueue.isEmpty() || !batchQueue.isEmpty()) {
+                    return null;
+                }
+                usage = Math.max(usage, virtualTime);
+                running++;
+                grantedMoves++;
+                return new Grant(this, maxSearchDepth, false, 0);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void release(long searchNanos) {
+            lock.lock();
+            try {
+                usage += searchNanos;
+                running--;
+                dispatch();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * A search slot granted to a move.
+     */
+    public static final class Grant implements AutoCloseable {
+
+        // The session the slot was granted to.
+        private final Session session;
+
+        // The search depth of the move.
+        private final int maxSearchDepth;
+
+        // Whether the depth was reduced because of the load.
+        private final boolean degraded;
+
+        // Time the move waited for the slot.
+        private final long waitNanos;
+
+        // Time the slot was granted at, the search time is measured from it.
+        private final long grantedAt = System.nanoTime();
+
+        // Whether the slot was released.
+        private boolean released;
+
+        private Grant(Session session, int maxSearchDepth, boolean degraded, long waitNanos) {
+            this.session = session;
+            this.maxSearchDepth = maxSearchDepth;
+            this.degraded = degraded;
+            this.waitNanos = waitNanos;
+        }
+
+        /**
+         * Returns the depth the move may search.
+         *
+         * @return The search depth, the configured one unless the move is degraded.
+         */
+        public int maxSearchDepth() {
+            return maxSearchDepth;
+        }
+
+        /**
+         * Checks if the search depth was reduced because of the load.
+         *
+         * @return {@code true} if the move must search shallower than configured.
+         */
+        public boolean isDegraded() {
+            return degraded;
+        }
+
+        /**
+         * Returns the time the move waited for its slot.
+         *
+         * @return The waiting time, in nanoseconds.
+         */
+        public long waitNanos() {
+            return waitNanos;
+        }
+
+        /**
+         * Releases the slot and charges the search time to the session.
+         */
+        @Override
+        public void close() {
+            if (released) {
+                return;
+            }
+            released = true;
+            session.release(System.nanoTime() - grantedAt);
+        }
+    }
+
+    /**
+     * A move waiting for a slot.
+     */
+    private static final class Request {
+
+        // The session with the least usage first, then the first arrived.
+        static final Comparator<Request> ORDER = Comparator.<Request>comparingLong(request -> request.usage)
+                .thenComparingLong(request -> request.sequence);
+
+        // Usage of the session when the move was queued, and order of arrival.
+        final long usage;
+        final long sequence;
+
+        // Size of the search requested.
+        final int emptyCells;
+        final int maxSearchDepth;
+
+        // Signalled when the slot is granted.
+        final Condition granted;
+
+        // Search depth granted, 0 while waiting.
+        int depth;
+
+        Request(long usage, long sequence, int emptyCells, int maxSearchDepth, Condition granted) {
+            this.usage = usage;
+            this.sequence = sequence;
+            this.emptyCells = emptyCells;
+            this.maxSearchDepth = maxSearchDepth;
+            this.granted = granted;
+        }
+    }
+}
@@ -1,3 +1,4 @@
+import java.io.IOException;
 import java.util.List;
 import java.util.Random;
 
@@ -8,39 +9,149 @@ import java.util.Random;
 public class AiPlayer extends TicTacToePlayer {
 
     // Logger to log debug messages.
-    private static final Logger logger = new Logger("AiPlayer");
+    private final Logger logger;
 
     // Random object used to generate random moves.
     private static final Random random = new Random();
 
     // Instance of the MiniMaxAlgorithm used to determine the best move.
-    private final MiniMaxAlgorithm minimax = new MiniMaxAlgorithm();
+    private final MiniMaxAlgorithm minimax;
+
+    // Searches replies to the likely user moves while the user is thinking, null if pondering is disabled.
+    private final Ponderer ponderer;
+
+    // Races several engines on each move, null if the engine portfolio is disabled.
+    private final EnginePortfolio portfolio;
+
+    // Shares the root search with local worker processes, null if the search runs in process.
+    private final DistributedSearch distributedSearch;
+
+    // The session of the game in the AI move scheduler, null if the moves are not scheduled.
+    private final AiMoveScheduler.Session scheduling;
+
+    // The moves chosen in the positions seen by the games of the process, null if the moves are not cached.
+    private final MoveSuggestionCache suggestions;
 
     /**
      * Constructs an AI player with a specified game board.
+     * The engine parameters are taken from the configuration of the board.
      *
      * @param gameBoard The game board on which the player will make moves.
      */
     protected AiPlayer(GameBoard gameBoard) {
         super(gameBoard);
+        this.logger = new Logger("AiPlayer", gameBoard.getConfig().isDebug());
+        this.minimax = new MiniMaxAlgorithm(gameBoard.getConfig(), SearchCacheStore.tableFor(gameBoard.getConfig()));
+        this.ponderer = gameBoard.getConfig().isPondering() ? new Ponderer(this) : null;
+        this.portfolio = gameBoard.getConfig().isEnginePortfolio()
+                ? new EnginePortfolio(gameBoard.getConfig(), minimax.getTranspositionTable())
+                : null;
+        this.distributedSearch = gameBoard.getConfig().getDistributedWorkers() > 0
+                ? startDistributedSearch(gameBoard.getConfig())
+                : null;
+        this.scheduling = gameBoard.getConfig().isMoveScheduling()
+                ? AiMoveScheduler.get().register(gameBoard.getConfig().getMovePriority())
+                : null;
+        this.suggestions = gameBoard.getConfig().getMoveCacheEntries() > 0 && MoveSuggestionCache.supports(gameBoard.getConfig())
+                ? MoveSuggestionCache.shared(gameBoard.getConfig().getMoveCacheEntries())
+                : null;
     }
 
     /**
      * Determines the next move of the AI.
-     * If it's the first move, a random move is chosen.
-     * Otherwise, the best move is determined using the MiniMax algorithm.
+     * If it's the first move and the configuration asks for a random opening, a random move is chosen.
+     * Otherwise, the best move is determined using the MiniMax algorithm,
+     * unless it was already computed while pondering on the user's time (a ponder hit).
+     * After the move, pondering on the user's time starts again.
      *
      * @return The board node where the move was made.
      */
     @Override
     public BoardNode doMove() {
+        long start = System.nanoTime();
         List<BoardNode> emptySpots = gameBoard.getEmptyPositions();
 
-        if (isFirstMove(emptySpots)) {
-            return doRandomMove(emptySpots);
+        BoardNode move;
+        if (gameBoard.getConfig().isRandomOpening() && isFirstMove(emptySpots)) {
+            move = doRandomMove(emptySpots);
         } else {
-            return doBestMove(emptySpots);
+            move = doPonderedMove();
+            if (move == null) {
+                move = doBestMove(emptySpots);
+            }
         }
+
+        EngineMetrics.get().aiMovePlayed(System.nanoTime() - start);
+
+        if (ponderer != null && move != null && gameBoard.getGameResult(move) == GameResult.UNDETERMINED) {
+            ponderer.start(gameBoard);
+        }
+        return move;
+    }
+
+    /**
+     * Returns the table of solved positions used by the AI search.
+     *
+     * @return The transposition table.
+     */
+    TranspositionTable getTranspositionTable() {
+        return minimax.getTranspositionTable();
+    }
+
+    /**
+     * Returns the search workers sharing the root search of this player.
+     *
+     * @return The distributed search, or {@code null} if the search runs in process.
+     */
+    DistributedSearch getDistributedSearch() {
+        return distributedSearch;
+    }
+
+    /**
+     * Stops pondering, the engine portfolio and the search workers, and releases their background threads.
+     */
+    @Override
+    public void close() {
+        if (ponderer != null) {
+            ponderer.close();
+        }
+        if (portfolio != null) {
+            portfolio.close();
+        }
+        if (distributedSearch != null) {
+            distributedSearch.close();
+        }
+    }
+
+    /**
+     * Starts the search workers, the AI searches in process if they cannot be started.
+     */
+    private DistributedSearch startDistributedSearch(GameConfig config) {
+        try {
+            return new DistributedSearch(config, config.getDistributedWorkers());
+        } catch (IOException e) {
+            logger.warning("Search workers unavailable, searching in process: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Stops pondering and plays the reply computed for the current position, if any.
+     *
+     * @return The board node where the move was made, or {@code null} on a ponder miss.
+     */
+    private BoardNode doPonderedMove() {
+        if (ponderer == null) {
+            return null;
+        }
+        ponderer.stop();
+        BoardNode reply = ponderer.lookup(gameBoard);
+        if (reply == null) {
+            logger.debug("Ponder miss");
+            return null;
+        }
+        logger.debug("Ponder hit, playing " + reply);
+        return gameBoard.makeMove(reply, BoardPlayer.AI);
     }
 
     /**
@@ -58,8 +169,18 @@ public class AiPlayer extends TicTacToePlayer {
 
     /**
      * Determines the best move for the AI using the MiniMax algorithm.
-     * Iterates through each possible move, computes its score using MiniMax,
-     * and then chooses the move with the highest score.
+     * When enabled, a cheap tactical analysis runs first: immediate wins, forced blocks and forks are
+     * played at once, and an opponent fork narrows the candidates to the moves defusing it.
+     * Then a threat-space search runs: a forced win is played at once,
+     * and if the user has a forced win only the moves refuting it are searched.
+     * The remaining moves are searched by {@link MiniMaxAlgorithm#searchRoot}, which chooses the move with the highest score.
+     * When search workers are configured, they share the remaining root moves instead, see {@link DistributedSearch},
+     * and when the engine portfolio is enabled, its strategies race for the move, see {@link EnginePortfolio}.
+     * When the moves are scheduled, the search waits for a slot of the {@link AiMoveScheduler}; a move degraded
+     * by the load runs a shallower search in process.
+     * When the moves are cached, a position already searched by a game of the process, or a symmetric one,
+     * is not searched again, see {@link MoveSuggestionCache}; the moves of degraded searches, and the moves the
+     * engine portfolio guessed when its deadline hit, are not cached.
      *
      * @param emptySpots List of available positions on the board.
      * @return The board node where the best move was made.
@@ -67,23 +188,25 @@ public class AiPlayer extends TicTacToePlayer {
     public BoardNode doBestMove(List<BoardNode> emptySpots) {
         logger.debug("Doing best move");
 
-        int bestScore = Integer.MIN_VALUE; // Best score starts at the lowest score possible
-        BoardNode bestMove = null;
-
-        for (BoardNode node : emptySpots) {
-            gameBoard.makeMove(node, BoardPlayer.AI);
-            int score = minimax.minimax(gameBoard, node);
-            gameBoard.resetNodePlayer(node);
-
-            logger.debug("Move " + node + " got a score of " + score);
-
-            if (score > bestScore) {
-                bestScore = score;
-                bestMove = node;
-                logger.debug("Best move changed to " + node + " with score of " + bestScore);
+        RootSearchResult result = suggestions == null ? null : suggestions.get(gameBoard);
+        if (result != null) {
+            logger.debug("Move cache hit, playing " + result.move());
+        } else if (scheduling != null) {
+            try (AiMoveScheduler.Grant grant = scheduling.acquire(emptySpots.size(), gameBoard.getConfig().getMaxSearchDepth())) {
+                if (grant.isDegraded()) {
+                    logger.debug("Scheduler overloaded, searching " + grant.maxSearchDepth() + " plies deep");
+                    MiniMaxAlgorithm degraded = new MiniMaxAlgorithm(gameBoard.getConfig().toBuilder()
+                            .maxSearchDepth(grant.maxSearchDepth()).build(), minimax.getTranspositionTable());
+                    result = searchRoot(gameBoard, emptySpots, degraded, logger);
+                } else {
+                    result = searchBestMove(emptySpots);
+                }
             }
+        } else {
+            result = searchBestMove(emptySpots);
         }
 
+        BoardNode bestMove = result.move();
         if (bestMove != null) {
             return gameBoard.makeMove(bestMove, BoardPlayer.AI);
         }
@@ -91,6 +214,103 @@ public class AiPlayer extends TicTacToePlayer {
         return null;
     }
 
+    /**
+     * Finds the best move with the configured engine without playing it, and caches it if it is proven.
+     */
+    private RootSearchResult searchBestMove(List<BoardNode> emptySpots) {
+        RootSearchResult result;
+        boolean proven = true;
+        if (distributedSearch != null) {
+            TacticalDecision decision = narrowRootMoves(gameBoard, emptySpots, logger);
+            BoardNode move = decision.isDecided()
+                    ? decision.move()
+                    : distributedSearch.findBestMove(gameBoard, decision.candidates());
+            result = new RootSearchResult(move, RootSearchResult.UNKNOWN_SCORE);
+        } else if (portfolio != null) {
+            EnginePortfolio.Answer answer = portfolio.race(gameBoard, emptySpots);
+            result = new RootSearchResult(answer == null ? null : answer.move(), RootSearchResult.UNKNOWN_SCORE);
+            proven = answer != null && answer.proven();
+        } else {
+            result = searchRoot(gameBoard, emptySpots, minimax, logger);
+        }
+        if (suggestions != null && proven) {
+            suggestions.put(gameBoard, result);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the best move for the AI on the given board without playing it.
+     * The board is left unchanged, so the search may run on a copy of the game board.
+     *
+     * @param board The board to search.
+     * @param emptySpots List of available positions on the board.
+     * @param engine The MiniMax algorithm used for the search.
+     * @param searchLogger The logger receiving the debug messages of the search.
+     * @return The best node of the given board, or {@code null} if there are no empty spots.
+     */
+    BoardNode findBestMove(GameBoard board, List<BoardNode> emptySpots, MiniMaxAlgorithm engine, Logger searchLogger) {
+        return searchRoot(board, emptySpots, engine, searchLogger).move();
+    }
+
+    /**
+     * Finds the best move for the AI on the given board without playing it, with its score.
+     *
+     * @param board The board to search.
+     * @param emptySpots List of available positions on the board.
+     * @param engine The MiniMax algorithm used for the search.
+     * @param searchLogger The logger receiving the debug messages of the search.
+     * @return The best node of the given board and its score, the node is {@code null} if there are no empty spots.
+     */
+    RootSearchResult searchRoot(GameBoard board, List<BoardNode> emptySpots, MiniMaxAlgorithm engine, Logger searchLogger) {
+        TacticalDecision decision = narrowRootMoves(board, emptySpots, searchLogger);
+        if (decision.isDecided()) {
+            return new RootSearchResult(decision.move(), RootSearchResult.UNKNOWN_SCORE);
+        }
+
+        RootSearchResult result = engine.searchRoot(board, decision.candidates());
+        searchLogger.debug("Best move " + result.move() + " with score of " + result.score());
+        return result;
+    }
+
+    /**
+     * Runs the enabled tactical analysis and threat-space search in front of the full search of the root moves.
+     * A move they decide is returned to be played at once, otherwise the root moves are narrowed to the ones
+     * the full search needs to consider.
+     *
+     * @param board The board to search.
+     * @param emptySpots List of available positions on the board.
+     * @param searchLogger The logger receiving the debug messages of the search.
+     * @return The move to play at once, or the root moves left for the full search.
+     */
+    private TacticalDecision narrowRootMoves(GameBoard board, List<BoardNode> emptySpots, Logger searchLogger) {
+        GameConfig config = board.getConfig();
+        ThreatTable threatTable = config.isTacticalSearch() || config.isThreatSearch() ? new ThreatTable(board) : null;
+
+        if (config.isTacticalSearch()) {
+            TacticalDecision decision = new TacticalAnalyzer(board, threatTable).analyze(BoardPlayer.AI, emptySpots);
+            if (decision.isDecided()) {
+                searchLogger.debug("Tactics decided " + decision.move() + ": " + decision.reason());
+                return decision;
+            }
+            if (decision.candidates().size() < emptySpots.size()) {
+                searchLogger.debug("Tactics narrowed the search to " + decision.candidates() + ": " + decision.reason());
+            }
+            emptySpots = decision.candidates();
+        }
+
+        if (config.isThreatSearch()) {
+            ThreatSpaceSearch threatSearch = new ThreatSpaceSearch(board, threatTable);
+            BoardNode forcedWin = threatSearch.findForcedWin(BoardPlayer.AI);
+            if (forcedWin != null) {
+                searchLogger.debug("Threat search found a forced win starting at " + forcedWin);
+                return new TacticalDecision(forcedWin, List.of(forcedWin), "forced win");
+            }
+            emptySpots = threatSearch.findDefences(BoardPlayer.AI, emptySpots);
+        }
+        return new TacticalDecision(null, emptySpots, "full search");
+    }
+
     /**
      * Returns the number of unique board states that have been visited during the search.
      *
@@ -100,6 +320,15 @@ public class AiPlayer extends TicTacToePlayer {
         return minimax.getVisitedNodesCount();
     }
 
+    /**
+     * Returns the number of positions searched by the MiniMax search of this player, revisits included.
+     *
+     * @return The count of searched positions.
+     */
+    long getNodeCount() {
+        return minimax.getNodeCount();
+    }
+
     /**
      * Checks if the current move is the first move of the game.
      *
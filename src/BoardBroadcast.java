@@ -0,0 +1,263 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts the board of a game to its spectators, such as viewers and analytics consumers.
+ * <p>
+ * The game thread is the single writer: a move stores the cell with the new version, then publishes the version,
+ * and nothing else, whatever the number of spectators. Each spectator reads the cells changed since the version
+ * it last saw, so it receives deltas by cell index, and a slow spectator receives the moves it missed coalesced
+ * into one delta instead of queuing them. Spectators either poll their {@link Subscription}, or get the deltas
+ * pushed by a shared pool of daemon threads, which the game thread wakes at most once per move.
+ */
+public final class BoardBroadcast {
+
+    // Logger for the failing spectators.
+    private static final Logger logger = new Logger("BoardBroadcast");
+
+    // Daemon threads pushing the deltas to the spectators of all the games.
+    private static final ExecutorService fanOut = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "board-fan-out");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    // The game results, indexed by the low bits of the head.
+    private static final GameResult[] results = GameResult.values();
+
+    // Number of low bits of the head holding the result, and of a cell holding its player.
+    private static final int RESULT_BITS = 2;
+    private static final int PLAYER_BITS = 2;
+
+    // Number of rows and columns of the board.
+    private final int rows;
+    private final int columns;
+
+    // Each cell as (version << PLAYER_BITS) | base-3 digit of its player, the version of its last change.
+    private final AtomicLongArray cells;
+
+    // The published state, (version << RESULT_BITS) | result ordinal, read before the cells.
+    private volatile long head;
+
+    // The spectators receiving pushed deltas.
+    private final List<Subscription> pushed = new CopyOnWriteArrayList<>();
+
+    // Whether a fan-out of the last version to the pushed spectators is pending.
+    private final AtomicBoolean fanOutScheduled = new AtomicBoolean();
+
+    /**
+     * A change of the board between two versions.
+     *
+     * @param fromVersion The version the spectator saw before, -1 for the first delta, which holds the whole board.
+     * @param version The version of the board after the delta.
+     * @param cells The changed cells, as {@code row * columns + column}, in increasing order.
+     * @param players The players now occupying the changed cells, {@link BoardPlayer#EMPTY} for cleared cells.
+     * @param result The result of the game at this version.
+     */
+    public record BoardDelta(long fromVersion, long version, int[] cells, BoardPlayer[] players, GameResult result) {
+
+        /**
+         * Applies the delta to a copy of the board kept by a spectator.
+         *
+         * @param view The players of the cells, indexed as {@code row * columns + column}.
+         */
+        public void applyTo(BoardPlayer[] view) {
+            for (int i = 0; i < cells.length; i++) {
+                view[cells[i]] = players[i];
+            }
+        }
+    }
+
+    /**
+     * Constructs the broadcast of a board, publishing its current cells as the first version.
+     *
+     * @param gameBoard The board of the game, possibly resumed with moves already played.
+     */
+    public BoardBroadcast(GameBoard gameBoard) {
+        this.rows = gameBoard.getRows();
+        this.columns = gameBoard.getColumns();
+        this.cells = new AtomicLongArray(rows * columns);
+        for (int cell = 0; cell < rows * columns; cell++) {
+            cells.set(cell, PositionIndex.digit(gameBoard.getNode(cell / columns, cell % columns).getPlayer()));
+        }
+        this.head = GameResult.UNDETERMINED.ordinal();
+    }
+
+    /**
+     * Publishes a move. Called by the game thread only.
+     *
+     * @param node The node where the move was made.
+     * @param result The result of the game after the move.
+     */
+    public void publish(BoardNode node, GameResult result) {
+        long version = (head >>> RESULT_BITS) + 1;
+        cells.lazySet(node.getI() * columns + node.getJ(), (version << PLAYER_BITS) | PositionIndex.digit(node.getPlayer()));
+        head = (version << RESULT_BITS) | result.ordinal();
+        if (!pushed.isEmpty() && fanOutScheduled.compareAndSet(false, true)) {
+            fanOut.execute(this::fanOut);
+        }
+    }
+
+    /**
+     * Returns the version of the board, the number of moves published.
+     *
+     * @return The current version.
+     */
+    public long version() {
+        return head >>> RESULT_BITS;
+    }
+
+    /**
+     * Returns the number of rows of the board.
+     *
+     * @return The number of rows.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns of the board.
+     *
+     * @return The number of columns.
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Subscribes a spectator polling the deltas.
+     *
+     * @return The subscription, whose first delta holds the whole board.
+     */
+    public Subscription subscribe() {
+        return new Subscription(null);
+    }
+
+    /**
+     * Subscribes a spectator receiving the deltas on the fan-out threads. A consumer is never called concurrently
+     * with itself, and the moves published while it is busy are delivered as one delta once it returns.
+     * A consumer that throws is unsubscribed.
+     *
+     * @param consumer The spectator.
+     * @return The subscription, to be closed when the spectator leaves.
+     */
+    public Subscription subscribe(Consumer<BoardDelta> consumer) {
+        Subscription subscription = new Subscription(consumer);
+        pushed.add(subscription);
+        subscription.schedule();
+        return subscription;
+    }
+
+    /**
+     * Returns the number of spectators receiving pushed deltas.
+     *
+     * @return The number of push subscriptions.
+     */
+    public int pushedSubscriptions() {
+        return pushed.size();
+    }
+
+    private void fanOut() {
+        // Cleared first, so a version published during the fan-out schedules another one.
+        fanOutScheduled.set(false);
+        for (Subscription subscription : pushed) {
+            subscription.schedule();
+        }
+    }
+
+    /**
+     * The position of a spectator in the versions of the board.
+     */
+    public final class Subscription implements AutoCloseable {
+
+        // Receives the pushed deltas, null for a polling spectator.
+        private final Consumer<BoardDelta> consumer;
+
+        // The last version delivered to the spectator, -1 before the first delta.
+        private long seen = -1;
+
+        // Whether a fan-out thread is delivering to the consumer.
+        private final AtomicBoolean delivering = new AtomicBoolean();
+
+        // Whether the spectator left.
+        private volatile boolean closed;
+
+        private Subscription(Consumer<BoardDelta> consumer) {
+            this.consumer = consumer;
+        }
+
+        /**
+         * Returns the changes of the board since the last delta, coalescing all the moves published in between.
+         *
+         * @return The delta, or null if the board did not change or the subscription is closed.
+         */
+        public synchronized BoardDelta poll() {
+            long published = head;
+            long version = published >>> RESULT_BITS;
+            if (closed || version == seen) {
+                return null;
+            }
+            int changed = 0;
+            int[] changedCells = new int[cells.length()];
+            BoardPlayer[] players = new BoardPlayer[cells.length()];
+            for (int cell = 0; cell < changedCells.length; cell++) {
+                long state = cells.get(cell);
+                long cellVersion = state >>> PLAYER_BITS;
+                // Cells of a version being published are left to the next delta.
+                if (cellVersion > seen && cellVersion <= version) {
+                    changedCells[changed] = cell;
+                    players[changed++] = PositionIndex.player((int) (state & ((1 << PLAYER_BITS) - 1)));
+                }
+            }
+            BoardDelta delta = new BoardDelta(seen, version, Arrays.copyOf(changedCells, changed),
+                    Arrays.copyOf(players, changed), results[(int) (published & ((1 << RESULT_BITS) - 1))]);
+            seen = version;
+            return delta;
+        }
+
+        /**
+         * Unsubscribes the spectator.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            pushed.remove(this);
+        }
+
+        private void schedule() {
+            if (!closed && delivering.compareAndSet(false, true)) {
+                fanOut.execute(this::deliver);
+            }
+        }
+
+        private void deliver() {
+            try {
+                BoardDelta delta;
+                while ((delta = poll()) != null) {
+                    consumer.accept(delta);
+                }
+            } catch (RuntimeException e) {
+                logger.warning("Unsubscribing a failing spectator: " + e);
+                close();
+            } finally {
+                delivering.set(false);
+            }
+            // A version published after the last poll but before the flag was cleared found it set.
+            if (!closed && head >>> RESULT_BITS != seenVersion()) {
+                schedule();
+            }
+        }
+
+        private synchronized long seenVersion() {
+            return seen;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The winning lines of an n x n x n cube, such as the 76 lines of 4x4x4 Qubic, as 64-bit cell masks.
+ * A cell is indexed (layer * n + row) * n + column, the index of the cell in the {@link GameBoard} grid
+ * of a cube, where the layers are stacked as consecutive blocks of n rows. A line is any row, column
+ * or pillar, and any plane or space diagonal, of n cells. The lines through each cell are precomputed,
+ * so checking whether a move completes a line is one AND and one comparison per line through the cell.
+ */
+final class CubeLines {
+
+    /** The largest cube whose cells fit in a 64-bit mask. */
+    static final int MAX_SIZE = 4;
+
+    // The lines of each cube size, built on first use.
+    private static final CubeLines[] cubes = new CubeLines[MAX_SIZE + 1];
+
+    // Number of cells of an edge of the cube.
+    private final int size;
+
+    // The mask of every line.
+    private final long[] masks;
+
+    // The cells of every line.
+    private final int[][] lineCells;
+
+    // The masks of the lines through each cell.
+    private final long[][] masksThrough;
+
+    private CubeLines(int size) {
+        this.size = size;
+        List<int[]> lines = new ArrayList<>();
+        for (int dl = -1; dl <= 1; dl++) {
+            for (int dr = -1; dr <= 1; dr++) {
+                for (int dc = -1; dc <= 1; dc++) {
+                    // Each line once: the first non-zero step of its direction is positive.
+                    if (dl < 0 || (dl == 0 && (dr < 0 || (dr == 0 && dc <= 0)))) {
+                        continue;
+                    }
+                    addLines(dl, dr, dc, lines);
+                }
+            }
+        }
+        this.lineCells = lines.toArray(new int[0][]);
+        this.masks = new long[lineCells.length];
+        int cells = size * size * size;
+        List<List<Long>> through = new ArrayList<>();
+        for (int cell = 0; cell < cells; cell++) {
+            through.add(new ArrayList<>());
+        }
+        for (int line = 0; line < lineCells.length; line++) {
+            for (int cell : lineCells[line]) {
+                masks[line] |= 1L << cell;
+            }
+            for (int cell : lineCells[line]) {
+                through.get(cell).add(masks[line]);
+            }
+        }
+        this.masksThrough = new long[cells][];
+        for (int cell = 0; cell < cells; cell++) {
+            masksThrough[cell] = through.get(cell).stream().mapToLong(Long::longValue).toArray();
+        }
+    }
+
+    /**
+     * Returns the lines of a cube.
+     *
+     * @param size The number of cells of an edge of the cube.
+     * @return The shared lines of the cube.
+     * @throws IllegalArgumentException if the cube does not fit in 64-bit masks.
+     */
+    static CubeLines of(int size) {
+        if (size < 2 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("A cube of size " + size + " does not fit in 64-bit masks");
+        }
+        synchronized (cubes) {
+            if (cubes[size] == null) {
+                cubes[size] = new CubeLines(size);
+            }
+            return cubes[size];
+        }
+    }
+
+    /**
+     * Returns the number of cells of an edge of the cube.
+     *
+     * @return The cube size.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of lines of the cube, 76 for Qubic.
+     *
+     * @return The number of lines.
+     */
+    int lineCount() {
+        return masks.length;
+    }
+
+    /**
+     * Returns the cells of every line, in the order of the line masks.
+     *
+     * @return The cells of the lines, not to be modified.
+     */
+    int[][] lineCells() {
+        return lineCells;
+    }
+
+    /**
+     * Returns the mask of every line.
+     *
+     * @return The line masks, not to be modified.
+     */
+    long[] masks() {
+        return masks;
+    }
+
+    /**
+     * Checks if the marks of a player hold a complete line through a cell.
+     *
+     * @param marks The mask of the cells of the player.
+     * @param cell The cell of the last mark of the player.
+     * @return {@code true} if a line through the cell is complete.
+     */
+    boolean completesLine(long marks, int cell) {
+        for (long mask : masksThrough[cell]) {
+            if ((marks & mask) == mask) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addLines(int dl, int dr, int dc, List<int[]> lines) {
+        for (int l = 0; l < size; l++) {
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    if (!inside(l + dl * (size - 1)) || !inside(r + dr * (size - 1)) || !inside(c + dc * (size - 1))) {
+                        continue;
+                    }
+                    int[] line = new int[size];
+                    for (int step = 0; step < size; step++) {
+                        line[step] = ((l + dl * step) * size + r + dr * step) * size + c + dc * step;
+                    }
+                    lines.add(line);
+                }
+            }
+        }
+    }
+
+    private boolean inside(int coordinate) {
+        return coordinate >= 0 && coordinate < size;
+    }
+}
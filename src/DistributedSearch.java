@@ -0,0 +1,475 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Splits the root moves of the AI search across {@link SearchWorker} processes, for boards too large
+ * for exact analysis on one machine. Workers connect to the coordinator over local sockets and pull one root
+ * move at a time from a shared queue, so an idle worker takes the next subtree while busy ones keep searching.
+ * When a score beats the best one, the new alpha is broadcast to the workers still searching, so they prune
+ * against it. If a worker dies its root move goes back to the front of the queue, and once no worker is left
+ * the coordinator searches the remaining moves itself.
+ * <p>
+ * The result is the one of the sequential root loop: the best score, ties going to the first move.
+ * Each root move is searched with alpha just below the best score so far, which keeps ties exact.
+ */
+public class DistributedSearch {
+
+    // Handshake sent by a worker: protocol magic ("TTTW") and version.
+    static final int MAGIC = 0x54545457;
+    static final int VERSION = 1;
+
+    // Coordinator messages: a root move to search, and a raised alpha for the running search.
+    static final byte TASK = 1;
+    static final byte ALPHA = 2;
+
+    // Time a worker process is given to connect.
+    private static final long CONNECT_TIMEOUT_MILLIS = 10_000;
+
+    // Logger for the worker connections.
+    private final Logger logger;
+
+    // The configuration of the searched boards.
+    private final GameConfig config;
+
+    // Accepts the worker connections on the loopback interface.
+    private final ServerSocket server;
+
+    // The local worker processes started by the coordinator.
+    private final List<Process> processes = new CopyOnWriteArrayList<>();
+
+    // The connected workers.
+    private final List<Worker> workers = new CopyOnWriteArrayList<>();
+
+    // Root moves waiting for a worker.
+    private final BlockingDeque<Task> queue = new LinkedBlockingDeque<>();
+
+    // Searches the root moves left when no worker is connected.
+    private final MiniMaxAlgorithm localSearch;
+
+    // Id of the last search, the workers ignore bounds of older searches.
+    private final AtomicLong searchIds = new AtomicLong();
+
+    // Number of root moves handed out as tasks since the coordinator started.
+    private final AtomicLong dispatchedTasks = new AtomicLong();
+
+    // Set when the coordinator is closed.
+    private volatile boolean closed;
+
+    /**
+     * Opens the coordinator socket and starts the local worker processes, waiting until they connected.
+     *
+     * @param config The configuration of the searched boards.
+     * @param workerProcesses The number of local worker processes to start.
+     * @throws IOException if the coordinator socket cannot be opened or the workers cannot be started.
+     */
+    public DistributedSearch(GameConfig config, int workerProcesses) throws IOException {
+        this.config = config;
+        this.logger = new Logger("DistributedSearch", config.isDebug());
+        this.localSearch = new MiniMaxAlgorithm(config);
+        this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+
+        Thread acceptor = new Thread(this::acceptWorkers, "search-coordinator");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        for (int w = 0; w < workerProcesses; w++) {
+            processes.add(startWorkerProcess());
+        }
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MILLIS;
+        while (workers.size() < workerProcesses && System.currentTimeMillis() < deadline) {
+            sleep(10);
+        }
+        if (workers.size() < workerProcesses) {
+            logger.warning("Only " + workers.size() + " of " + workerProcesses + " search workers connected");
+        }
+    }
+
+    /**
+     * Returns the port workers connect to, on the loopback interface.
+     *
+     * @return The coordinator port.
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Returns the number of connected workers.
+     *
+     * @return The live worker count.
+     */
+    public int getWorkerCount() {
+        return workers.size();
+    }
+
+    /**
+     * Returns the number of root moves handed out as tasks, to the workers or to the local search.
+     *
+     * @return The dispatched task count.
+     */
+    long getDispatchedTaskCount() {
+        return dispatchedTasks.get();
+    }
+
+    /**
+     * Returns the local worker processes started by the coordinator.
+     *
+     * @return The worker processes, some may have died.
+     */
+    List<Process> getWorkerProcesses() {
+        return processes;
+    }
+
+    /**
+     * Searches the root moves of a position where the AI is to move.
+     *
+     * @param gameBoard The game board, it is left unchanged.
+     * @param emptySpots The root moves to search.
+     * @return The best node of the game board, or {@code null} if there are no empty spots.
+     */
+    public BoardNode findBestMove(GameBoard gameBoard, List<BoardNode> emptySpots) {
+        if (emptySpots.isEmpty()) {
+            return null;
+        }
+        Search search = new Search(searchIds.incrementAndGet(), toCells(gameBoard), emptySpots.size());
+        dispatchedTasks.addAndGet(emptySpots.size());
+        for (int index = 0; index < emptySpots.size(); index++) {
+            BoardNode node = emptySpots.get(index);
+            queue.add(new Task(search, index, node.getI() * gameBoard.getColumns() + node.getJ()));
+        }
+
+        while (!search.await()) {
+            if (workers.isEmpty()) {
+                Task task = queue.pollFirst();
+                if (task != null) {
+                    searchLocally(task);
+                }
+            }
+        }
+
+        BoardNode best = emptySpots.get(search.bestIndex());
+        logger.debug("Best root move " + best + " with a score of " + search.bestScore());
+        return best;
+    }
+
+    /**
+     * Disconnects the workers and stops the local worker processes.
+     */
+    public void close() {
+        closed = true;
+        try {
+            server.close();
+        } catch (IOException ignored) {
+            // Closing the coordinator, nothing left to do with the socket.
+        }
+        for (Worker worker : workers) {
+            worker.close();
+        }
+        for (Process process : processes) {
+            process.destroy();
+        }
+    }
+
+    /**
+     * Converts the cells of a board to the wire format: 0 for empty, 1 for AI, 2 for USER, row by row.
+     */
+    static byte[] toCells(GameBoard gameBoard) {
+        byte[] cells = new byte[gameBoard.getRows() * gameBoard.getColumns()];
+        for (int i = 0; i < gameBoard.getRows(); i++) {
+            for (int j = 0; j < gameBoard.getColumns(); j++) {
+                BoardPlayer player = gameBoard.getNode(i, j).getPlayer();
+                cells[i * gameBoard.getColumns() + j] = (byte) (player == BoardPlayer.AI ? 1 : player == BoardPlayer.USER ? 2 : 0);
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Builds a board from the wire format of {@link #toCells(GameBoard)}.
+     */
+    static GameBoard toBoard(GameConfig config, byte[] cells) {
+        GameBoard board = new GameBoard(config);
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] != 0) {
+                board.makeMove(cell / config.getColumns(), cell % config.getColumns(),
+                        cells[cell] == 1 ? BoardPlayer.AI : BoardPlayer.USER);
+            }
+        }
+        return board;
+    }
+
+    private Process startWorkerProcess() throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        String classpath;
+        try {
+            classpath = Path.of(DistributedSearch.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        } catch (URISyntaxException e) {
+            throw new IOException("Cannot locate the classes of the search worker", e);
+        }
+        return new ProcessBuilder(java, "-cp", classpath + File.pathSeparator + System.getProperty("java.class.path"),
+                "SearchWorker", InetAddress.getLoopbackAddress().getHostAddress(), String.valueOf(getPort()))
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    private void acceptWorkers() {
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                Thread thread = new Thread(() -> serve(socket), "search-worker-" + socket.getPort());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (!closed) {
+                    logger.error("Accepting search workers failed: " + e);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Feeds root moves to one worker until it disconnects, re-queuing the move it was searching.
+     */
+    private void serve(Socket socket) {
+        Worker worker;
+        try {
+            worker = new Worker(socket);
+            if (worker.in.readInt() != MAGIC || worker.in.readInt() != VERSION) {
+                logger.warning("Rejected a search worker speaking another protocol");
+                socket.close();
+                return;
+            }
+        } catch (IOException e) {
+            return;
+        }
+        workers.add(worker);
+        logger.debug("Search worker connected, " + workers.size() + " workers");
+
+        try {
+            while (!closed) {
+                Task task = queue.pollFirst(100, TimeUnit.MILLISECONDS);
+                if (task == null) {
+                    worker.checkConnected();
+                    continue;
+                }
+                worker.task = task;
+                worker.send(task);
+
+                long searchId = worker.in.readLong();
+                int cell = worker.in.readInt();
+                int score = worker.in.readInt();
+                worker.in.readLong();
+                if (searchId != task.search.id || cell != task.cell) {
+                    throw new IOException("Result of another root move: search " + searchId + ", cell " + cell);
+                }
+                worker.task = null;
+                complete(task, score);
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                logger.warning("Search worker lost: " + e);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            workers.remove(worker);
+            Task lost = worker.task;
+            if (lost != null) {
+                queue.addFirst(lost);
+            }
+            worker.close();
+        }
+    }
+
+    private void searchLocally(Task task) {
+        GameBoard board = toBoard(config, task.search.cells);
+        BoardNode move = board.makeMove(task.cell / config.getColumns(), task.cell % config.getColumns(), BoardPlayer.AI);
+        complete(task, localSearch.minimax(board, move, task.search.alpha()));
+    }
+
+    /**
+     * Records the score of a root move and broadcasts the new alpha if it is the best one.
+     * A score at most the alpha the move was searched with is an upper bound, always below the best score.
+     */
+    private void complete(Task task, int score) {
+        if (task.search.complete(task.index, score)) {
+            int alpha = task.search.alpha();
+            for (Worker worker : workers) {
+                Task running = worker.task;
+                if (running != null && running.search == task.search) {
+                    worker.sendAlpha(task.search.id, alpha);
+                }
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A root move of a search.
+     *
+     * @param search The search the move belongs to.
+     * @param index The index of the move in the root move list.
+     * @param cell The cell index of the move.
+     */
+    private record Task(Search search, int index, int cell) {
+    }
+
+    /**
+     * The state of one root search: the searched position and the best root move so far.
+     */
+    private static class Search {
+        private final long id;
+        private final byte[] cells;
+        private final CountDownLatch remaining;
+        private int bestScore = Integer.MIN_VALUE;
+        private int bestIndex = -1;
+
+        Search(long id, byte[] cells, int moves) {
+            this.id = id;
+            this.cells = cells;
+            this.remaining = new CountDownLatch(moves);
+        }
+
+        /**
+         * Returns the alpha to search a root move with: just below the best score, so a move tying it
+         * returns its exact score and the first of the tied moves can be kept.
+         */
+        synchronized int alpha() {
+            return bestIndex < 0 ? Integer.MIN_VALUE : bestScore - 1;
+        }
+
+        /**
+         * Records the score of a root move. The move is counted as searched only once the best move is updated,
+         * so the search is never seen as finished without the result of its last move.
+         *
+         * @return {@code true} if the move is the new best one.
+         */
+        synchronized boolean complete(int index, int score) {
+            boolean best = bestIndex < 0 || score > bestScore || (score == bestScore && index < bestIndex);
+            if (best) {
+                bestScore = score;
+                bestIndex = index;
+            }
+            remaining.countDown();
+            return best;
+        }
+
+        synchronized int bestIndex() {
+            return bestIndex;
+        }
+
+        synchronized int bestScore() {
+            return bestScore;
+        }
+
+        boolean await() {
+            try {
+                return remaining.await(50, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * The connection to a worker.
+     */
+    private class Worker {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        // The root move the worker is searching, null when idle.
+        private volatile Task task;
+
+        Worker(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        void send(Task task) throws IOException {
+            synchronized (out) {
+                out.writeByte(TASK);
+                out.writeLong(task.search.id);
+                out.writeInt(task.cell);
+                out.writeInt(task.search.alpha());
+                out.writeInt(config.getRows());
+                out.writeInt(config.getColumns());
+                out.writeInt(config.getWinLength());
+                out.writeInt(config.getMaxSearchDepth());
+                out.writeInt(config.getTranspositionTableSize());
+                out.write(task.search.cells);
+                out.flush();
+            }
+        }
+
+        /**
+         * Detects an idle worker that disconnected: it sends nothing between its results,
+         * so a short read either times out or reaches the end of the stream.
+         */
+        void checkConnected() throws IOException {
+            socket.setSoTimeout(1);
+            try {
+                if (in.read() < 0) {
+                    throw new EOFException("Search worker disconnected");
+                }
+                throw new IOException("Unexpected data from an idle search worker");
+            } catch (SocketTimeoutException e) {
+                // Still connected.
+            } finally {
+                socket.setSoTimeout(0);
+            }
+        }
+
+        void sendAlpha(long searchId, int alpha) {
+            try {
+                synchronized (out) {
+                    out.writeByte(ALPHA);
+                    out.writeLong(searchId);
+                    out.writeInt(alpha);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // The worker's own connection thread notices the failure and re-queues its move.
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // The connection is dropped either way.
+            }
+        }
+    }
+}
@@ -0,0 +1,256 @@
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide registry of the live engine and game metrics, exposed over JMX through {@link EngineMetricsMXBean}.
+ * Counters are striped {@link LongAdder}s, so the games and searches updating them from many threads
+ * do not contend on a shared cache line. The MiniMax search counts its nodes and table lookups in plain
+ * fields and adds them here once per search, keeping the per-node cost at a field increment.
+ * Transposition tables are tracked weakly, so a finished game's table does not stay reachable.
+ */
+public final class EngineMetrics implements EngineMetricsMXBean {
+
+    // The name the metrics are registered under on the platform MBean server.
+    static final String OBJECT_NAME = "tictactoe:type=EngineMetrics";
+
+    // Logger for registration failures.
+    private static final Logger logger = new Logger("EngineMetrics");
+
+    // The registry of the process, registered on first use.
+    private static final EngineMetrics instance = register(new EngineMetrics());
+
+    // Minimal interval between two rate computations, in nanoseconds.
+    private static final long RATE_INTERVAL_NANOS = 1_000_000_000L;
+
+    // Number of games being played.
+    private final LongAdder activeGames = new LongAdder();
+
+    // Number of moves played by both players.
+    private final LongAdder moves = new LongAdder();
+
+    // Number of positions searched by the MiniMax algorithm.
+    private final LongAdder nodes = new LongAdder();
+
+    // Number of transposition table lookups, and of the ones finding a usable entry.
+    private final LongAdder cacheProbes = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+
+    // Finished games, indexed by GameResult ordinal.
+    private final LongAdder[] results = new LongAdder[GameResult.values().length];
+
+    // Latency of the AI moves.
+    private volatile LatencyHistogram aiMoveLatency = new LatencyHistogram();
+
+    // The live transposition tables.
+    private final Set<TranspositionTable> tables = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    // Rates over the last interval: moves and nodes counted at its start, and the computed rates.
+    private long rateStart = System.nanoTime();
+    private long movesAtRateStart;
+    private long nodesAtRateStart;
+    private double movesPerSecond;
+    private double nodesPerSecond;
+
+    private EngineMetrics() {
+        for (int i = 0; i < results.length; i++) {
+            results[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Returns the metrics registry of the process.
+     *
+     * @return The registry.
+     */
+    public static EngineMetrics get() {
+        return instance;
+    }
+
+    private static EngineMetrics register(EngineMetrics metrics) {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+            }
+        } catch (JMException | SecurityException e) {
+            logger.warning("Engine metrics are not exposed over JMX: " + e);
+        }
+        return metrics;
+    }
+
+    void gameStarted() {
+        activeGames.increment();
+    }
+
+    void gameFinished(GameResult result) {
+        activeGames.decrement();
+        results[result.ordinal()].increment();
+    }
+
+    void movePlayed() {
+        moves.increment();
+    }
+
+    void aiMovePlayed(long elapsedNanos) {
+        aiMoveLatency.record(elapsedNanos);
+    }
+
+    void searched(long nodeCount, long probeCount, long hitCount) {
+        nodes.add(nodeCount);
+        cacheProbes.add(probeCount);
+        cacheHits.add(hitCount);
+    }
+
+    void tableCreated(TranspositionTable table) {
+        tables.add(table);
+    }
+
+    @Override
+    public long getActiveGames() {
+        return activeGames.sum();
+    }
+
+    @Override
+    public long getGamesCompleted() {
+        long total = 0;
+        for (LongAdder count : results) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public Map<String, Long> getGameResults() {
+        Map<String, Long> distribution = new LinkedHashMap<>();
+        for (GameResult result : GameResult.values()) {
+            distribution.put(result.name(), results[result.ordinal()].sum());
+        }
+        return distribution;
+    }
+
+    @Override
+    public long getMovesTotal() {
+        return moves.sum();
+    }
+
+    @Override
+    public double getMovesPerSecond() {
+        updateRates();
+        return movesPerSecond;
+    }
+
+    @Override
+    public long getAiMovesTotal() {
+        return aiMoveLatency.getCount();
+    }
+
+    @Override
+    public double getAiMoveLatencyMeanMillis() {
+        return aiMoveLatency.getMean() / 1e6;
+    }
+
+    @Override
+    public double getAiMoveLatencyP50Millis() {
+        return aiMoveLatency.valueAtPercentile(50) / 1e6;
+    }
+
+    @Override
+    public double getAiMoveLatencyP99Millis() {
+        return aiMoveLatency.valueAtPercentile(99) / 1e6;
+    }
+
+    @Override
+    public double getAiMoveLatencyP999Millis() {
+        return aiMoveLatency.valueAtPercentile(99.9) / 1e6;
+    }
+
+    @Override
+    public double getAiMoveLatencyMaxMillis() {
+        return aiMoveLatency.getMax() / 1e6;
+    }
+
+    @Override
+    public long getNodesTotal() {
+        return nodes.sum();
+    }
+
+    @Override
+    public double getNodesPerSecond() {
+        updateRates();
+        return nodesPerSecond;
+    }
+
+    @Override
+    public long getCacheProbes() {
+        return cacheProbes.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public double getCacheHitRate() {
+        long probes = cacheProbes.sum();
+        return probes == 0 ? 0 : (double) cacheHits.sum() / probes;
+    }
+
+    @Override
+    public long getCacheEntries() {
+        long entries = 0;
+        synchronized (tables) {
+            for (TranspositionTable table : tables) {
+                entries += table.filledSlots();
+            }
+        }
+        return entries;
+    }
+
+    @Override
+    public long getCacheCapacity() {
+        long capacity = 0;
+        synchronized (tables) {
+            for (TranspositionTable table : tables) {
+                capacity += table.capacity();
+            }
+        }
+        return capacity;
+    }
+
+    @Override
+    public double getCacheOccupancy() {
+        long capacity = getCacheCapacity();
+        return capacity == 0 ? 0 : (double) getCacheEntries() / capacity;
+    }
+
+    @Override
+    public void resetLatency() {
+        aiMoveLatency = new LatencyHistogram();
+    }
+
+    /**
+     * Recomputes the rates if the current interval is over; readings in between return the last rates.
+     */
+    private synchronized void updateRates() {
+        long now = System.nanoTime();
+        long elapsed = now - rateStart;
+        if (elapsed < RATE_INTERVAL_NANOS) {
+            return;
+        }
+        long currentMoves = moves.sum();
+        long currentNodes = nodes.sum();
+        movesPerSecond = (currentMoves - movesAtRateStart) * 1e9 / elapsed;
+        nodesPerSecond = (currentNodes - nodesAtRateStart) * 1e9 / elapsed;
+        rateStart = now;
+        movesAtRateStart = currentMoves;
+        nodesAtRateStart = currentNodes;
+    }
+}
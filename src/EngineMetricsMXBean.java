@@ -0,0 +1,71 @@
+import java.util.Map;
+
+/**
+ * Management interface of the live engine and game metrics, registered on the platform MBean server
+ * as {@value EngineMetrics#OBJECT_NAME}, so they can be watched with JConsole, VisualVM or any JMX client.
+ * Rates are computed over the interval since the previous reading, at least one second long.
+ */
+public interface EngineMetricsMXBean {
+
+    /** @return The number of games being played. */
+    long getActiveGames();
+
+    /** @return The number of games finished. */
+    long getGamesCompleted();
+
+    /** @return The number of finished games per result, UNDETERMINED counting the games aborted by an error. */
+    Map<String, Long> getGameResults();
+
+    /** @return The number of moves played by both players. */
+    long getMovesTotal();
+
+    /** @return The moves played per second. */
+    double getMovesPerSecond();
+
+    /** @return The number of AI moves. */
+    long getAiMovesTotal();
+
+    /** @return The mean AI move latency, in milliseconds. */
+    double getAiMoveLatencyMeanMillis();
+
+    /** @return The median AI move latency, in milliseconds. */
+    double getAiMoveLatencyP50Millis();
+
+    /** @return The 99th percentile of the AI move latency, in milliseconds. */
+    double getAiMoveLatencyP99Millis();
+
+    /** @return The 99.9th percentile of the AI move latency, in milliseconds. */
+    double getAiMoveLatencyP999Millis();
+
+    /** @return The largest AI move latency, in milliseconds. */
+    double getAiMoveLatencyMaxMillis();
+
+    /** @return The number of positions searched by the MiniMax algorithm. */
+    long getNodesTotal();
+
+    /** @return The positions searched per second. */
+    double getNodesPerSecond();
+
+    /** @return The number of transposition table lookups. */
+    long getCacheProbes();
+
+    /** @return The number of transposition table lookups that found a usable entry. */
+    long getCacheHits();
+
+    /** @return The share of lookups that found a usable entry, between 0 and 1. */
+    double getCacheHitRate();
+
+    /** @return The number of entries in the live transposition tables. */
+    long getCacheEntries();
+
+    /** @return The number of slots of the live transposition tables. */
+    long getCacheCapacity();
+
+    /** @return The share of the slots of the live transposition tables in use, between 0 and 1. */
+    double getCacheOccupancy();
+
+    /**
+     * Forgets the recorded AI move latencies, to measure a new period.
+     */
+    void resetLatency();
+}
@@ -0,0 +1,79 @@
+/**
+ * Plays an {@link AiPlayer} engine on either side of a game, so two engine configurations can play each other.
+ * The engine always plays the AI marks, so it keeps a private mirrored board where its own marks are AI ones
+ * and the opponent's are USER ones. Before each move the mirror is brought up to date with the game board,
+ * and the move of the engine is played on the game board with the side's marks.
+ */
+public class EnginePlayer extends TicTacToePlayer {
+
+    // The side played on the game board.
+    private final BoardPlayer side;
+
+    // The mirrored board searched by the engine, with its own marks as AI ones.
+    private final GameBoard mirror;
+
+    // The engine, playing on the mirrored board.
+    private final AiPlayer engine;
+
+    /**
+     * Constructs an engine player.
+     *
+     * @param gameBoard The game board on which the player will make moves.
+     * @param side The side played, {@link BoardPlayer#AI} or {@link BoardPlayer#USER}.
+     * @param engineConfig The configuration of the engine, with the board geometry of the game.
+     */
+    public EnginePlayer(GameBoard gameBoard, BoardPlayer side, GameConfig engineConfig) {
+        super(gameBoard);
+        if (side == BoardPlayer.EMPTY) {
+            throw new IllegalArgumentException("An engine plays the AI or the USER side");
+        }
+        if (engineConfig.getRows() != gameBoard.getRows() || engineConfig.getColumns() != gameBoard.getColumns()
+                || engineConfig.getWinLength() != gameBoard.getConfig().getWinLength()
+                || engineConfig.getLayers() != gameBoard.getLayers()) {
+            throw new IllegalArgumentException("The engine configuration does not match the board: " + engineConfig);
+        }
+        this.side = side;
+        this.mirror = new GameBoard(engineConfig);
+        this.engine = new AiPlayer(mirror);
+    }
+
+    /**
+     * Lets the engine choose a move on the mirrored board and plays it on the game board.
+     *
+     * @return The board node of the game board where the move was made.
+     */
+    @Override
+    public BoardNode doMove() {
+        synchronizeMirror();
+        BoardNode move = engine.doMove();
+        return gameBoard.makeMove(move.getI(), move.getJ(), side);
+    }
+
+    /**
+     * Stops the background work of the engine.
+     */
+    @Override
+    public void close() {
+        engine.close();
+    }
+
+    /**
+     * Copies the cells that changed since the last move to the mirror, swapping the marks of the sides.
+     */
+    private void synchronizeMirror() {
+        for (int i = 0; i < gameBoard.getRows(); i++) {
+            for (int j = 0; j < gameBoard.getColumns(); j++) {
+                BoardPlayer player = gameBoard.getNode(i, j).getPlayer();
+                BoardPlayer mirrored = player == BoardPlayer.EMPTY ? BoardPlayer.EMPTY
+                        : player == side ? BoardPlayer.AI : BoardPlayer.USER;
+                BoardNode node = mirror.getNode(i, j);
+                if (node.getPlayer() != mirrored) {
+                    mirror.resetNodePlayer(node);
+                    if (mirrored != BoardPlayer.EMPTY) {
+                        mirror.makeMove(node, mirrored);
+                    }
+                }
+            }
+        }
+    }
+}
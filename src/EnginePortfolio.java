@@ -0,0 +1,363 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Meta-engine of the {@link AiPlayer}, enabled with {@link GameConfig#isEnginePortfolio()}.
+ * No single search is fastest across the whole game: the tactical layer answers forced positions at once,
+ * the exact MiniMax search proves the rest of a small board, and an iterative deepening search always has
+ * an answer ready. The portfolio races them on private copies of the board, takes the first proven move,
+ * or the best available one when the deadline hits, and cancels the others.
+ * <p>
+ * The portfolio learns which strategy proves the move first for each board size and number of empty cells.
+ * Once a strategy dominates a bucket, only it and the iterative deepening fallback are launched there,
+ * with a full race every few moves to keep learning.
+ */
+public class EnginePortfolio {
+
+    // Races of a bucket before its statistics are trusted.
+    private static final int MIN_RACES = 16;
+
+    // Share of the races a strategy must win to be launched alone (with the fallback).
+    private static final double DOMINANCE = 0.9;
+
+    // Every this many races of a bucket, all the strategies race again.
+    private static final int EXPLORE_EVERY = 8;
+
+    /**
+     * The strategies raced by the portfolio.
+     */
+    enum Strategy {
+        // Immediate wins, forced blocks, forks and threat-space wins.
+        TACTICAL,
+        // The MiniMax search to the end of the game.
+        EXACT,
+        // Depth-limited MiniMax searches of growing depth, the deadline fallback.
+        HEURISTIC
+    }
+
+    /**
+     * The answer of a strategy.
+     *
+     * @param move The move, a node of the board searched by the strategy.
+     * @param proven Whether the move is proven optimal (or the position decided), {@code false} for a best guess.
+     * @param strategy The strategy that found the move.
+     */
+    record Answer(BoardNode move, boolean proven, Strategy strategy) {
+    }
+
+    /**
+     * The positions sharing learned statistics: same board geometry and number of empty cells.
+     */
+    private record Bucket(int rows, int columns, int winLength, int layers, int empties) {
+    }
+
+    // Races won by each strategy (by ordinal) and, in the last slot, the races run, per bucket.
+    // Shared by the portfolios of the process, so the learning carries over from game to game.
+    private static final Map<Bucket, AtomicIntegerArray> statistics = new ConcurrentHashMap<>();
+
+    // Logger for the race results.
+    private final Logger logger;
+
+    // The configuration of the searched boards.
+    private final GameConfig config;
+
+    // The table of solved positions, shared by the MiniMax searches of all the strategies.
+    private final TranspositionTable transpositionTable;
+
+    // Daemon threads running the strategies.
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "ai-portfolio");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Constructs an engine portfolio.
+     *
+     * @param config The configuration of the searched boards.
+     * @param transpositionTable The table of solved positions of the AI.
+     */
+    EnginePortfolio(GameConfig config, TranspositionTable transpositionTable) {
+        this.config = config;
+        this.transpositionTable = transpositionTable;
+        this.logger = new Logger("EnginePortfolio", config.isDebug());
+    }
+
+    /**
+     * Races the strategies on a position where the AI is to move.
+     *
+     * @param gameBoard The game board, it is left unchanged.
+     * @param emptySpots The empty positions of the board.
+     * @return The node of the game board to play, or {@code null} if there are no empty spots.
+     */
+    BoardNode findBestMove(GameBoard gameBoard, List<BoardNode> emptySpots) {
+        Answer answer = race(gameBoard, emptySpots);
+        return answer == null ? null : answer.move();
+    }
+
+    /**
+     * Races the strategies on a position where the AI is to move, and tells whether the move is proven.
+     * A move guessed when the deadline hit is not proven, so it should not be reused for the position.
+     *
+     * @param gameBoard The game board, it is left unchanged.
+     * @param emptySpots The empty positions of the board.
+     * @return The node of the game board to play, or {@code null} if there are no empty spots.
+     *         Its strategy is {@code null} if no strategy answered.
+     */
+    Answer race(GameBoard gameBoard, List<BoardNode> emptySpots) {
+        if (emptySpots.isEmpty()) {
+            return null;
+        }
+        Bucket bucket = new Bucket(gameBoard.getRows(), gameBoard.getColumns(), config.getWinLength(),
+                config.getLayers(), emptySpots.size());
+        List<Engine> engines = launch(gameBoard, bucket);
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.getPortfolioDeadlineMillis());
+        CompletionService<Answer> race = new ExecutorCompletionService<>(executor);
+        List<Future<Answer>> futures = new ArrayList<>();
+        for (Engine engine : engines) {
+            futures.add(race.submit(engine));
+        }
+
+        Answer answer = null;
+        try {
+            for (int pending = engines.size(); pending > 0 && answer == null; pending--) {
+                Future<Answer> done = race.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    break;
+                }
+                Answer candidate = resultOf(done);
+                if (candidate != null && candidate.proven()) {
+                    answer = candidate;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (int e = 0; e < engines.size(); e++) {
+                engines.get(e).cancel();
+                futures.get(e).cancel(true);
+            }
+        }
+
+        if (answer == null) {
+            answer = bestAvailable(engines);
+        }
+        record(bucket, answer);
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (answer == null) {
+            logger.warning("No strategy answered within " + elapsedMillis + " ms, playing the first empty spot");
+            return new Answer(emptySpots.get(0), false, null);
+        }
+        BoardNode move = gameBoard.getNode(answer.move().getI(), answer.move().getJ());
+        logger.debug(answer.strategy() + (answer.proven() ? " proved " : " guessed ") + move
+                + " in " + elapsedMillis + " ms, " + engines.size() + " strategies raced");
+        return new Answer(move, answer.proven(), answer.strategy());
+    }
+
+    /**
+     * Shuts the strategy threads down.
+     */
+    void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Creates the engines to race in a bucket: the dominant strategy and the fallback once one was learned,
+     * otherwise all the strategies.
+     */
+    private List<Engine> launch(GameBoard gameBoard, Bucket bucket) {
+        List<Strategy> strategies = List.of(Strategy.values());
+        AtomicIntegerArray wins = statistics.get(bucket);
+        int races = wins == null ? 0 : wins.get(Strategy.values().length);
+        if (races >= MIN_RACES && races % EXPLORE_EVERY != 0) {
+            for (Strategy strategy : Strategy.values()) {
+                if (wins.get(strategy.ordinal()) >= DOMINANCE * races) {
+                    strategies = strategy == Strategy.HEURISTIC
+                            ? List.of(Strategy.HEURISTIC)
+                            : List.of(strategy, Strategy.HEURISTIC);
+                }
+            }
+        }
+
+        List<Engine> engines = new ArrayList<>();
+        for (Strategy strategy : strategies) {
+            GameBoard board = gameBoard.copy();
+            engines.add(switch (strategy) {
+                case TACTICAL -> new TacticalEngine(board);
+                case EXACT -> new ExactEngine(board);
+                case HEURISTIC -> new HeuristicEngine(board);
+            });
+        }
+        return engines;
+    }
+
+    private static void record(Bucket bucket, Answer answer) {
+        AtomicIntegerArray wins = statistics.computeIfAbsent(bucket, ignored -> new AtomicIntegerArray(Strategy.values().length + 1));
+        if (answer != null && answer.proven()) {
+            wins.incrementAndGet(answer.strategy().ordinal());
+        }
+        wins.incrementAndGet(Strategy.values().length);
+    }
+
+    private Answer resultOf(Future<Answer> done) {
+        try {
+            return done.get();
+        } catch (CancellationException | InterruptedException e) {
+            return null;
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof CancellationException)) {
+                logger.error("Strategy failed: " + e.getCause());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Returns the best unproven answer when the deadline hit, the one of the deepest completed search.
+     */
+    private static Answer bestAvailable(List<Engine> engines) {
+        for (Engine engine : engines) {
+            if (engine.bestSoFar != null) {
+                return engine.bestSoFar;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Runs a MiniMax search on every root move and returns the best one; ties keep the first move.
+     *
+     * @param board The board where the AI is to move.
+     * @param engine The MiniMax search.
+     * @param bestScore The expected score in its first element, e.g. the one of the previous depth, or
+     *                  {@link RootSearchResult#UNKNOWN_SCORE}; receives the score of the best move.
+     * @return The best move, or {@code null} if there are no empty spots.
+     */
+    private static BoardNode searchRoot(GameBoard board, MiniMaxAlgorithm engine, int[] bestScore) {
+        RootSearchResult result = engine.searchRoot(board, board.getEmptyPositions(), bestScore[0]);
+        bestScore[0] = result.score();
+        return result.move();
+    }
+
+    /**
+     * A strategy searching a private copy of the board.
+     */
+    private abstract static class Engine implements Callable<Answer> {
+
+        // The private copy of the board.
+        protected final GameBoard board;
+
+        // The best unproven answer found so far, read when the deadline hits.
+        protected volatile Answer bestSoFar;
+
+        // Set when the race is over.
+        protected volatile boolean cancelled;
+
+        Engine(GameBoard board) {
+            this.board = board;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private static class TacticalEngine extends Engine {
+
+        TacticalEngine(GameBoard board) {
+            super(board);
+        }
+
+        @Override
+        public Answer call() {
+            ThreatTable table = new ThreatTable(board);
+            TacticalDecision decision = new TacticalAnalyzer(board, table).analyze(BoardPlayer.AI, board.getEmptyPositions());
+            if (decision.isDecided()) {
+                return new Answer(decision.move(), true, Strategy.TACTICAL);
+            }
+            BoardNode forcedWin = new ThreatSpaceSearch(board, table).findForcedWin(BoardPlayer.AI);
+            return forcedWin == null ? null : new Answer(forcedWin, true, Strategy.TACTICAL);
+        }
+    }
+
+    private class ExactEngine extends Engine {
+
+        // The search, cancelled when the race is over.
+        private final MiniMaxAlgorithm minimax;
+
+        ExactEngine(GameBoard board) {
+            super(board);
+            this.minimax = new MiniMaxAlgorithm(config, transpositionTable);
+        }
+
+        @Override
+        public Answer call() {
+            BoardNode move = searchRoot(board, minimax, new int[]{RootSearchResult.UNKNOWN_SCORE});
+            return move == null ? null : new Answer(move, true, Strategy.EXACT);
+        }
+
+        @Override
+        void cancel() {
+            super.cancel();
+            minimax.cancel();
+        }
+    }
+
+    private class HeuristicEngine extends Engine {
+
+        // The search of the running depth, cancelled when the race is over.
+        private volatile MiniMaxAlgorithm minimax;
+
+        HeuristicEngine(GameBoard board) {
+            super(board);
+        }
+
+        /**
+         * Searches one more ply per iteration. A line ending within the depth limit has an exact score,
+         * so the answer is proven once a win is found, every move loses, or the search reached the end of the game.
+         */
+        @Override
+        public Answer call() {
+            int remaining = board.getEmptyPositions().size();
+            int[] bestScore = {RootSearchResult.UNKNOWN_SCORE};
+            for (int depth = 1; !cancelled; depth++) {
+                MiniMaxAlgorithm search = new MiniMaxAlgorithm(config.toBuilder().maxSearchDepth(depth).build(), transpositionTable);
+                minimax = search;
+                if (cancelled) {
+                    break;
+                }
+                BoardNode move = searchRoot(board, search, bestScore);
+                boolean proven = Math.abs(bestScore[0]) > HeuristicEvaluator.MAX_SCORE || depth >= remaining - 1;
+                bestSoFar = new Answer(move, proven, Strategy.HEURISTIC);
+                if (proven) {
+                    return bestSoFar;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        void cancel() {
+            super.cancel();
+            MiniMaxAlgorithm search = minimax;
+            if (search != null) {
+                search.cancel();
+            }
+        }
+    }
+}
@@ -5,7 +5,9 @@ import java.util.stream.Collectors;
 
 /**
  * Represents the game board of Tic Tac Toe.
- * The board is a grid of BoardNodes, each representing a cell which can be empty or occupied by a player.
+ * The board is a rows x columns grid of BoardNodes, each representing a cell which can be empty or occupied by a player.
+ * A cube board, such as 4x4x4 Qubic, stacks its layers in the rows of the grid and also keeps the cells of
+ * each player as a 64-bit mask, so a win is detected with the precomputed masks of {@link CubeLines}.
  */
 class GameBoard {
 
@@ -13,22 +15,83 @@ class GameBoard {
     private static final String NODE_SEPARATOR = " ";
     private static final String ROW_SEPARATOR = "\n";
 
-    // Shared rule evaluator for determining the game outcome.
-    private static final TicTacToeRule ticTacToeRule = new TicTacToeRule();
+    // The configuration of the game this board belongs to.
+    private final GameConfig config;
+
+    // Rule evaluator for determining the game outcome, using the win length of the configuration.
+    private final TicTacToeRule ticTacToeRule;
 
     // The 2D grid representing the board.
     private final BoardNode[][] board;
 
+    // Weight of each cell in the base-3 key of the board, see PositionIndex.
+    private final long[] keyWeights;
+
+    // The base-3 key of the board, updated on every move.
+    private long key;
+
+    // Number of empty cells, updated on every move.
+    private int emptyCount;
+
+    // The lines of a cube board, null for a flat board.
+    private final CubeLines cubeLines;
+
+    // The cells of each player on a cube board, bit row * columns + column, updated on every move.
+    private long aiMarks;
+    private long userMarks;
+
     /**
-     * Constructs a new empty game board.
+     * Constructs a new empty game board using the default game configuration.
      */
     GameBoard() {
-        board = new BoardNode[Settings.BOARD_SIZE][Settings.BOARD_SIZE];
+        this(GameConfig.defaults());
+    }
+
+    /**
+     * Constructs a new empty game board for the given game configuration.
+     *
+     * @param config The configuration of the game.
+     */
+    GameBoard(GameConfig config) {
+        this.config = config;
+        this.ticTacToeRule = new TicTacToeRule(config.getWinLength());
+        board = new BoardNode[config.getRows()][config.getColumns()];
+        keyWeights = PositionIndex.weights(config.getRows() * config.getColumns());
         for (int i = 0; i < board.length; i++) {
             for (int j = 0; j < board[i].length; j++) {
                 board[i][j] = new BoardNode(i, j);
             }
         }
+        emptyCount = config.getRows() * config.getColumns();
+        cubeLines = config.getLayers() > 1 ? CubeLines.of(config.getLayers()) : null;
+    }
+
+    /**
+     * Creates an independent copy of this board, with the same configuration and moves.
+     *
+     * @return The copied board.
+     */
+    public GameBoard copy() {
+        GameBoard copy = new GameBoard(config);
+        for (BoardNode[] row : board) {
+            for (BoardNode node : row) {
+                copy.board[node.getI()][node.getJ()].setPlayer(node.getPlayer());
+            }
+        }
+        copy.key = key;
+        copy.emptyCount = emptyCount;
+        copy.aiMarks = aiMarks;
+        copy.userMarks = userMarks;
+        return copy;
+    }
+
+    /**
+     * Returns the configuration of the game this board belongs to.
+     *
+     * @return The game configuration.
+     */
+    public GameConfig getConfig() {
+        return config;
     }
 
     /**
@@ -37,28 +100,61 @@ class GameBoard {
      * @return The total number of cells.
      */
     public int size() {
-        return board.length * board.length;
+        return getRows() * getColumns();
     }
 
     /**
-     * Returns the length (number of cells in one dimension) of the board.
+     * Returns the number of rows of the board.
      *
-     * @return The board's length.
+     * @return The number of rows.
      */
-    public int getBoardLength() {
+    public int getRows() {
         return board.length;
     }
 
+    /**
+     * Returns the number of columns of the board.
+     *
+     * @return The number of columns.
+     */
+    public int getColumns() {
+        return board[0].length;
+    }
+
+    /**
+     * Returns the number of layers of the board, stacked in its rows.
+     *
+     * @return The number of layers, 1 for a flat board.
+     */
+    public int getLayers() {
+        return config.getLayers();
+    }
+
+    /**
+     * Returns the cells of a player on a cube board as a mask, bit {@code row * columns + column}.
+     *
+     * @param player The player (AI or USER).
+     * @return The mask of the player's cells, 0 on a flat board.
+     */
+    public long getMarks(BoardPlayer player) {
+        return player == BoardPlayer.AI ? aiMarks : player == BoardPlayer.USER ? userMarks : 0;
+    }
+
     /**
      * Returns a string representation of the game board.
-     * Each cell is represented by its player's symbol or a placeholder for empty cells.
+     * Each cell is represented by its player's symbol or a placeholder for empty cells,
+     * and the layers of a cube are separated by an empty line.
      *
      * @return The board's string representation.
      */
     @Override
     public String toString() {
         StringBuilder boardText = new StringBuilder();
+        int layerRows = board.length / config.getLayers();
         for (BoardNode[] row : board) {
+            if (row[0].getI() > 0 && row[0].getI() % layerRows == 0) {
+                boardText.append(ROW_SEPARATOR);
+            }
             String[] rowSymbols = Arrays.stream(row)
                     .map(BoardNode::getPlayerSymbol)
                     .toArray(String[]::new);
@@ -69,8 +165,8 @@ class GameBoard {
     }
 
     /**
-     * Returns a hash representation of the game board.
-     * This is used for memoization in the MiniMax algorithm.
+     * Returns a hash representation of the game board, one player symbol per cell.
+     * Tables of positions use the numeric {@link #toKey()} instead.
      *
      * @return The board's hash representation.
      */
@@ -81,6 +177,19 @@ class GameBoard {
                 .collect(Collectors.joining());
     }
 
+    /**
+     * Returns a numeric key of the game board, used to index tables of positions.
+     * Each cell is a base-3 digit (0 empty, 1 AI, 2 USER), so the key is the rank of the position
+     * in its {@link PositionIndex}, unique for boards of up to 39 cells. On larger boards it wraps around
+     * and acts as a 64-bit hash. The key is updated by every move, so reading it takes constant time;
+     * the cells must only be changed through {@link #makeMove} and {@link #resetNodePlayer}.
+     *
+     * @return The board's key.
+     */
+    public long toKey() {
+        return key;
+    }
+
     /**
      * Returns a list of BoardNodes representing all empty positions on the board.
      *
@@ -98,13 +207,33 @@ class GameBoard {
         return positions;
     }
 
+    /**
+     * Returns the number of empty cells, maintained on every move, so unlike {@link #getEmptyPositions()}
+     * it allocates nothing.
+     *
+     * @return The number of empty positions.
+     */
+    public int getEmptyCount() {
+        return emptyCount;
+    }
+
     /**
      * Resets the state of the specified node to empty.
      *
-     * @param node The node to reset.
+     * @param node The node to reset, or the node at the same position of another board.
      */
     public void resetNodePlayer(BoardNode node) {
-        node.clearPlayer();
+        BoardNode own = board[node.getI()][node.getJ()];
+        key -= PositionIndex.digit(own.getPlayer()) * keyWeights[own.getI() * board[0].length + own.getJ()];
+        if (!own.isEmpty()) {
+            emptyCount++;
+        }
+        if (cubeLines != null) {
+            long bit = 1L << (own.getI() * board[0].length + own.getJ());
+            aiMarks &= ~bit;
+            userMarks &= ~bit;
+        }
+        own.clearPlayer();
     }
 
     /**
@@ -118,6 +247,17 @@ class GameBoard {
         return board[i][j].isEmpty();
     }
 
+    /**
+     * Returns the node at the specified position.
+     *
+     * @param i The row index.
+     * @param j The column index.
+     * @return The node at the position.
+     */
+    public BoardNode getNode(int i, int j) {
+        return board[i][j];
+    }
+
     /**
      * Places a player's move at the specified position.
      *
@@ -133,13 +273,22 @@ class GameBoard {
     /**
      * Places a player's move on the specified node.
      *
-     * @param node   The node to place the move on.
+     * @param node   The node to place the move on, or the node at the same position of another board.
      * @param player  The player making the move.
      * @return The node where the move was made.
      */
     public BoardNode makeMove(BoardNode node, BoardPlayer player) {
-        node.setPlayer(player);
-        return node;
+        BoardNode own = board[node.getI()][node.getJ()];
+        key += (PositionIndex.digit(player) - PositionIndex.digit(own.getPlayer()))
+                * keyWeights[own.getI() * board[0].length + own.getJ()];
+        emptyCount += (own.isEmpty() ? 0 : 1) - (player == BoardPlayer.EMPTY ? 0 : 1);
+        if (cubeLines != null) {
+            long bit = 1L << (own.getI() * board[0].length + own.getJ());
+            aiMarks = player == BoardPlayer.AI ? aiMarks | bit : aiMarks & ~bit;
+            userMarks = player == BoardPlayer.USER ? userMarks | bit : userMarks & ~bit;
+        }
+        own.setPlayer(player);
+        return own;
     }
 
     /**
@@ -149,6 +298,10 @@ class GameBoard {
      * @return The result of the game (e.g., AI_WINS, USER_WINS, DRAW).
      */
     public GameResult getGameResult(BoardNode lastMove) {
-        return ticTacToeRule.determineWinner(board, getEmptyPositions(), lastMove);
+        if (cubeLines != null && lastMove != null) {
+            return ticTacToeRule.determineWinner(cubeLines, getMarks(lastMove.getPlayer()),
+                    lastMove.getI() * board[0].length + lastMove.getJ(), lastMove.getPlayer(), emptyCount);
+        }
+        return ticTacToeRule.determineWinner(board, emptyCount, lastMove);
     }
 }
@@ -0,0 +1,647 @@
+import java.nio.file.Path;
+
+/**
+ * Immutable configuration of a single Tic Tac Toe game.
+ * A configuration is passed through the {@link GameExecutor}, the {@link GameBoard} and the players,
+ * so games with different settings can safely run side by side in the same JVM.
+ * The board is a rows x columns grid where a player wins by placing win-length marks in a row,
+ * horizontally, vertically or diagonally (an m,n,k game).
+ * A board may also be a cube of layers, such as 4x4x4 Qubic, stored as its layers stacked in the rows of the grid.
+ * Besides the board layout, it carries the parameters of the AI engine.
+ */
+public final class GameConfig {
+
+    /** Search depth value meaning the MiniMax search is not depth limited. */
+    public static final int UNLIMITED_DEPTH = Integer.MAX_VALUE;
+
+    // Number of rows of the game board.
+    private final int rows;
+
+    // Number of columns of the game board.
+    private final int columns;
+
+    // Number of marks in a row needed to win.
+    private final int winLength;
+
+    // Number of layers of a cube board, stacked in the rows, 1 for a flat board.
+    private final int layers;
+
+    // Enable / disable debug logs for this game.
+    private final boolean debug;
+
+    // Maximal depth the MiniMax search explores before scoring a position heuristically.
+    private final int maxSearchDepth;
+
+    // File of the HeuristicEvaluator weights scoring the positions at the depth limit, null to score them as neutral.
+    private final Path evaluationFile;
+
+    // Whether the AI plays a random move as its first move of the game.
+    private final boolean randomOpening;
+
+    // Whether the AI checks immediate wins, forced blocks and forks before searching.
+    private final boolean tacticalSearch;
+
+    // Whether the AI runs a threat-space search in front of the MiniMax search.
+    private final boolean threatSearch;
+
+    // Maximal number of nodes explored by one threat-space search query.
+    private final int threatSearchNodeLimit;
+
+    // Whether the AI searches replies on the user's time, only worth it when a person is thinking.
+    private final boolean pondering;
+
+    // Whether the AI races several engines on each move instead of running the MiniMax search alone.
+    private final boolean enginePortfolio;
+
+    // Time the engine portfolio waits for a proven answer before taking the best available one.
+    private final long portfolioDeadlineMillis;
+
+    // Number of local worker processes sharing the AI root search, 0 to search in process.
+    private final int distributedWorkers;
+
+    // Whether the AI moves wait for the process-wide AiMoveScheduler, which may reduce their search depth.
+    private final boolean moveScheduling;
+
+    // Priority of the AI moves of this game in the AiMoveScheduler.
+    private final AiMoveScheduler.Priority movePriority;
+
+    // Number of positions of the move suggestion cache shared by the games, 0 if the AI moves are not cached.
+    private final int moveCacheEntries;
+
+    // Number of entries of the MiniMax transposition table.
+    private final int transpositionTableSize;
+
+    // File the solved positions are persisted to, null if they are not persisted.
+    private final Path searchCacheFile;
+
+    // Interval between two snapshots of the solved positions to the cache file.
+    private final int searchCacheSnapshotSeconds;
+
+    // Directory the game sessions are logged to so they survive restarts, null if they are not persisted.
+    private final Path sessionDirectory;
+
+    // Boards with at least this many cells keep their transposition table off-heap.
+    private final int offHeapCacheMinCells;
+
+    // Size of the off-heap transposition table shared by the searches of a board geometry, in megabytes.
+    private final int offHeapCacheMegabytes;
+
+    private GameConfig(Builder builder) {
+        this.rows = builder.rows;
+        this.columns = builder.columns;
+        this.winLength = builder.winLength > 0 ? builder.winLength : Math.min(builder.rows, builder.columns);
+        this.layers = builder.layers;
+        this.debug = builder.debug;
+        this.maxSearchDepth = builder.maxSearchDepth;
+        this.evaluationFile = builder.evaluationFile;
+        this.randomOpening = builder.randomOpening;
+        this.tacticalSearch = builder.tacticalSearch;
+        this.threatSearch = builder.threatSearch;
+        this.threatSearchNodeLimit = builder.threatSearchNodeLimit;
+        this.pondering = builder.pondering;
+        this.enginePortfolio = builder.enginePortfolio;
+        this.portfolioDeadlineMillis = builder.portfolioDeadlineMillis;
+        this.distributedWorkers = builder.distributedWorkers;
+        this.moveScheduling = builder.moveScheduling;
+        this.movePriority = builder.movePriority;
+        this.moveCacheEntries = builder.moveCacheEntries;
+        this.transpositionTableSize = builder.transpositionTableSize;
+        this.searchCacheFile = builder.searchCacheFile;
+        this.searchCacheSnapshotSeconds = builder.searchCacheSnapshotSeconds;
+        this.sessionDirectory = builder.sessionDirectory;
+        this.offHeapCacheMinCells = builder.offHeapCacheMinCells;
+        this.offHeapCacheMegabytes = builder.offHeapCacheMegabytes;
+    }
+
+    /**
+     * Returns the configuration built from the default values in {@link Settings}.
+     *
+     * @return The default game configuration.
+     */
+    public static GameConfig defaults() {
+        return builder().build();
+    }
+
+    /**
+     * Creates a builder initialized with the default values in {@link Settings}.
+     *
+     * @return A new configuration builder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Creates a builder initialized with the values of this configuration.
+     *
+     * @return A new configuration builder.
+     */
+    public Builder toBuilder() {
+        return new Builder()
+                .rows(rows)
+                .columns(columns)
+                .winLength(winLength)
+                .layers(layers)
+                .debug(debug)
+                .maxSearchDepth(maxSearchDepth)
+                .evaluationFile(evaluationFile)
+                .randomOpening(randomOpening)
+                .tacticalSearch(tacticalSearch)
+                .threatSearch(threatSearch)
+                .threatSearchNodeLimit(threatSearchNodeLimit)
+                .pondering(pondering)
+                .enginePortfolio(enginePortfolio)
+                .portfolioDeadlineMillis(portfolioDeadlineMillis)
+                .distributedWorkers(distributedWorkers)
+                .moveScheduling(moveScheduling)
+                .movePriority(movePriority)
+                .moveCacheEntries(moveCacheEntries)
+                .transpositionTableSize(transpositionTableSize)
+                .searchCacheFile(searchCacheFile)
+                .searchCacheSnapshotSeconds(searchCacheSnapshotSeconds)
+                .sessionDirectory(sessionDirectory)
+                .offHeapCacheMinCells(offHeapCacheMinCells)
+                .offHeapCacheMegabytes(offHeapCacheMegabytes);
+    }
+
+    /**
+     * Returns the number of rows of the board.
+     *
+     * @return The number of rows.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns of the board.
+     *
+     * @return The number of columns.
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the number of marks in a row needed to win.
+     *
+     * @return The win length (k).
+     */
+    public int getWinLength() {
+        return winLength;
+    }
+
+    /**
+     * Returns the number of layers of a cube board. The layers are stacked in the rows of the grid,
+     * so the cell (layer, row, column) is at row {@code layer * columns + row}.
+     *
+     * @return The number of layers, 1 for a flat board.
+     */
+    public int getLayers() {
+        return layers;
+    }
+
+    /**
+     * Checks if debug logs are enabled for this game.
+     *
+     * @return {@code true} if debug logs are printed, {@code false} otherwise.
+     */
+    public boolean isDebug() {
+        return debug;
+    }
+
+    /**
+     * Returns the maximal depth explored by the MiniMax search.
+     *
+     * @return The maximal search depth, or {@link #UNLIMITED_DEPTH}.
+     */
+    public int getMaxSearchDepth() {
+        return maxSearchDepth;
+    }
+
+    /**
+     * Returns the file of the weights scoring the positions where the search reaches its depth limit,
+     * written by {@link WeightTuner}, see {@link HeuristicEvaluator}.
+     *
+     * @return The weight file, or {@code null} if these positions are scored as neutral.
+     */
+    public Path getEvaluationFile() {
+        return evaluationFile;
+    }
+
+    /**
+     * Checks if the AI opens its first move randomly.
+     *
+     * @return {@code true} if the first AI move is random, {@code false} if it is searched.
+     */
+    public boolean isRandomOpening() {
+        return randomOpening;
+    }
+
+    /**
+     * Checks if the AI looks for immediate wins, forced blocks and forks before searching.
+     *
+     * @return {@code true} if the tactical analysis is enabled, {@code false} otherwise.
+     */
+    public boolean isTacticalSearch() {
+        return tacticalSearch;
+    }
+
+    /**
+     * Checks if the AI runs a threat-space search in front of the MiniMax search.
+     *
+     * @return {@code true} if the threat-space search is enabled, {@code false} otherwise.
+     */
+    public boolean isThreatSearch() {
+        return threatSearch;
+    }
+
+    /**
+     * Returns the maximal number of nodes explored by one threat-space search query.
+     *
+     * @return The threat-space search node limit.
+     */
+    public int getThreatSearchNodeLimit() {
+        return threatSearchNodeLimit;
+    }
+
+    /**
+     * Checks if the AI searches replies to the likely user moves while the user is thinking.
+     * Disabled by default, the interactive game in {@link Main} enables it.
+     *
+     * @return {@code true} if pondering is enabled, {@code false} otherwise.
+     */
+    public boolean isPondering() {
+        return pondering;
+    }
+
+    /**
+     * Checks if the AI races several engines on each move, see {@link EnginePortfolio}.
+     *
+     * @return {@code true} if the engine portfolio is enabled, {@code false} otherwise.
+     */
+    public boolean isEnginePortfolio() {
+        return enginePortfolio;
+    }
+
+    /**
+     * Returns the time the engine portfolio waits for a proven answer before taking the best available one.
+     *
+     * @return The deadline of a portfolio move, in milliseconds.
+     */
+    public long getPortfolioDeadlineMillis() {
+        return portfolioDeadlineMillis;
+    }
+
+    /**
+     * Returns the number of local worker processes sharing the AI root search, see {@link DistributedSearch}.
+     *
+     * @return The number of search workers, 0 when the AI searches in process.
+     */
+    public int getDistributedWorkers() {
+        return distributedWorkers;
+    }
+
+    /**
+     * Checks if the AI moves are scheduled by the {@link AiMoveScheduler} shared by the games of the process.
+     *
+     * @return {@code true} if the AI moves wait for the scheduler, {@code false} if they search at once.
+     */
+    public boolean isMoveScheduling() {
+        return moveScheduling;
+    }
+
+    /**
+     * Returns the priority of the AI moves of this game in the {@link AiMoveScheduler}.
+     *
+     * @return {@link AiMoveScheduler.Priority#INTERACTIVE} for games played by users, or
+     *         {@link AiMoveScheduler.Priority#BATCH} for analysis.
+     */
+    public AiMoveScheduler.Priority getMovePriority() {
+        return movePriority;
+    }
+
+    /**
+     * Returns the number of positions of the {@link MoveSuggestionCache} in front of the AI search.
+     *
+     * @return The capacity of the move cache, 0 if the AI moves are not cached.
+     */
+    public int getMoveCacheEntries() {
+        return moveCacheEntries;
+    }
+
+    /**
+     * Returns the number of entries of the MiniMax transposition table.
+     *
+     * @return The transposition table size.
+     */
+    public int getTranspositionTableSize() {
+        return transpositionTableSize;
+    }
+
+    /**
+     * Returns the file the solved positions are persisted to, so they survive a restart.
+     *
+     * @return The cache file, or {@code null} if solved positions are not persisted.
+     */
+    public Path getSearchCacheFile() {
+        return searchCacheFile;
+    }
+
+    /**
+     * Returns the interval between two snapshots of the solved positions to the cache file.
+     *
+     * @return The snapshot interval in seconds.
+     */
+    public int getSearchCacheSnapshotSeconds() {
+        return searchCacheSnapshotSeconds;
+    }
+
+    /**
+     * Returns the directory the game sessions are logged to, so games in progress survive a restart.
+     *
+     * @return The session directory, or {@code null} if sessions are not persisted.
+     */
+    public Path getSessionDirectory() {
+        return sessionDirectory;
+    }
+
+    /**
+     * Returns the number of cells from which the transposition table is kept off-heap.
+     *
+     * @return The minimal number of cells of a board using an off-heap table.
+     */
+    public int getOffHeapCacheMinCells() {
+        return offHeapCacheMinCells;
+    }
+
+    /**
+     * Returns the size of an off-heap transposition table. The process has one such table per board geometry,
+     * allocated with the size of the first configuration using it.
+     *
+     * @return The off-heap table size in megabytes.
+     */
+    public int getOffHeapCacheMegabytes() {
+        return offHeapCacheMegabytes;
+    }
+
+    @Override
+    public String toString() {
+        return "GameConfig{rows=" + rows + ", columns=" + columns + ", winLength=" + winLength + ", layers=" + layers +
+                ", debug=" + debug + ", maxSearchDepth=" + maxSearchDepth + ", evaluationFile=" + evaluationFile + ", randomOpening=" + randomOpening +
+                ", tacticalSearch=" + tacticalSearch + ", threatSearch=" + threatSearch + ", threatSearchNodeLimit=" + threatSearchNodeLimit +
+                ", pondering=" + pondering +
+                ", enginePortfolio=" + enginePortfolio + ", portfolioDeadlineMillis=" + portfolioDeadlineMillis +
+                ", distributedWorkers=" + distributedWorkers +
+                ", moveScheduling=" + moveScheduling + ", movePriority=" + movePriority +
+                ", moveCacheEntries=" + moveCacheEntries +
+                ", transpositionTableSize=" + transpositionTableSize + ", searchCacheFile=" + searchCacheFile +
+                ", searchCacheSnapshotSeconds=" + searchCacheSnapshotSeconds + ", sessionDirectory=" + sessionDirectory +
+                ", offHeapCacheMinCells=" + offHeapCacheMinCells + ", offHeapCacheMegabytes=" + offHeapCacheMegabytes + "}";
+    }
+
+    /**
+     * Builder for {@link GameConfig} instances.
+     */
+    public static final class Builder {
+        private int rows = Settings.BOARD_SIZE;
+        private int columns = Settings.BOARD_SIZE;
+        private int winLength = 0;
+        private int layers = 1;
+        private boolean debug = Settings.DEBUG;
+        private int maxSearchDepth = UNLIMITED_DEPTH;
+        private Path evaluationFile = null;
+        private boolean randomOpening = true;
+        private boolean tacticalSearch = true;
+        private boolean threatSearch = true;
+        private int threatSearchNodeLimit = 100_000;
+        private boolean pondering = false;
+        private boolean enginePortfolio = false;
+        private long portfolioDeadlineMillis = 2000;
+        private int distributedWorkers = 0;
+        private boolean moveScheduling = false;
+        private AiMoveScheduler.Priority movePriority = AiMoveScheduler.Priority.INTERACTIVE;
+        private int moveCacheEntries = 0;
+        private int transpositionTableSize = 1 << 16;
+        private Path searchCacheFile = null;
+        private int searchCacheSnapshotSeconds = 60;
+        private Path sessionDirectory = null;
+        private int offHeapCacheMinCells = 25;
+        private int offHeapCacheMegabytes = 256;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets a square board of the given size, a full line is needed to win unless a win length is set.
+         *
+         * @param boardSize The number of rows and columns.
+         * @return This builder.
+         */
+        public Builder boardSize(int boardSize) {
+            this.rows = boardSize;
+            this.columns = boardSize;
+            this.layers = 1;
+            return this;
+        }
+
+        /**
+         * Sets a cube board of the given size, such as 4 for 4x4x4 Qubic, where a full line of the cube is needed
+         * to win. The layers are stacked in the rows, so the grid has size x size rows of size columns.
+         *
+         * @param cubeSize The number of layers, rows per layer and columns.
+         * @return This builder.
+         */
+        public Builder cube(int cubeSize) {
+            this.rows = cubeSize * cubeSize;
+            this.columns = cubeSize;
+            this.layers = cubeSize;
+            this.winLength = 0;
+            return this;
+        }
+
+        public Builder rows(int rows) {
+            this.rows = rows;
+            return this;
+        }
+
+        public Builder columns(int columns) {
+            this.columns = columns;
+            return this;
+        }
+
+        /**
+         * Sets the number of marks in a row needed to win, 0 means a full line of the shorter dimension.
+         *
+         * @param winLength The win length (k).
+         * @return This builder.
+         */
+        public Builder winLength(int winLength) {
+            this.winLength = winLength;
+            return this;
+        }
+
+        public Builder layers(int layers) {
+            this.layers = layers;
+            return this;
+        }
+
+        public Builder debug(boolean debug) {
+            this.debug = debug;
+            return this;
+        }
+
+        public Builder maxSearchDepth(int maxSearchDepth) {
+            this.maxSearchDepth = maxSearchDepth;
+            return this;
+        }
+
+        public Builder evaluationFile(Path evaluationFile) {
+            this.evaluationFile = evaluationFile;
+            return this;
+        }
+
+        public Builder randomOpening(boolean randomOpening) {
+            this.randomOpening = randomOpening;
+            return this;
+        }
+
+        public Builder tacticalSearch(boolean tacticalSearch) {
+            this.tacticalSearch = tacticalSearch;
+            return this;
+        }
+
+        public Builder threatSearch(boolean threatSearch) {
+            this.threatSearch = threatSearch;
+            return this;
+        }
+
+        public Builder threatSearchNodeLimit(int threatSearchNodeLimit) {
+            this.threatSearchNodeLimit = threatSearchNodeLimit;
+            return this;
+        }
+
+        public Builder pondering(boolean pondering) {
+            this.pondering = pondering;
+            return this;
+        }
+
+        public Builder enginePortfolio(boolean enginePortfolio) {
+            this.enginePortfolio = enginePortfolio;
+            return this;
+        }
+
+        public Builder portfolioDeadlineMillis(long portfolioDeadlineMillis) {
+            this.portfolioDeadlineMillis = portfolioDeadlineMillis;
+            return this;
+        }
+
+        public Builder distributedWorkers(int distributedWorkers) {
+            this.distributedWorkers = distributedWorkers;
+            return this;
+        }
+
+        public Builder moveScheduling(boolean moveScheduling) {
+            this.moveScheduling = moveScheduling;
+            return this;
+        }
+
+        public Builder movePriority(AiMoveScheduler.Priority movePriority) {
+            this.movePriority = movePriority;
+            return this;
+        }
+
+        public Builder moveCacheEntries(int moveCacheEntries) {
+            this.moveCacheEntries = moveCacheEntries;
+            return this;
+        }
+
+        public Builder transpositionTableSize(int transpositionTableSize) {
+            this.transpositionTableSize = transpositionTableSize;
+            return this;
+        }
+
+        public Builder searchCacheFile(Path searchCacheFile) {
+            this.searchCacheFile = searchCacheFile;
+            return this;
+        }
+
+        public Builder searchCacheSnapshotSeconds(int searchCacheSnapshotSeconds) {
+            this.searchCacheSnapshotSeconds = searchCacheSnapshotSeconds;
+            return this;
+        }
+
+        public Builder sessionDirectory(Path sessionDirectory) {
+            this.sessionDirectory = sessionDirectory;
+            return this;
+        }
+
+        public Builder offHeapCacheMinCells(int offHeapCacheMinCells) {
+            this.offHeapCacheMinCells = offHeapCacheMinCells;
+            return this;
+        }
+
+        public Builder offHeapCacheMegabytes(int offHeapCacheMegabytes) {
+            this.offHeapCacheMegabytes = offHeapCacheMegabytes;
+            return this;
+        }
+
+        /**
+         * Validates the collected values and builds the configuration.
+         *
+         * @return The immutable game configuration.
+         * @throws IllegalArgumentException if a value is out of range.
+         */
+        public GameConfig build() {
+            if (rows < 1 || columns < 1) {
+                throw new IllegalArgumentException("Board dimensions must be positive: " + rows + "x" + columns);
+            }
+            if (winLength < 0 || winLength > Math.max(rows, columns)) {
+                throw new IllegalArgumentException("Win length " + winLength + " does not fit a " + rows + "x" + columns + " board");
+            }
+            if (layers != 1) {
+                if (layers < 2 || layers > CubeLines.MAX_SIZE || columns != layers || rows != layers * columns) {
+                    throw new IllegalArgumentException("A board of " + layers + " layers must be a cube of 2 to "
+                            + CubeLines.MAX_SIZE + " cells per edge, not " + rows + "x" + columns);
+                }
+                if (winLength != 0 && winLength != columns) {
+                    throw new IllegalArgumentException("A cube is won with a full line of " + columns + ", not " + winLength);
+                }
+                if (distributedWorkers > 0 || sessionDirectory != null) {
+                    throw new IllegalArgumentException("Cube boards are neither distributed nor logged to sessions");
+                }
+            }
+            if (maxSearchDepth < 1) {
+                throw new IllegalArgumentException("Max search depth must be positive: " + maxSearchDepth);
+            }
+            if (evaluationFile != null && distributedWorkers > 0) {
+                throw new IllegalArgumentException("Search workers score the depth limit as neutral, they cannot use " + evaluationFile);
+            }
+            if (threatSearchNodeLimit < 0) {
+                throw new IllegalArgumentException("Threat search node limit must not be negative: " + threatSearchNodeLimit);
+            }
+            if (portfolioDeadlineMillis < 1) {
+                throw new IllegalArgumentException("Portfolio deadline must be positive: " + portfolioDeadlineMillis);
+            }
+            if (distributedWorkers < 0) {
+                throw new IllegalArgumentException("Distributed workers must not be negative: " + distributedWorkers);
+            }
+            if (movePriority == null) {
+                throw new IllegalArgumentException("Move priority must be set");
+            }
+            if (moveCacheEntries < 0) {
+                throw new IllegalArgumentException("Move cache entries must not be negative: " + moveCacheEntries);
+            }
+            if (transpositionTableSize < 2) {
+                throw new IllegalArgumentException("Transposition table size must be at least 2: " + transpositionTableSize);
+            }
+            if (searchCacheSnapshotSeconds < 1) {
+                throw new IllegalArgumentException("Search cache snapshot interval must be positive: " + searchCacheSnapshotSeconds);
+            }
+            if (offHeapCacheMegabytes < 1) {
+                throw new IllegalArgumentException("Off-heap cache size must be positive: " + offHeapCacheMegabytes);
+            }
+            return new GameConfig(this);
+        }
+    }
+}
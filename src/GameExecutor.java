@@ -1,3 +1,5 @@
+import java.util.function.Function;
+
 /**
  * The main class responsible for executing and managing the Tic Tac Toe game.
  * Orchestrates the game flow, switches between user and AI turns, prints the board state,
@@ -19,12 +21,99 @@ public class GameExecutor {
     // Holds the game result (WIN, DRAW, or UNDETERMINED).
     private GameResult result = GameResult.UNDETERMINED;
 
+    // Notified after every move, e.g. to measure the AI move latency.
+    private final MoveListener moveListener;
+
+    // Whether the turns and the board are printed, disabled for synthetic games.
+    private final boolean printing;
+
+    // Logs the moves so the game survives a restart, null if sessions are not persisted.
+    private final SessionStore sessions;
+
+    // The id of the game in the session store.
+    private final long sessionId;
+
+    // The number of moves played, resumed games included.
+    private int ply;
+
+    // Publishes the board to the spectators after every move.
+    private final BoardBroadcast broadcast;
+
     /**
-     * Constructs a GameExecutor with a new game board and initializes player factory.
+     * Receives the moves played by a GameExecutor.
+     */
+    @FunctionalInterface
+    public interface MoveListener {
+
+        // A listener ignoring all the moves.
+        MoveListener NONE = (player, node, elapsedNanos) -> { };
+
+        /**
+         * Called after a player made a move.
+         *
+         * @param player The player who moved.
+         * @param node The board node where the move was made.
+         * @param elapsedNanos The time the player took to choose and make the move, in nanoseconds.
+         */
+        void onMove(BoardPlayer player, BoardNode node, long elapsedNanos);
+    }
+
+    /**
+     * Constructs a GameExecutor with the default game configuration.
      */
     public GameExecutor(){
-        board = new GameBoard();
-        currentPlayer = new TicTacToePlayerFactory(new UserPlayer(board), new AiPlayer(board));
+        this(GameConfig.defaults());
+    }
+
+    /**
+     * Constructs a GameExecutor with a new game board for the given configuration and initializes player factory.
+     *
+     * @param config The configuration of the game.
+     */
+    public GameExecutor(GameConfig config){
+        this(config, UserPlayer::new, MoveListener.NONE, true);
+    }
+
+    /**
+     * Constructs a GameExecutor with a custom user player, such as a synthetic player driving load tests.
+     *
+     * @param config The configuration of the game.
+     * @param userPlayerFactory Creates the user player for the game board.
+     * @param moveListener Notified after every move.
+     * @param printing Whether the turns and the board are printed.
+     */
+    public GameExecutor(GameConfig config, Function<GameBoard, TicTacToePlayer> userPlayerFactory,
+                        MoveListener moveListener, boolean printing){
+        this(config, null, userPlayerFactory, moveListener, printing);
+    }
+
+    /**
+     * Constructs a GameExecutor resuming a game recovered from the session store, see {@link SessionStore}.
+     * When the configuration has a session directory, the moves of the game are logged to it.
+     *
+     * @param config The configuration of the game.
+     * @param session The game to resume, or {@code null} to start a new one.
+     * @param userPlayerFactory Creates the user player for the game board.
+     * @param moveListener Notified after every move.
+     * @param printing Whether the turns and the board are printed.
+     */
+    public GameExecutor(GameConfig config, GameSession session, Function<GameBoard, TicTacToePlayer> userPlayerFactory,
+                        MoveListener moveListener, boolean printing){
+        board = session == null ? new GameBoard(config) : session.replay(config);
+        currentPlayer = new TicTacToePlayerFactory(userPlayerFactory.apply(board), new AiPlayer(board));
+        this.moveListener = moveListener;
+        this.printing = printing;
+        this.broadcast = new BoardBroadcast(board);
+
+        sessions = config.getSessionDirectory() == null ? null : SessionStore.forDirectory(config.getSessionDirectory());
+        if (session != null) {
+            sessionId = session.id();
+            ply = session.moves().length;
+            // The player who moved last, the user moving first.
+            playerTurn = ply == 0 ? null : ply % 2 == 1 ? BoardPlayer.USER : BoardPlayer.AI;
+        } else {
+            sessionId = sessions == null ? -1 : sessions.startSession(config);
+        }
     }
 
     /**
@@ -33,27 +122,57 @@ public class GameExecutor {
      * @return The final result of the game, along with the number of unique board states visited by the AI.
      */
     public TicTacToeResult play(){
-        while (result == GameResult.UNDETERMINED){
-            /* 1. set the turn (who plays) */
-            setTurn();
+        EngineMetrics metrics = EngineMetrics.get();
+        metrics.gameStarted();
+        try {
+            while (result == GameResult.UNDETERMINED){
+                /* 1. set the turn (who plays) */
+                setTurn();
 
-            /* 2. print current turn (who plays) */
-            printTurn();
+                /* 2. print current turn (who plays) */
+                printTurn();
 
-            /* 3. execute turn according to player */
-            BoardNode node = playByTurn();
+                /* 3. execute turn according to player */
+                long start = System.nanoTime();
+                BoardNode node = playByTurn();
+                moveListener.onMove(playerTurn, node, System.nanoTime() - start);
+                metrics.movePlayed();
+                if (sessions != null) {
+                    sessions.recordMove(sessionId, ply, node, board.getColumns());
+                }
+                ply++;
 
-            /* 4. print current board status */
-            printBoard();
+                /* 4. print current board status */
+                printBoard();
 
-            /* 5. calculate game result */
-            result = board.getGameResult(node);
+                /* 5. calculate game result and publish the move to the spectators */
+                result = board.getGameResult(node);
+                broadcast.publish(node, result);
+            }
+        } finally {
+            /* 6. stop the players' background work and record the game, even if a move failed */
+            currentPlayer.close();
+            metrics.gameFinished(result);
+            // An unfinished game stays in the session store, to be resumed.
+            if (sessions != null && result != GameResult.UNDETERMINED) {
+                sessions.finishSession(sessionId, result);
+            }
         }
 
-        /* 6. return results */
+        /* 7. return results */
         return new TicTacToeResult(result, currentPlayer.getAIVisitedNodesCount());
     }
 
+    /**
+     * Returns the broadcast of the board, to which spectators subscribe to follow the game.
+     * Publishing a move costs the game thread the same whatever the number of spectators.
+     *
+     * @return The broadcast of the game.
+     */
+    public BoardBroadcast getBroadcast(){
+        return broadcast;
+    }
+
     /**
      * Sets the turn of the player (either User or AI).
      */
@@ -69,6 +188,9 @@ public class GameExecutor {
      * Prints the message indicating whose turn it is.
      */
     private void printTurn(){
+        if (!printing) {
+            return;
+        }
         logger.info(playerTurn == BoardPlayer.USER ? "Your turn!" : "AI plays...");
     }
 
@@ -77,6 +199,9 @@ public class GameExecutor {
     }
 
     private void printBoard(){
+        if (!printing) {
+            return;
+        }
         logger.info("Board:");
         System.out.println(board);
     }
@@ -0,0 +1,67 @@
+import java.util.Arrays;
+
+/**
+ * A game in progress recovered by the {@link SessionStore}: its board geometry and the moves played so far,
+ * the user moving first. A {@link GameExecutor} created with it resumes the game.
+ *
+ * @param id The id of the session in the store.
+ * @param rows The number of rows of the board.
+ * @param columns The number of columns of the board.
+ * @param winLength The number of marks in a row needed to win.
+ * @param moves The cells played, as {@code row * columns + column}, in order.
+ */
+public record GameSession(long id, int rows, int columns, int winLength, int[] moves) {
+
+    /**
+     * Returns the player to move next.
+     *
+     * @return {@link BoardPlayer#USER} after an even number of moves, {@link BoardPlayer#AI} otherwise.
+     */
+    public BoardPlayer nextPlayer() {
+        return moves.length % 2 == 0 ? BoardPlayer.USER : BoardPlayer.AI;
+    }
+
+    /**
+     * Replays the moves of the session on a new board.
+     *
+     * @param config The configuration of the resumed game, with the board geometry of the session.
+     * @return The board of the game in progress.
+     * @throws IllegalArgumentException if the geometry differs, or the moves are not those of a game in progress.
+     */
+    public GameBoard replay(GameConfig config) {
+        if (config.getRows() != rows || config.getColumns() != columns || config.getWinLength() != winLength) {
+            throw new IllegalArgumentException("Session " + id + " is a " + rows + "x" + columns + " k=" + winLength
+                    + " game, the configuration is " + config);
+        }
+        GameBoard board = new GameBoard(config);
+        BoardPlayer player = BoardPlayer.USER;
+        for (int ply = 0; ply < moves.length; ply++) {
+            int cell = moves[ply];
+            if (cell < 0 || cell >= rows * columns || !board.isNodeEmpty(cell / columns, cell % columns)) {
+                throw new IllegalArgumentException("Session " + id + " has an illegal move " + cell + " at ply " + ply);
+            }
+            BoardNode node = board.makeMove(cell / columns, cell % columns, player);
+            if (board.getGameResult(node) != GameResult.UNDETERMINED) {
+                throw new IllegalArgumentException("Session " + id + " is already decided at ply " + ply);
+            }
+            player = player == BoardPlayer.USER ? BoardPlayer.AI : BoardPlayer.USER;
+        }
+        return board;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof GameSession session && id == session.id && rows == session.rows
+                && columns == session.columns && winLength == session.winLength && Arrays.equals(moves, session.moves);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id) * 31 + Arrays.hashCode(moves);
+    }
+
+    @Override
+    public String toString() {
+        return "GameSession{id=" + id + ", " + rows + "x" + columns + " k=" + winLength + ", moves=" + Arrays.toString(moves) + "}";
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Transposition table whose slots are two {@code long[]} arrays on the Java heap.
+ * Used for small boards, where the table is small enough not to matter to the garbage collector.
+ */
+class HeapTranspositionTable extends TranspositionTable {
+
+    // Key slots, storing key ^ data.
+    private final long[] keys;
+
+    // Data slots, storing the packed score, bound, best cell and draft.
+    private final long[] data;
+
+    /**
+     * Constructs an empty table.
+     *
+     * @param size The number of entries, rounded up to a power of two.
+     */
+    HeapTranspositionTable(int size) {
+        int capacity = (int) capacityFor(size);
+        this.keys = new long[capacity];
+        this.data = new long[capacity];
+    }
+
+    @Override
+    long capacity() {
+        return data.length;
+    }
+
+    @Override
+    protected long readKeySlot(long slot) {
+        return keys[(int) slot];
+    }
+
+    @Override
+    protected long readDataSlot(long slot) {
+        return data[(int) slot];
+    }
+
+    @Override
+    protected void writeSlots(long slot, long keySlot, long dataSlot) {
+        data[(int) slot] = dataSlot;
+        keys[(int) slot] = keySlot;
+    }
+}
@@ -0,0 +1,249 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Scores the positions where a depth-limited search stops, for the boards too large to be searched to the end.
+ * The score is a weighted count of the open lines of each player: every window of k cells holding marks of a
+ * single player counts for that player, with a weight by its number of marks, and separate weights for the
+ * player to move and the waiting one, since a line one mark from completion wins for the player to move but
+ * can still be blocked by the other. The score is from the point of view of the AI, and stays within
+ * {@link #MAX_SCORE}, so it never passes for a proven win or loss.
+ * <p>
+ * The weights are fitted by {@link WeightTuner} and written to a file, which the AI loads through
+ * {@link GameConfig#getEvaluationFile()}. A score {@code s} estimates a probability of winning of
+ * {@code 1 / (1 + exp(-s / SCALE))} for the AI.
+ */
+public final class HeuristicEvaluator {
+
+    /** The largest absolute score, far below the scores of the proven wins and losses. */
+    public static final int MAX_SCORE = MiniMaxAlgorithm.WIN_SCORE / 4;
+
+    /** The score difference multiplying the odds of winning by e. */
+    public static final double SCALE = 50;
+
+    // The evaluators loaded from weight files, by file and board geometry.
+    private static final ConcurrentHashMap<String, HeuristicEvaluator> loaded = new ConcurrentHashMap<>();
+
+    // Number of marks in a row needed to win.
+    private final int winLength;
+
+    // Number of columns of the board, to map a cell index to its row and column.
+    private final int columns;
+
+    // The cells of every window of the board.
+    private final int[][] windows;
+
+    // The weight of a window by its number of marks, from 1 to k - 1: first for the player to move, then for the waiting one.
+    private final double[] weights;
+
+    /**
+     * Constructs an evaluator for the boards of a configuration.
+     *
+     * @param config The configuration of the boards.
+     * @param weights The {@code 2 * (k - 1)} weights: of the windows of the player to move with 1 to k - 1 marks,
+     *                then of the windows of the waiting player.
+     * @throws IllegalArgumentException if the number of weights does not match the win length.
+     */
+    public HeuristicEvaluator(GameConfig config, double[] weights) {
+        this.winLength = config.getWinLength();
+        if (weights.length != featureCount(winLength)) {
+            throw new IllegalArgumentException(featureCount(winLength) + " weights are needed for a win length of "
+                    + winLength + ", got " + weights.length);
+        }
+        this.columns = config.getColumns();
+        this.windows = ThreatTable.windowsOf(config);
+        this.weights = weights.clone();
+    }
+
+    /**
+     * Returns the evaluator of the weight file of a configuration, loaded once per file and board geometry.
+     *
+     * @param config The game configuration.
+     * @return The evaluator, or {@code null} if the configuration has no weight file.
+     * @throws IllegalArgumentException if the file cannot be read or does not match the win length.
+     */
+    static HeuristicEvaluator forConfig(GameConfig config) {
+        Path file = config.getEvaluationFile();
+        if (file == null) {
+            return null;
+        }
+        String id = file.toAbsolutePath().normalize() + "#" + config.getRows() + "x" + config.getColumns()
+                + "k" + config.getWinLength() + "l" + config.getLayers();
+        return loaded.computeIfAbsent(id, ignored -> {
+            try {
+                return load(config, file);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Cannot read the evaluation weights " + file + ": " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Returns starting weights for a win length: each mark of a window multiplies its weight by 4,
+     * and a window one mark from completion weighs twice as much for the player to move.
+     *
+     * @param winLength The win length (k).
+     * @return The default weights.
+     */
+    static double[] defaultWeights(int winLength) {
+        double[] weights = new double[featureCount(winLength)];
+        for (int marks = 1; marks < winLength; marks++) {
+            double weight = Math.pow(4, marks - 1);
+            weights[marks - 1] = marks == winLength - 1 ? 2 * weight : weight;
+            weights[winLength - 1 + marks - 1] = weight;
+        }
+        return weights;
+    }
+
+    /**
+     * Returns the number of weights of an evaluator.
+     *
+     * @param winLength The win length (k).
+     * @return {@code 2 * (k - 1)}.
+     */
+    static int featureCount(int winLength) {
+        return 2 * (winLength - 1);
+    }
+
+    /**
+     * Returns the weights of this evaluator.
+     *
+     * @return A copy of the weights.
+     */
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    /**
+     * Scores a position from the point of view of the AI.
+     * The windows are scanned in place, so the evaluation allocates nothing.
+     *
+     * @param gameBoard The board, without a winner.
+     * @param toMove The player to move.
+     * @return The score, between {@code -MAX_SCORE} and {@code MAX_SCORE}.
+     */
+    public int evaluate(GameBoard gameBoard, BoardPlayer toMove) {
+        double score = 0;
+        for (int[] window : windows) {
+            int ai = 0;
+            int user = 0;
+            for (int cell : window) {
+                BoardPlayer player = gameBoard.getNode(cell / columns, cell % columns).getPlayer();
+                if (player == BoardPlayer.AI) {
+                    ai++;
+                } else if (player == BoardPlayer.USER) {
+                    user++;
+                }
+            }
+            if (user == 0 && ai > 0 && ai < winLength) {
+                score += weights[(toMove == BoardPlayer.AI ? 0 : winLength - 1) + ai - 1];
+            } else if (ai == 0 && user > 0 && user < winLength) {
+                score -= weights[(toMove == BoardPlayer.USER ? 0 : winLength - 1) + user - 1];
+            }
+        }
+        return (int) Math.round(Math.max(-MAX_SCORE, Math.min(MAX_SCORE, score)));
+    }
+
+    /**
+     * Computes the features of a position, whose dot product with the weights is the unbounded score.
+     *
+     * @param gameBoard The board.
+     * @param toMove The player to move.
+     * @param features Receives the {@code 2 * (k - 1)} features: the open windows of the player to move by
+     *                 number of marks, then those of the waiting player, counted positive for the AI.
+     */
+    void features(GameBoard gameBoard, BoardPlayer toMove, double[] features) {
+        Arrays.fill(features, 0);
+        for (int[] window : windows) {
+            int ai = 0;
+            int user = 0;
+            for (int cell : window) {
+                BoardPlayer player = gameBoard.getNode(cell / columns, cell % columns).getPlayer();
+                if (player == BoardPlayer.AI) {
+                    ai++;
+                } else if (player == BoardPlayer.USER) {
+                    user++;
+                }
+            }
+            if (user == 0 && ai > 0 && ai < winLength) {
+                features[(toMove == BoardPlayer.AI ? 0 : winLength - 1) + ai - 1]++;
+            } else if (ai == 0 && user > 0 && user < winLength) {
+                features[(toMove == BoardPlayer.USER ? 0 : winLength - 1) + user - 1]--;
+            }
+        }
+    }
+
+    /**
+     * Estimates the probability of the AI winning from a score.
+     *
+     * @param score The score of a position.
+     * @return The estimated probability, between 0 and 1.
+     */
+    static double winProbability(double score) {
+        return 1 / (1 + Math.exp(-score / SCALE));
+    }
+
+    /**
+     * Writes the weights to a file the AI can load, see {@link GameConfig#getEvaluationFile()}.
+     *
+     * @param file The weight file.
+     * @throws IOException if the file cannot be written.
+     */
+    public void save(Path file) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("winLength", String.valueOf(winLength));
+        properties.setProperty("toMove", join(0));
+        properties.setProperty("waiting", join(winLength - 1));
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            properties.store(writer, "HeuristicEvaluator weights by number of marks of an open window");
+        }
+    }
+
+    /**
+     * Reads an evaluator from a weight file written by {@link #save(Path)}.
+     *
+     * @param config The configuration of the boards to evaluate.
+     * @param file The weight file.
+     * @return The evaluator.
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if the weights were fitted for another win length or are malformed.
+     */
+    static HeuristicEvaluator load(GameConfig config, Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+        int winLength = Integer.parseInt(properties.getProperty("winLength", "0"));
+        if (winLength != config.getWinLength()) {
+            throw new IllegalArgumentException("The weights of " + file + " are for a win length of " + winLength
+                    + ", not " + config.getWinLength());
+        }
+        double[] toMove = parse(properties.getProperty("toMove", ""));
+        double[] waiting = parse(properties.getProperty("waiting", ""));
+        double[] weights = Arrays.copyOf(toMove, toMove.length + waiting.length);
+        System.arraycopy(waiting, 0, weights, toMove.length, waiting.length);
+        return new HeuristicEvaluator(config, weights);
+    }
+
+    private String join(int from) {
+        StringBuilder text = new StringBuilder();
+        for (int i = from; i < from + winLength - 1; i++) {
+            text.append(i > from ? "," : "").append(weights[i]);
+        }
+        return text.toString();
+    }
+
+    private static double[] parse(String text) {
+        return text.isBlank() ? new double[0] : Arrays.stream(text.split(",")).mapToDouble(Double::parseDouble).toArray();
+    }
+}
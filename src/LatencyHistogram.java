@@ -0,0 +1,147 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe histogram of latencies in nanoseconds, with log-bucketed precision in the style of HdrHistogram.
+ * Every power of two range is split into {@value #SUB_BUCKETS} linear sub-buckets, so a recorded value is
+ * kept with a relative error below 1% over the whole range of {@code long}, in a fixed array of counters.
+ * Recording is a few shifts and an atomic increment, so many threads can record without locking.
+ */
+public class LatencyHistogram {
+
+    // log2 of the number of sub-buckets per power of two.
+    private static final int SUB_BUCKET_BITS = 7;
+
+    // Number of linear sub-buckets per power of two range.
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // Number of recorded values per bucket.
+    private final AtomicLongArray counts = new AtomicLongArray((Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS);
+
+    // Number of recorded values.
+    private final LongAdder totalCount = new LongAdder();
+
+    // Sum of the recorded values, for the mean.
+    private final LongAdder totalSum = new LongAdder();
+
+    // Largest recorded value.
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos The latency in nanoseconds, negative values are recorded as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        totalCount.increment();
+        totalSum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Adds all the values recorded by another histogram to this one.
+     *
+     * @param other The histogram to add.
+     */
+    public void add(LatencyHistogram other) {
+        for (int bucket = 0; bucket < counts.length(); bucket++) {
+            long count = other.counts.get(bucket);
+            if (count != 0) {
+                counts.addAndGet(bucket, count);
+            }
+        }
+        totalCount.add(other.totalCount.sum());
+        totalSum.add(other.totalSum.sum());
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return The count of values.
+     */
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    /**
+     * Returns the largest recorded value.
+     *
+     * @return The maximal latency in nanoseconds, 0 if nothing was recorded.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the mean of the recorded values.
+     *
+     * @return The mean latency in nanoseconds, 0 if nothing was recorded.
+     */
+    public double getMean() {
+        long count = totalCount.sum();
+        return count == 0 ? 0 : (double) totalSum.sum() / count;
+    }
+
+    /**
+     * Returns the value below or at which the given percentage of the recorded values fall.
+     * The value is the upper bound of its bucket, never above the largest recorded value.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The latency in nanoseconds at the percentile, 0 if nothing was recorded.
+     * @throws IllegalArgumentException if the percentile is outside of [0, 100].
+     */
+    public long valueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100, got " + percentile);
+        }
+        long count = totalCount.sum();
+        if (count == 0) {
+            return 0;
+        }
+
+        // The small tolerance keeps e.g. 99.9% of 10000 at rank 9990 despite the floating point rounding.
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count - 1e-9));
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length(); bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(highestValueOf(bucket), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Computes the bucket of a value: values below {@value #SUB_BUCKETS} have a bucket each,
+     * larger values keep the {@value #SUB_BUCKET_BITS} bits following their highest bit.
+     *
+     * @param value A non-negative value.
+     * @return The bucket index.
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * Returns the largest value falling in a bucket.
+     *
+     * @param bucket The bucket index.
+     * @return The upper bound of the bucket.
+     */
+    private static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long mantissa = bucket - (long) shift * SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
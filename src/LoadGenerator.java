@@ -0,0 +1,272 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives many concurrent synthetic games through {@link GameExecutor}, to size hardware and to catch
+ * tail latency regressions of the engine. The user side is played by a {@link SyntheticUserPlayer}
+ * (a script, then random moves), and the latency of every AI move is recorded in a {@link LatencyHistogram}.
+ * Games are started at a fixed rate when one is set, otherwise as fast as the worker threads allow.
+ * Pondering is disabled: the synthetic users answer at once, and a ponder thread per game would
+ * compete with the other games and skew the measured latencies.
+ * <p>
+ * Usage: {@code java LoadGenerator [--games N] [--concurrency N] [--rate GAMES_PER_SECOND]
+ * [--size N] [--win-length K] [--seed N] [--out summary.json]}
+ */
+public class LoadGenerator {
+
+    // Logger for the progress and the summary of the run.
+    private static final Logger logger = new Logger("LoadGenerator");
+
+    // Configuration of every synthetic game.
+    private final GameConfig gameConfig;
+
+    // Number of games to play.
+    private final int games;
+
+    // Number of games played at the same time.
+    private final int concurrency;
+
+    // Number of games started per second, 0 for no rate limit.
+    private final double gamesPerSecond;
+
+    // Seed of the synthetic user players, game i uses seed + i.
+    private final long seed;
+
+    // Opening moves of every synthetic user, as {row, column} pairs.
+    private final List<int[]> script;
+
+    private LoadGenerator(Builder builder) {
+        this.gameConfig = builder.gameConfig;
+        this.games = builder.games;
+        this.concurrency = builder.concurrency;
+        this.gamesPerSecond = builder.gamesPerSecond;
+        this.seed = builder.seed;
+        this.script = List.copyOf(builder.script);
+    }
+
+    /**
+     * Creates a builder with the default load: 100 games on 8 threads without a rate limit,
+     * on 3x3 boards without debug logs.
+     *
+     * @return A new builder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the configuration of the synthetic games.
+     *
+     * @return The game configuration, with pondering disabled.
+     */
+    GameConfig getGameConfig() {
+        return gameConfig;
+    }
+
+    /**
+     * Plays all the games and summarizes them.
+     *
+     * @return The summary of the run.
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the games.
+     */
+    public LoadReport run() throws InterruptedException {
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder moves = new LongAdder();
+        AtomicInteger failed = new AtomicInteger();
+        Map<GameResult, AtomicInteger> results = new EnumMap<>(GameResult.class);
+        for (GameResult result : GameResult.values()) {
+            results.put(result, new AtomicInteger());
+        }
+
+        GameExecutor.MoveListener listener = (player, node, elapsedNanos) -> {
+            moves.increment();
+            if (player == BoardPlayer.AI) {
+                latency.record(elapsedNanos);
+            }
+        };
+
+        AtomicInteger nextGame = new AtomicInteger();
+        long intervalNanos = gamesPerSecond > 0 ? (long) (1e9 / gamesPerSecond) : 0;
+        long start = System.nanoTime();
+
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        for (int worker = 0; worker < concurrency; worker++) {
+            workers.execute(() -> {
+                int game;
+                while ((game = nextGame.getAndIncrement()) < games) {
+                    waitUntil(start + game * intervalNanos);
+                    Random random = new Random(seed + game);
+                    try {
+                        GameExecutor executor = new GameExecutor(gameConfig,
+                                board -> new SyntheticUserPlayer(board, random, script), listener, false);
+                        results.get(executor.play().result()).incrementAndGet();
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                        logger.error("Game " + game + " failed: " + e);
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        try {
+            while (!workers.awaitTermination(1, TimeUnit.SECONDS)) {
+                logger.debug("Games started: " + Math.min(nextGame.get(), games) + "/" + games);
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            throw e;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Map<GameResult, Integer> counts = new EnumMap<>(GameResult.class);
+        results.forEach((result, count) -> {
+            if (count.get() > 0) {
+                counts.put(result, count.get());
+            }
+        });
+        return new LoadReport(games - failed.get(), failed.get(), moves.sum(), elapsed, counts, latency);
+    }
+
+    /**
+     * Parks the calling thread until the given {@link System#nanoTime()} deadline.
+     *
+     * @param deadline The deadline in nanoseconds.
+     */
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        Builder builder = builder();
+        GameConfig.Builder config = builder.gameConfig.toBuilder();
+        Path out = null;
+
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--games" -> builder.games(Integer.parseInt(value));
+                case "--concurrency" -> builder.concurrency(Integer.parseInt(value));
+                case "--rate" -> builder.gamesPerSecond(Double.parseDouble(value));
+                case "--size" -> config.boardSize(Integer.parseInt(value));
+                case "--win-length" -> config.winLength(Integer.parseInt(value));
+                case "--scheduled" -> config.moveScheduling(Boolean.parseBoolean(value));
+                case "--seed" -> builder.seed(Long.parseLong(value));
+                case "--out" -> out = Path.of(value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        LoadGenerator generator = builder.gameConfig(config.build()).build();
+
+        logger.title("Running " + generator.games + " games on " + generator.concurrency + " threads");
+        LoadReport report = generator.run();
+        report.print(logger);
+        if (out != null) {
+            Files.writeString(out, report.toJson());
+            logger.info("Summary written to " + out);
+        }
+    }
+
+    /**
+     * Builder of {@link LoadGenerator}.
+     */
+    public static final class Builder {
+        private GameConfig gameConfig = GameConfig.builder().boardSize(3).debug(false).pondering(false).build();
+        private int games = 100;
+        private int concurrency = 8;
+        private double gamesPerSecond = 0;
+        private long seed = 0;
+        private List<int[]> script = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the configuration of the games. Its pondering is disabled, and debug logs should be,
+         * they are printed by every concurrent game.
+         *
+         * @param gameConfig The configuration of every game.
+         * @return This builder.
+         */
+        public Builder gameConfig(GameConfig gameConfig) {
+            this.gameConfig = gameConfig == null ? null : gameConfig.toBuilder().pondering(false).build();
+            return this;
+        }
+
+        public Builder games(int games) {
+            this.games = games;
+            return this;
+        }
+
+        public Builder concurrency(int concurrency) {
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        public Builder gamesPerSecond(double gamesPerSecond) {
+            this.gamesPerSecond = gamesPerSecond;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Sets the opening moves of the synthetic users; the rest of each game is played randomly.
+         *
+         * @param script The moves as {row, column} pairs.
+         * @return This builder.
+         */
+        public Builder script(List<int[]> script) {
+            this.script = new ArrayList<>(script);
+            return this;
+        }
+
+        /**
+         * Validates the parameters and creates the load generator.
+         *
+         * @return The load generator.
+         * @throws IllegalArgumentException if a parameter is out of range.
+         */
+        public LoadGenerator build() {
+            if (gameConfig == null) {
+                throw new IllegalArgumentException("gameConfig must be set");
+            }
+            if (games < 0) {
+                throw new IllegalArgumentException("games must not be negative, got " + games);
+            }
+            if (concurrency < 1) {
+                throw new IllegalArgumentException("concurrency must be positive, got " + concurrency);
+            }
+            if (gamesPerSecond < 0) {
+                throw new IllegalArgumentException("gamesPerSecond must not be negative, got " + gamesPerSecond);
+            }
+            for (int[] move : script) {
+                if (move.length != 2 || move[0] < 0 || move[0] >= gameConfig.getRows()
+                        || move[1] < 0 || move[1] >= gameConfig.getColumns()) {
+                    throw new IllegalArgumentException("script moves must be {row, column} pairs on the board");
+                }
+            }
+            return new LoadGenerator(this);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The summary of a {@link LoadGenerator} run.
+ *
+ * @param games The number of games completed.
+ * @param failedGames The number of games that ended with an error.
+ * @param moves The number of moves played by both players.
+ * @param elapsedNanos The wall clock duration of the run, in nanoseconds.
+ * @param results The number of completed games per result.
+ * @param aiMoveLatency The latency of every AI move.
+ */
+public record LoadReport(int games, int failedGames, long moves, long elapsedNanos,
+                         Map<GameResult, Integer> results, LatencyHistogram aiMoveLatency) {
+
+    /**
+     * Returns the throughput of the run in completed games.
+     *
+     * @return The games per second.
+     */
+    public double gamesPerSecond() {
+        return perSecond(games);
+    }
+
+    /**
+     * Returns the throughput of the run in AI moves.
+     *
+     * @return The AI moves per second.
+     */
+    public double aiMovesPerSecond() {
+        return perSecond(aiMoveLatency.getCount());
+    }
+
+    /**
+     * Prints a human readable summary, with latencies in milliseconds.
+     *
+     * @param logger The logger receiving the summary.
+     */
+    public void print(Logger logger) {
+        logger.info(String.format(Locale.ROOT, "games: %d (%d failed) in %.2f s, %.1f games/s",
+                games, failedGames, elapsedNanos / 1e9, gamesPerSecond()));
+        logger.info(String.format(Locale.ROOT, "AI moves: %d, %.1f moves/s",
+                aiMoveLatency.getCount(), aiMovesPerSecond()));
+        logger.info(String.format(Locale.ROOT, "AI move latency: mean %.3f ms, p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms",
+                aiMoveLatency.getMean() / 1e6,
+                aiMoveLatency.valueAtPercentile(50) / 1e6,
+                aiMoveLatency.valueAtPercentile(99) / 1e6,
+                aiMoveLatency.valueAtPercentile(99.9) / 1e6,
+                aiMoveLatency.getMax() / 1e6));
+        logger.info("results: " + results);
+    }
+
+    /**
+     * Formats the summary as a JSON object, with latencies in nanoseconds.
+     *
+     * @return The JSON summary.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"games\": ").append(games).append(",\n");
+        json.append("  \"failedGames\": ").append(failedGames).append(",\n");
+        json.append("  \"moves\": ").append(moves).append(",\n");
+        json.append("  \"elapsedNanos\": ").append(elapsedNanos).append(",\n");
+        json.append("  \"gamesPerSecond\": ").append(format(gamesPerSecond())).append(",\n");
+        json.append("  \"aiMovesPerSecond\": ").append(format(aiMovesPerSecond())).append(",\n");
+
+        json.append("  \"results\": {");
+        String separator = "";
+        for (GameResult result : GameResult.values()) {
+            if (result == GameResult.UNDETERMINED) {
+                continue;
+            }
+            json.append(separator).append('"').append(result).append("\": ").append(results.getOrDefault(result, 0));
+            separator = ", ";
+        }
+        json.append("},\n");
+
+        json.append("  \"aiMoveLatencyNanos\": {");
+        json.append("\"count\": ").append(aiMoveLatency.getCount());
+        json.append(", \"mean\": ").append(format(aiMoveLatency.getMean()));
+        json.append(", \"p50\": ").append(aiMoveLatency.valueAtPercentile(50));
+        json.append(", \"p99\": ").append(aiMoveLatency.valueAtPercentile(99));
+        json.append(", \"p999\": ").append(aiMoveLatency.valueAtPercentile(99.9));
+        json.append(", \"max\": ").append(aiMoveLatency.getMax());
+        json.append("}\n}\n");
+        return json.toString();
+    }
+
+    private double perSecond(long count) {
+        return elapsedNanos == 0 ? 0 : count * 1e9 / elapsedNanos;
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
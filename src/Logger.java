@@ -1,5 +1,6 @@
 public class Logger {
     private final String name;
+    private final boolean debugEnabled;
 
     enum LogType {
         Title,
@@ -16,11 +17,16 @@ public class Logger {
     public static final String BOLD = "\u001B[1m";
 
      public Logger(String name){
+        this(name, Settings.DEBUG);
+    }
+
+    public Logger(String name, boolean debugEnabled){
         this.name = name;
+        this.debugEnabled = debugEnabled;
     }
 
     public void debug(String msg, LogType type){
-        if(!Settings.DEBUG) return;
+        if(!debugEnabled) return;
         printMessageByLogType(type, msg);
     }
 
@@ -0,0 +1,80 @@
+import java.util.Arrays;
+
+/**
+ * A set of {@code long} values with open addressing and linear probing, so adding a value does not box it.
+ * The table doubles when it is half full; a value of {@link Long#MIN_VALUE} marks the free slots and cannot
+ * be added. The set is not thread-safe.
+ */
+final class LongHashSet {
+
+    // Marks a free slot.
+    private static final long FREE = Long.MIN_VALUE;
+
+    // The slots, a power of two in number.
+    private long[] slots;
+
+    // Number of values in the set.
+    private int size;
+
+    /**
+     * Constructs an empty set.
+     *
+     * @param expectedSize The number of values the set holds before it grows.
+     */
+    LongHashSet(int expectedSize) {
+        slots = new long[Integer.highestOneBit(Math.max(8, expectedSize) * 2 - 1) << 1];
+        Arrays.fill(slots, FREE);
+    }
+
+    /**
+     * Adds a value to the set.
+     *
+     * @param value The value, anything but {@link Long#MIN_VALUE}.
+     * @return {@code true} if the value was not in the set.
+     */
+    boolean add(long value) {
+        int mask = slots.length - 1;
+        for (int slot = mix(value) & mask; ; slot = (slot + 1) & mask) {
+            if (slots[slot] == value) {
+                return false;
+            }
+            if (slots[slot] == FREE) {
+                slots[slot] = value;
+                if (++size * 2 > slots.length) {
+                    grow();
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of values in the set.
+     *
+     * @return The size of the set.
+     */
+    int size() {
+        return size;
+    }
+
+    private void grow() {
+        long[] old = slots;
+        slots = new long[old.length * 2];
+        Arrays.fill(slots, FREE);
+        int mask = slots.length - 1;
+        for (long value : old) {
+            if (value != FREE) {
+                int slot = mix(value) & mask;
+                while (slots[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = value;
+            }
+        }
+    }
+
+    private static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -3,7 +3,8 @@ class Main{
         Logger logger = new Logger("Main");
 
         logger.title("Starting Tic Tac Toe Game");
-        GameExecutor gameExecutor = new GameExecutor();
+        // A person plays the user side, so the AI ponders on their thinking time.
+        GameExecutor gameExecutor = new GameExecutor(GameConfig.defaults().toBuilder().pondering(true).build());
         TicTacToeResult result = gameExecutor.play();
 
         logger.title("Tic Tac Toe Game Finished, results:");
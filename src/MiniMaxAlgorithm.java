@@ -1,5 +1,5 @@
-import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import static java.lang.Math.*;
 
 /**
@@ -7,13 +7,124 @@ import static java.lang.Math.*;
  * move for the AI in a Tic Tac Toe game. The algorithm prioritizes
  * the shortest path to victory by considering the depth of the game tree during evaluation.
  * Also, Alpha-beta pruning is used to cut off branches in the search tree, optimizing the search process.
+ * Solved positions are kept in a {@link TranspositionTable}, so positions reached again through
+ * another move order are not searched twice.
+ * The root moves are searched by {@link #searchRoot}, which shares the best score found so far with the
+ * remaining moves and starts from a window around the score of the previous AI move.
  */
 public class MiniMaxAlgorithm {
 
     /**
-     * A set to store previously computed board states (represented as Strings), to count the visited nodes
+     * The score of an immediate win, reduced by the depth of the win.
+     * It is larger than the number of cells of any supported board, so a win always scores positive.
      */
-    private final HashSet<String> visitedNodes = new HashSet<>();
+    public static final int WIN_SCORE = 1000;
+
+    /**
+     * Boards of up to this many cells count their visited positions in a bit per position rank,
+     * 3^10 bits being 7 KB. Larger boards keep the keys of the visited positions in a set.
+     */
+    private static final int DENSE_VISITED_MAX_CELLS = 10;
+
+    /**
+     * Half width of the aspiration window of a root search around the score of the previous one.
+     * A win or a loss found on the previous AI move is two plies closer, so its score moved by 2.
+     */
+    static final int ASPIRATION_WINDOW = 4;
+
+    /**
+     * The previously computed board states, by position rank on small boards, to count the visited nodes.
+     * Allocated for the geometry of the first searched board, the search itself allocates nothing per node.
+     */
+    private PackedPositionArray visitedPositions;
+    private LongHashSet visitedKeys;
+    private int visitedCount;
+
+    /**
+     * The maximal depth explored before a position is scored heuristically.
+     */
+    private final int maxSearchDepth;
+
+    /**
+     * Scores the positions at the depth limit, null to score them as neutral.
+     */
+    private final HeuristicEvaluator evaluator;
+
+    /**
+     * The table of solved positions, possibly shared with other searches.
+     */
+    private final TranspositionTable transpositionTable;
+
+    /**
+     * Set from another thread to abort the running search.
+     */
+    private volatile boolean cancelled;
+
+    // Score the AI is assured of by another root move searched elsewhere, it may be raised during the search.
+    private volatile int sharedAlpha = Integer.MIN_VALUE;
+
+    // Score of the move chosen by the last root search, the center of the next aspiration window.
+    private int previousRootScore = RootSearchResult.UNKNOWN_SCORE;
+
+    // Root searches run, and those whose aspiration window missed the score and were searched again.
+    private long rootSearchCount;
+    private long aspirationFailCount;
+
+    // Positions searched, transposition table lookups and usable entries found by the running search.
+    // Plain fields, as a search runs on one thread; they are added to the EngineMetrics once per search.
+    private long nodeCount;
+    private long probeCount;
+    private long hitCount;
+
+    /**
+     * Constructs a MiniMax algorithm with an unlimited search depth.
+     */
+    public MiniMaxAlgorithm() {
+        this(GameConfig.defaults());
+    }
+
+    /**
+     * Constructs a MiniMax algorithm using the engine parameters of the given configuration,
+     * with a transposition table of its own.
+     *
+     * @param config The game configuration.
+     */
+    public MiniMaxAlgorithm(GameConfig config) {
+        this(config, TranspositionTable.create(config));
+    }
+
+    /**
+     * Constructs a MiniMax algorithm using the engine parameters of the given configuration
+     * and the given transposition table.
+     *
+     * @param config The game configuration.
+     * @param transpositionTable The table of solved positions, it may be shared with other searches of the same configuration.
+     */
+    MiniMaxAlgorithm(GameConfig config, TranspositionTable transpositionTable) {
+        this(config, transpositionTable, HeuristicEvaluator.forConfig(config));
+    }
+
+    /**
+     * Constructs a MiniMax algorithm scoring the positions at the depth limit with the given evaluator.
+     *
+     * @param config The game configuration.
+     * @param transpositionTable The table of solved positions, only to be shared with searches using the same evaluator.
+     * @param evaluator The evaluator of the positions at the depth limit, or {@code null} to score them as neutral.
+     */
+    MiniMaxAlgorithm(GameConfig config, TranspositionTable transpositionTable, HeuristicEvaluator evaluator) {
+        this.maxSearchDepth = config.getMaxSearchDepth();
+        this.transpositionTable = transpositionTable;
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Returns the table of solved positions used by this search.
+     *
+     * @return The transposition table.
+     */
+    TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
 
     /**
      * Initiates the MiniMax algorithm to compute the best score for the given board state.
@@ -24,7 +135,158 @@ public class MiniMaxAlgorithm {
      * @return The best possible score for the given board state.
      */
     public int minimax(GameBoard gameBoard, BoardNode lastMove){
-        return performMinimax(gameBoard, lastMove, false, 0, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        return minimax(gameBoard, lastMove, Integer.MIN_VALUE);
+    }
+
+    /**
+     * Computes the score of the given board state, knowing that the AI is already assured of {@code alpha}
+     * by another root move. The window can be raised while the search runs, see {@link #raiseAlpha(int)}.
+     *
+     * @param gameBoard The current game board.
+     * @param lastMove The last move made on the board.
+     * @param alpha The score the AI is already assured of.
+     * @return The exact score if it is above the final alpha, otherwise an upper bound at most that alpha.
+     */
+    int minimax(GameBoard gameBoard, BoardNode lastMove, int alpha){
+        return minimax(gameBoard, lastMove, alpha, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Computes the score of the given board state within a window.
+     *
+     * @param gameBoard The current game board.
+     * @param lastMove The last move made on the board.
+     * @param alpha The score the AI is already assured of.
+     * @param beta The score above which the exact value is not needed.
+     * @return The exact score if it is inside the window, otherwise a bound at most alpha or at least beta.
+     */
+    int minimax(GameBoard gameBoard, BoardNode lastMove, int alpha, int beta){
+        sharedAlpha = alpha;
+        long nodesBefore = nodeCount;
+        long probesBefore = probeCount;
+        long hitsBefore = hitCount;
+        try {
+            return performMinimax(gameBoard, lastMove, false, 0, alpha, beta);
+        } finally {
+            EngineMetrics.get().searched(nodeCount - nodesBefore, probeCount - probesBefore, hitCount - hitsBefore);
+        }
+    }
+
+    /**
+     * Searches the AI moves of a position and returns the best one with its score; ties keep the first move.
+     * The best score found so far is the alpha of the moves searched after it, so they only prove they are not
+     * better instead of computing their exact scores. The first window is centered on the score of the previous
+     * root search of this instance, {@value #ASPIRATION_WINDOW} wide on each side: a move scoring above it is
+     * searched again with an open window, and if no move scores above its bottom, the position is searched again
+     * with a full window. A move winning at once ends the search, as no other move can score higher.
+     * The result is the same as the one of searching every move with a full window.
+     *
+     * @param gameBoard The board where the AI is to move, left unchanged.
+     * @param candidates The AI moves to search, in order of preference for ties.
+     * @return The best move and its exact score, the move is {@code null} if there is no candidate.
+     */
+    public RootSearchResult searchRoot(GameBoard gameBoard, List<BoardNode> candidates) {
+        return searchRoot(gameBoard, candidates, previousRootScore);
+    }
+
+    /**
+     * Searches the AI moves of a position with an aspiration window centered on the given score,
+     * e.g. the score of the previous iteration of an iterative deepening search.
+     *
+     * @param gameBoard The board where the AI is to move, left unchanged.
+     * @param candidates The AI moves to search, in order of preference for ties.
+     * @param expectedScore The expected score, or {@link RootSearchResult#UNKNOWN_SCORE} for a full window.
+     * @return The best move and its exact score, the move is {@code null} if there is no candidate.
+     */
+    RootSearchResult searchRoot(GameBoard gameBoard, List<BoardNode> candidates, int expectedScore) {
+        rootSearchCount++;
+        int low = Integer.MIN_VALUE;
+        int high = Integer.MAX_VALUE;
+        if (expectedScore != RootSearchResult.UNKNOWN_SCORE) {
+            low = expectedScore - ASPIRATION_WINDOW;
+            high = expectedScore + ASPIRATION_WINDOW;
+        }
+
+        RootSearchResult result = searchRoot(gameBoard, candidates, low, high);
+        if (result.move() != null && result.score() <= low) {
+            // Every move failed low, their scores are only upper bounds.
+            aspirationFailCount++;
+            result = searchRoot(gameBoard, candidates, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+        if (result.move() != null) {
+            previousRootScore = result.score();
+        }
+        return result;
+    }
+
+    /**
+     * Searches the root moves within a window, a move failing high is searched again with an open window.
+     * The result is exact unless its score is at most {@code low}.
+     */
+    private RootSearchResult searchRoot(GameBoard gameBoard, List<BoardNode> candidates, int low, int high) {
+        int bestScore = Integer.MIN_VALUE;
+        BoardNode bestMove = null;
+        for (BoardNode node : candidates) {
+            gameBoard.makeMove(node, BoardPlayer.AI);
+            try {
+                int alpha = max(low, bestScore);
+                int score = minimax(gameBoard, node, alpha, high);
+                if (score >= high && high != Integer.MAX_VALUE) {
+                    // Failed high, the score is only a lower bound.
+                    aspirationFailCount++;
+                    high = Integer.MAX_VALUE;
+                    score = minimax(gameBoard, node, alpha, high);
+                }
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestMove = node;
+                }
+            } finally {
+                gameBoard.resetNodePlayer(node);
+            }
+            if (bestScore >= WIN_SCORE) {
+                break;
+            }
+        }
+        return new RootSearchResult(bestMove, bestScore);
+    }
+
+    /**
+     * Returns the number of root searches run by this instance.
+     *
+     * @return The count of {@link #searchRoot} calls.
+     */
+    public long getRootSearchCount() {
+        return rootSearchCount;
+    }
+
+    /**
+     * Returns the number of times a root search missed its aspiration window and searched again.
+     *
+     * @return The count of aspiration window failures.
+     */
+    public long getAspirationFailCount() {
+        return aspirationFailCount;
+    }
+
+    /**
+     * Raises the score the AI is assured of, e.g. when another worker finished a better root move.
+     * Nodes entered afterwards prune against the new bound; lowering it has no effect.
+     *
+     * @param alpha The new score the AI is assured of.
+     */
+    void raiseAlpha(int alpha) {
+        if (alpha > sharedAlpha) {
+            sharedAlpha = alpha;
+        }
+    }
+
+    /**
+     * Aborts the running search and every later one, they throw a {@link CancellationException}.
+     * The board searched when the search is aborted is left in an undefined state.
+     */
+    public void cancel() {
+        cancelled = true;
     }
 
     /**
@@ -42,20 +304,64 @@ public class MiniMaxAlgorithm {
      */
     private int performMinimax(GameBoard gameBoard, BoardNode lastMove, boolean isMaximizing, int depth,
                                int alpha, int beta){
+        // The search was cancelled from another thread.
+        if(cancelled){
+            throw new CancellationException("MiniMax search cancelled");
+        }
+        nodeCount++;
+
+        // The scores are absolute, so the bound of another root move holds at every node of this one.
+        alpha = max(alpha, sharedAlpha);
+
         // Check if the last move resulted in a game-ending state (win/loss/draw).
         GameResult result = gameBoard.getGameResult(lastMove);
         if(result != GameResult.UNDETERMINED){
             return getBoardScore(result, depth);
         }
 
+        // The depth limit was reached, the position is scored heuristically, or as neutral without an evaluator.
+        if(depth >= maxSearchDepth){
+            return evaluator == null ? 0 : evaluator.evaluate(gameBoard, isMaximizing ? BoardPlayer.AI : BoardPlayer.USER);
+        }
+
+        // Use the stored result of this position if it was searched at least as deep.
+        int draft = maxSearchDepth == GameConfig.UNLIMITED_DEPTH
+                ? TranspositionTable.FULL_DRAFT
+                : min(TranspositionTable.FULL_DRAFT - 1, maxSearchDepth - depth);
+        long key = (gameBoard.toKey() << 1) | (isMaximizing ? 1 : 0);
+        long entry = transpositionTable.probe(key);
+        probeCount++;
+        if(entry != TranspositionTable.MISS && TranspositionTable.draft(entry) >= draft){
+            hitCount++;
+            int storedScore = fromStoredScore(TranspositionTable.score(entry), depth);
+            switch (TranspositionTable.bound(entry)) {
+                case TranspositionTable.EXACT -> {
+                    return storedScore;
+                }
+                case TranspositionTable.LOWER -> alpha = max(alpha, storedScore);
+                case TranspositionTable.UPPER -> beta = min(beta, storedScore);
+            }
+            if (alpha >= beta) {
+                return storedScore;
+            }
+        }
+        int originalAlpha = alpha;
+        int originalBeta = beta;
+
         // Initialize the best score based on whether the current player is maximizing or minimizing.
         int bestScore = isMaximizing ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        BoardNode bestNode = null;
 
-        // Get all possible moves (empty spots) for the current board state.
-        List<BoardNode> emptySpots = gameBoard.getEmptyPositions();
+        // Iterate through each possible move (empty spot) and recursively compute the score.
+        // The cells are scanned in place rather than listed, every child restores the board before the next one.
+        int rows = gameBoard.getRows();
+        int columns = gameBoard.getColumns();
+        for(int cell = 0; cell < rows * columns; cell++){
+            BoardNode node = gameBoard.getNode(cell / columns, cell % columns);
+            if(!node.isEmpty()){
+                continue;
+            }
 
-        // Iterate through each possible move and recursively compute the score.
-        for(BoardNode node: emptySpots){
             // Make the move on the board.
             gameBoard.makeMove(node, isMaximizing ? BoardPlayer.AI : BoardPlayer.USER);
 
@@ -63,17 +369,19 @@ public class MiniMaxAlgorithm {
             int currentScore = performMinimax(gameBoard, node, !isMaximizing, depth + 1, alpha, beta);
 
             // Store the visited node.
-            visitedNodes.add(gameBoard.toHash());
+            markVisited(gameBoard);
 
             // Revert the move to explore other possibilities.
             gameBoard.resetNodePlayer(node);
 
             // Update the best score and alpha/beta values based on whether we are maximizing or minimizing.
+            if(isMaximizing ? currentScore > bestScore : currentScore < bestScore){
+                bestScore = currentScore;
+                bestNode = node;
+            }
             if(isMaximizing){
-                bestScore = max(currentScore, bestScore);
                 alpha = max(alpha, bestScore);
             } else {
-                bestScore = min(currentScore, bestScore);
                 beta = min(beta, bestScore);
             }
 
@@ -83,16 +391,90 @@ public class MiniMaxAlgorithm {
             }
         }
 
+        // Store the result, a score outside the window is only a bound of the real value. The shared alpha may have
+        // been raised while the children were searched, their scores up to the raised alpha are then only bounds.
+        int bound = bestScore <= max(originalAlpha, sharedAlpha) ? TranspositionTable.UPPER
+                : bestScore >= originalBeta ? TranspositionTable.LOWER
+                : TranspositionTable.EXACT;
+        int bestCell = bestNode == null ? -1 : bestNode.getI() * gameBoard.getColumns() + bestNode.getJ();
+        transpositionTable.store(key, toStoredScore(bestScore, depth), bound, bestCell, draft);
+
         return bestScore;
     }
 
+    /**
+     * Converts a score to the form stored in the transposition table, where win and loss scores are
+     * relative to the stored position instead of the search root, so they hold at any depth.
+     *
+     * @param score The score at the given depth.
+     * @param depth The depth of the position.
+     * @return The score relative to the position.
+     */
+    private static int toStoredScore(int score, int depth) {
+        if (score > WIN_SCORE / 2) {
+            return score + depth;
+        }
+        if (score < -WIN_SCORE / 2) {
+            return score - depth;
+        }
+        return score;
+    }
+
+    /**
+     * Converts a score read from the transposition table back to a score at the given depth.
+     *
+     * @param storedScore The score relative to the position.
+     * @param depth The depth of the position.
+     * @return The score at the given depth.
+     */
+    private static int fromStoredScore(int storedScore, int depth) {
+        if (storedScore > WIN_SCORE / 2) {
+            return storedScore - depth;
+        }
+        if (storedScore < -WIN_SCORE / 2) {
+            return storedScore + depth;
+        }
+        return storedScore;
+    }
+
     /**
      * Returns the number of unique board states that have been visited during the search.
      *
      * @return The count of visited board states.
      */
     public int getVisitedNodesCount() {
-        return visitedNodes.size();
+        return visitedCount;
+    }
+
+    /**
+     * Counts a board state as visited, if it was not already.
+     *
+     * @param gameBoard The board in the visited state.
+     */
+    private void markVisited(GameBoard gameBoard) {
+        long key = gameBoard.toKey();
+        if (visitedCount == 0 && gameBoard.getRows() * gameBoard.getColumns() <= DENSE_VISITED_MAX_CELLS) {
+            visitedPositions = PackedPositionArray.forPositions(new PositionIndex(gameBoard.getRows(), gameBoard.getColumns()), 1);
+        } else if (visitedCount == 0 && visitedKeys == null) {
+            visitedKeys = new LongHashSet(1024);
+        }
+        if (visitedPositions != null) {
+            if (visitedPositions.get(key) == 0) {
+                visitedPositions.set(key, 1);
+                visitedCount++;
+            }
+        } else if (visitedKeys.add(key)) {
+            visitedCount++;
+        }
+    }
+
+    /**
+     * Returns the number of positions searched by this instance since it was created.
+     *
+     * @return The count of searched positions, revisits included.
+     */
+    public long getNodeCount() {
+        return nodeCount;
     }
 
     /**
@@ -106,8 +488,8 @@ public class MiniMaxAlgorithm {
     private int getBoardScore(GameResult result, int depth){
         return switch (result) {
             case DRAW -> 0;
-            case AI_WINS -> 10 - depth;  // AI should win as soon as possible
-            case USER_WINS -> depth - 10;  // AI should prevent USER from winning as long as possible
+            case AI_WINS -> WIN_SCORE - depth;  // AI should win as soon as possible
+            case USER_WINS -> depth - WIN_SCORE;  // AI should prevent USER from winning as long as possible
             default -> throw new IllegalStateException("Unexpected value: " + result);
         };
     }
@@ -0,0 +1,193 @@
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the moves chosen by the AI, with their scores, for the positions that come up again and again across
+ * games, such as the openings. A position is cached in a canonical form, the smallest rank among its images by
+ * the symmetries of the board (8 for a square board, 4 for a rectangular one), so the mirrored and rotated
+ * versions of an opening share an entry; the cached move is mapped back through the symmetry of the looked up
+ * board, which yields the move the AI chose or one equivalent to it. The flips of the stacked layers of a cube
+ * board are symmetries of the cube too. The key also holds the engine parameters
+ * that change the chosen move.
+ * <p>
+ * The entries are kept in a {@link TinyLfuCache}, so a scan of positions seen once, like an analysis run,
+ * does not evict the popular openings. Only boards whose positions have a unique rank are cached,
+ * see {@link PositionIndex#MAX_CELLS}.
+ */
+public final class MoveSuggestionCache {
+
+    // Caches of the process, by capacity.
+    private static final ConcurrentHashMap<Integer, MoveSuggestionCache> sharedCaches = new ConcurrentHashMap<>();
+
+    // Symmetries of each board geometry, by rows * 64 + columns.
+    private static final ConcurrentHashMap<Integer, Symmetries> symmetries = new ConcurrentHashMap<>();
+
+    // The cached moves.
+    private final TinyLfuCache<Key, Suggestion> cache;
+
+    /**
+     * The engine parameters changing the move chosen for a position.
+     */
+    private record Engine(int rows, int columns, int winLength, int layers, int maxSearchDepth, Path evaluationFile,
+                          boolean tacticalSearch, boolean threatSearch, int threatSearchNodeLimit,
+                          boolean enginePortfolio, long portfolioDeadlineMillis) {
+
+        static Engine of(GameConfig config) {
+            return new Engine(config.getRows(), config.getColumns(), config.getWinLength(), config.getLayers(),
+                    config.getMaxSearchDepth(), config.getEvaluationFile(), config.isTacticalSearch(),
+                    config.isThreatSearch(), config.getThreatSearchNodeLimit(), config.isEnginePortfolio(), config.getPortfolioDeadlineMillis());
+        }
+    }
+
+    /**
+     * A canonical position searched by an engine.
+     */
+    private record Key(Engine engine, long position) {
+    }
+
+    /**
+     * A cached move, as a cell of the canonical position, and its score.
+     */
+    private record Suggestion(int cell, int score) {
+    }
+
+    /**
+     * Constructs an empty cache.
+     *
+     * @param capacity The maximal number of cached positions.
+     */
+    MoveSuggestionCache(int capacity) {
+        this.cache = new TinyLfuCache<>(capacity);
+    }
+
+    /**
+     * Returns the cache of the given capacity shared by the games of the process.
+     *
+     * @param capacity The maximal number of cached positions.
+     * @return The shared cache.
+     */
+    static MoveSuggestionCache shared(int capacity) {
+        return sharedCaches.computeIfAbsent(capacity, MoveSuggestionCache::new);
+    }
+
+    /**
+     * Checks if the positions of the boards of a configuration can be cached.
+     *
+     * @param config The configuration of the boards.
+     * @return {@code true} if the board has at most {@value PositionIndex#MAX_CELLS} cells.
+     */
+    static boolean supports(GameConfig config) {
+        return config.getRows() * config.getColumns() <= PositionIndex.MAX_CELLS;
+    }
+
+    /**
+     * Returns the move cached for the AI in the position of a board, searched with the engine of its configuration.
+     *
+     * @param board The board, with the AI to move.
+     * @return The node of the board to play and its score, or {@code null} if the position is not cached.
+     */
+    RootSearchResult get(GameBoard board) {
+        Symmetries symmetries = symmetriesOf(board);
+        int symmetry = symmetries.canonical(board);
+        Suggestion suggestion = cache.get(new Key(Engine.of(board.getConfig()), symmetries.rank(board, symmetry)));
+        if (suggestion == null) {
+            return null;
+        }
+        int cell = symmetries.inverse[symmetry][suggestion.cell()];
+        BoardNode node = board.getNode(cell / board.getColumns(), cell % board.getColumns());
+        return node.isEmpty() ? new RootSearchResult(node, suggestion.score()) : null;
+    }
+
+    /**
+     * Caches the move chosen for the AI in the position of a board.
+     *
+     * @param board The board the move was chosen for, without the move.
+     * @param result The chosen move and its score.
+     */
+    void put(GameBoard board, RootSearchResult result) {
+        if (result.move() == null) {
+            return;
+        }
+        Symmetries symmetries = symmetriesOf(board);
+        int symmetry = symmetries.canonical(board);
+        int cell = symmetries.permutations[symmetry][result.move().getI() * board.getColumns() + result.move().getJ()];
+        cache.put(new Key(Engine.of(board.getConfig()), symmetries.rank(board, symmetry)), new Suggestion(cell, result.score()));
+    }
+
+    /**
+     * Returns the statistics of the cache.
+     *
+     * @return The hits, misses, evictions and size.
+     */
+    public TinyLfuCache.Stats stats() {
+        return cache.stats();
+    }
+
+    private static Symmetries symmetriesOf(GameBoard board) {
+        return symmetries.computeIfAbsent(board.getRows() * 64 + board.getColumns(),
+                ignored -> new Symmetries(board.getRows(), board.getColumns()));
+    }
+
+    /**
+     * The symmetries of a board geometry, as permutations of the cells.
+     */
+    private static final class Symmetries {
+
+        // The image of each cell by each symmetry, and the inverse permutations.
+        final int[][] permutations;
+        final int[][] inverse;
+
+        // Weights of the cells in the base-3 rank.
+        private final long[] weights;
+
+        Symmetries(int rows, int columns) {
+            int cells = rows * columns;
+            int count = rows == columns ? 8 : 4;
+            this.permutations = new int[count][cells];
+            this.inverse = new int[count][cells];
+            this.weights = PositionIndex.weights(cells);
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < columns; j++) {
+                    int[] images = rows == columns
+                            ? new int[]{i, j, j, rows - 1 - i, rows - 1 - i, rows - 1 - j, rows - 1 - j, i,
+                                        i, rows - 1 - j, rows - 1 - i, j, j, i, rows - 1 - j, rows - 1 - i}
+                            : new int[]{i, j, i, columns - 1 - j, rows - 1 - i, j, rows - 1 - i, columns - 1 - j};
+                    for (int symmetry = 0; symmetry < count; symmetry++) {
+                        int image = images[2 * symmetry] * columns + images[2 * symmetry + 1];
+                        permutations[symmetry][i * columns + j] = image;
+                        inverse[symmetry][image] = i * columns + j;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns the symmetry mapping the position of a board to its smallest rank.
+         */
+        int canonical(GameBoard board) {
+            int best = 0;
+            long bestRank = Long.MAX_VALUE;
+            for (int symmetry = 0; symmetry < permutations.length; symmetry++) {
+                long rank = rank(board, symmetry);
+                if (rank < bestRank) {
+                    bestRank = rank;
+                    best = symmetry;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Returns the rank of the image of the position of a board by a symmetry.
+         */
+        long rank(GameBoard board, int symmetry) {
+            int columns = board.getColumns();
+            long rank = 0;
+            for (int cell = 0; cell < weights.length; cell++) {
+                BoardNode node = board.getNode(cell / columns, cell % columns);
+                rank += PositionIndex.digit(node.getPlayer()) * weights[permutations[symmetry][cell]];
+            }
+            return rank;
+        }
+    }
+}
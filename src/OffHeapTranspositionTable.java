@@ -0,0 +1,77 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Transposition table whose slots live off-heap, in direct memory.
+ * The table can be sized in gigabytes without adding a single object to the heap: the entries are
+ * laid out as primitive (key, data) long pairs in direct buffers, so the garbage collector neither
+ * scans nor moves them and pause times stay flat for the other games of the process.
+ * <p>
+ * A direct buffer is limited to 2 GB, so the table is split into chunks of {@link #CHUNK_BYTES}.
+ * Direct memory is bounded by {@code -XX:MaxDirectMemorySize}, which defaults to the maximal heap size.
+ */
+class OffHeapTranspositionTable extends TranspositionTable {
+
+    // Size of one chunk in bytes (1 GB), a power of two.
+    private static final int CHUNK_BYTES = 1 << 30;
+
+    // Number of entries per chunk, as a shift.
+    private static final int CHUNK_ENTRIES_SHIFT = Integer.numberOfTrailingZeros(CHUNK_BYTES / ENTRY_BYTES);
+
+    // Mask extracting the entry index within its chunk.
+    private static final long CHUNK_ENTRIES_MASK = (1L << CHUNK_ENTRIES_SHIFT) - 1;
+
+    // The direct buffers holding the entries.
+    private final ByteBuffer[] chunks;
+
+    // Number of slots.
+    private final long capacity;
+
+    /**
+     * Allocates an empty table in direct memory.
+     *
+     * @param size The number of entries, rounded up to a power of two.
+     */
+    OffHeapTranspositionTable(long size) {
+        this.capacity = capacityFor(size);
+        long bytes = capacity * ENTRY_BYTES;
+        int chunkCount = (int) ((bytes + CHUNK_BYTES - 1) / CHUNK_BYTES);
+        this.chunks = new ByteBuffer[chunkCount];
+        for (int c = 0; c < chunkCount; c++) {
+            int chunkBytes = (int) Math.min(CHUNK_BYTES, bytes - (long) c * CHUNK_BYTES);
+            // Direct buffers are zeroed, which is an empty slot.
+            chunks[c] = ByteBuffer.allocateDirect(chunkBytes).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    @Override
+    long capacity() {
+        return capacity;
+    }
+
+    @Override
+    protected long readKeySlot(long slot) {
+        return chunkOf(slot).getLong(offsetOf(slot));
+    }
+
+    @Override
+    protected long readDataSlot(long slot) {
+        return chunkOf(slot).getLong(offsetOf(slot) + Long.BYTES);
+    }
+
+    @Override
+    protected void writeSlots(long slot, long keySlot, long dataSlot) {
+        ByteBuffer chunk = chunkOf(slot);
+        int offset = offsetOf(slot);
+        chunk.putLong(offset + Long.BYTES, dataSlot);
+        chunk.putLong(offset, keySlot);
+    }
+
+    private ByteBuffer chunkOf(long slot) {
+        return chunks[(int) (slot >>> CHUNK_ENTRIES_SHIFT)];
+    }
+
+    private static int offsetOf(long slot) {
+        return (int) (slot & CHUNK_ENTRIES_MASK) * ENTRY_BYTES;
+    }
+}
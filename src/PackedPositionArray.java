@@ -0,0 +1,122 @@
+import java.util.Arrays;
+
+/**
+ * A dense array of small unsigned values, one per position rank of a {@link PositionIndex}, packed into longs.
+ * With one bit per entry it is a set of positions, with two bits it holds a game result per position,
+ * and with eight bits a byte, so the memory used is known in advance and every access is an array index.
+ * <p>
+ * The array is not thread-safe, each search keeps its own.
+ */
+public final class PackedPositionArray {
+
+    // Number of bits of each entry, a divisor of 64.
+    private final int bitsPerEntry;
+
+    // log2 of the number of entries per word.
+    private final int entriesPerWordShift;
+
+    // Mask of an entry value.
+    private final long valueMask;
+
+    // Number of entries.
+    private final long size;
+
+    // The packed entries, the first entry of a word in its lowest bits.
+    private final long[] words;
+
+    /**
+     * Constructs an array of zeros.
+     *
+     * @param size The number of entries.
+     * @param bitsPerEntry The bits of each entry: 1, 2, 4, 8, 16 or 32.
+     * @throws IllegalArgumentException if the entry width is not supported or the array would be too large.
+     */
+    public PackedPositionArray(long size, int bitsPerEntry) {
+        if (bitsPerEntry < 1 || bitsPerEntry > 32 || Integer.bitCount(bitsPerEntry) != 1) {
+            throw new IllegalArgumentException("Entries must be 1, 2, 4, 8, 16 or 32 bits wide: " + bitsPerEntry);
+        }
+        int entriesPerWord = Long.SIZE / bitsPerEntry;
+        long wordCount = (size + entriesPerWord - 1) / entriesPerWord;
+        if (size < 0 || wordCount > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Cannot allocate " + size + " entries of " + bitsPerEntry + " bits");
+        }
+        this.bitsPerEntry = bitsPerEntry;
+        this.entriesPerWordShift = Integer.numberOfTrailingZeros(entriesPerWord);
+        this.valueMask = (1L << bitsPerEntry) - 1;
+        this.size = size;
+        this.words = new long[(int) wordCount];
+    }
+
+    /**
+     * Constructs an array with an entry per position of a board geometry.
+     *
+     * @param index The position index.
+     * @param bitsPerEntry The bits of each entry: 1, 2, 4, 8, 16 or 32.
+     * @return The array of zeros.
+     */
+    public static PackedPositionArray forPositions(PositionIndex index, int bitsPerEntry) {
+        return new PackedPositionArray(index.size(), bitsPerEntry);
+    }
+
+    /**
+     * Returns the value of an entry.
+     *
+     * @param index The index of the entry, typically a position rank.
+     * @return The unsigned value of the entry.
+     */
+    public long get(long index) {
+        checkIndex(index);
+        return (words[(int) (index >>> entriesPerWordShift)] >>> shift(index)) & valueMask;
+    }
+
+    /**
+     * Sets the value of an entry.
+     *
+     * @param index The index of the entry, typically a position rank.
+     * @param value The unsigned value, it must fit in the entry width.
+     */
+    public void set(long index, long value) {
+        checkIndex(index);
+        if ((value & ~valueMask) != 0) {
+            throw new IllegalArgumentException("Value " + value + " does not fit in " + bitsPerEntry + " bits");
+        }
+        int word = (int) (index >>> entriesPerWordShift);
+        int shift = shift(index);
+        words[word] = (words[word] & ~(valueMask << shift)) | (value << shift);
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return The size of the array.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns the memory used by the entries.
+     *
+     * @return The size of the packed words, in bytes.
+     */
+    public long sizeInBytes() {
+        return (long) words.length * Long.BYTES;
+    }
+
+    /**
+     * Sets every entry back to zero.
+     */
+    public void clear() {
+        Arrays.fill(words, 0);
+    }
+
+    private int shift(long index) {
+        return (int) (index & ((1 << entriesPerWordShift) - 1)) * bitsPerEntry;
+    }
+
+    private void checkIndex(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of range [0, " + size + ")");
+        }
+    }
+}
@@ -0,0 +1,263 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts every legal continuation of a position to a given depth, and the outcomes of the games ending on the way,
+ * like the perft of chess engines. The moves are generated from the empty cells of the {@link GameBoard} and a game
+ * ends when {@link GameBoard#getGameResult(BoardNode)}, that is {@link TicTacToeRule}, says so, so the counts check
+ * the board and the rules against known totals: from the empty 3x3 board, 255,168 games, 131,184 won by the first
+ * player, 77,904 by the second and 46,080 drawn. They also measure the throughput of move generation and win detection.
+ * <p>
+ * The moves of the last ply are counted in bulk: they are only played to detect the games they end, without
+ * descending into them. The subtrees of the first plies are counted in parallel by fork-join tasks, each on a copy
+ * of the board, and the deeper plies sequentially, making and unmaking the moves in place without allocating.
+ * <p>
+ * Usage: {@code java Perft [--size N] [--win-length K] [--cube N] [--depth N] [--moves CELL,CELL...] [--threads N]},
+ * where the moves are cell indices, {@code row * columns + column}, played from the user's side.
+ */
+public final class Perft {
+
+    // Logger for the counts and the throughput.
+    private static final Logger logger = new Logger("Perft");
+
+    // Smallest number of plies left for a subtree to be split into parallel tasks.
+    private static final int SPLIT_DEPTH = 4;
+
+    /**
+     * The counts of a perft run.
+     *
+     * @param nodesPerPly The number of positions reached after each ply, index 0 for the first ply.
+     * @param userWins The games won by the user within the depth.
+     * @param aiWins The games won by the AI within the depth.
+     * @param draws The games drawn within the depth.
+     */
+    public record Counts(long[] nodesPerPly, long userWins, long aiWins, long draws) {
+
+        /**
+         * Returns the number of positions reached, at every ply.
+         *
+         * @return The sum of the nodes of the plies.
+         */
+        public long nodes() {
+            return Arrays.stream(nodesPerPly).sum();
+        }
+
+        /**
+         * Returns the number of games ending within the depth.
+         *
+         * @return The wins of both players and the draws.
+         */
+        public long games() {
+            return userWins + aiWins + draws;
+        }
+    }
+
+    private Perft() {
+    }
+
+    /**
+     * Counts the continuations of a position on the common fork-join pool.
+     *
+     * @param board The position, without a winner; left unchanged.
+     * @param toMove The player to move.
+     * @param depth The number of plies to count.
+     * @return The counts.
+     * @throws IllegalArgumentException if the depth is negative.
+     */
+    public static Counts count(GameBoard board, BoardPlayer toMove, int depth) {
+        return count(board, toMove, depth, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Counts the continuations of a position.
+     *
+     * @param board The position, without a winner; left unchanged.
+     * @param toMove The player to move.
+     * @param depth The number of plies to count.
+     * @param pool The pool counting the subtrees in parallel.
+     * @return The counts.
+     * @throws IllegalArgumentException if the depth is negative.
+     */
+    public static Counts count(GameBoard board, BoardPlayer toMove, int depth, ForkJoinPool pool) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("Perft depth must not be negative: " + depth);
+        }
+        Tally tally = pool.invoke(new SubtreeTask(board.copy(), toMove, 0, depth));
+        return new Counts(tally.nodes, tally.userWins, tally.aiWins, tally.draws);
+    }
+
+    /**
+     * Counts the subtree of a position, split into parallel tasks while enough plies are left.
+     */
+    private static final class SubtreeTask extends RecursiveTask<Tally> {
+
+        private static final long serialVersionUID = 1L;
+
+        // The position of the task, owned by it.
+        private final GameBoard board;
+        private final BoardPlayer toMove;
+        private final int ply;
+        private final int depth;
+
+        SubtreeTask(GameBoard board, BoardPlayer toMove, int ply, int depth) {
+            this.board = board;
+            this.toMove = toMove;
+            this.ply = ply;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Tally compute() {
+            Tally tally = new Tally(depth);
+            if (depth - ply < SPLIT_DEPTH) {
+                walk(board, toMove, ply, depth, tally);
+                return tally;
+            }
+            BoardPlayer next = toMove == BoardPlayer.USER ? BoardPlayer.AI : BoardPlayer.USER;
+            List<SubtreeTask> children = new ArrayList<>();
+            for (BoardNode node : board.getEmptyPositions()) {
+                tally.nodes[ply]++;
+                BoardNode move = board.makeMove(node, toMove);
+                if (!tally.ended(board.getGameResult(move))) {
+                    children.add(new SubtreeTask(board.copy(), next, ply + 1, depth));
+                }
+                board.resetNodePlayer(move);
+            }
+            invokeAll(children);
+            for (SubtreeTask child : children) {
+                tally.add(child.join());
+            }
+            return tally;
+        }
+    }
+
+    /**
+     * Counts the subtree of a position sequentially, scanning the cells in place.
+     */
+    private static void walk(GameBoard board, BoardPlayer toMove, int ply, int depth, Tally tally) {
+        if (ply == depth) {
+            return;
+        }
+        boolean last = ply == depth - 1;
+        BoardPlayer next = toMove == BoardPlayer.USER ? BoardPlayer.AI : BoardPlayer.USER;
+        if (last) {
+            tally.nodes[ply] += board.getEmptyCount();
+        }
+        for (int i = 0; i < board.getRows(); i++) {
+            for (int j = 0; j < board.getColumns(); j++) {
+                BoardNode node = board.getNode(i, j);
+                if (!node.isEmpty()) {
+                    continue;
+                }
+                if (!last) {
+                    tally.nodes[ply]++;
+                }
+                board.makeMove(node, toMove);
+                if (!tally.ended(board.getGameResult(node)) && !last) {
+                    walk(board, next, ply + 1, depth, tally);
+                }
+                board.resetNodePlayer(node);
+            }
+        }
+    }
+
+    /**
+     * The counts of a subtree, added up as the tasks complete.
+     */
+    private static final class Tally {
+        final long[] nodes;
+        long userWins;
+        long aiWins;
+        long draws;
+
+        Tally(int depth) {
+            this.nodes = new long[depth];
+        }
+
+        /**
+         * Counts a game if it ended.
+         *
+         * @return {@code true} if the game ended.
+         */
+        boolean ended(GameResult result) {
+            switch (result) {
+                case USER_WINS -> userWins++;
+                case AI_WINS -> aiWins++;
+                case DRAW -> draws++;
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void add(Tally other) {
+            for (int ply = 0; ply < nodes.length; ply++) {
+                nodes[ply] += other.nodes[ply];
+            }
+            userWins += other.userWins;
+            aiWins += other.aiWins;
+            draws += other.draws;
+        }
+    }
+
+    public static void main(String[] args) {
+        GameConfig.Builder config = GameConfig.builder().boardSize(3).debug(false);
+        int depth = -1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int[] moves = new int[0];
+
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--size" -> config.boardSize(Integer.parseInt(value));
+                case "--win-length" -> config.winLength(Integer.parseInt(value));
+                case "--cube" -> config.cube(Integer.parseInt(value));
+                case "--depth" -> depth = Integer.parseInt(value);
+                case "--moves" -> moves = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                case "--threads" -> threads = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        GameBoard board = new GameBoard(config.build());
+        BoardPlayer toMove = BoardPlayer.USER;
+        int columns = board.getColumns();
+        for (int cell : moves) {
+            if (cell < 0 || cell >= board.getRows() * columns || !board.isNodeEmpty(cell / columns, cell % columns)) {
+                throw new IllegalArgumentException("Cell " + cell + " is not an empty cell of the board");
+            }
+            BoardNode move = board.makeMove(cell / columns, cell % columns, toMove);
+            if (board.getGameResult(move) != GameResult.UNDETERMINED) {
+                throw new IllegalArgumentException("The game is over after cell " + cell);
+            }
+            toMove = toMove == BoardPlayer.USER ? BoardPlayer.AI : BoardPlayer.USER;
+        }
+        if (depth < 0) {
+            depth = board.getEmptyCount();
+        }
+
+        logger.title("Counting " + depth + " plies on " + threads + " threads");
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        Counts counts;
+        try {
+            counts = count(board, toMove, depth, pool);
+        } finally {
+            pool.shutdown();
+        }
+        long elapsed = System.nanoTime() - start;
+        for (int ply = 0; ply < depth; ply++) {
+            logger.info(String.format("ply %2d: %,d", ply + 1, counts.nodesPerPly()[ply]));
+        }
+        logger.info(String.format("games: %,d (user wins %,d, AI wins %,d, draws %,d)",
+                counts.games(), counts.userWins(), counts.aiWins(), counts.draws()));
+        logger.info(String.format("nodes: %,d in %.3f s, %,.0f nodes/s",
+                counts.nodes(), elapsed / 1e9, counts.nodes() / (elapsed / 1e9)));
+    }
+}
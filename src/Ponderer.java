@@ -0,0 +1,174 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Searches on the opponent's time for the {@link AiPlayer}.
+ * While the user is thinking about a move, a background thread plays each likely user move on a copy
+ * of the board and precomputes the AI reply to it. When the user move arrives the search is cancelled,
+ * and if the reply to that move was already computed (a ponder hit) the AI plays it without searching.
+ * On a ponder miss the AI search still benefits from the positions solved into the shared transposition table.
+ * <p>
+ * When the AI moves are scheduled, each reply is searched in a {@link AiMoveScheduler.Priority#BATCH} slot of the
+ * {@link AiMoveScheduler}, taken only if no move is waiting for it; pondering stops when the scheduler is saturated,
+ * so it never steals search time from the moves of the other games.
+ */
+class Ponderer {
+
+    // Logger of the background search, debug messages would interleave with the user prompt.
+    private static final Logger logger = new Logger("Ponderer", false);
+
+    // The AI player whose search is run in the background.
+    private final AiPlayer aiPlayer;
+
+    // Single daemon thread running the background search.
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ai-ponderer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // The batch session of the background searches in the AI move scheduler, null if the moves are not scheduled.
+    private final AiMoveScheduler.Session scheduling;
+
+    // Replies (row, column) computed for the positions after a user move, keyed by the board key.
+    private final Map<Long, int[]> replies = new ConcurrentHashMap<>();
+
+    // The search of the running pondering session.
+    private MiniMaxAlgorithm minimax;
+
+    // The task of the running pondering session.
+    private Future<?> task;
+
+    /**
+     * Constructs a ponderer for the given AI player.
+     *
+     * @param aiPlayer The AI player whose replies are precomputed.
+     */
+    Ponderer(AiPlayer aiPlayer) {
+        this.aiPlayer = aiPlayer;
+        this.scheduling = aiPlayer.gameBoard.getConfig().isMoveScheduling()
+                ? AiMoveScheduler.get().register(AiMoveScheduler.Priority.BATCH)
+                : null;
+    }
+
+    /**
+     * Starts pondering on a position where the user is to move.
+     * Any previous pondering session is stopped and its replies are discarded.
+     *
+     * @param gameBoard The game board, it is copied and not accessed by the background thread.
+     */
+    void start(GameBoard gameBoard) {
+        stop();
+        replies.clear();
+
+        GameBoard board = gameBoard.copy();
+        // The search shares the AI's table, so positions solved while pondering also speed up a ponder miss.
+        MiniMaxAlgorithm search = new MiniMaxAlgorithm(board.getConfig(), aiPlayer.getTranspositionTable());
+        minimax = search;
+        task = executor.submit(() -> ponder(board, search));
+    }
+
+    /**
+     * Cancels the running pondering session and waits until its thread stopped touching the search.
+     */
+    void stop() {
+        if (task == null) {
+            return;
+        }
+        minimax.cancel();
+        try {
+            task.get();
+        } catch (CancellationException | ExecutionException ignored) {
+            // A cancelled search ends with a CancellationException, there is nothing to recover.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        task = null;
+    }
+
+    /**
+     * Returns the reply computed for the current position, if pondering reached it.
+     *
+     * @param gameBoard The game board after the user move.
+     * @return The node of the game board to play, or {@code null} on a ponder miss.
+     */
+    BoardNode lookup(GameBoard gameBoard) {
+        int[] reply = replies.get(gameBoard.toKey());
+        return reply == null ? null : gameBoard.getNode(reply[0], reply[1]);
+    }
+
+    /**
+     * Stops pondering and shuts the background thread down.
+     */
+    void close() {
+        stop();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Precomputes the AI reply for each likely user move, most likely moves first,
+     * until the moves are exhausted or the scheduler has no free slot.
+     *
+     * @param board The private copy of the board, the user is to move.
+     * @param search The search of this pondering session.
+     */
+    private void ponder(GameBoard board, MiniMaxAlgorithm search) {
+        for (BoardNode userMove : likelyUserMoves(board)) {
+            AiMoveScheduler.Grant grant = null;
+            if (scheduling != null) {
+                grant = scheduling.tryAcquire(board.getConfig().getMaxSearchDepth());
+                if (grant == null) {
+                    logger.debug("Scheduler saturated, pondering dropped");
+                    return;
+                }
+            }
+            board.makeMove(userMove, BoardPlayer.USER);
+            try {
+                if (board.getGameResult(userMove) == GameResult.UNDETERMINED) {
+                    BoardNode reply = aiPlayer.findBestMove(board, board.getEmptyPositions(), search, logger);
+                    if (reply != null) {
+                        replies.put(board.toKey(), new int[]{reply.getI(), reply.getJ()});
+                    }
+                }
+            } finally {
+                board.resetNodePlayer(userMove);
+                if (grant != null) {
+                    grant.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Orders the empty positions by how likely the user is to play them,
+     * cells next to many occupied cells come first.
+     *
+     * @param board The board where the user is to move.
+     * @return The empty positions, most likely first.
+     */
+    private List<BoardNode> likelyUserMoves(GameBoard board) {
+        List<BoardNode> moves = new ArrayList<>(board.getEmptyPositions());
+        moves.sort(Comparator.comparingInt((BoardNode node) -> occupiedNeighbours(board, node)).reversed());
+        return moves;
+    }
+
+    private int occupiedNeighbours(GameBoard board, BoardNode node) {
+        int count = 0;
+        for (int i = node.getI() - 1; i <= node.getI() + 1; i++) {
+            for (int j = node.getJ() - 1; j <= node.getJ() + 1; j++) {
+                if (i >= 0 && i < board.getRows() && j >= 0 && j < board.getColumns() && !board.isNodeEmpty(i, j)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
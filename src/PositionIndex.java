@@ -0,0 +1,148 @@
+/**
+ * Perfect hash of the positions of a board geometry, the base-3 rank of the cells.
+ * Each cell is a base-3 digit (0 empty, 1 AI, 2 USER), the first cell being the most significant one,
+ * so every position of a board of up to {@value #MAX_CELLS} cells gets a distinct rank below {@link #size()}.
+ * The rank is the key maintained by {@link GameBoard#toKey()} on every move, so per-position data can be
+ * kept in dense arrays indexed by it, such as {@link PackedPositionArray}, instead of tables of hashed strings.
+ * Most ranks are unreachable positions, which is the price of a rank computed in one step per move.
+ */
+public final class PositionIndex {
+
+    /** The largest number of cells whose ranks fit in a {@code long}: 3^39 is below 2^63. */
+    public static final int MAX_CELLS = 39;
+
+    // Number of rows and columns of the indexed boards.
+    private final int rows;
+    private final int columns;
+
+    // Weight of each cell in the rank, 3^(cells - 1 - cell).
+    private final long[] weights;
+
+    /**
+     * Constructs the index of the positions of a board geometry.
+     *
+     * @param rows The number of rows of the boards.
+     * @param columns The number of columns of the boards.
+     * @throws IllegalArgumentException if the board has more than {@value #MAX_CELLS} cells.
+     */
+    public PositionIndex(int rows, int columns) {
+        if (rows < 1 || columns < 1 || rows * columns > MAX_CELLS) {
+            throw new IllegalArgumentException("Positions of a " + rows + "x" + columns + " board cannot be ranked, "
+                    + "at most " + MAX_CELLS + " cells are supported");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.weights = weights(rows * columns);
+    }
+
+    /**
+     * Constructs the index of the positions of the boards of a configuration.
+     *
+     * @param config The configuration of the boards.
+     * @return The position index.
+     * @throws IllegalArgumentException if the board has more than {@value #MAX_CELLS} cells.
+     */
+    public static PositionIndex of(GameConfig config) {
+        return new PositionIndex(config.getRows(), config.getColumns());
+    }
+
+    /**
+     * Returns the number of ranks, 3 to the power of the number of cells.
+     *
+     * @return The size of the rank space.
+     */
+    public long size() {
+        return weights[0] * 3;
+    }
+
+    /**
+     * Computes the rank of a position from its cells. Boards maintain the same value incrementally,
+     * see {@link GameBoard#toKey()}, this is the reference computation.
+     *
+     * @param gameBoard The board, with the geometry of the index.
+     * @return The rank of the position.
+     */
+    public long rank(GameBoard gameBoard) {
+        checkGeometry(gameBoard);
+        long rank = 0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                rank = rank * 3 + digit(gameBoard.getNode(i, j).getPlayer());
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Sets the cells of a board to the position of a rank.
+     *
+     * @param rank The rank of the position.
+     * @param gameBoard The board receiving the position, with the geometry of the index.
+     * @throws IllegalArgumentException if the rank is out of range.
+     */
+    public void unrank(long rank, GameBoard gameBoard) {
+        checkGeometry(gameBoard);
+        if (rank < 0 || rank >= size()) {
+            throw new IllegalArgumentException("Rank " + rank + " is out of range [0, " + size() + ")");
+        }
+        for (int cell = weights.length - 1; cell >= 0; cell--) {
+            BoardNode node = gameBoard.getNode(cell / columns, cell % columns);
+            BoardPlayer player = player((int) (rank % 3));
+            rank /= 3;
+            if (node.getPlayer() != player) {
+                gameBoard.resetNodePlayer(node);
+                if (player != BoardPlayer.EMPTY) {
+                    gameBoard.makeMove(node, player);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the weights of the cells of a board in its base-3 key, 3^(cells - 1 - cell).
+     * The powers wrap around beyond {@value #MAX_CELLS} cells, where the key becomes a 64-bit hash.
+     *
+     * @param cells The number of cells of the board.
+     * @return The weight of each cell, the first cell being the most significant one.
+     */
+    static long[] weights(int cells) {
+        long[] weights = new long[cells];
+        long weight = 1;
+        for (int cell = cells - 1; cell >= 0; cell--) {
+            weights[cell] = weight;
+            weight *= 3;
+        }
+        return weights;
+    }
+
+    /**
+     * Returns the base-3 digit of a cell occupied by a player.
+     *
+     * @param player The player occupying the cell, or {@link BoardPlayer#EMPTY}.
+     * @return 0 for an empty cell, 1 for AI, 2 for USER.
+     */
+    static int digit(BoardPlayer player) {
+        return switch (player) {
+            case EMPTY -> 0;
+            case AI -> 1;
+            case USER -> 2;
+        };
+    }
+
+    /**
+     * Returns the player occupying a cell of a base-3 digit.
+     *
+     * @param digit The digit of the cell, see {@link #digit(BoardPlayer)}.
+     * @return The player, or {@link BoardPlayer#EMPTY}.
+     */
+    static BoardPlayer player(int digit) {
+        return digit == 0 ? BoardPlayer.EMPTY : digit == 1 ? BoardPlayer.AI : BoardPlayer.USER;
+    }
+
+    private void checkGeometry(GameBoard gameBoard) {
+        if (gameBoard.getRows() != rows || gameBoard.getColumns() != columns) {
+            throw new IllegalArgumentException("The board is " + gameBoard.getRows() + "x" + gameBoard.getColumns()
+                    + ", the index is " + rows + "x" + columns);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+import java.util.Arrays;
+
+/**
+ * Depth-first proof-number search (df-pn) solver deciding whether a position is won, lost or drawn.
+ * Unlike MiniMax it does not compute scores: every node carries a proof number (how many leaves must
+ * still be proven to show a win) and a disproof number (same for showing there is none), and the search
+ * always expands the most-proving node. Proof and disproof numbers are kept in a fixed-size hash table,
+ * so the memory used is bounded whatever the size of the position. Each bucket of the table has two entries:
+ * one keeps the entry that took the most nodes to compute, such as the nodes of the current path,
+ * the other one takes every other write. A node whose entry was lost is searched again, so every query
+ * also has a node budget, after which it is undecided.
+ * <p>
+ * A draw is detected with two queries: first whether the side to move can force a win, then whether
+ * the other side can. If neither can, the position is a draw.
+ */
+public class ProofNumberSearch {
+
+    /** Proof / disproof number of a node that can no longer be proven / disproven. */
+    public static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    // Default number of entries of the proof table.
+    private static final int DEFAULT_TABLE_SIZE = 1 << 20;
+
+    // Default maximal number of nodes expanded by one query.
+    private static final long DEFAULT_NODE_BUDGET = 1L << 24;
+
+    // Key of an empty entry of the proof table.
+    private static final long EMPTY_KEY = -1;
+
+    // Proof table: key, proof number, disproof number and the nodes expanded to compute them, of each entry.
+    // The two entries of a bucket are at an even index and the next one, the bucket is chosen by the key's hash.
+    private final long[] tableKeys;
+    private final int[] tableProof;
+    private final int[] tableDisproof;
+    private final long[] tableWork;
+
+    // Hash mask of the proof table selecting the first entry of a bucket, the table size is a power of two.
+    private final int tableMask;
+
+    // Maximal number of nodes expanded by one query, the query is undecided after that.
+    private final long nodeBudget;
+
+    // Number of nodes expanded by the running query.
+    private long nodes;
+
+    // The player trying to prove a win in the running query.
+    private BoardPlayer attacker;
+
+    // Proof and disproof numbers returned by the last lookup, child evaluation or node expansion,
+    // so the search does not allocate to return them.
+    private int proofNumber;
+    private int disproofNumber;
+
+    /**
+     * Constructs a solver with the default table size and node budget.
+     */
+    public ProofNumberSearch() {
+        this(DEFAULT_TABLE_SIZE, DEFAULT_NODE_BUDGET);
+    }
+
+    /**
+     * Constructs a solver with a bounded proof table and node budget.
+     *
+     * @param tableSize The number of entries of the proof table, rounded up to a power of two of at least 4.
+     * @param nodeBudget The maximal number of nodes expanded by one query.
+     */
+    public ProofNumberSearch(int tableSize, long nodeBudget) {
+        int size = Integer.highestOneBit(Math.max(4, tableSize - 1)) << 1;
+        this.tableKeys = new long[size];
+        this.tableProof = new int[size];
+        this.tableDisproof = new int[size];
+        this.tableWork = new long[size];
+        this.tableMask = (size - 1) & ~1;
+        this.nodeBudget = nodeBudget;
+    }
+
+    /**
+     * Decides the game-theoretic value of a position.
+     *
+     * @param gameBoard The game board, it is restored to its original state before returning.
+     * @param lastMove The last move made on the board, or {@code null} if no move was made.
+     * @param toMove The player to move.
+     * @return The value of the position with the proof and disproof numbers of the deciding query.
+     */
+    public ProofResult solve(GameBoard gameBoard, BoardNode lastMove, BoardPlayer toMove) {
+        GameResult result = gameBoard.getGameResult(lastMove);
+        if (result != GameResult.UNDETERMINED) {
+            return new ProofResult(result, result == GameResult.DRAW ? INFINITY : 0, 0, 0);
+        }
+
+        BoardPlayer opponent = toMove == BoardPlayer.AI ? BoardPlayer.USER : BoardPlayer.AI;
+        long totalNodes = 0;
+
+        // 1. can the side to move force a win?
+        prove(gameBoard, toMove, toMove);
+        totalNodes += nodes;
+        if (proofNumber == 0) {
+            return new ProofResult(winnerOf(toMove), proofNumber, disproofNumber, totalNodes);
+        }
+        if (disproofNumber != 0) {
+            return new ProofResult(GameResult.UNDETERMINED, proofNumber, disproofNumber, totalNodes);
+        }
+
+        // 2. can the other side force a win?
+        prove(gameBoard, opponent, toMove);
+        totalNodes += nodes;
+        if (proofNumber == 0) {
+            return new ProofResult(winnerOf(opponent), proofNumber, disproofNumber, totalNodes);
+        }
+        if (disproofNumber != 0) {
+            return new ProofResult(GameResult.UNDETERMINED, proofNumber, disproofNumber, totalNodes);
+        }
+
+        // Neither side can force a win.
+        return new ProofResult(GameResult.DRAW, proofNumber, disproofNumber, totalNodes);
+    }
+
+    /**
+     * Runs one df-pn query proving or disproving a forced win of the attacker.
+     *
+     * @param gameBoard The game board.
+     * @param attacker The player trying to force a win.
+     * @param toMove The player to move.
+     */
+    private void prove(GameBoard gameBoard, BoardPlayer attacker, BoardPlayer toMove) {
+        this.attacker = attacker;
+        this.nodes = 0;
+        clearTable();
+        multipleIterativeDeepening(gameBoard, toMove, INFINITY, INFINITY);
+    }
+
+    /**
+     * Expands a node until its proof or disproof number reaches the given threshold, or the node budget is spent.
+     * Nodes where the attacker moves are OR nodes (one proven child proves them),
+     * nodes where the defender moves are AND nodes (all children must be proven).
+     * The numbers of the node are left in {@link #proofNumber} and {@link #disproofNumber}.
+     * The moves are scanned in place rather than listed, so the search does not allocate.
+     *
+     * @param gameBoard The game board of the node.
+     * @param toMove The player to move in the node.
+     * @param proofThreshold The proof number threshold.
+     * @param disproofThreshold The disproof number threshold.
+     */
+    private void multipleIterativeDeepening(GameBoard gameBoard, BoardPlayer toMove,
+                                            int proofThreshold, int disproofThreshold) {
+        long nodeKey = key(gameBoard, toMove);
+        boolean isOrNode = toMove == attacker;
+        BoardPlayer next = toMove == BoardPlayer.AI ? BoardPlayer.USER : BoardPlayer.AI;
+        int columns = gameBoard.getColumns();
+        int cells = gameBoard.size();
+        long startNodes = nodes;
+        nodes++;
+
+        while (true) {
+            // Recompute the numbers of the node from its children.
+            int proof = isOrNode ? INFINITY : 0;
+            int disproof = isOrNode ? 0 : INFINITY;
+            BoardNode bestMove = null;
+            int bestChildNumber = INFINITY;
+            int secondChildNumber = INFINITY;
+            int bestChildProof = 0;
+            int bestChildDisproof = 0;
+
+            for (int cell = 0; cell < cells; cell++) {
+                BoardNode move = gameBoard.getNode(cell / columns, cell % columns);
+                if (!move.isEmpty()) {
+                    continue;
+                }
+                childNumbers(gameBoard, move, toMove, next);
+                int selectNumber = isOrNode ? proofNumber : disproofNumber;
+                if (isOrNode) {
+                    proof = Math.min(proof, proofNumber);
+                    disproof = saturatedAdd(disproof, disproofNumber);
+                } else {
+                    proof = saturatedAdd(proof, proofNumber);
+                    disproof = Math.min(disproof, disproofNumber);
+                }
+                if (selectNumber < bestChildNumber) {
+                    secondChildNumber = bestChildNumber;
+                    bestChildNumber = selectNumber;
+                    bestMove = move;
+                    bestChildProof = proofNumber;
+                    bestChildDisproof = disproofNumber;
+                } else if (selectNumber < secondChildNumber) {
+                    secondChildNumber = selectNumber;
+                }
+            }
+
+            store(nodeKey, proof, disproof, nodes - startNodes);
+            if (proof >= proofThreshold || disproof >= disproofThreshold || nodes >= nodeBudget) {
+                proofNumber = proof;
+                disproofNumber = disproof;
+                return;
+            }
+
+            // Expand the most-proving child with thresholds keeping it the most-proving one.
+            int childProofThreshold;
+            int childDisproofThreshold;
+            if (isOrNode) {
+                childProofThreshold = Math.min(proofThreshold, saturatedAdd(secondChildNumber, 1));
+                childDisproofThreshold = saturatedAdd(disproofThreshold - disproof, bestChildDisproof);
+            } else {
+                childProofThreshold = saturatedAdd(proofThreshold - proof, bestChildProof);
+                childDisproofThreshold = Math.min(disproofThreshold, saturatedAdd(secondChildNumber, 1));
+            }
+
+            gameBoard.makeMove(bestMove, toMove);
+            multipleIterativeDeepening(gameBoard, next, childProofThreshold, childDisproofThreshold);
+            gameBoard.resetNodePlayer(bestMove);
+        }
+    }
+
+    /**
+     * Sets {@link #proofNumber} and {@link #disproofNumber} to the numbers of the child reached by a move.
+     * Terminal children are evaluated with the rule, unknown children start at (1, 1).
+     *
+     * @param gameBoard The game board of the parent.
+     * @param move The move leading to the child.
+     * @param toMove The player making the move.
+     * @param next The player to move in the child.
+     */
+    private void childNumbers(GameBoard gameBoard, BoardNode move, BoardPlayer toMove, BoardPlayer next) {
+        gameBoard.makeMove(move, toMove);
+        try {
+            GameResult result = gameBoard.getGameResult(move);
+            if (result != GameResult.UNDETERMINED) {
+                boolean won = result == winnerOf(attacker);
+                proofNumber = won ? 0 : INFINITY;
+                disproofNumber = won ? INFINITY : 0;
+            } else if (!lookup(key(gameBoard, next))) {
+                proofNumber = 1;
+                disproofNumber = 1;
+            }
+        } finally {
+            gameBoard.resetNodePlayer(move);
+        }
+    }
+
+    /**
+     * Returns the key of a node: the position rank of the board and the player to move.
+     */
+    private static long key(GameBoard gameBoard, BoardPlayer toMove) {
+        return (gameBoard.toKey() << 1) | (toMove == BoardPlayer.AI ? 1 : 0);
+    }
+
+    private int index(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & tableMask;
+    }
+
+    /**
+     * Looks up the numbers of a node, leaving them in {@link #proofNumber} and {@link #disproofNumber}.
+     *
+     * @return {@code true} if the table has an entry for the key, {@code false} otherwise.
+     */
+    private boolean lookup(long key) {
+        int bucket = index(key);
+        int index = tableKeys[bucket] == key ? bucket : tableKeys[bucket + 1] == key ? bucket + 1 : -1;
+        if (index < 0) {
+            return false;
+        }
+        proofNumber = tableProof[index];
+        disproofNumber = tableDisproof[index];
+        return true;
+    }
+
+    /**
+     * Stores the numbers of a node. The first entry of the bucket keeps the entry that took the most nodes
+     * to compute, the entry it replaces moves to the second one, which otherwise takes the cheaper writes.
+     */
+    private void store(long key, int proof, int disproof, long work) {
+        int bucket = index(key);
+        if (tableKeys[bucket] == key) {
+            write(bucket, key, proof, disproof, Math.max(work, tableWork[bucket]));
+        } else if (work >= tableWork[bucket]) {
+            if (tableKeys[bucket] != EMPTY_KEY) {
+                write(bucket + 1, tableKeys[bucket], tableProof[bucket], tableDisproof[bucket], tableWork[bucket]);
+            } else if (tableKeys[bucket + 1] == key) {
+                tableKeys[bucket + 1] = EMPTY_KEY;
+            }
+            write(bucket, key, proof, disproof, work);
+        } else {
+            write(bucket + 1, key, proof, disproof, work);
+        }
+    }
+
+    private void write(int index, long key, int proof, int disproof, long work) {
+        tableKeys[index] = key;
+        tableProof[index] = proof;
+        tableDisproof[index] = disproof;
+        tableWork[index] = work;
+    }
+
+    private void clearTable() {
+        Arrays.fill(tableKeys, EMPTY_KEY);
+        Arrays.fill(tableWork, 0);
+    }
+
+    private static int saturatedAdd(int a, int b) {
+        return (int) Math.min(INFINITY, (long) a + b);
+    }
+
+    private static GameResult winnerOf(BoardPlayer player) {
+        return player == BoardPlayer.AI ? GameResult.AI_WINS : GameResult.USER_WINS;
+    }
+}
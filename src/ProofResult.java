@@ -0,0 +1,11 @@
+/**
+ * The answer of a {@link ProofNumberSearch} query.
+ *
+ * @param result The game-theoretic value of the position (AI_WINS, USER_WINS or DRAW),
+ *               or UNDETERMINED if the node budget ran out first.
+ * @param proofNumber The proof number of the root for the deciding query, 0 when the win is proven.
+ * @param disproofNumber The disproof number of the root for the deciding query, 0 when the win is disproven.
+ * @param nodes The number of nodes expanded by the search.
+ */
+public record ProofResult(GameResult result, int proofNumber, int disproofNumber, long nodes) {
+}
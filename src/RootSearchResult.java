@@ -0,0 +1,12 @@
+/**
+ * The move chosen by a search of the AI moves of a position, with its score.
+ *
+ * @param move The best node of the searched board, or {@code null} if there was no move.
+ * @param score The MiniMax score of the move, or {@link #UNKNOWN_SCORE} if it was chosen without a full search,
+ *              e.g. by the tactical analysis.
+ */
+public record RootSearchResult(BoardNode move, int score) {
+
+    /** The score of a move chosen without a MiniMax search. */
+    public static final int UNKNOWN_SCORE = Integer.MIN_VALUE;
+}
@@ -0,0 +1,259 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Persists the solved positions of the MiniMax search across JVM restarts.
+ * The transposition table of a configuration is shared by all the games of the process using it,
+ * snapshotted periodically (and on shutdown) to a compact binary file, and loaded back at startup
+ * by memory mapping the file. The file starts with a header carrying a format version, the board
+ * geometry and the evaluation weights it was computed for and a CRC32 checksum of the entries, so stale,
+ * foreign or corrupt files are rejected. A cache file belongs to the first configuration of the process
+ * opening it; another configuration naming the same file gets a table of its own, which is not persisted.
+ * <p>
+ * File layout (big endian): magic, version, rows, columns, win length, layers, evaluation hash (ints),
+ * entry count, entries checksum (longs), followed by the entries as (key, data) long pairs.
+ */
+final class SearchCacheStore {
+
+    // Logger for snapshot and load events.
+    private static final Logger logger = new Logger("SearchCacheStore");
+
+    // Identifies a search cache file ("TTTC").
+    private static final int MAGIC = 0x54545443;
+
+    // Format version, increased whenever the layout or the meaning of the entries changes.
+    private static final int VERSION = 3;
+
+    // Header size in bytes.
+    private static final int HEADER_BYTES = 7 * Integer.BYTES + 2 * Long.BYTES;
+
+    // Size of one persisted entry in bytes.
+    private static final int ENTRY_BYTES = TranspositionTable.ENTRY_BYTES;
+
+    // Number of entries buffered before they are written to the snapshot file.
+    private static final int BUFFER_ENTRIES = 1 << 14;
+
+    // Size of the windows the snapshot file is mapped in, a multiple of the entry size.
+    private static final long MAP_WINDOW_BYTES = 1L << 28;
+
+    // Tables shared by the games of the process, keyed by cache file and board geometry.
+    private static final Map<String, TranspositionTable> sharedTables = new ConcurrentHashMap<>();
+
+    // The fingerprint of the configuration each cache file of the process is snapshotted for.
+    private static final Map<Path, String> fileOwners = new ConcurrentHashMap<>();
+
+    // Daemon thread writing the periodic snapshots.
+    private static final ScheduledExecutorService snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "search-cache-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private SearchCacheStore() {
+    }
+
+    /**
+     * Returns the transposition table to use for a game.
+     * Without a cache file every search gets a table of its own. With a cache file, the games of the
+     * process share one table, loaded from the file on first use and snapshotted back to it periodically.
+     *
+     * @param config The game configuration.
+     * @return The transposition table for the configuration.
+     */
+    static TranspositionTable tableFor(GameConfig config) {
+        Path file = config.getSearchCacheFile();
+        if (file == null) {
+            return TranspositionTable.create(config);
+        }
+        Path normalized = file.toAbsolutePath().normalize();
+        String fingerprint = TranspositionTable.fingerprint(config);
+        String owner = fileOwners.putIfAbsent(normalized, fingerprint);
+        if (owner != null && !owner.equals(fingerprint)) {
+            logger.warning("Search cache " + file + " already holds the " + owner + " positions, not persisting the "
+                    + fingerprint + " ones");
+            return TranspositionTable.create(config);
+        }
+        return sharedTables.computeIfAbsent(normalized + "#" + fingerprint, ignored -> openShared(config, file));
+    }
+
+    /**
+     * Writes a snapshot of a table to a file.
+     * The entries are streamed through a small buffer, so tables of any size can be written.
+     * The snapshot is written to a temporary file first and moved over the target, so a crash
+     * while writing never leaves a truncated cache file behind. The table may be written to by running
+     * searches meanwhile.
+     *
+     * @param table The table to snapshot.
+     * @param config The configuration the table was computed for.
+     * @param file The target file.
+     * @throws IOException if the file cannot be written.
+     */
+    static void save(TranspositionTable table, GameConfig config, Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.position(HEADER_BYTES);
+
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_ENTRIES * ENTRY_BYTES).order(ByteOrder.BIG_ENDIAN);
+            CRC32 checksum = new CRC32();
+            long count = 0;
+            for (long slot = 0; slot < table.capacity(); slot++) {
+                // Each slot is read once, so an entry torn by a concurrent write decodes to a key of no position.
+                long data = table.dataAt(slot);
+                if (data == TranspositionTable.MISS) {
+                    continue;
+                }
+                buffer.putLong(table.keySlotAt(slot) ^ data).putLong(data);
+                count++;
+                if (!buffer.hasRemaining()) {
+                    writeEntries(channel, buffer, checksum);
+                }
+            }
+            writeEntries(channel, buffer, checksum);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.BIG_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION)
+                    .putInt(config.getRows()).putInt(config.getColumns()).putInt(config.getWinLength())
+                    .putInt(config.getLayers()).putInt(TranspositionTable.evaluationHash(config))
+                    .putLong(count).putLong(checksum.getValue());
+            header.flip();
+            channel.position(0);
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a table snapshot by memory mapping the file, one window at a time.
+     *
+     * @param config The configuration the table is loaded for.
+     * @param file The snapshot file.
+     * @return The loaded table, or {@code null} if the file is missing, stale or corrupt.
+     */
+    static TranspositionTable load(GameConfig config, Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                return reject(file, "file is truncated");
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            header.order(ByteOrder.BIG_ENDIAN);
+
+            if (header.getInt() != MAGIC) {
+                return reject(file, "not a search cache file");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                return reject(file, "version " + version + " instead of " + VERSION);
+            }
+            int rows = header.getInt();
+            int columns = header.getInt();
+            int winLength = header.getInt();
+            int layers = header.getInt();
+            if (rows != config.getRows() || columns != config.getColumns() || winLength != config.getWinLength()
+                    || layers != config.getLayers()) {
+                return reject(file, "computed for a " + rows + "x" + columns + " k=" + winLength + " board of "
+                        + layers + " layers");
+            }
+            if (header.getInt() != TranspositionTable.evaluationHash(config)) {
+                return reject(file, "computed with other evaluation weights");
+            }
+            long count = header.getLong();
+            long expectedChecksum = header.getLong();
+            if (count < 0 || size != HEADER_BYTES + count * ENTRY_BYTES) {
+                return reject(file, "entry count does not match the file size");
+            }
+
+            // Verify the whole file before using any entry.
+            CRC32 checksum = new CRC32();
+            for (long position = HEADER_BYTES; position < size; position += MAP_WINDOW_BYTES) {
+                checksum.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW_BYTES, size - position)));
+            }
+            if (checksum.getValue() != expectedChecksum) {
+                return reject(file, "checksum mismatch");
+            }
+
+            TranspositionTable table = TranspositionTable.create(config);
+            for (long position = HEADER_BYTES; position < size; position += MAP_WINDOW_BYTES) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW_BYTES, size - position));
+                window.order(ByteOrder.BIG_ENDIAN);
+                while (window.hasRemaining()) {
+                    table.storeRaw(window.getLong(), window.getLong());
+                }
+            }
+            logger.info("Loaded " + count + " solved positions from " + file);
+            return table;
+        } catch (IOException e) {
+            return reject(file, e.getMessage());
+        }
+    }
+
+    /**
+     * Loads the shared table of a configuration and schedules its snapshots.
+     *
+     * @param config The game configuration.
+     * @param file The cache file.
+     * @return The shared table.
+     */
+    private static TranspositionTable openShared(GameConfig config, Path file) {
+        TranspositionTable loaded = load(config, file);
+        TranspositionTable table = loaded != null ? loaded : TranspositionTable.create(config);
+
+        Runnable snapshot = () -> {
+            try {
+                save(table, config, file);
+            } catch (IOException e) {
+                logger.warning("Could not snapshot the search cache to " + file + ": " + e.getMessage());
+            }
+        };
+        int interval = config.getSearchCacheSnapshotSeconds();
+        snapshotter.scheduleWithFixedDelay(snapshot, interval, interval, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(snapshot, "search-cache-final-snapshot"));
+        return table;
+    }
+
+    /**
+     * Writes the buffered entries to the snapshot file and adds them to the checksum.
+     *
+     * @param channel The snapshot file.
+     * @param buffer The buffered entries, it is cleared afterwards.
+     * @param checksum The checksum of the entries.
+     * @throws IOException if the file cannot be written.
+     */
+    private static void writeEntries(FileChannel channel, ByteBuffer buffer, CRC32 checksum) throws IOException {
+        buffer.flip();
+        checksum.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static TranspositionTable reject(Path file, String reason) {
+        logger.warning("Ignoring search cache " + file + ": " + reason);
+        return null;
+    }
+}
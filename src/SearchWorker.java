@@ -0,0 +1,143 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A worker process of the {@link DistributedSearch}. It connects to the coordinator over a local socket,
+ * searches the root moves it is sent one at a time, and streams back their scores. While a move is being
+ * searched, the coordinator may raise its alpha when a better root move was found elsewhere.
+ * <p>
+ * Usage: {@code java SearchWorker <host> <port>}, the coordinator starts its local workers this way.
+ */
+public class SearchWorker {
+
+    // Logger for the searches that fail.
+    private static final Logger logger = new Logger("SearchWorker");
+
+    // The connection to the coordinator.
+    private final Socket socket;
+
+    // Reads the coordinator messages.
+    private final DataInputStream in;
+
+    // Sends the results, written by the search thread only.
+    private final DataOutputStream out;
+
+    // Runs the searches, so the connection keeps reading bound updates meanwhile.
+    private final ExecutorService searchThread = Executors.newSingleThreadExecutor();
+
+    // Tables of solved positions, one per searched configuration, kept from task to task.
+    private final Map<String, TranspositionTable> tables = new HashMap<>();
+
+    // The running search and its id.
+    private volatile MiniMaxAlgorithm search;
+    private volatile long searchId = -1;
+
+    private SearchWorker(Socket socket) throws IOException {
+        this.socket = socket;
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: SearchWorker <host> <port>");
+        }
+        try (Socket socket = new Socket(args[0], Integer.parseInt(args[1]))) {
+            socket.setTcpNoDelay(true);
+            new SearchWorker(socket).serve();
+        }
+    }
+
+    /**
+     * Handles the coordinator messages until the connection is closed.
+     */
+    private void serve() throws IOException {
+        synchronized (out) {
+            out.writeInt(DistributedSearch.MAGIC);
+            out.writeInt(DistributedSearch.VERSION);
+            out.flush();
+        }
+        try {
+            while (true) {
+                byte type = in.readByte();
+                switch (type) {
+                    case DistributedSearch.TASK -> readTask();
+                    case DistributedSearch.ALPHA -> {
+                        long id = in.readLong();
+                        int alpha = in.readInt();
+                        MiniMaxAlgorithm running = search;
+                        if (id == searchId && running != null) {
+                            running.raiseAlpha(alpha);
+                        }
+                    }
+                    default -> throw new IOException("Unknown message type " + type);
+                }
+            }
+        } catch (EOFException e) {
+            // The coordinator closed the connection, the worker is done.
+        } finally {
+            searchThread.shutdownNow();
+            socket.close();
+        }
+    }
+
+    /**
+     * Reads a root move to search and starts its search.
+     */
+    private void readTask() throws IOException {
+        long id = in.readLong();
+        int moveCell = in.readInt();
+        int alpha = in.readInt();
+        int rows = in.readInt();
+        int columns = in.readInt();
+        int winLength = in.readInt();
+        int maxSearchDepth = in.readInt();
+        int tableSize = in.readInt();
+        byte[] cells = new byte[rows * columns];
+        in.readFully(cells);
+
+        GameConfig config = GameConfig.builder().rows(rows).columns(columns).winLength(winLength)
+                .maxSearchDepth(maxSearchDepth).transpositionTableSize(tableSize).debug(false).build();
+        TranspositionTable table = tables.computeIfAbsent(rows + "x" + columns + "/" + winLength + "/" + maxSearchDepth,
+                ignored -> TranspositionTable.create(config));
+        MiniMaxAlgorithm minimax = new MiniMaxAlgorithm(config, table);
+        search = minimax;
+        searchId = id;
+        searchThread.execute(() -> runTask(id, minimax, config, cells, moveCell, alpha));
+    }
+
+    private void runTask(long id, MiniMaxAlgorithm minimax, GameConfig config, byte[] cells, int moveCell, int alpha) {
+        GameBoard board = DistributedSearch.toBoard(config, cells);
+        BoardNode move = board.makeMove(moveCell / config.getColumns(), moveCell % config.getColumns(), BoardPlayer.AI);
+
+        try {
+            int score = minimax.minimax(board, move, alpha);
+            synchronized (out) {
+                out.writeLong(id);
+                out.writeInt(moveCell);
+                out.writeInt(score);
+                out.writeLong(minimax.getNodeCount());
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The coordinator is gone, the reading loop ends on the closed connection.
+        } catch (RuntimeException e) {
+            // Without a result the coordinator would wait forever: drop the connection so it re-queues the move.
+            logger.error("Search of cell " + moveCell + " failed: " + e);
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // The connection is dropped either way.
+            }
+        }
+    }
+}
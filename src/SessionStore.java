@@ -0,0 +1,632 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * Persists the game sessions, so the games in progress survive a restart or a rolling deploy.
+ * Every session start, move and end is appended to an event log by a single writer thread, which writes
+ * all the events queued since its last write at once and syncs them with one {@code force} call (group commit).
+ * Games only queue their events, so logging never adds a disk sync to the move latency; {@link #sync()}
+ * waits until everything queued so far is durable.
+ * <p>
+ * The log is split in segments. When a segment is full, the live sessions are compacted into a memory mapped
+ * snapshot file and the older segments are deleted, so recovery only reads the last snapshot and the segments
+ * written after it. At startup the segments are parsed in parallel, each one memory mapped, and the recovered
+ * sessions are replayed and validated in parallel. A record torn by a crash ends its segment.
+ * <p>
+ * Segment layout: records of 32 bytes (big endian): type, session id, ply, three arguments (ints, long for the id)
+ * and the CRC32 of the first 28 bytes. Snapshot layout: magic, version, session count (ints), next session id,
+ * payload size, payload checksum (longs), then per session: id (long), rows, columns, win length, move count
+ * and the moves as cell indexes (ints).
+ */
+public final class SessionStore {
+
+    // Logger for recovery and compaction events.
+    private static final Logger logger = new Logger("SessionStore");
+
+    // Identifies a session snapshot file ("TTTS").
+    private static final int MAGIC = 0x54545453;
+
+    // Format version, increased whenever the layout or the meaning of the files changes.
+    private static final int VERSION = 1;
+
+    // Size of an event record, and of its part covered by the checksum.
+    private static final int RECORD_BYTES = 32;
+    private static final int RECORD_CHECKED_BYTES = RECORD_BYTES - Integer.BYTES;
+
+    // Snapshot header size in bytes.
+    private static final int SNAPSHOT_HEADER_BYTES = 3 * Integer.BYTES + 3 * Long.BYTES;
+
+    // Size of a segment before it is rotated and the sessions compacted.
+    static final long DEFAULT_SEGMENT_BYTES = 4L << 20;
+
+    // Largest number of events written and synced at once.
+    private static final int MAX_BATCH = 4096;
+
+    // Event types.
+    private static final int START = 1;
+    private static final int MOVE = 2;
+    private static final int FINISH = 3;
+
+    // Stores shared by the games of the process, keyed by directory.
+    private static final Map<Path, SessionStore> sharedStores = new ConcurrentHashMap<>();
+
+    /**
+     * A logged event: a session start (rows, columns, win length), a move (cell, player digit) or an end (result).
+     */
+    private record Event(int type, long sessionId, int ply, int a, int b, int c) {
+    }
+
+    /**
+     * The state of a live session, owned by the writer thread.
+     */
+    private static final class SessionState {
+        private final int rows;
+        private final int columns;
+        private final int winLength;
+        private int[] moves = new int[16];
+        private int moveCount;
+
+        SessionState(int rows, int columns, int winLength) {
+            this.rows = rows;
+            this.columns = columns;
+            this.winLength = winLength;
+        }
+
+        void add(int cell) {
+            if (moveCount == moves.length) {
+                moves = Arrays.copyOf(moves, moveCount * 2);
+            }
+            moves[moveCount++] = cell;
+        }
+
+        GameSession toSession(long id) {
+            return new GameSession(id, rows, columns, winLength, Arrays.copyOf(moves, moveCount));
+        }
+    }
+
+    // The directory of the segments and snapshots.
+    private final Path directory;
+
+    // Size of a segment before it is rotated.
+    private final long segmentBytes;
+
+    // Events and sync requests (futures) waiting for the writer thread.
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+
+    // The live sessions, owned by the writer thread once it started.
+    private final Map<Long, SessionState> sessions = new HashMap<>();
+
+    // The sessions in progress found at startup.
+    private final List<GameSession> recovered;
+
+    // Id of the next session started.
+    private final AtomicLong nextSessionId = new AtomicLong();
+
+    // The segment being written, its number and size.
+    private FileChannel segment;
+    private long segmentNumber;
+    private long segmentSize;
+
+    // Appends the queued events.
+    private final Thread writer;
+
+    // Set when the store is closed, no event is accepted afterwards.
+    private boolean closed;
+
+    /**
+     * Opens the store of a directory, recovering its sessions.
+     *
+     * @param directory The directory of the log segments and snapshots, created if missing.
+     * @param segmentBytes The size of a segment before it is rotated and the sessions compacted.
+     * @throws IOException if the directory cannot be read or the first segment cannot be created.
+     */
+    SessionStore(Path directory, long segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+
+        long start = System.nanoTime();
+        segmentNumber = recover();
+        recovered = sessions.entrySet().parallelStream()
+                .map(entry -> entry.getValue().toSession(entry.getKey()))
+                .filter(this::isResumable)
+                .sorted(Comparator.comparingLong(GameSession::id))
+                .toList();
+        // Sessions that cannot be resumed, such as games decided before their end was logged, are dropped.
+        sessions.keySet().retainAll(recovered.stream().map(GameSession::id).collect(Collectors.toSet()));
+        openSegment();
+        compact();
+        logger.info("Recovered " + recovered.size() + " sessions from " + directory + " in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+
+        writer = new Thread(this::writeLoop, "session-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Returns the store of a directory, shared by the games of the process.
+     * The first call recovers the sessions of the directory; the store is closed on shutdown.
+     *
+     * @param directory The session directory.
+     * @return The shared store.
+     * @throws UncheckedIOException if the store cannot be opened.
+     */
+    static SessionStore forDirectory(Path directory) {
+        return sharedStores.computeIfAbsent(directory.toAbsolutePath().normalize(), path -> {
+            try {
+                SessionStore store = new SessionStore(path, DEFAULT_SEGMENT_BYTES);
+                Runtime.getRuntime().addShutdownHook(new Thread(store::close, "session-log-close"));
+                return store;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open the session store " + path, e);
+            }
+        });
+    }
+
+    /**
+     * Returns the games that were in progress when the store was opened, to be resumed.
+     *
+     * @return The recovered sessions, by id.
+     */
+    public List<GameSession> recoveredSessions() {
+        return recovered;
+    }
+
+    /**
+     * Starts logging a new session.
+     *
+     * @param config The configuration of the game.
+     * @return The id of the session.
+     */
+    public long startSession(GameConfig config) {
+        long id = nextSessionId.getAndIncrement();
+        append(new Event(START, id, 0, config.getRows(), config.getColumns(), config.getWinLength()));
+        return id;
+    }
+
+    /**
+     * Logs a move of a session.
+     *
+     * @param sessionId The id of the session.
+     * @param ply The index of the move in the game, from 0.
+     * @param node The node where the move was made.
+     * @param columns The number of columns of the board.
+     */
+    public void recordMove(long sessionId, int ply, BoardNode node, int columns) {
+        append(new Event(MOVE, sessionId, ply, node.getI() * columns + node.getJ(), PositionIndex.digit(node.getPlayer()), 0));
+    }
+
+    /**
+     * Logs the end of a session, it is not recovered anymore.
+     *
+     * @param sessionId The id of the session.
+     * @param result The result of the game.
+     */
+    public void finishSession(long sessionId, GameResult result) {
+        append(new Event(FINISH, sessionId, 0, result.ordinal(), 0, 0));
+    }
+
+    /**
+     * Returns a future completed once the events logged so far are durable.
+     *
+     * @return The future, completed exceptionally if they could not be written.
+     */
+    public CompletableFuture<Void> sync() {
+        CompletableFuture<Void> synced = new CompletableFuture<>();
+        if (!offer(synced)) {
+            synced.complete(null);
+        }
+        return synced;
+    }
+
+    /**
+     * Writes the queued events, compacts the sessions and stops the writer thread.
+     */
+    public void close() {
+        synchronized (queue) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void append(Event event) {
+        if (!offer(event)) {
+            throw new IllegalStateException("The session store " + directory + " is closed");
+        }
+    }
+
+    private boolean offer(Object item) {
+        synchronized (queue) {
+            if (closed) {
+                return false;
+            }
+            queue.add(item);
+            return true;
+        }
+    }
+
+    /**
+     * Writes the queued events in batches, one sync per batch, until the store is closed.
+     */
+    private void writeLoop() {
+        List<Object> batch = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_BATCH * RECORD_BYTES).order(ByteOrder.BIG_ENDIAN);
+        while (true) {
+            Object first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (first == null) {
+                synchronized (queue) {
+                    if (closed && queue.isEmpty()) {
+                        break;
+                    }
+                }
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, MAX_BATCH - 1);
+
+            IOException failure = null;
+            try {
+                writeBatch(batch, buffer);
+            } catch (IOException e) {
+                failure = e;
+                logger.error("Could not log " + batch.size() + " session events: " + e.getMessage());
+            }
+            for (Object item : batch) {
+                if (item instanceof CompletableFuture<?> synced) {
+                    if (failure == null) {
+                        synced.complete(null);
+                    } else {
+                        synced.completeExceptionally(failure);
+                    }
+                }
+            }
+            batch.clear();
+        }
+
+        try {
+            rotate();
+            segment.close();
+        } catch (IOException e) {
+            logger.warning("Could not compact the sessions of " + directory + " on close: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Appends the events of a batch to the segment, syncs it, and rotates it once full.
+     */
+    private void writeBatch(List<Object> batch, ByteBuffer buffer) throws IOException {
+        CRC32 checksum = new CRC32();
+        buffer.clear();
+        int events = 0;
+        for (Object item : batch) {
+            if (item instanceof Event event) {
+                int start = buffer.position();
+                buffer.putInt(event.type()).putLong(event.sessionId()).putInt(event.ply())
+                        .putInt(event.a()).putInt(event.b()).putInt(event.c());
+                checksum.reset();
+                checksum.update(buffer.duplicate().position(start).limit(start + RECORD_CHECKED_BYTES));
+                buffer.putInt((int) checksum.getValue());
+                events++;
+            }
+        }
+        if (events == 0) {
+            return;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            segment.write(buffer);
+        }
+        segment.force(false);
+        segmentSize += (long) events * RECORD_BYTES;
+
+        for (Object item : batch) {
+            if (item instanceof Event event) {
+                apply(event);
+            }
+        }
+        if (segmentSize >= segmentBytes) {
+            rotate();
+        }
+    }
+
+    /**
+     * Applies an event to the live sessions.
+     */
+    private void apply(Event event) {
+        switch (event.type()) {
+            case START -> {
+                sessions.put(event.sessionId(), new SessionState(event.a(), event.b(), event.c()));
+                nextSessionId.accumulateAndGet(event.sessionId() + 1, Math::max);
+            }
+            case MOVE -> {
+                SessionState state = sessions.get(event.sessionId());
+                if (state != null && event.ply() == state.moveCount) {
+                    state.add(event.a());
+                }
+            }
+            case FINISH -> sessions.remove(event.sessionId());
+            default -> logger.warning("Ignoring a session event of unknown type " + event.type());
+        }
+    }
+
+    /**
+     * Starts a new segment and compacts the sessions of the previous ones into a snapshot.
+     */
+    private void rotate() throws IOException {
+        segment.close();
+        segmentNumber++;
+        openSegment();
+        compact();
+    }
+
+    private void openSegment() throws IOException {
+        segment = FileChannel.open(segmentFile(segmentNumber), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentSize = 0;
+    }
+
+    /**
+     * Writes the live sessions, which reflect every segment before the current one, to a snapshot file,
+     * then deletes those segments and the older snapshots.
+     */
+    private void compact() throws IOException {
+        Path snapshot = snapshotFile(segmentNumber);
+        writeSnapshot(snapshot);
+        for (Path file : list("events-", ".log")) {
+            if (number(file) < segmentNumber) {
+                Files.deleteIfExists(file);
+            }
+        }
+        for (Path file : list("snapshot-", ".bin")) {
+            if (!file.equals(snapshot)) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Writes the snapshot through a memory mapping of a temporary file, moved over the target once synced.
+     */
+    private void writeSnapshot(Path snapshot) throws IOException {
+        long payloadBytes = 0;
+        for (SessionState state : sessions.values()) {
+            payloadBytes += Long.BYTES + 5L * Integer.BYTES + (long) state.moveCount * Integer.BYTES;
+        }
+        if (SNAPSHOT_HEADER_BYTES + payloadBytes > Integer.MAX_VALUE) {
+            throw new IOException("Too many live sessions for one snapshot: " + payloadBytes + " bytes");
+        }
+
+        Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, SNAPSHOT_HEADER_BYTES + payloadBytes);
+            map.order(ByteOrder.BIG_ENDIAN);
+            map.position(SNAPSHOT_HEADER_BYTES);
+            for (Map.Entry<Long, SessionState> entry : sessions.entrySet()) {
+                SessionState state = entry.getValue();
+                map.putLong(entry.getKey()).putInt(state.rows).putInt(state.columns).putInt(state.winLength)
+                        .putInt(state.moveCount);
+                for (int m = 0; m < state.moveCount; m++) {
+                    map.putInt(state.moves[m]);
+                }
+            }
+            CRC32 checksum = new CRC32();
+            checksum.update(map.duplicate().position(SNAPSHOT_HEADER_BYTES));
+            map.position(0);
+            map.putInt(MAGIC).putInt(VERSION).putInt(sessions.size())
+                    .putLong(nextSessionId.get()).putLong(payloadBytes).putLong(checksum.getValue());
+            map.force();
+        }
+        Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads the newest valid snapshot and replays the segments written after it.
+     *
+     * @return The number of the segment to write next.
+     */
+    private long recover() throws IOException {
+        long replayFrom = 0;
+        List<Path> snapshots = list("snapshot-", ".bin");
+        snapshots.sort(Comparator.comparingLong(SessionStore::number).reversed());
+        for (Path snapshot : snapshots) {
+            if (readSnapshot(snapshot)) {
+                replayFrom = number(snapshot);
+                break;
+            }
+        }
+
+        List<Path> segments = new ArrayList<>();
+        for (Path file : list("events-", ".log")) {
+            if (number(file) >= replayFrom) {
+                segments.add(file);
+            }
+        }
+        segments.sort(Comparator.comparingLong(SessionStore::number));
+
+        // The segments are independent byte ranges: parse them in parallel, then apply them in order.
+        List<List<Event>> parsed;
+        try {
+            parsed = segments.parallelStream().map(SessionStore::readSegment).toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        long events = 0;
+        for (List<Event> segmentEvents : parsed) {
+            for (Event event : segmentEvents) {
+                apply(event);
+            }
+            events += segmentEvents.size();
+        }
+        logger.debug("Replayed " + events + " events of " + segments.size() + " segments");
+
+        long next = replayFrom;
+        for (Path segment : segments) {
+            next = Math.max(next, number(segment) + 1);
+        }
+        return next;
+    }
+
+    /**
+     * Loads the sessions of a snapshot file by memory mapping it.
+     *
+     * @return {@code true} if the snapshot was valid and loaded.
+     */
+    private boolean readSnapshot(Path snapshot) {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < SNAPSHOT_HEADER_BYTES || size > Integer.MAX_VALUE) {
+                return reject(snapshot, "file size " + size);
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            map.order(ByteOrder.BIG_ENDIAN);
+            if (map.getInt() != MAGIC) {
+                return reject(snapshot, "not a session snapshot");
+            }
+            int version = map.getInt();
+            if (version != VERSION) {
+                return reject(snapshot, "version " + version + " instead of " + VERSION);
+            }
+            int count = map.getInt();
+            long nextId = map.getLong();
+            long payloadBytes = map.getLong();
+            long expectedChecksum = map.getLong();
+            if (payloadBytes != size - SNAPSHOT_HEADER_BYTES) {
+                return reject(snapshot, "payload size does not match the file size");
+            }
+            CRC32 checksum = new CRC32();
+            checksum.update(map.duplicate());
+            if (checksum.getValue() != expectedChecksum) {
+                return reject(snapshot, "checksum mismatch");
+            }
+
+            for (int s = 0; s < count; s++) {
+                long id = map.getLong();
+                SessionState state = new SessionState(map.getInt(), map.getInt(), map.getInt());
+                int moveCount = map.getInt();
+                for (int m = 0; m < moveCount; m++) {
+                    state.add(map.getInt());
+                }
+                sessions.put(id, state);
+            }
+            nextSessionId.accumulateAndGet(nextId, Math::max);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            sessions.clear();
+            return reject(snapshot, e.toString());
+        }
+    }
+
+    /**
+     * Parses the events of a segment, stopping at the first incomplete or corrupt record.
+     */
+    private static List<Event> readSegment(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<Event> events = new ArrayList<>((int) Math.min(size / RECORD_BYTES, Integer.MAX_VALUE));
+            if (size == 0) {
+                return events;
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            map.order(ByteOrder.BIG_ENDIAN);
+            CRC32 checksum = new CRC32();
+            while (map.remaining() >= RECORD_BYTES) {
+                int start = map.position();
+                checksum.reset();
+                checksum.update(map.duplicate().limit(start + RECORD_CHECKED_BYTES));
+                Event event = new Event(map.getInt(), map.getLong(), map.getInt(), map.getInt(), map.getInt(), map.getInt());
+                if (map.getInt() != (int) checksum.getValue()) {
+                    map.position(start);
+                    break;
+                }
+                events.add(event);
+            }
+            if (map.hasRemaining()) {
+                logger.warning("Ignoring the last " + map.remaining() + " bytes of " + file + ", torn by a crash");
+            }
+            return events;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Checks that a recovered session replays to a game in progress.
+     */
+    private boolean isResumable(GameSession session) {
+        try {
+            session.replay(GameConfig.builder().rows(session.rows()).columns(session.columns())
+                    .winLength(session.winLength()).debug(false).build());
+            return true;
+        } catch (IllegalArgumentException e) {
+            logger.warning("Not resuming session " + session.id() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private List<Path> list(String prefix, String suffix) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private Path segmentFile(long number) {
+        return directory.resolve(String.format("events-%016d.log", number));
+    }
+
+    private Path snapshotFile(long number) {
+        return directory.resolve(String.format("snapshot-%016d.bin", number));
+    }
+
+    /**
+     * Returns the number of a segment or snapshot file, the digits between the prefix and the suffix.
+     */
+    private static long number(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(name.indexOf('-') + 1, name.lastIndexOf('.')));
+    }
+
+    private static boolean reject(Path file, String reason) {
+        logger.warning("Ignoring session snapshot " + file + ": " + reason);
+        return false;
+    }
+}
@@ -1,8 +1,15 @@
-public class Settings {
+/**
+ * Default values for a game configuration.
+ * These are only read when building a {@link GameConfig}, per-game values live in the configuration.
+ */
+public final class Settings {
 
     // enable / disable debug logs in program
-    public static boolean DEBUG = true;
+    public static final boolean DEBUG = true;
 
     // board size for a nXn game board
-    public static int BOARD_SIZE = 4;
-}
\ No newline at end of file
+    public static final int BOARD_SIZE = 4;
+
+    private Settings() {
+    }
+}
@@ -0,0 +1,50 @@
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A user player that moves without console input, used to drive synthetic games.
+ * It first plays the moves of its script, skipping the ones already occupied, and then
+ * random empty positions. An empty script gives a purely random player.
+ */
+public class SyntheticUserPlayer extends TicTacToePlayer {
+
+    // Random generator choosing the moves once the script is exhausted.
+    private final Random random;
+
+    // The scripted moves as {row, column} pairs, played in order.
+    private final List<int[]> script;
+
+    // Index of the next scripted move.
+    private int scriptIndex;
+
+    /**
+     * Constructs a synthetic user player.
+     *
+     * @param gameBoard The game board on which the player will make moves.
+     * @param random The random generator choosing the unscripted moves.
+     * @param script The moves to play first, as {row, column} pairs.
+     */
+    public SyntheticUserPlayer(GameBoard gameBoard, Random random, List<int[]> script) {
+        super(gameBoard);
+        this.random = random;
+        this.script = script;
+    }
+
+    /**
+     * Plays the next scripted move that is still free, or a random empty position.
+     *
+     * @return The board node where the move was made.
+     */
+    @Override
+    public BoardNode doMove() {
+        while (scriptIndex < script.size()) {
+            int[] move = script.get(scriptIndex++);
+            if (gameBoard.isNodeEmpty(move[0], move[1])) {
+                return gameBoard.makeMove(move[0], move[1], BoardPlayer.USER);
+            }
+        }
+
+        List<BoardNode> emptySpots = gameBoard.getEmptyPositions();
+        return gameBoard.makeMove(emptySpots.get(random.nextInt(emptySpots.size())), BoardPlayer.USER);
+    }
+}
@@ -0,0 +1,130 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cheap tactical layer running before the search of the AI.
+ * From the line occupancy of the {@link ThreatTable} it detects, in order:
+ * <ol>
+ *     <li>an immediate win, played at once;</li>
+ *     <li>an immediate win of the opponent, which must be blocked;</li>
+ *     <li>a fork (a move creating two threats at once), which wins and is played at once;</li>
+ *     <li>an opponent fork, where only the moves able to defuse it are left for the search.</li>
+ * </ol>
+ * Each check only reads window counts, so the whole analysis costs a few passes over the windows
+ * instead of a search of the full game tree.
+ */
+public class TacticalAnalyzer {
+
+    // The game board analyzed.
+    private final GameBoard gameBoard;
+
+    // Window counts of the analyzed board.
+    private final ThreatTable table;
+
+    /**
+     * Prepares the analysis of a game board.
+     *
+     * @param gameBoard The game board.
+     * @param table The threat table of the board's current state.
+     */
+    TacticalAnalyzer(GameBoard gameBoard, ThreatTable table) {
+        this.gameBoard = gameBoard;
+        this.table = table;
+    }
+
+    /**
+     * Analyzes the position for the player to move.
+     *
+     * @param player The player to move.
+     * @param emptySpots The empty positions of the board.
+     * @return The move to play at once, or the narrowed candidates for the search.
+     */
+    public TacticalDecision analyze(BoardPlayer player, List<BoardNode> emptySpots) {
+        BoardPlayer opponent = ThreatTable.opponentOf(player);
+
+        List<Integer> wins = table.winningCells(player, new ArrayList<>());
+        if (!wins.isEmpty()) {
+            return decided(wins.get(0), "immediate win");
+        }
+
+        List<Integer> blocks = table.winningCells(opponent, new ArrayList<>());
+        if (blocks.size() == 1) {
+            return decided(blocks.get(0), "forced block");
+        }
+        if (blocks.size() > 1) {
+            // The game is lost against best play, let the search pick the block delaying the loss most.
+            return new TacticalDecision(null, toNodes(blocks), "unstoppable threats");
+        }
+
+        List<Integer> threatCells = table.threatCreatingCells(player, new ArrayList<>());
+        for (int cell : threatCells) {
+            if (countThreats(cell, player) > 1) {
+                return decided(cell, "fork");
+            }
+        }
+
+        List<Integer> opponentForks = new ArrayList<>();
+        for (int cell : table.threatCreatingCells(opponent, new ArrayList<>())) {
+            if (countThreats(cell, opponent) > 1) {
+                opponentForks.add(cell);
+            }
+        }
+        if (opponentForks.isEmpty()) {
+            return new TacticalDecision(null, emptySpots, "no tactic");
+        }
+
+        // A fork is defused by taking its cell, by a mark in one of the lines it would threaten,
+        // or by a threat of our own forcing the opponent elsewhere.
+        List<Integer> defences = new ArrayList<>(threatCells);
+        for (int fork : opponentForks) {
+            table.place(fork, opponent);
+            List<Integer> forkThreats = table.winningCellsThrough(fork, opponent, new ArrayList<>());
+            table.remove(fork, opponent);
+            addDistinct(defences, fork);
+            for (int threat : forkThreats) {
+                addDistinct(defences, threat);
+            }
+            for (int lineCell : table.windowCellsThrough(fork, opponent)) {
+                addDistinct(defences, lineCell);
+            }
+        }
+        return new TacticalDecision(null, toNodes(defences), "opponent fork");
+    }
+
+    /**
+     * Counts the distinct threats created by a mark of the player on a cell.
+     *
+     * @param cell The cell index.
+     * @param player The player placing the mark.
+     * @return The number of distinct winning cells the mark creates.
+     */
+    private int countThreats(int cell, BoardPlayer player) {
+        table.place(cell, player);
+        int threats = table.winningCellsThrough(cell, player, new ArrayList<>()).size();
+        table.remove(cell, player);
+        return threats;
+    }
+
+    private TacticalDecision decided(int cell, String reason) {
+        BoardNode node = nodeOf(cell);
+        return new TacticalDecision(node, List.of(node), reason);
+    }
+
+    private List<BoardNode> toNodes(List<Integer> cells) {
+        List<BoardNode> nodes = new ArrayList<>(cells.size());
+        for (int cell : cells) {
+            nodes.add(nodeOf(cell));
+        }
+        return nodes;
+    }
+
+    private BoardNode nodeOf(int cell) {
+        return gameBoard.getNode(table.rowOf(cell), table.columnOf(cell));
+    }
+
+    private static void addDistinct(List<Integer> cells, int cell) {
+        if (!cells.contains(cell)) {
+            cells.add(cell);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+import java.util.List;
+
+/**
+ * The outcome of the {@link TacticalAnalyzer} for the player to move.
+ *
+ * @param move The move to play at once, or {@code null} if the position needs a search.
+ * @param candidates The moves left for the search, all the empty positions if nothing could be excluded.
+ * @param reason A short description of the tactic found, for debug logs.
+ */
+public record TacticalDecision(BoardNode move, List<BoardNode> candidates, String reason) {
+
+    /**
+     * Checks if the analysis decided the move without a search.
+     *
+     * @return {@code true} if {@link #move()} should be played at once.
+     */
+    public boolean isDecided() {
+        return move != null;
+    }
+}
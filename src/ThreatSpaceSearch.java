@@ -0,0 +1,179 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Threat-space search (victory by continuous threats) for k-in-a-row boards.
+ * Instead of searching every empty cell, the attacker only plays moves that create a threat
+ * (k - 1 marks in an open window), so every defender reply is forced to the single winning cell.
+ * A sequence succeeds when the attacker completes a line or creates two threats at once.
+ * The search runs in front of the full MiniMax search: forced wins are played at once, and when the
+ * opponent has a forced win only the moves refuting it are left for the full search.
+ */
+public class ThreatSpaceSearch {
+
+    // Incrementally maintained window counts of the analyzed board.
+    private final ThreatTable table;
+
+    // The game board that was analyzed.
+    private final GameBoard gameBoard;
+
+    // Maximal number of threat sequence nodes explored by one query.
+    private final int nodeLimit;
+
+    // Number of nodes explored by the running query.
+    private int nodes;
+
+    // Candidate cells of each level of the threat sequence, allocated on first use and reused across queries.
+    private int[][] candidateBuffers = new int[4][];
+
+    // Cells read and consumed before the search goes one level deeper.
+    private final int[] scratch;
+
+    /**
+     * Prepares a threat-space search for the current state of the given game board.
+     *
+     * @param gameBoard The game board to analyze.
+     */
+    public ThreatSpaceSearch(GameBoard gameBoard) {
+        this(gameBoard, new ThreatTable(gameBoard));
+    }
+
+    /**
+     * Prepares a threat-space search for a game board, reusing its threat table.
+     *
+     * @param gameBoard The game board to analyze.
+     * @param table The threat table of the board's current state, it is restored after each query.
+     */
+    ThreatSpaceSearch(GameBoard gameBoard, ThreatTable table) {
+        this.gameBoard = gameBoard;
+        this.table = table;
+        this.nodeLimit = gameBoard.getConfig().getThreatSearchNodeLimit();
+        this.scratch = new int[table.size()];
+    }
+
+    /**
+     * Looks for a forced win of the attacker, who is the next to move.
+     *
+     * @param attacker The player to move.
+     * @return The first move of a forced winning sequence, or {@code null} if none was found.
+     */
+    public BoardNode findForcedWin(BoardPlayer attacker) {
+        nodes = 0;
+        int cell = searchWin(attacker, 0);
+        return cell < 0 ? null : gameBoard.getNode(table.rowOf(cell), table.columnOf(cell));
+    }
+
+    /**
+     * Narrows the candidate moves of the defender, who is the next to move, to the ones that
+     * leave the opponent without a forced win.
+     * If the opponent has no forced win, or no candidate refutes it, the candidates are returned unchanged.
+     *
+     * @param defender The player to move.
+     * @param candidates The candidate moves of the defender.
+     * @return The candidates refuting the opponent's forced win.
+     */
+    public List<BoardNode> findDefences(BoardPlayer defender, List<BoardNode> candidates) {
+        BoardPlayer attacker = ThreatTable.opponentOf(defender);
+        nodes = 0;
+        if (searchWin(attacker, 0) < 0) {
+            return candidates;
+        }
+
+        List<BoardNode> defences = new ArrayList<>();
+        for (BoardNode node : candidates) {
+            int cell = node.getI() * gameBoard.getColumns() + node.getJ();
+            table.place(cell, defender);
+            nodes = 0;
+            boolean refuted = searchWin(attacker, 0) < 0;
+            table.remove(cell, defender);
+            if (refuted) {
+                defences.add(node);
+            }
+        }
+        return defences.isEmpty() ? candidates : defences;
+    }
+
+    /**
+     * Searches a sequence of continuous threats winning for the attacker, who is the next to move.
+     * The search does not allocate once the buffers of its levels exist.
+     *
+     * @param attacker The player to move.
+     * @param level The number of threats played before this one in the sequence.
+     * @return The cell of the first move of the winning sequence, or -1 if none was found.
+     */
+    private int searchWin(BoardPlayer attacker, int level) {
+        BoardPlayer defender = ThreatTable.opponentOf(attacker);
+
+        // The attacker completes a line right away.
+        if (table.winningCells(attacker, scratch) > 0) {
+            return scratch[0];
+        }
+
+        // A defender threat must be answered, so only the blocking move can continue the sequence.
+        int[] candidates = candidateBuffer(level);
+        int count = table.winningCells(defender, candidates);
+        if (count > 1) {
+            return -1;
+        }
+        if (count == 0) {
+            count = table.threatCreatingCells(attacker, candidates);
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (++nodes > nodeLimit) {
+                return -1;
+            }
+            if (playsThreat(candidates[i], attacker, defender, level)) {
+                return candidates[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Plays a threat of the attacker on the given cell and checks if it wins by force.
+     *
+     * @param cell The cell the attacker plays.
+     * @param attacker The attacking player.
+     * @param defender The defending player.
+     * @param level The level of the threat in the sequence.
+     * @return {@code true} if the threat leads to a forced win, {@code false} otherwise.
+     */
+    private boolean playsThreat(int cell, BoardPlayer attacker, BoardPlayer defender, int level) {
+        table.place(cell, attacker);
+        try {
+            int threats = table.winningCellsThrough(cell, attacker, scratch);
+            if (threats > 1) {
+                // Two threats at once cannot both be blocked.
+                return true;
+            }
+            if (threats == 0) {
+                // Not a threat (a forced block that creates none), the sequence stops here.
+                return false;
+            }
+
+            int reply = scratch[0];
+            if (table.isWinningCell(reply, defender)) {
+                // The forced block completes a line of the defender.
+                return false;
+            }
+            table.place(reply, defender);
+            boolean win = searchWin(attacker, level + 1) >= 0;
+            table.remove(reply, defender);
+            return win;
+        } finally {
+            table.remove(cell, attacker);
+        }
+    }
+
+    private int[] candidateBuffer(int level) {
+        if (level == candidateBuffers.length) {
+            candidateBuffers = Arrays.copyOf(candidateBuffers, level * 2);
+        }
+        if (candidateBuffers[level] == null) {
+            candidateBuffers[level] = new int[table.size()];
+        }
+        return candidateBuffers[level];
+    }
+}
@@ -0,0 +1,396 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incrementally maintained threat-pattern table of a k-in-a-row board.
+ * Every horizontal, vertical and diagonal segment of k cells is a window, and the table keeps,
+ * per window, how many cells each player occupies. Placing or removing a mark only touches
+ * the windows passing through that cell, so threat queries never rescan the whole board.
+ * A window with k - 1 marks of one player and none of the other is a threat: its last empty cell wins.
+ * On a cube board the windows are the lines of the cube.
+ */
+class ThreatTable {
+
+    // Cell states stored in the table.
+    private static final byte EMPTY = 0;
+    private static final byte AI = 1;
+    private static final byte USER = 2;
+
+    // Number of marks in a row needed to win.
+    private final int winLength;
+
+    // Number of columns, used to map a cell index to its row and column.
+    private final int columns;
+
+    // The state of each cell, indexed by row * columns + column.
+    private final byte[] cells;
+
+    // The cell indices of each window.
+    private final int[][] windowCells;
+
+    // The windows passing through each cell.
+    private final int[][] cellWindows;
+
+    // Number of AI marks in each window.
+    private final int[] aiCount;
+
+    // Number of USER marks in each window.
+    private final int[] userCount;
+
+    /**
+     * Builds the threat table from the current state of a game board.
+     *
+     * @param gameBoard The game board to analyze.
+     */
+    ThreatTable(GameBoard gameBoard) {
+        this.winLength = gameBoard.getConfig().getWinLength();
+        this.columns = gameBoard.getColumns();
+        int rows = gameBoard.getRows();
+        this.cells = new byte[rows * columns];
+
+        this.windowCells = windowsOf(gameBoard.getConfig());
+        this.aiCount = new int[windowCells.length];
+        this.userCount = new int[windowCells.length];
+
+        int[] windowsPerCell = new int[cells.length];
+        for (int[] window : windowCells) {
+            for (int cell : window) {
+                windowsPerCell[cell]++;
+            }
+        }
+        this.cellWindows = new int[cells.length][];
+        for (int cell = 0; cell < cells.length; cell++) {
+            cellWindows[cell] = new int[windowsPerCell[cell]];
+            windowsPerCell[cell] = 0;
+        }
+        for (int w = 0; w < windowCells.length; w++) {
+            for (int cell : windowCells[w]) {
+                cellWindows[cell][windowsPerCell[cell]++] = w;
+            }
+        }
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                if (!gameBoard.isNodeEmpty(i, j)) {
+                    place(i * columns + j, gameBoard.getNode(i, j).getPlayer());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the cells of every window of a board geometry: the k-in-a-row segments of a flat board,
+     * the lines of a cube board.
+     *
+     * @param config The configuration of the board.
+     * @return The cell indices of each window.
+     */
+    static int[][] windowsOf(GameConfig config) {
+        int rows = config.getRows();
+        int columns = config.getColumns();
+        int winLength = config.getWinLength();
+        List<int[]> windows = new ArrayList<>();
+        if (config.getLayers() > 1) {
+            // The windows of a cube are its lines, through its layers too.
+            windows.addAll(List.of(CubeLines.of(config.getLayers()).lineCells()));
+        } else {
+            int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+            for (int[] direction : directions) {
+                for (int i = 0; i < rows; i++) {
+                    for (int j = 0; j < columns; j++) {
+                        int endI = i + direction[0] * (winLength - 1);
+                        int endJ = j + direction[1] * (winLength - 1);
+                        if (endI < 0 || endI >= rows || endJ < 0 || endJ >= columns) {
+                            continue;
+                        }
+                        int[] window = new int[winLength];
+                        for (int c = 0; c < winLength; c++) {
+                            window[c] = (i + direction[0] * c) * columns + j + direction[1] * c;
+                        }
+                        windows.add(window);
+                    }
+                }
+            }
+        }
+        return windows.toArray(new int[0][]);
+    }
+
+    /**
+     * Returns the number of cells of the board.
+     *
+     * @return The number of cells.
+     */
+    int size() {
+        return cells.length;
+    }
+
+    /**
+     * Returns the number of marks in a row needed to win.
+     *
+     * @return The win length (k).
+     */
+    int getWinLength() {
+        return winLength;
+    }
+
+    /**
+     * Returns the number of windows of the board.
+     *
+     * @return The number of windows.
+     */
+    int windowCount() {
+        return windowCells.length;
+    }
+
+    /**
+     * Returns the number of marks a player has in a window.
+     *
+     * @param window The window index.
+     * @param player The player whose marks are counted.
+     * @return The number of the player's marks in the window.
+     */
+    int marksIn(int window, BoardPlayer player) {
+        return countsOf(player)[window];
+    }
+
+    /**
+     * Returns the row of a cell index.
+     *
+     * @param cell The cell index.
+     * @return The row of the cell.
+     */
+    int rowOf(int cell) {
+        return cell / columns;
+    }
+
+    /**
+     * Returns the column of a cell index.
+     *
+     * @param cell The cell index.
+     * @return The column of the cell.
+     */
+    int columnOf(int cell) {
+        return cell % columns;
+    }
+
+    /**
+     * Checks if the given cell is empty.
+     *
+     * @param cell The cell index.
+     * @return {@code true} if the cell is empty, {@code false} otherwise.
+     */
+    boolean isEmpty(int cell) {
+        return cells[cell] == EMPTY;
+    }
+
+    /**
+     * Places a player's mark on a cell and updates the windows passing through it.
+     *
+     * @param cell The cell index.
+     * @param player The player placing the mark.
+     */
+    void place(int cell, BoardPlayer player) {
+        int[] counts = countsOf(player);
+        cells[cell] = player == BoardPlayer.AI ? AI : USER;
+        for (int w : cellWindows[cell]) {
+            counts[w]++;
+        }
+    }
+
+    /**
+     * Removes a player's mark from a cell and updates the windows passing through it.
+     *
+     * @param cell The cell index.
+     * @param player The player whose mark is removed.
+     */
+    void remove(int cell, BoardPlayer player) {
+        int[] counts = countsOf(player);
+        cells[cell] = EMPTY;
+        for (int w : cellWindows[cell]) {
+            counts[w]--;
+        }
+    }
+
+    /**
+     * Collects the cells on which the player would immediately complete k in a row.
+     *
+     * @param player The player to check.
+     * @param result The list receiving the distinct winning cells.
+     * @return The given result list.
+     */
+    List<Integer> winningCells(BoardPlayer player, List<Integer> result) {
+        int[] buffer = new int[cells.length];
+        return addAll(buffer, winningCells(player, buffer), result);
+    }
+
+    /**
+     * Collects the cells on which the player would immediately complete k in a row, without allocating.
+     *
+     * @param player The player to check.
+     * @param result The array receiving the distinct winning cells, at least as long as the board.
+     * @return The number of cells stored in the array.
+     */
+    int winningCells(BoardPlayer player, int[] result) {
+        int[] own = countsOf(player);
+        int[] other = countsOf(opponentOf(player));
+        int count = 0;
+        for (int w = 0; w < windowCells.length; w++) {
+            if (own[w] == winLength - 1 && other[w] == 0) {
+                count = addEmptyCells(w, result, count);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Collects the winning cells created through the given cell, i.e. the threats made by a mark on it.
+     *
+     * @param cell The cell index of the mark.
+     * @param player The player owning the mark.
+     * @param result The list receiving the distinct winning cells.
+     * @return The given result list.
+     */
+    List<Integer> winningCellsThrough(int cell, BoardPlayer player, List<Integer> result) {
+        int[] buffer = new int[cells.length];
+        return addAll(buffer, winningCellsThrough(cell, player, buffer), result);
+    }
+
+    /**
+     * Collects the winning cells created through the given cell, without allocating.
+     *
+     * @param cell The cell index of the mark.
+     * @param player The player owning the mark.
+     * @param result The array receiving the distinct winning cells, at least as long as the board.
+     * @return The number of cells stored in the array.
+     */
+    int winningCellsThrough(int cell, BoardPlayer player, int[] result) {
+        int[] own = countsOf(player);
+        int[] other = countsOf(opponentOf(player));
+        int count = 0;
+        for (int w : cellWindows[cell]) {
+            if (own[w] == winLength - 1 && other[w] == 0) {
+                count = addEmptyCells(w, result, count);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Collects the cells on which a mark of the player would create a threat (k - 1 in an open window).
+     *
+     * @param player The player to check.
+     * @param result The list receiving the distinct cells.
+     * @return The given result list.
+     */
+    List<Integer> threatCreatingCells(BoardPlayer player, List<Integer> result) {
+        int[] buffer = new int[cells.length];
+        return addAll(buffer, threatCreatingCells(player, buffer), result);
+    }
+
+    /**
+     * Collects the cells on which a mark of the player would create a threat, without allocating.
+     *
+     * @param player The player to check.
+     * @param result The array receiving the distinct cells, at least as long as the board.
+     * @return The number of cells stored in the array.
+     */
+    int threatCreatingCells(BoardPlayer player, int[] result) {
+        int[] own = countsOf(player);
+        int[] other = countsOf(opponentOf(player));
+        int count = 0;
+        for (int w = 0; w < windowCells.length; w++) {
+            if (own[w] == winLength - 2 && other[w] == 0) {
+                count = addEmptyCells(w, result, count);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Collects the empty cells of the open windows through a cell where a mark of the player
+     * on that cell would create a threat.
+     *
+     * @param cell The cell index.
+     * @param player The player to check.
+     * @return The distinct empty cells of those windows, the given cell excluded.
+     */
+    List<Integer> windowCellsThrough(int cell, BoardPlayer player) {
+        int[] own = countsOf(player);
+        int[] other = countsOf(opponentOf(player));
+        List<Integer> result = new ArrayList<>();
+        for (int w : cellWindows[cell]) {
+            if (own[w] == winLength - 2 && other[w] == 0) {
+                addEmptyCells(w, result);
+            }
+        }
+        result.remove(Integer.valueOf(cell));
+        return result;
+    }
+
+    /**
+     * Checks if a mark of the player on the given cell completes k in a row.
+     *
+     * @param cell The cell index.
+     * @param player The player to check.
+     * @return {@code true} if the cell wins for the player, {@code false} otherwise.
+     */
+    boolean isWinningCell(int cell, BoardPlayer player) {
+        int[] own = countsOf(player);
+        int[] other = countsOf(opponentOf(player));
+        for (int w : cellWindows[cell]) {
+            if (own[w] == winLength - 1 && other[w] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the opponent of the given player.
+     *
+     * @param player A player (AI or USER).
+     * @return The other player.
+     */
+    static BoardPlayer opponentOf(BoardPlayer player) {
+        return player == BoardPlayer.AI ? BoardPlayer.USER : BoardPlayer.AI;
+    }
+
+    private int[] countsOf(BoardPlayer player) {
+        return player == BoardPlayer.AI ? aiCount : userCount;
+    }
+
+    private int addEmptyCells(int window, int[] result, int count) {
+        for (int cell : windowCells[window]) {
+            if (cells[cell] == EMPTY && !contains(result, count, cell)) {
+                result[count++] = cell;
+            }
+        }
+        return count;
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Integer> addAll(int[] values, int count, List<Integer> result) {
+        for (int i = 0; i < count; i++) {
+            if (!result.contains(values[i])) {
+                result.add(values[i]);
+            }
+        }
+        return result;
+    }
+
+    private void addEmptyCells(int window, List<Integer> result) {
+        for (int cell : windowCells[window]) {
+            if (cells[cell] == EMPTY && !result.contains(cell)) {
+                result.add(cell);
+            }
+        }
+    }
+}
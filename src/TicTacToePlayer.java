@@ -24,4 +24,11 @@ abstract class TicTacToePlayer {
      * @return The board node where the move was made.
      */
     abstract public BoardNode doMove();
+
+    /**
+     * Releases the resources held by the player, such as background threads.
+     * Players without such resources keep this empty default.
+     */
+    public void close() {
+    }
 }
@@ -5,8 +5,8 @@
  */
 public class TicTacToePlayerFactory {
 
-    // The user player instance.
-    private final UserPlayer userPlayer;
+    // The user player instance, a console player or a synthetic one.
+    private final TicTacToePlayer userPlayer;
 
     // The AI player instance.
     private final AiPlayer aiPlayer;
@@ -17,7 +17,7 @@ public class TicTacToePlayerFactory {
      * @param userPlayer The instance representing the user player.
      * @param aiPlayer The instance representing the AI player.
      */
-    public TicTacToePlayerFactory(UserPlayer userPlayer, AiPlayer aiPlayer) {
+    public TicTacToePlayerFactory(TicTacToePlayer userPlayer, AiPlayer aiPlayer) {
         this.userPlayer = userPlayer;
         this.aiPlayer = aiPlayer;
     }
@@ -42,6 +42,14 @@ public class TicTacToePlayerFactory {
         return aiPlayer.getVisitedNodesCount();
     }
 
+    /**
+     * Releases the resources held by the players, such as the AI pondering thread.
+     */
+    public void close() {
+        userPlayer.close();
+        aiPlayer.close();
+    }
+
     /**
      * Retrieves the TicTacToePlayer instance (either User or AI) based on the given player turn.
      *
@@ -2,12 +2,39 @@ import java.util.List;
 
 /**
  * The {@code TicTacToeRule} class determines the outcome of a Tic Tac Toe game.
+ * The board may be any rectangular rows x columns grid, a player wins by placing win-length (k)
+ * marks in a row horizontally, vertically or along any diagonal.
  * The rule emphasizes efficiency by focusing the win analysis around the last move made.
  * This is because the only potential change in game state that could result in a win
- * would be centered around the latest move.
+ * would be centered around the latest move, so the board is scanned outward from it
+ * in four directions, each scan bounded by k.
+ * On a cube board, such as 4x4x4 Qubic, the marks of the player are a 64-bit mask, and the lines through
+ * the last move are tested against it, see {@link CubeLines}.
  */
 public class TicTacToeRule {
 
+    /** The four line directions (row step, column step): horizontal, vertical, main and anti diagonal. */
+    private static final int[][] DIRECTIONS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+
+    /** Number of marks in a row needed to win, 0 means a full line of the board's shorter dimension. */
+    private final int winLength;
+
+    /**
+     * Constructs a rule where a full line of the board's shorter dimension is needed to win.
+     */
+    public TicTacToeRule() {
+        this(0);
+    }
+
+    /**
+     * Constructs a rule where the given number of marks in a row is needed to win.
+     *
+     * @param winLength The win length (k), or 0 for a full line of the board's shorter dimension.
+     */
+    public TicTacToeRule(int winLength) {
+        this.winLength = winLength;
+    }
+
     /**
      * Determines the game result based on the current board state and the last move made.
      *
@@ -18,14 +45,28 @@ public class TicTacToeRule {
      */
 
     public GameResult determineWinner(BoardNode[][] board, List<BoardNode> emptyNodes, BoardNode lastPlayedNode) {
+        return determineWinner(board, emptyNodes.size(), lastPlayedNode);
+    }
+
+    /**
+     * Determines the game result based on the current board state and the last move made,
+     * from the number of empty nodes, so the search does not list them at every node.
+     *
+     * @param board The current game board.
+     * @param emptyCount The number of empty nodes on the board.
+     * @param lastPlayedNode The last move made.
+     * @return The game result, which can be USER_WINS, AI_WINS, DRAW, or UNDETERMINED.
+     */
+    public GameResult determineWinner(BoardNode[][] board, int emptyCount, BoardNode lastPlayedNode) {
         /* No move was made, nothing to check */
         if(lastPlayedNode == null){
             return GameResult.UNDETERMINED;
         }
 
         /* Not enough moves were made for a win, nothing to check  */
-        int totalMovesMade = getTotalMoves(board, emptyNodes);
-        if (totalMovesMade < board.length * 2 - 1) {
+        int k = getWinLength(board);
+        int totalMovesMade = getTotalMoves(board, emptyCount);
+        if (totalMovesMade < k * 2 - 1) {
             return GameResult.UNDETERMINED;
         }
 
@@ -33,12 +74,12 @@ public class TicTacToeRule {
         int x = lastPlayedNode.getI();
         int y = lastPlayedNode.getJ();
         BoardPlayer currentPlayer = lastPlayedNode.getPlayer();
-        if (isWinningMove(x, y, currentPlayer, board)) {
+        if (isWinningMove(x, y, currentPlayer, board, k)) {
             return currentPlayer == BoardPlayer.USER ? GameResult.USER_WINS : GameResult.AI_WINS;
         }
 
         /* Game is still  UNDETERMINED, but if we have no empty cells it's a draw*/
-        if(emptyNodes.isEmpty()) {
+        if(emptyCount == 0) {
             return GameResult.DRAW;
         }
 
@@ -47,95 +88,89 @@ public class TicTacToeRule {
     }
 
     /**
-     * Checks if the latest move resulted in a win for the player.
+     * Determines the result of a cube game from the marks of the player who made the last move.
+     * Only the lines through the last move can have been completed, each is tested with one AND.
      *
-     * @param x The x-coordinate of the last move.
-     * @param y The y-coordinate of the last move.
-     * @param currentPlayer The player who made the last move.
-     * @param board The current game board.
-     * @return {@code true} if the move resulted in a win, {@code false} otherwise.
-     */
-    private boolean isWinningMove(int x, int y, BoardPlayer currentPlayer, BoardNode[][] board) {
-        return allNodesInRowEqual(x, currentPlayer, board) ||
-                allNodesInColEqual(y, currentPlayer, board) ||
-                (x == y && allNodesInLeftDiagonalEqual(currentPlayer, board)) ||
-                (x + y == board.length - 1 && allNodesInRightDiagonalEqual(currentPlayer, board));
-    }
-
-    /**
-     * Calculates the total number of moves made on the board.
-     *
-     * @param board The current game board.
-     * @param emptyNodes The list of empty nodes on the board.
-     * @return The total number of moves made.
+     * @param lines The lines of the cube.
+     * @param marks The mask of the cells of the player who made the last move.
+     * @param cell The cell of the last move.
+     * @param player The player who made the last move.
+     * @param emptyCount The number of empty cells of the cube.
+     * @return The game result, which can be USER_WINS, AI_WINS, DRAW, or UNDETERMINED.
      */
-    private int getTotalMoves(BoardNode[][] board, List<BoardNode> emptyNodes){
-        return board.length * board.length - emptyNodes.size();
+    GameResult determineWinner(CubeLines lines, long marks, int cell, BoardPlayer player, int emptyCount) {
+        if (player != BoardPlayer.EMPTY && lines.completesLine(marks, cell)) {
+            return player == BoardPlayer.USER ? GameResult.USER_WINS : GameResult.AI_WINS;
+        }
+        return emptyCount == 0 ? GameResult.DRAW : GameResult.UNDETERMINED;
     }
 
     /**
-     * Checks if all nodes in the specified row are occupied by the given player.
+     * Returns the number of marks in a row needed to win on the given board.
      *
-     * @param row The row index to check.
-     * @param player The player to compare with.
      * @param board The current game board.
-     * @return {@code true} if all nodes in the row are occupied by the given player, {@code false} otherwise.
+     * @return The win length (k).
      */
-    private boolean allNodesInRowEqual(int row, BoardPlayer player, BoardNode[][] board) {
-        for (int j = 0; j < board.length; j++) {
-            if (board[row][j].getPlayer() != player) {
-                return false;
-            }
-        }
-        return true;
+    public int getWinLength(BoardNode[][] board) {
+        return winLength > 0 ? winLength : Math.min(board.length, board[0].length);
     }
 
     /**
-     * Checks if all nodes in the specified column are occupied by the given player.
+     * Checks if the latest move resulted in a win for the player.
+     * For each direction the run of the player's marks through the move is measured,
+     * scanning at most k - 1 cells to each side.
      *
-     * @param col The column index to check.
-     * @param player The player to compare with.
+     * @param x The x-coordinate of the last move.
+     * @param y The y-coordinate of the last move.
+     * @param currentPlayer The player who made the last move.
      * @param board The current game board.
-     * @return {@code true} if all nodes in the column are occupied by the given player, {@code false} otherwise.
+     * @param k The number of marks in a row needed to win.
+     * @return {@code true} if the move resulted in a win, {@code false} otherwise.
      */
-    private boolean allNodesInColEqual(int col, BoardPlayer player, BoardNode[][] board) {
-        for (BoardNode[] boardNodes : board) {
-            if (boardNodes[col].getPlayer() != player) {
-                return false;
+    private boolean isWinningMove(int x, int y, BoardPlayer currentPlayer, BoardNode[][] board, int k) {
+        for (int[] direction : DIRECTIONS) {
+            int forward = countInDirection(x, y, direction[0], direction[1], currentPlayer, board, k - 1);
+            int backward = countInDirection(x, y, -direction[0], -direction[1], currentPlayer, board, k - 1 - forward);
+            if (1 + forward + backward >= k) {
+                return true;
             }
         }
-        return true;
+        return false;
     }
 
     /**
-     * Checks if all nodes in the left diagonal (from top-left to bottom-right) are occupied by the given player.
+     * Counts the consecutive nodes occupied by the given player, starting next to (x, y) and moving by (dx, dy).
      *
+     * @param x The x-coordinate of the origin.
+     * @param y The y-coordinate of the origin.
+     * @param dx The row step.
+     * @param dy The column step.
      * @param player The player to compare with.
      * @param board The current game board.
-     * @return {@code true} if all nodes in the left diagonal are occupied by the given player, {@code false} otherwise.
+     * @param limit The maximal number of nodes to count.
+     * @return The number of consecutive nodes occupied by the player, at most {@code limit}.
      */
-    private boolean allNodesInLeftDiagonalEqual(BoardPlayer player, BoardNode[][] board) {
-        for (int i = 0; i < board.length; i++) {
-            if (board[i][i].getPlayer() != player) {
-                return false;
-            }
+    private int countInDirection(int x, int y, int dx, int dy, BoardPlayer player, BoardNode[][] board, int limit) {
+        int count = 0;
+        int i = x + dx;
+        int j = y + dy;
+        while (count < limit && i >= 0 && i < board.length && j >= 0 && j < board[i].length
+                && board[i][j].getPlayer() == player) {
+            count++;
+            i += dx;
+            j += dy;
         }
-        return true;
+        return count;
     }
 
     /**
-     * Checks if all nodes in the right diagonal (from top-right to bottom-left) are occupied by the given player.
+     * Calculates the total number of moves made on the board.
      *
-     * @param player The player to compare with.
      * @param board The current game board.
-     * @return {@code true} if all nodes in the right diagonal are occupied by the given player, {@code false} otherwise.
+     * @param emptyCount The number of empty nodes on the board.
+     * @return The total number of moves made.
      */
-    private boolean allNodesInRightDiagonalEqual(BoardPlayer player, BoardNode[][] board) {
-        for (int i = 0; i < board.length; i++) {
-            if (board[i][board.length - 1 - i].getPlayer() != player) {
-                return false;
-            }
-        }
-        return true;
+    private int getTotalMoves(BoardNode[][] board, int emptyCount){
+        return board.length * board[0].length - emptyCount;
     }
 }
@@ -0,0 +1,335 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded concurrent cache with the W-TinyLFU eviction policy.
+ * <p>
+ * New entries enter a small LRU window, about 1% of the capacity. An entry leaving the window competes with the
+ * least recently used entry of the main space, and only the one accessed more often stays: a scan of entries
+ * used once goes through the window without flushing the entries that are used again and again. The access
+ * frequencies are estimated by a count-min sketch of 4-bit counters, halved periodically so old popularity fades.
+ * The main space is a segmented LRU: entries accessed again move from its probation segment to its protected one.
+ * <p>
+ * Reads are lock-free map lookups. Their effect on the policy is applied under a lock only if it is free,
+ * so under contention some accesses are not counted, which the policy tolerates. Writes take the lock.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+public final class TinyLfuCache<K, V> {
+
+    // Segments of the entries.
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    // The entries, by key.
+    private final ConcurrentHashMap<K, Node<K, V>> entries = new ConcurrentHashMap<>();
+
+    // Guards the segments and the sketch.
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Maximal number of entries, of entries in the window and in the protected segment.
+    private final int capacity;
+    private final int windowCapacity;
+    private final int protectedCapacity;
+
+    // The segments, as circular lists whose sentinel's next entry is the least recently used one.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final Node<K, V>[] segments = new Node[]{new Node<>(null, null), new Node<>(null, null), new Node<>(null, null)};
+
+    // Number of entries of each segment.
+    private final int[] segmentSizes = new int[3];
+
+    // The estimated access frequency of the keys.
+    private final FrequencySketch sketch;
+
+    // Lookups finding an entry, lookups finding none, and entries evicted.
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Cumulative statistics of a cache.
+     *
+     * @param hits The lookups that found an entry.
+     * @param misses The lookups that found none.
+     * @param evictions The entries evicted, or not admitted, to stay within the capacity.
+     * @param size The number of entries.
+     */
+    public record Stats(long hits, long misses, long evictions, int size) {
+
+        /**
+         * Returns the share of the lookups that found an entry.
+         *
+         * @return The hit rate between 0 and 1, 0 before any lookup.
+         */
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+
+    /**
+     * Constructs an empty cache.
+     *
+     * @param capacity The maximal number of entries.
+     * @throws IllegalArgumentException if the capacity is not positive.
+     */
+    public TinyLfuCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.windowCapacity = Math.max(1, capacity / 100);
+        this.protectedCapacity = (capacity - windowCapacity) * 4 / 5;
+        this.sketch = new FrequencySketch(capacity);
+        for (Node<K, V> sentinel : segments) {
+            sentinel.previous = sentinel;
+            sentinel.next = sentinel;
+        }
+    }
+
+    /**
+     * Returns the value of a key and records the access.
+     *
+     * @param key The key.
+     * @return The value, or null if the key is not cached.
+     */
+    public V get(K key) {
+        Node<K, V> node = entries.get(key);
+        if (node == null) {
+            misses.increment();
+            if (lock.tryLock()) {
+                try {
+                    sketch.increment(key.hashCode());
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return null;
+        }
+        hits.increment();
+        if (lock.tryLock()) {
+            try {
+                onAccess(node);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return node.value;
+    }
+
+    /**
+     * Caches the value of a key. The entry may be evicted right away if its key is accessed less often than
+     * the entries it competes with.
+     *
+     * @param key The key.
+     * @param value The value.
+     */
+    public void put(K key, V value) {
+        lock.lock();
+        try {
+            Node<K, V> node = entries.get(key);
+            if (node != null) {
+                node.value = value;
+                onAccess(node);
+                return;
+            }
+            node = new Node<>(key, value);
+            entries.put(key, node);
+            sketch.increment(key.hashCode());
+            link(node, WINDOW);
+            if (segmentSizes[WINDOW] > windowCapacity) {
+                admit(segments[WINDOW].next);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return The size of the cache.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the maximal number of entries.
+     *
+     * @return The capacity of the cache.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the statistics of the cache since it was created.
+     *
+     * @return The hits, misses, evictions and size.
+     */
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), entries.size());
+    }
+
+    /**
+     * Moves the least recently used entry of the window to the main space, if it is accessed more often than
+     * the entry of the main space it would evict. Called with the lock held.
+     */
+    private void admit(Node<K, V> candidate) {
+        unlink(candidate);
+        if (segmentSizes[PROBATION] + segmentSizes[PROTECTED] < capacity - windowCapacity) {
+            link(candidate, PROBATION);
+            return;
+        }
+        Node<K, V> victim = segments[PROBATION].next;
+        if (victim == segments[PROBATION]) {
+            victim = segments[PROTECTED].next;
+        }
+        if (victim == segments[PROTECTED]) {
+            // A cache of a single entry has no main space.
+            entries.remove(candidate.key);
+        } else if (sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())) {
+            unlink(victim);
+            entries.remove(victim.key);
+            link(candidate, PROBATION);
+        } else {
+            entries.remove(candidate.key);
+        }
+        evictions.increment();
+    }
+
+    /**
+     * Records an access to an entry. Called with the lock held.
+     */
+    private void onAccess(Node<K, V> node) {
+        sketch.increment(node.key.hashCode());
+        if (node.segment < 0) {
+            // Evicted since it was looked up.
+            return;
+        }
+        int segment = node.segment == WINDOW ? WINDOW : PROTECTED;
+        unlink(node);
+        link(node, segment);
+        if (segmentSizes[PROTECTED] > protectedCapacity) {
+            Node<K, V> demoted = segments[PROTECTED].next;
+            unlink(demoted);
+            link(demoted, PROBATION);
+        }
+    }
+
+    private void link(Node<K, V> node, int segment) {
+        Node<K, V> sentinel = segments[segment];
+        node.previous = sentinel.previous;
+        node.next = sentinel;
+        sentinel.previous.next = node;
+        sentinel.previous = node;
+        node.segment = segment;
+        segmentSizes[segment]++;
+    }
+
+    private void unlink(Node<K, V> node) {
+        node.previous.next = node.next;
+        node.next.previous = node.previous;
+        segmentSizes[node.segment]--;
+        node.segment = -1;
+    }
+
+    /**
+     * An entry, linked in the list of its segment.
+     */
+    private static final class Node<K, V> {
+        final K key;
+        volatile V value;
+        Node<K, V> previous;
+        Node<K, V> next;
+        int segment = -1;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * A count-min sketch of 4-bit counters, 16 per long. Each key has a counter in four words,
+     * and its frequency is the smallest of them. When as many increments as ten times the capacity were
+     * counted, every counter is halved.
+     */
+    static final class FrequencySketch {
+
+        // Multipliers of the four hashes of a key.
+        private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+        // The counters, and the mask of a word index.
+        private final long[] table;
+        private final int mask;
+
+        // Increments before the counters are halved, and increments since the last halving.
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int words = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+            this.table = new long[Math.min(words, 1 << 24)];
+            this.mask = table.length - 1;
+            this.sampleSize = (int) Math.min(Integer.MAX_VALUE, 10L * capacity);
+        }
+
+        /**
+         * Returns the estimated number of recent accesses of a key.
+         *
+         * @param hash The hash code of the key.
+         * @return The frequency, at most 15.
+         */
+        int frequency(int hash) {
+            int frequency = 15;
+            for (int i = 0; i < SEEDS.length; i++) {
+                long h = hash(hash, i);
+                frequency = Math.min(frequency, (int) ((table[index(h)] >>> offset(h)) & 15));
+            }
+            return frequency;
+        }
+
+        /**
+         * Counts an access of a key.
+         *
+         * @param hash The hash code of the key.
+         */
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                long h = hash(hash, i);
+                int index = index(h);
+                int offset = offset(h);
+                if (((table[index] >>> offset) & 15) < 15) {
+                    table[index] += 1L << offset;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+                }
+                additions /= 2;
+            }
+        }
+
+        private static long hash(int hash, int i) {
+            long h = (hash + (long) i) * SEEDS[i];
+            return h ^ (h >>> 29);
+        }
+
+        private int index(long h) {
+            return (int) (h >>> 32) & mask;
+        }
+
+        private static int offset(long h) {
+            return (int) (h & 15) << 2;
+        }
+    }
+}
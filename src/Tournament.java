@@ -0,0 +1,346 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plays engine configurations against each other, to weigh the strength of a setting against its CPU cost.
+ * Every pair of engines plays the same number of games, each engine moving first in half of them.
+ * The engines being deterministic, the games start from seeded random openings, each opening played twice
+ * with the first player swapped. Both sides are played by {@link EnginePlayer}s, and the games run in parallel.
+ * <p>
+ * Random openings and pondering are disabled in the engine configurations: the openings are chosen by the
+ * tournament, and pondering would steal time from the other games and skew the time per move.
+ * <p>
+ * Usage: {@code java Tournament [--engine NAME:DEPTH[:FLAG...]]... [--games N] [--concurrency N]
+ * [--size N] [--win-length K] [--cube N] [--openings PLIES] [--seed N] [--out summary.json]},
+ * where DEPTH is a number or {@code max}, and the flags are {@code notactics}, {@code nothreats}, {@code portfolio}
+ * and {@code eval=FILE}, the weights scoring the depth limit written by {@link WeightTuner}.
+ * {@code --cube 4} plays 4x4x4 Qubic, where the engines need a search depth.
+ */
+public class Tournament {
+
+    // Logger for the progress and the summary of the run.
+    private static final Logger logger = new Logger("Tournament");
+
+    /**
+     * An engine of the tournament.
+     *
+     * @param name The name shown in the report.
+     * @param config The configuration of the engine.
+     */
+    private record Entrant(String name, GameConfig config) {
+    }
+
+    // The engines playing, all on the same board geometry.
+    private final List<Entrant> entrants;
+
+    // Number of games between each pair of engines, even so each one moves first as often.
+    private final int gamesPerPair;
+
+    // Number of random moves played before the engines take over.
+    private final int openingPlies;
+
+    // Number of games played at the same time.
+    private final int concurrency;
+
+    // Seed of the openings, opening i uses seed + i.
+    private final long seed;
+
+    private Tournament(Builder builder) {
+        this.entrants = List.copyOf(builder.entrants);
+        this.gamesPerPair = builder.gamesPerPair;
+        this.openingPlies = builder.openingPlies;
+        this.concurrency = builder.concurrency;
+        this.seed = builder.seed;
+    }
+
+    /**
+     * Creates a builder with the default schedule: 100 games per pair after 2 random plies, on 8 threads.
+     *
+     * @return A new builder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Plays all the games and summarizes them.
+     *
+     * @return The summary of the run.
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the games.
+     */
+    public TournamentReport run() throws InterruptedException {
+        List<int[]> pairs = new ArrayList<>();
+        for (int first = 0; first < entrants.size(); first++) {
+            for (int second = first + 1; second < entrants.size(); second++) {
+                pairs.add(new int[]{first, second});
+            }
+        }
+
+        // Wins, draws and losses of the first engine of each pair.
+        List<AtomicIntegerArray> pairResults = new ArrayList<>();
+        for (int p = 0; p < pairs.size(); p++) {
+            pairResults.add(new AtomicIntegerArray(3));
+        }
+        LongAdder[] moves = new LongAdder[entrants.size()];
+        LongAdder[] moveNanos = new LongAdder[entrants.size()];
+        for (int e = 0; e < entrants.size(); e++) {
+            moves[e] = new LongAdder();
+            moveNanos[e] = new LongAdder();
+        }
+        AtomicInteger failed = new AtomicInteger();
+        long start = System.nanoTime();
+
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        for (int p = 0; p < pairs.size(); p++) {
+            int[] pair = pairs.get(p);
+            AtomicIntegerArray results = pairResults.get(p);
+            for (int game = 0; game < gamesPerPair; game++) {
+                int opening = game / 2;
+                boolean swapped = game % 2 == 1;
+                workers.execute(() -> {
+                    int first = swapped ? pair[1] : pair[0];
+                    int second = swapped ? pair[0] : pair[1];
+                    try {
+                        GameResult result = play(opening, first, second, moves, moveNanos);
+                        if (result == GameResult.DRAW) {
+                            results.incrementAndGet(1);
+                        } else {
+                            // The first player plays the USER side.
+                            boolean firstWins = result == GameResult.USER_WINS;
+                            results.incrementAndGet(firstWins != swapped ? 0 : 2);
+                        }
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                        logger.error(entrants.get(first).name() + " vs " + entrants.get(second).name()
+                                + ", opening " + opening + " failed: " + e);
+                    }
+                });
+            }
+        }
+        workers.shutdown();
+        try {
+            while (!workers.awaitTermination(1, TimeUnit.SECONDS)) {
+                logger.debug("Tournament running for " + TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) + " s");
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            throw e;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        int[][] totals = new int[entrants.size()][3];
+        List<TournamentReport.Pairing> pairings = new ArrayList<>();
+        for (int p = 0; p < pairs.size(); p++) {
+            int[] pair = pairs.get(p);
+            AtomicIntegerArray results = pairResults.get(p);
+            for (int outcome = 0; outcome < 3; outcome++) {
+                totals[pair[0]][outcome] += results.get(outcome);
+                totals[pair[1]][2 - outcome] += results.get(outcome);
+            }
+            pairings.add(new TournamentReport.Pairing(entrants.get(pair[0]).name(), entrants.get(pair[1]).name(),
+                    results.get(0), results.get(1), results.get(2)));
+        }
+        List<TournamentReport.Standing> standings = new ArrayList<>();
+        for (int e = 0; e < entrants.size(); e++) {
+            standings.add(new TournamentReport.Standing(entrants.get(e).name(), totals[e][0], totals[e][1], totals[e][2],
+                    moves[e].sum(), moveNanos[e].sum()));
+        }
+        return new TournamentReport(standings, pairings, failed.get(), elapsed);
+    }
+
+    /**
+     * Plays one game from a seeded opening, the first engine playing the USER side, which moves first.
+     *
+     * @return The result of the game.
+     */
+    private GameResult play(int opening, int first, int second, LongAdder[] moves, LongAdder[] moveNanos) {
+        GameBoard board = new GameBoard(entrants.get(first).config());
+        Random random = new Random(seed + opening);
+        BoardPlayer turn = BoardPlayer.USER;
+        for (int ply = 0; ply < openingPlies; ply++) {
+            List<BoardNode> emptySpots = board.getEmptyPositions();
+            board.makeMove(emptySpots.get(random.nextInt(emptySpots.size())), turn);
+            turn = turn == BoardPlayer.USER ? BoardPlayer.AI : BoardPlayer.USER;
+        }
+
+        EnginePlayer user = new EnginePlayer(board, BoardPlayer.USER, entrants.get(first).config());
+        EnginePlayer ai = new EnginePlayer(board, BoardPlayer.AI, entrants.get(second).config());
+        try {
+            GameResult result = GameResult.UNDETERMINED;
+            while (result == GameResult.UNDETERMINED) {
+                int engine = turn == BoardPlayer.USER ? first : second;
+                long moveStart = System.nanoTime();
+                BoardNode node = (turn == BoardPlayer.USER ? user : ai).doMove();
+                moveNanos[engine].add(System.nanoTime() - moveStart);
+                moves[engine].increment();
+
+                result = board.getGameResult(node);
+                turn = turn == BoardPlayer.USER ? BoardPlayer.AI : BoardPlayer.USER;
+            }
+            return result;
+        } finally {
+            user.close();
+            ai.close();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        Builder builder = builder();
+        GameConfig.Builder config = GameConfig.builder().boardSize(3).debug(false);
+        List<String> engineSpecs = new ArrayList<>();
+        Path out = null;
+
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--engine" -> engineSpecs.add(value);
+                case "--games" -> builder.gamesPerPair(Integer.parseInt(value));
+                case "--concurrency" -> builder.concurrency(Integer.parseInt(value));
+                case "--size" -> config.boardSize(Integer.parseInt(value));
+                case "--win-length" -> config.winLength(Integer.parseInt(value));
+                case "--cube" -> config.cube(Integer.parseInt(value));
+                case "--openings" -> builder.openingPlies(Integer.parseInt(value));
+                case "--seed" -> builder.seed(Long.parseLong(value));
+                case "--out" -> out = Path.of(value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (engineSpecs.isEmpty()) {
+            engineSpecs = List.of("exact:max", "depth2:2");
+        }
+        GameConfig base = config.build();
+        for (String spec : engineSpecs) {
+            addEngine(builder, base, spec);
+        }
+        Tournament tournament = builder.build();
+
+        logger.title("Playing " + tournament.entrants.size() * (tournament.entrants.size() - 1) / 2 * tournament.gamesPerPair
+                + " games between " + tournament.entrants.size() + " engines on " + tournament.concurrency + " threads");
+        TournamentReport report = tournament.run();
+        report.print(logger);
+        if (out != null) {
+            Files.writeString(out, report.toJson());
+            logger.info("Summary written to " + out);
+        }
+    }
+
+    /**
+     * Adds the engine described by a {@code NAME:DEPTH[:FLAG...]} command line specification.
+     */
+    private static void addEngine(Builder builder, GameConfig base, String spec) {
+        String[] parts = spec.split(":");
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("Engine specification must be NAME:DEPTH[:FLAG...], got " + spec);
+        }
+        GameConfig.Builder config = base.toBuilder()
+                .maxSearchDepth(parts[1].equals("max") ? GameConfig.UNLIMITED_DEPTH : Integer.parseInt(parts[1]));
+        for (int f = 2; f < parts.length; f++) {
+            switch (parts[f]) {
+                case "notactics" -> config.tacticalSearch(false);
+                case "nothreats" -> config.threatSearch(false);
+                case "portfolio" -> config.enginePortfolio(true);
+                default -> {
+                    if (!parts[f].startsWith("eval=")) {
+                        throw new IllegalArgumentException("Unknown engine flag " + parts[f] + " in " + spec);
+                    }
+                    config.evaluationFile(Path.of(parts[f].substring("eval=".length())));
+                }
+            }
+        }
+        builder.engine(parts[0], config.build());
+    }
+
+    /**
+     * Builder of {@link Tournament}.
+     */
+    public static final class Builder {
+        private final List<Entrant> entrants = new ArrayList<>();
+        private int gamesPerPair = 100;
+        private int openingPlies = 2;
+        private int concurrency = 8;
+        private long seed = 0;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds an engine to the tournament. Its random opening and pondering are disabled,
+         * and debug logs should be, they are printed by every concurrent game.
+         * When its moves are scheduled, they have the batch priority.
+         *
+         * @param name The name of the engine in the report.
+         * @param config The configuration of the engine.
+         * @return This builder.
+         */
+        public Builder engine(String name, GameConfig config) {
+            entrants.add(new Entrant(name, config.toBuilder().randomOpening(false).pondering(false)
+                    .movePriority(AiMoveScheduler.Priority.BATCH).build()));
+            return this;
+        }
+
+        public Builder gamesPerPair(int gamesPerPair) {
+            this.gamesPerPair = gamesPerPair;
+            return this;
+        }
+
+        public Builder openingPlies(int openingPlies) {
+            this.openingPlies = openingPlies;
+            return this;
+        }
+
+        public Builder concurrency(int concurrency) {
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Validates the parameters and creates the tournament.
+         *
+         * @return The tournament.
+         * @throws IllegalArgumentException if a parameter is out of range.
+         */
+        public Tournament build() {
+            if (entrants.size() < 2) {
+                throw new IllegalArgumentException("a tournament needs at least 2 engines, got " + entrants.size());
+            }
+            GameConfig geometry = entrants.get(0).config();
+            for (Entrant entrant : entrants) {
+                GameConfig config = entrant.config();
+                if (config.getRows() != geometry.getRows() || config.getColumns() != geometry.getColumns()
+                        || config.getWinLength() != geometry.getWinLength() || config.getLayers() != geometry.getLayers()) {
+                    throw new IllegalArgumentException("engines must play the same board, " + entrant.name() + " does not");
+                }
+            }
+            if (gamesPerPair < 0 || gamesPerPair % 2 != 0) {
+                throw new IllegalArgumentException("gamesPerPair must be even and not negative, got " + gamesPerPair);
+            }
+            // No game can be decided before 2 * winLength - 1 plies, so the openings never end the game.
+            int maxOpeningPlies = Math.min(2 * geometry.getWinLength() - 2, geometry.getRows() * geometry.getColumns() - 1);
+            if (openingPlies < 0 || openingPlies > maxOpeningPlies) {
+                throw new IllegalArgumentException("openingPlies must be between 0 and " + maxOpeningPlies + ", got " + openingPlies);
+            }
+            if (concurrency < 1) {
+                throw new IllegalArgumentException("concurrency must be positive, got " + concurrency);
+            }
+            return new Tournament(this);
+        }
+    }
+}
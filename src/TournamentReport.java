@@ -0,0 +1,216 @@
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The summary of a {@link Tournament} run: the standings of every engine and the result of every pairing,
+ * with Elo estimates and their 95% confidence intervals.
+ *
+ * @param standings The results of each engine against the whole field, in the order of the entrants.
+ * @param pairings The results of each pair of engines.
+ * @param failedGames The number of games that ended with an error.
+ * @param elapsedNanos The wall clock duration of the run, in nanoseconds.
+ */
+public record TournamentReport(List<Standing> standings, List<Pairing> pairings, int failedGames, long elapsedNanos) {
+
+    // Normal quantile of the two-sided 95% confidence intervals.
+    private static final double Z_95 = 1.96;
+
+    /**
+     * The results of an engine against the whole field.
+     *
+     * @param engine The name of the engine.
+     * @param wins The games won.
+     * @param draws The games drawn.
+     * @param losses The games lost.
+     * @param moves The moves played by the engine.
+     * @param moveNanos The time the engine spent choosing its moves, in nanoseconds.
+     */
+    public record Standing(String engine, int wins, int draws, int losses, long moves, long moveNanos) {
+
+        /**
+         * Returns the mean time the engine took per move.
+         *
+         * @return The mean move time, in milliseconds.
+         */
+        public double meanMoveMillis() {
+            return moves == 0 ? 0 : moveNanos / 1e6 / moves;
+        }
+
+        /**
+         * Returns the Elo difference of the engine to the average of its opponents.
+         *
+         * @return The Elo estimate.
+         */
+        public Elo elo() {
+            return Elo.of(wins, draws, losses);
+        }
+    }
+
+    /**
+     * The results of the games between two engines, from the point of view of the first one.
+     * Each engine moved first in half of the games.
+     *
+     * @param first The name of the first engine.
+     * @param second The name of the second engine.
+     * @param wins The games won by the first engine.
+     * @param draws The games drawn.
+     * @param losses The games lost by the first engine.
+     */
+    public record Pairing(String first, String second, int wins, int draws, int losses) {
+
+        /**
+         * Returns the Elo difference of the first engine to the second one.
+         *
+         * @return The Elo estimate.
+         */
+        public Elo elo() {
+            return Elo.of(wins, draws, losses);
+        }
+    }
+
+    /**
+     * An Elo difference with its 95% confidence interval, from the logistic model of the score.
+     * The interval is the Wilson score interval of the mean score per game, which keeps a width when every game
+     * ends the same way. A perfect score is counted as half a game short of it, so the estimate stays finite.
+     *
+     * @param estimate The Elo difference.
+     * @param lower The lower bound of the interval.
+     * @param upper The upper bound of the interval.
+     */
+    public record Elo(double estimate, double lower, double upper) {
+
+        /**
+         * Estimates the Elo difference from game results.
+         *
+         * @param wins The games won.
+         * @param draws The games drawn.
+         * @param losses The games lost.
+         * @return The Elo difference, 0 with an empty interval when no game was played.
+         */
+        public static Elo of(int wins, int draws, int losses) {
+            int games = wins + draws + losses;
+            if (games == 0) {
+                return new Elo(0, 0, 0);
+            }
+            double score = clamp((wins + 0.5 * draws) / games, games);
+            double z2 = Z_95 * Z_95;
+            double center = (score + z2 / (2.0 * games)) / (1 + z2 / games);
+            double margin = Z_95 / (1 + z2 / games) * Math.sqrt(score * (1 - score) / games + z2 / (4.0 * games * games));
+            return new Elo(fromScore(score), fromScore(center - margin), fromScore(center + margin));
+        }
+
+        /**
+         * Clamps a mean score half a game away from 0 and 1.
+         */
+        private static double clamp(double score, int games) {
+            double bound = 0.5 / games;
+            return Math.min(1 - bound, Math.max(bound, score));
+        }
+
+        /**
+         * Converts a mean score strictly between 0 and 1 to an Elo difference.
+         */
+        private static double fromScore(double score) {
+            return 400 * Math.log10(score / (1 - score));
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%+.0f [%+.0f, %+.0f]", estimate, lower, upper);
+        }
+    }
+
+    /**
+     * Prints the standings and the pairings as tables.
+     *
+     * @param logger The logger receiving the summary.
+     */
+    public void print(Logger logger) {
+        int games = pairings.stream().mapToInt(pairing -> pairing.wins() + pairing.draws() + pairing.losses()).sum();
+        logger.info(String.format(Locale.ROOT, "games: %d (%d failed) in %.2f s", games, failedGames, elapsedNanos / 1e9));
+
+        logger.info(String.format(Locale.ROOT, "%-16s %6s %6s %6s %24s %12s", "engine", "W", "D", "L", "Elo [95% CI]", "ms/move"));
+        for (Standing standing : standings) {
+            logger.info(String.format(Locale.ROOT, "%-16s %6d %6d %6d %24s %12.3f", standing.engine(),
+                    standing.wins(), standing.draws(), standing.losses(), standing.elo(), standing.meanMoveMillis()));
+        }
+
+        logger.info(String.format(Locale.ROOT, "%-16s %-16s %6s %6s %6s %24s", "engine", "opponent", "W", "D", "L", "Elo [95% CI]"));
+        for (Pairing pairing : pairings) {
+            logger.info(String.format(Locale.ROOT, "%-16s %-16s %6d %6d %6d %24s", pairing.first(), pairing.second(),
+                    pairing.wins(), pairing.draws(), pairing.losses(), pairing.elo()));
+        }
+    }
+
+    /**
+     * Formats the summary as a JSON object.
+     *
+     * @return The JSON summary.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"failedGames\": ").append(failedGames).append(",\n");
+        json.append("  \"elapsedNanos\": ").append(elapsedNanos).append(",\n");
+
+        json.append("  \"standings\": [");
+        String separator = "\n";
+        for (Standing standing : standings) {
+            json.append(separator).append("    {\"engine\": ").append(quote(standing.engine()));
+            appendResults(json, standing.wins(), standing.draws(), standing.losses(), standing.elo());
+            json.append(", \"moves\": ").append(standing.moves());
+            json.append(", \"meanMoveMillis\": ").append(format(standing.meanMoveMillis())).append('}');
+            separator = ",\n";
+        }
+        json.append("\n  ],\n");
+
+        json.append("  \"pairings\": [");
+        separator = "\n";
+        for (Pairing pairing : pairings) {
+            json.append(separator).append("    {\"engine\": ").append(quote(pairing.first()))
+                    .append(", \"opponent\": ").append(quote(pairing.second()));
+            appendResults(json, pairing.wins(), pairing.draws(), pairing.losses(), pairing.elo());
+            json.append('}');
+            separator = ",\n";
+        }
+        json.append("\n  ]\n}\n");
+        return json.toString();
+    }
+
+    private static void appendResults(StringBuilder json, int wins, int draws, int losses, Elo elo) {
+        json.append(", \"wins\": ").append(wins);
+        json.append(", \"draws\": ").append(draws);
+        json.append(", \"losses\": ").append(losses);
+        json.append(", \"elo\": ").append(format(elo.estimate()));
+        json.append(", \"eloLower\": ").append(format(elo.lower()));
+        json.append(", \"eloUpper\": ").append(format(elo.upper()));
+    }
+
+    /**
+     * Formats a string as a JSON string literal, escaping quotes, backslashes and control characters.
+     */
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
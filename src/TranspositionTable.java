@@ -0,0 +1,265 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size table of solved positions used by the {@link MiniMaxAlgorithm}.
+ * Each entry maps a position key to the score found for it, the kind of bound the score is,
+ * the best cell and the remaining depth (draft) the score was searched with.
+ * Entries are two primitive longs without per-entry objects, so the table is compact and can be
+ * written to and read back from a file. The table may be shared by searches running on several threads:
+ * the key slot stores {@code key ^ data}, so an entry torn by concurrent writes fails the key check
+ * and is read as a miss.
+ * <p>
+ * The slots live either on the Java heap ({@link HeapTranspositionTable}) or off-heap
+ * ({@link OffHeapTranspositionTable}), see {@link #create(GameConfig)}.
+ */
+abstract class TranspositionTable {
+
+    // Off-heap tables of the process, one per configuration fingerprint, shared by all its searches.
+    private static final Map<String, TranspositionTable> offHeapTables = new ConcurrentHashMap<>();
+
+    // Number of slots holding an entry, kept on writes so it can be read without scanning the table.
+    private final LongAdder filledSlots = new LongAdder();
+
+    /** Returned by {@link #probe(long)} when the table has no entry for the key. */
+    static final long MISS = 0;
+
+    /** The score is the exact value of the position. */
+    static final int EXACT = 1;
+
+    /** The score is a lower bound of the value of the position (the search failed high). */
+    static final int LOWER = 2;
+
+    /** The score is an upper bound of the value of the position (the search failed low). */
+    static final int UPPER = 3;
+
+    /** Draft of an entry searched to the end of the game. */
+    static final int FULL_DRAFT = 255;
+
+    /** Size of one entry in bytes. */
+    static final int ENTRY_BYTES = 2 * Long.BYTES;
+
+    /**
+     * Returns the table for a game configuration.
+     * Boards with at least {@link GameConfig#getOffHeapCacheMinCells()} cells use an off-heap table
+     * sized in megabytes, so a large table does not weigh on the garbage collector. There is one such table
+     * per {@link #fingerprint(GameConfig) fingerprint} in the process, allocated by its first configuration
+     * and shared by every later search, so concurrent games do not each reserve their own direct memory.
+     * Smaller boards get a new, empty heap table of {@link GameConfig#getTranspositionTableSize()} entries.
+     *
+     * @param config The game configuration.
+     * @return A new heap table, or the off-heap table of the process for the configuration.
+     */
+    static TranspositionTable create(GameConfig config) {
+        if (config.getRows() * config.getColumns() >= config.getOffHeapCacheMinCells()) {
+            return offHeapTables.computeIfAbsent(fingerprint(config), ignored -> register(
+                    new OffHeapTranspositionTable(config.getOffHeapCacheMegabytes() * (1L << 20) / ENTRY_BYTES)));
+        }
+        return register(new HeapTranspositionTable(config.getTranspositionTableSize()));
+    }
+
+    /**
+     * Identifies the configurations whose searches can share solved positions: same board geometry,
+     * cube layers and evaluation weights. The search depth is recorded in each entry, so it may differ.
+     *
+     * @param config The game configuration.
+     * @return The fingerprint of the configuration, such as {@code 4x4k4} or {@code 16x4k4l4}.
+     */
+    static String fingerprint(GameConfig config) {
+        String layers = config.getLayers() > 1 ? "l" + config.getLayers() : "";
+        int evaluationHash = evaluationHash(config);
+        String evaluation = evaluationHash == 0 ? "" : "e" + Integer.toHexString(evaluationHash);
+        return config.getRows() + "x" + config.getColumns() + "k" + config.getWinLength() + layers + evaluation;
+    }
+
+    /**
+     * Returns a hash of the weights scoring the positions at the depth limit, which the stored scores depend on.
+     *
+     * @param config The game configuration.
+     * @return The hash of the evaluation weights, 0 if the positions at the depth limit are scored as neutral.
+     */
+    static int evaluationHash(GameConfig config) {
+        HeuristicEvaluator evaluator = HeuristicEvaluator.forConfig(config);
+        return evaluator == null ? 0 : Arrays.hashCode(evaluator.getWeights());
+    }
+
+    private static TranspositionTable register(TranspositionTable table) {
+        EngineMetrics.get().tableCreated(table);
+        return table;
+    }
+
+    /**
+     * Returns the number of slots of the table.
+     *
+     * @return The capacity, a power of two.
+     */
+    abstract long capacity();
+
+    /**
+     * Reads the key slot ({@code key ^ data}) of an entry.
+     *
+     * @param slot The slot index.
+     * @return The raw key slot.
+     */
+    protected abstract long readKeySlot(long slot);
+
+    /**
+     * Reads the data slot of an entry.
+     *
+     * @param slot The slot index.
+     * @return The raw data slot.
+     */
+    protected abstract long readDataSlot(long slot);
+
+    /**
+     * Writes both slots of an entry.
+     *
+     * @param slot The slot index.
+     * @param keySlot The key slot value ({@code key ^ data}).
+     * @param dataSlot The data slot value.
+     */
+    protected abstract void writeSlots(long slot, long keySlot, long dataSlot);
+
+    /**
+     * Looks up the entry of a position.
+     *
+     * @param key The position key.
+     * @return The packed entry data, or {@link #MISS}.
+     */
+    long probe(long key) {
+        long slot = slotOf(key);
+        long entry = readDataSlot(slot);
+        return (readKeySlot(slot) ^ entry) == key ? entry : MISS;
+    }
+
+    /**
+     * Stores the result of a search, replacing the entry occupying the slot.
+     *
+     * @param key The position key.
+     * @param score The score of the position.
+     * @param bound The kind of bound: {@link #EXACT}, {@link #LOWER} or {@link #UPPER}.
+     * @param bestCell The index of the best cell (row * columns + column), or -1 if unknown.
+     * @param draft The remaining depth the position was searched with, at most {@link #FULL_DRAFT}.
+     */
+    void store(long key, int score, int bound, int bestCell, int draft) {
+        long entry = (score & 0xFFFFFFFFL)
+                | ((long) bound << 32)
+                | ((long) ((bestCell + 1) & 0x3FF) << 34)
+                | ((long) Math.min(draft, FULL_DRAFT) << 44);
+        storeRaw(key, entry);
+    }
+
+    /**
+     * Stores a packed entry as read from {@link #dataAt(long)}.
+     *
+     * @param key The position key.
+     * @param entry The packed entry data.
+     */
+    void storeRaw(long key, long entry) {
+        long slot = slotOf(key);
+        if (readDataSlot(slot) == MISS) {
+            filledSlots.increment();
+        }
+        writeSlots(slot, key ^ entry, entry);
+    }
+
+    /**
+     * Counts the occupied slots of the table.
+     *
+     * @return The number of stored entries.
+     */
+    long occupancy() {
+        long count = 0;
+        for (long slot = 0; slot < capacity(); slot++) {
+            if (readDataSlot(slot) != MISS) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of occupied slots as counted on writes, without scanning the table.
+     * Concurrent writers filling the same empty slot may both count it, so the count is approximate.
+     *
+     * @return The approximate number of stored entries.
+     */
+    long filledSlots() {
+        return filledSlots.sum();
+    }
+
+    /**
+     * Returns the key stored in a slot.
+     *
+     * @param slot The slot index.
+     * @return The key of the slot, meaningless if the slot is empty.
+     */
+    long keyAt(long slot) {
+        return readKeySlot(slot) ^ readDataSlot(slot);
+    }
+
+    /**
+     * Returns the raw key slot ({@code key ^ data}) of a slot.
+     * A caller copying an entry reads this and {@link #dataAt(long)} once each and pairs them itself,
+     * so an entry torn by a concurrent write keeps a key that matches no position.
+     *
+     * @param slot The slot index.
+     * @return The raw key slot.
+     */
+    long keySlotAt(long slot) {
+        return readKeySlot(slot);
+    }
+
+    /**
+     * Returns the packed data stored in a slot.
+     *
+     * @param slot The slot index.
+     * @return The packed entry data, or {@link #MISS} if the slot is empty.
+     */
+    long dataAt(long slot) {
+        return readDataSlot(slot);
+    }
+
+    /**
+     * Removes every entry.
+     */
+    void clear() {
+        for (long slot = 0; slot < capacity(); slot++) {
+            writeSlots(slot, 0, MISS);
+        }
+        filledSlots.reset();
+    }
+
+    static int score(long entry) {
+        return (int) entry;
+    }
+
+    static int bound(long entry) {
+        return (int) (entry >>> 32) & 0x3;
+    }
+
+    static int bestCell(long entry) {
+        return ((int) (entry >>> 34) & 0x3FF) - 1;
+    }
+
+    static int draft(long entry) {
+        return (int) (entry >>> 44) & 0xFF;
+    }
+
+    /**
+     * Rounds a requested number of entries up to a power of two.
+     *
+     * @param size The requested number of entries.
+     * @return The capacity of the table.
+     */
+    protected static long capacityFor(long size) {
+        return Long.highestOneBit(Math.max(2, size - 1)) << 1;
+    }
+
+    private long slotOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (hash >>> 16) & (capacity() - 1);
+    }
+}
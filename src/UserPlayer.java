@@ -32,11 +32,12 @@ public class UserPlayer extends TicTacToePlayer {
      */
     @Override
     public BoardNode doMove() {
-        int bound = Settings.BOARD_SIZE - 1;
+        int rowsBound = gameBoard.getRows() - 1;
+        int columnsBound = gameBoard.getColumns() - 1;
 
         while (true) {
-            int x = getUserMove(String.format(GET_X_PROMPT_TEMPLATE, bound));
-            int y = getUserMove(String.format(GET_Y_PROMPT_TEMPLATE, bound));
+            int x = getUserMove(String.format(GET_X_PROMPT_TEMPLATE, rowsBound), gameBoard.getRows());
+            int y = getUserMove(String.format(GET_Y_PROMPT_TEMPLATE, columnsBound), gameBoard.getColumns());
 
             if (gameBoard.isNodeEmpty(x, y)) {
                 return gameBoard.makeMove(x, y, BoardPlayer.USER);
@@ -51,13 +52,14 @@ public class UserPlayer extends TicTacToePlayer {
      * Continues prompting until a valid input within the board bounds is provided.
      *
      * @param prompt The prompt string to be displayed to the user.
+     * @param length The number of cells in the prompted dimension.
      * @return The user's chosen move.
      */
-    private int getUserMove(String prompt) {
+    private int getUserMove(String prompt, int length) {
         while (true) {
             System.out.println(prompt);
             int input = scanner.nextInt();
-            if (isMoveInBound(input)) {
+            if (isMoveInBound(input, length)) {
                 return input;
             }
             System.out.printf((INVALID_INPUT_OUT_OF_RANGE_TEMPLATE) + "%n", input);
@@ -68,9 +70,10 @@ public class UserPlayer extends TicTacToePlayer {
      * Checks if the given move is within the valid bounds of the game board.
      *
      * @param input The move value to be checked.
+     * @param length The number of cells in the checked dimension.
      * @return {@code true} if the move is within bounds, {@code false} otherwise.
      */
-    private boolean isMoveInBound(int input) {
-        return input >= 0 && input < gameBoard.getBoardLength();
+    private boolean isMoveInBound(int input, int length) {
+        return input >= 0 && input < length;
     }
 }
@@ -0,0 +1,443 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fits the weights of a {@link HeuristicEvaluator} on positions of self-play games, for the boards where the
+ * search has to stop at a depth limit. Each game plays an immediate win when there is one, otherwise a random
+ * move with the exploration probability, and otherwise the move the default weights score best, so the games
+ * are fast and varied. Every position reached before the end of a game is labeled with the outcome of the game,
+ * or with the score of a depth-limited MiniMax search of the position, as a probability of the AI winning.
+ * <p>
+ * The weights are fitted by gradient descent (Adam) on the squared error between the labels and the winning
+ * probabilities of the scores. The games and the gradients are computed in parallel; the gradient of a
+ * fixed number of chunks of positions is summed in order, so the fit does not depend on the number of threads.
+ * <p>
+ * Usage: {@code java WeightTuner [--size N] [--win-length K] [--cube N] [--games N] [--label-depth N]
+ * [--epochs N] [--seed N] [--threads N] [--out weights.properties]}, then play with
+ * {@code GameConfig.evaluationFile} set to the written file.
+ */
+public class WeightTuner {
+
+    // Logger for the progress and the fitted weights.
+    private static final Logger logger = new Logger("WeightTuner");
+
+    // Number of chunks of positions whose gradients are summed, whatever the number of threads.
+    private static final int CHUNKS = 16;
+
+    // Moment decay rates and stabilizer of the Adam updates.
+    private static final double BETA1 = 0.9;
+    private static final double BETA2 = 0.999;
+    private static final double EPSILON = 1e-8;
+
+    // Configuration of the boards to tune the weights for.
+    private final GameConfig gameConfig;
+
+    // Number of self-play games.
+    private final int games;
+
+    // Probability of a random move instead of the best scored one.
+    private final double exploration;
+
+    // Depth of the search labeling the positions, 0 to label them with the outcome of their game.
+    private final int labelDepth;
+
+    // Number of passes of gradient descent over the positions.
+    private final int epochs;
+
+    // Step size of the gradient descent.
+    private final double learningRate;
+
+    // Seed of the self-play games, game i uses seed + i.
+    private final long seed;
+
+    // Number of threads playing the games and computing the gradients.
+    private final int threads;
+
+    /**
+     * The result of a tuning run.
+     *
+     * @param evaluator The evaluator with the fitted weights.
+     * @param positions The number of positions the weights were fitted on.
+     * @param initialLoss The mean squared error of the default weights.
+     * @param finalLoss The mean squared error of the fitted weights.
+     */
+    public record TuningResult(HeuristicEvaluator evaluator, int positions, double initialLoss, double finalLoss) {
+    }
+
+    /**
+     * A position of a self-play game: its features and the estimated probability of the AI winning.
+     */
+    private record Sample(double[] features, double label) {
+    }
+
+    private WeightTuner(Builder builder) {
+        this.gameConfig = builder.gameConfig;
+        this.games = builder.games;
+        this.exploration = builder.exploration;
+        this.labelDepth = builder.labelDepth;
+        this.epochs = builder.epochs;
+        this.learningRate = builder.learningRate;
+        this.seed = builder.seed;
+        this.threads = builder.threads;
+    }
+
+    /**
+     * Creates a builder with the default run: 200 games on 4x4 boards labeled by their outcome,
+     * 300 epochs on 8 threads.
+     *
+     * @return A new builder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Plays the self-play games and fits the weights on their positions.
+     *
+     * @return The fitted evaluator and the loss before and after the fit.
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the workers.
+     */
+    public TuningResult run() throws InterruptedException {
+        double[] weights = HeuristicEvaluator.defaultWeights(gameConfig.getWinLength());
+        HeuristicEvaluator initial = new HeuristicEvaluator(gameConfig, weights);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<Sample>>> playing = new ArrayList<>();
+            for (int game = 0; game < games; game++) {
+                Random random = new Random(seed + game);
+                playing.add(workers.submit(() -> play(initial, random)));
+            }
+            List<Sample> samples = new ArrayList<>();
+            for (Future<List<Sample>> game : playing) {
+                samples.addAll(await(game));
+            }
+            logger.debug("Fitting " + weights.length + " weights on " + samples.size() + " positions of " + games + " games");
+
+            double initialLoss = loss(workers, samples, weights);
+            double[] firstMoment = new double[weights.length];
+            double[] secondMoment = new double[weights.length];
+            for (int epoch = 1; epoch <= epochs; epoch++) {
+                double[] gradient = gradient(workers, samples, weights);
+                for (int w = 0; w < weights.length; w++) {
+                    firstMoment[w] = BETA1 * firstMoment[w] + (1 - BETA1) * gradient[w];
+                    secondMoment[w] = BETA2 * secondMoment[w] + (1 - BETA2) * gradient[w] * gradient[w];
+                    double step = firstMoment[w] / (1 - Math.pow(BETA1, epoch));
+                    double scale = Math.sqrt(secondMoment[w] / (1 - Math.pow(BETA2, epoch))) + EPSILON;
+                    weights[w] -= learningRate * step / scale;
+                }
+            }
+            double finalLoss = loss(workers, samples, weights);
+            return new TuningResult(new HeuristicEvaluator(gameConfig, weights), samples.size(), initialLoss, finalLoss);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Plays a self-play game and labels its positions.
+     */
+    private List<Sample> play(HeuristicEvaluator evaluator, Random random) {
+        GameBoard board = new GameBoard(gameConfig);
+        MiniMaxAlgorithm labeler = null;
+        if (labelDepth > 0) {
+            // A small table of its own per game, the positions of a game share little with the others.
+            GameConfig search = gameConfig.toBuilder().maxSearchDepth(labelDepth).transpositionTableSize(1 << 14)
+                    .offHeapCacheMinCells(Integer.MAX_VALUE).build();
+            labeler = new MiniMaxAlgorithm(search, TranspositionTable.create(search), evaluator);
+        }
+        List<Sample> samples = new ArrayList<>();
+        BoardPlayer player = BoardPlayer.USER;
+        BoardNode lastMove = null;
+        GameResult result = GameResult.UNDETERMINED;
+        while (result == GameResult.UNDETERMINED) {
+            // The empty board has no features to learn from.
+            if (lastMove != null) {
+                double[] features = new double[HeuristicEvaluator.featureCount(gameConfig.getWinLength())];
+                evaluator.features(board, player, features);
+                double label = labeler == null ? Double.NaN : label(labeler, board, player, lastMove);
+                samples.add(new Sample(features, label));
+            }
+
+            lastMove = board.makeMove(chooseMove(evaluator, board, player, random), player);
+            result = board.getGameResult(lastMove);
+            player = player == BoardPlayer.USER ? BoardPlayer.AI : BoardPlayer.USER;
+        }
+        if (labeler != null) {
+            return samples;
+        }
+        double outcome = result == GameResult.AI_WINS ? 1 : result == GameResult.USER_WINS ? 0 : 0.5;
+        List<Sample> labeled = new ArrayList<>(samples.size());
+        for (Sample sample : samples) {
+            labeled.add(new Sample(sample.features(), outcome));
+        }
+        return labeled;
+    }
+
+    /**
+     * Returns the move of a self-play game: an immediate win, a random move, or the best scored one.
+     */
+    private BoardNode chooseMove(HeuristicEvaluator evaluator, GameBoard board, BoardPlayer player, Random random) {
+        List<BoardNode> empty = board.getEmptyPositions();
+        for (BoardNode node : empty) {
+            board.makeMove(node, player);
+            GameResult result = board.getGameResult(node);
+            board.resetNodePlayer(node);
+            if (result != GameResult.UNDETERMINED && result != GameResult.DRAW) {
+                return node;
+            }
+        }
+        if (random.nextDouble() < exploration) {
+            return empty.get(random.nextInt(empty.size()));
+        }
+        BoardPlayer opponent = player == BoardPlayer.USER ? BoardPlayer.AI : BoardPlayer.USER;
+        BoardNode best = null;
+        int bestScore = Integer.MIN_VALUE;
+        for (BoardNode node : empty) {
+            board.makeMove(node, player);
+            int score = evaluator.evaluate(board, opponent);
+            board.resetNodePlayer(node);
+            score = player == BoardPlayer.AI ? score : -score;
+            if (score > bestScore) {
+                bestScore = score;
+                best = node;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Labels a position with the depth-limited score of the player to move, as a probability of the AI winning.
+     */
+    private static double label(MiniMaxAlgorithm labeler, GameBoard board, BoardPlayer toMove, BoardNode lastMove) {
+        int score = toMove == BoardPlayer.AI
+                ? labeler.searchRoot(board, board.getEmptyPositions()).score()
+                : labeler.minimax(board, lastMove);
+        if (Math.abs(score) > HeuristicEvaluator.MAX_SCORE) {
+            return score > 0 ? 1 : 0;
+        }
+        return HeuristicEvaluator.winProbability(score);
+    }
+
+    /**
+     * Returns the mean squared error of the weights on the positions.
+     */
+    private static double loss(ExecutorService workers, List<Sample> samples, double[] weights) throws InterruptedException {
+        double[] sums = sumChunks(workers, samples, weights, 1, (sample, probability, sum) -> {
+            double error = probability - sample.label();
+            sum[0] += error * error;
+        });
+        return samples.isEmpty() ? 0 : sums[0] / samples.size();
+    }
+
+    /**
+     * Returns the gradient of the mean squared error of the weights on the positions.
+     */
+    private static double[] gradient(ExecutorService workers, List<Sample> samples, double[] weights) throws InterruptedException {
+        double[] gradient = sumChunks(workers, samples, weights, weights.length, (sample, probability, sum) -> {
+            double slope = 2 * (probability - sample.label()) * probability * (1 - probability) / HeuristicEvaluator.SCALE;
+            double[] features = sample.features();
+            for (int w = 0; w < features.length; w++) {
+                sum[w] += slope * features[w];
+            }
+        });
+        for (int w = 0; w < gradient.length; w++) {
+            gradient[w] /= Math.max(1, samples.size());
+        }
+        return gradient;
+    }
+
+    /**
+     * Accumulates a term of every position into one sum per chunk of positions, in parallel,
+     * and adds up the chunks in order.
+     */
+    private static double[] sumChunks(ExecutorService workers, List<Sample> samples, double[] weights, int length,
+                                      Term term) throws InterruptedException {
+        List<Future<double[]>> chunks = new ArrayList<>();
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            int from = (int) ((long) samples.size() * chunk / CHUNKS);
+            int to = (int) ((long) samples.size() * (chunk + 1) / CHUNKS);
+            chunks.add(workers.submit(() -> {
+                double[] sum = new double[length];
+                for (int i = from; i < to; i++) {
+                    Sample sample = samples.get(i);
+                    double score = 0;
+                    for (int w = 0; w < weights.length; w++) {
+                        score += weights[w] * sample.features()[w];
+                    }
+                    term.add(sample, HeuristicEvaluator.winProbability(score), sum);
+                }
+                return sum;
+            }));
+        }
+        double[] total = new double[length];
+        for (Future<double[]> chunk : chunks) {
+            double[] sum = await(chunk);
+            for (int i = 0; i < length; i++) {
+                total[i] += sum[i];
+            }
+        }
+        return total;
+    }
+
+    private static <T> T await(Future<T> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Tuning worker failed", e.getCause());
+        }
+    }
+
+    /**
+     * A term of the loss or of its gradient, added for a position to the sum of its chunk.
+     */
+    private interface Term {
+        void add(Sample sample, double probability, double[] sum);
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        Builder builder = builder();
+        GameConfig.Builder config = builder.gameConfig.toBuilder();
+        Path out = Path.of("evaluation.properties");
+
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--size" -> config.boardSize(Integer.parseInt(value));
+                case "--win-length" -> config.winLength(Integer.parseInt(value));
+                case "--cube" -> config.cube(Integer.parseInt(value));
+                case "--games" -> builder.games(Integer.parseInt(value));
+                case "--label-depth" -> builder.labelDepth(Integer.parseInt(value));
+                case "--epochs" -> builder.epochs(Integer.parseInt(value));
+                case "--seed" -> builder.seed(Long.parseLong(value));
+                case "--threads" -> builder.threads(Integer.parseInt(value));
+                case "--out" -> out = Path.of(value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        WeightTuner tuner = builder.gameConfig(config.build()).build();
+
+        logger.title("Tuning on " + tuner.games + " self-play games on " + tuner.threads + " threads");
+        TuningResult result = tuner.run();
+        logger.info("Positions: " + result.positions());
+        logger.info(String.format("Loss: %.5f -> %.5f", result.initialLoss(), result.finalLoss()));
+        logger.info("Weights: " + Arrays.toString(result.evaluator().getWeights()));
+        result.evaluator().save(out);
+        logger.info("Weights written to " + out);
+    }
+
+    /**
+     * Builder of {@link WeightTuner}.
+     */
+    public static final class Builder {
+        private GameConfig gameConfig = GameConfig.builder().boardSize(4).debug(false).build();
+        private int games = 200;
+        private double exploration = 0.2;
+        private int labelDepth = 0;
+        private int epochs = 300;
+        private double learningRate = 0.5;
+        private long seed = 0;
+        private int threads = 8;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the configuration of the boards to tune the weights for. Only the board geometry is used.
+         *
+         * @param gameConfig The configuration of the boards.
+         * @return This builder.
+         */
+        public Builder gameConfig(GameConfig gameConfig) {
+            this.gameConfig = gameConfig;
+            return this;
+        }
+
+        public Builder games(int games) {
+            this.games = games;
+            return this;
+        }
+
+        public Builder exploration(double exploration) {
+            this.exploration = exploration;
+            return this;
+        }
+
+        /**
+         * Sets the depth of the search labeling the positions. A search scores the positions where it stops
+         * with the default weights, and its wins and losses are certain; 0 labels every position with the
+         * outcome of its game instead, which needs no search but is noisier.
+         *
+         * @param labelDepth The search depth, or 0.
+         * @return This builder.
+         */
+        public Builder labelDepth(int labelDepth) {
+            this.labelDepth = labelDepth;
+            return this;
+        }
+
+        public Builder epochs(int epochs) {
+            this.epochs = epochs;
+            return this;
+        }
+
+        public Builder learningRate(double learningRate) {
+            this.learningRate = learningRate;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Validates the parameters and creates the tuner.
+         *
+         * @return The tuner.
+         * @throws IllegalArgumentException if a parameter is out of range.
+         */
+        public WeightTuner build() {
+            if (gameConfig == null) {
+                throw new IllegalArgumentException("gameConfig must be set");
+            }
+            if (gameConfig.getWinLength() < 2) {
+                throw new IllegalArgumentException("winLength must be at least 2, got " + gameConfig.getWinLength());
+            }
+            if (games < 1) {
+                throw new IllegalArgumentException("games must be positive, got " + games);
+            }
+            if (exploration < 0 || exploration > 1) {
+                throw new IllegalArgumentException("exploration must be between 0 and 1, got " + exploration);
+            }
+            if (labelDepth < 0) {
+                throw new IllegalArgumentException("labelDepth must not be negative, got " + labelDepth);
+            }
+            if (epochs < 0) {
+                throw new IllegalArgumentException("epochs must not be negative, got " + epochs);
+            }
+            if (learningRate <= 0) {
+                throw new IllegalArgumentException("learningRate must be positive, got " + learningRate);
+            }
+            if (threads < 1) {
+                throw new IllegalArgumentException("threads must be positive, got " + threads);
+            }
+            return new WeightTuner(this);
+        }
+    }
+}
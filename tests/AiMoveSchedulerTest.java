@@ -0,0 +1,186 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the AI move scheduler: the fair share of the slots between sessions, the priority of interactive moves,
+ * the search depth degrading under overload, background searches taking free slots only, and games played
+ * with scheduled AI moves.
+ */
+public class AiMoveSchedulerTest {
+
+    private static final int UNLIMITED = GameConfig.UNLIMITED_DEPTH;
+
+    @Test
+    public void testDepthBudget() {
+        assertEquals(UNLIMITED, AiMoveScheduler.depthBudget(0.5, 12, UNLIMITED));
+        assertEquals(UNLIMITED, AiMoveScheduler.depthBudget(1.9, 12, UNLIMITED));
+        assertEquals(6, AiMoveScheduler.depthBudget(2, 12, UNLIMITED));
+        assertEquals(3, AiMoveScheduler.depthBudget(4, 12, UNLIMITED));
+        assertEquals(AiMoveScheduler.MIN_DEGRADED_DEPTH, AiMoveScheduler.depthBudget(1000, 12, UNLIMITED));
+        assertEquals(2, AiMoveScheduler.depthBudget(2, 12, 4));
+        // A search as shallow as the degraded one is not degraded.
+        assertEquals(UNLIMITED, AiMoveScheduler.depthBudget(1000, 2, UNLIMITED));
+        assertEquals(2, AiMoveScheduler.depthBudget(1000, 9, 3));
+    }
+
+    @Test
+    public void testSessionWithLeastUsageGoesFirst() throws InterruptedException {
+        AiMoveScheduler scheduler = new AiMoveScheduler(1);
+        AiMoveScheduler.Session heavy = scheduler.register(AiMoveScheduler.Priority.INTERACTIVE);
+        AiMoveScheduler.Session cheap = scheduler.register(AiMoveScheduler.Priority.INTERACTIVE);
+        try (AiMoveScheduler.Grant grant = heavy.acquire(16, UNLIMITED)) {
+            assertFalse(grant.isDegraded());
+            Thread.sleep(20);
+        }
+
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        AiMoveScheduler.Grant blocker = scheduler.register(AiMoveScheduler.Priority.INTERACTIVE).acquire(9, UNLIMITED);
+        Thread heavyMove = request(heavy, "heavy", order);
+        awaitQueued(scheduler, 1);
+        Thread cheapMove = request(cheap, "cheap", order);
+        awaitQueued(scheduler, 2);
+        blocker.close();
+        heavyMove.join();
+        cheapMove.join();
+
+        assertEquals(List.of("cheap", "heavy"), order);
+    }
+
+    @Test
+    public void testInteractiveMovesGoBeforeBatchMoves() throws InterruptedException {
+        AiMoveScheduler scheduler = new AiMoveScheduler(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        AiMoveScheduler.Grant blocker = scheduler.register(AiMoveScheduler.Priority.INTERACTIVE).acquire(9, UNLIMITED);
+
+        List<Thread> moves = new ArrayList<>();
+        moves.add(request(scheduler.register(AiMoveScheduler.Priority.BATCH), "batch", order));
+        awaitQueued(scheduler, 1);
+        for (int i = 0; i < 2 * AiMoveScheduler.BATCH_SHARE; i++) {
+            moves.add(request(scheduler.register(AiMoveScheduler.Priority.INTERACTIVE), "interactive" + i, order));
+            awaitQueued(scheduler, i + 2);
+        }
+        blocker.close();
+        for (Thread move : moves) {
+            move.join();
+        }
+
+        // The batch move waits for a share of the interactive ones, but is not starved by them.
+        assertEquals(2 * AiMoveScheduler.BATCH_SHARE + 1, order.size());
+        assertEquals(AiMoveScheduler.BATCH_SHARE - 1, order.indexOf("batch"));
+        assertEquals("interactive0", order.get(0));
+    }
+
+    @Test
+    public void testOverloadDegradesSearchDepth() throws InterruptedException {
+        AiMoveScheduler scheduler = new AiMoveScheduler(2);
+        try (AiMoveScheduler.Grant grant = scheduler.register(AiMoveScheduler.Priority.INTERACTIVE).acquire(16, UNLIMITED)) {
+            assertFalse(grant.isDegraded());
+            assertEquals(UNLIMITED, grant.maxSearchDepth());
+        }
+
+        AiMoveScheduler.Grant first = scheduler.register(AiMoveScheduler.Priority.INTERACTIVE).acquire(16, UNLIMITED);
+        AiMoveScheduler.Grant second = scheduler.register(AiMoveScheduler.Priority.INTERACTIVE).acquire(16, UNLIMITED);
+        List<Integer> depths = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> moves = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            AiMoveScheduler.Session session = scheduler.register(AiMoveScheduler.Priority.INTERACTIVE);
+            Thread move = new Thread(() -> {
+                try (AiMoveScheduler.Grant grant = session.acquire(16, UNLIMITED)) {
+                    depths.add(grant.maxSearchDepth());
+                }
+            });
+            move.start();
+            moves.add(move);
+            awaitQueued(scheduler, i + 1);
+        }
+        first.close();
+        second.close();
+        for (Thread move : moves) {
+            move.join();
+        }
+
+        // The moves granted with 2 to 3.5 moves per slot search half as deep, the last ones search fully.
+        assertEquals(6, depths.size());
+        assertEquals(4, Collections.frequency(depths, 8));
+        assertEquals(2, Collections.frequency(depths, UNLIMITED));
+        assertEquals(4, scheduler.degradedMoves());
+        assertEquals(9, scheduler.grantedMoves());
+    }
+
+    @Test
+    public void testTryAcquireOnlyTakesFreeSlots() throws InterruptedException {
+        AiMoveScheduler scheduler = new AiMoveScheduler(1);
+        AiMoveScheduler.Session background = scheduler.register(AiMoveScheduler.Priority.BATCH);
+        AiMoveScheduler.Grant grant = background.tryAcquire(UNLIMITED);
+        assertNotNull(grant);
+        assertEquals(UNLIMITED, grant.maxSearchDepth());
+        assertNull(background.tryAcquire(UNLIMITED));
+
+        // A waiting move gets the slot first, even once it is free.
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        Thread move = request(scheduler.register(AiMoveScheduler.Priority.INTERACTIVE), "move", order);
+        awaitQueued(scheduler, 1);
+        grant.close();
+        move.join();
+        assertEquals(List.of("move"), order);
+
+        grant = background.tryAcquire(UNLIMITED);
+        assertNotNull(grant);
+        grant.close();
+        assertEquals(3, scheduler.grantedMoves());
+    }
+
+    @Test
+    public void testScheduledGamesComplete() throws Exception {
+        GameConfig config = GameConfig.builder().boardSize(3).debug(false).randomOpening(false).pondering(false)
+                .moveScheduling(true).build();
+        long grantedBefore = AiMoveScheduler.get().grantedMoves();
+        ExecutorService games = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<TicTacToeResult>> results = new ArrayList<>();
+            for (int game = 0; game < 32; game++) {
+                long seed = game;
+                results.add(games.submit(() -> new GameExecutor(config,
+                        board -> new SyntheticUserPlayer(board, new Random(seed), List.of()),
+                        GameExecutor.MoveListener.NONE, false).play()));
+            }
+            for (Future<TicTacToeResult> result : results) {
+                assertNotEquals(GameResult.UNDETERMINED, result.get().result());
+            }
+        } finally {
+            games.shutdown();
+        }
+        assertTrue(AiMoveScheduler.get().grantedMoves() >= grantedBefore + 32 * 2);
+        assertEquals(0, AiMoveScheduler.get().queuedMoves());
+    }
+
+    /**
+     * Starts a thread requesting a move, which records its name when the slot is granted and releases it.
+     */
+    private static Thread request(AiMoveScheduler.Session session, String name, List<String> order) {
+        Thread move = new Thread(() -> {
+            AiMoveScheduler.Grant grant = session.acquire(9, UNLIMITED);
+            order.add(name);
+            grant.close();
+        });
+        move.start();
+        return move;
+    }
+
+    private static void awaitQueued(AiMoveScheduler scheduler, int moves) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (scheduler.queuedMoves() < moves) {
+            assertTrue(System.nanoTime() < deadline, "The moves were not queued");
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Gates the heap allocation of the search, in bytes per searched node, on seeded random positions.
+ * Each search runs once to warm up, the transposition table is cleared, and the same search is measured again
+ * with the allocation counter of the thread, so the table entries and the lazily created buffers are not counted.
+ * The budgets can be overridden with the system properties {@code allocation.minimaxBytesPerNode},
+ * {@code allocation.moveBytesPerNode} and {@code allocation.proofBytesPerNode}.
+ */
+public class AllocationGateTest {
+
+    // Positions generated per board size, with the AI to move and at most 9 empty cells.
+    private static final int POSITIONS = 20;
+
+    // The MiniMax inner loop allocates nothing; the budget covers the constant cost of a search call.
+    // It measures about 0.15 bytes per node on 3x3 and 0.02 on 4x4 at the time of writing.
+    private static final double MINIMAX_BYTES_PER_NODE = Double.parseDouble(
+            System.getProperty("allocation.minimaxBytesPerNode", "0.5"));
+
+    // A whole AI move, with the tactical and threat-space searches in front of MiniMax, which allocate per move.
+    // It measures about 2 bytes per node on 3x3, where the searches are small, and 0.2 on 4x4 at the time of writing.
+    private static final double MOVE_BYTES_PER_NODE = Double.parseDouble(
+            System.getProperty("allocation.moveBytesPerNode", "4.0"));
+
+    // The df-pn inner loop allocates nothing either; the budget covers the result of each query.
+    // It measures about 0.04 bytes per node on 3x3 and 0.01 on 4x4 at the time of writing.
+    private static final double PROOF_BYTES_PER_NODE = Double.parseDouble(
+            System.getProperty("allocation.proofBytesPerNode", "0.5"));
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    public void testMiniMaxAllocationPerNode() {
+        assumeAllocationCounted();
+        for (int size = 3; size <= 4; size++) {
+            GameConfig config = config(size);
+            List<GameBoard> positions = RandomPositions.generate(config, 46, POSITIONS, 9, 9);
+            MiniMaxAlgorithm minimax = new MiniMaxAlgorithm(config);
+            searchRootMoves(minimax, positions);
+            minimax.getTranspositionTable().clear();
+
+            long nodesBefore = minimax.getNodeCount();
+            long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+            searchRootMoves(minimax, positions);
+            long bytes = threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+            assertWithinBudget(size + "x" + size + " MiniMax", bytes, minimax.getNodeCount() - nodesBefore,
+                    MINIMAX_BYTES_PER_NODE);
+        }
+    }
+
+    @Test
+    public void testAiMoveAllocationPerNode() {
+        assumeAllocationCounted();
+        for (int size = 3; size <= 4; size++) {
+            long bytes = 0;
+            long nodes = 0;
+            for (GameBoard board : RandomPositions.generate(config(size), 47, POSITIONS, 9, 9)) {
+                AiPlayer ai = new AiPlayer(board);
+                List<BoardNode> emptySpots = board.getEmptyPositions();
+                board.resetNodePlayer(ai.doBestMove(emptySpots));
+                ai.getTranspositionTable().clear();
+
+                long nodesBefore = ai.getNodeCount();
+                long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+                BoardNode move = ai.doBestMove(emptySpots);
+                bytes += threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+                nodes += ai.getNodeCount() - nodesBefore;
+                board.resetNodePlayer(move);
+            }
+            assertWithinBudget(size + "x" + size + " AI move", bytes, nodes, MOVE_BYTES_PER_NODE);
+        }
+    }
+
+    @Test
+    public void testProofNumberSearchAllocationPerNode() {
+        assumeAllocationCounted();
+        for (int size = 3; size <= 4; size++) {
+            List<GameBoard> positions = RandomPositions.generate(config(size), 48, POSITIONS, 9, 9);
+            ProofNumberSearch search = new ProofNumberSearch();
+            solve(search, positions);
+
+            long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+            long nodes = solve(search, positions);
+            long bytes = threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+            assertWithinBudget(size + "x" + size + " df-pn", bytes, nodes, PROOF_BYTES_PER_NODE);
+        }
+    }
+
+    private static void assumeAllocationCounted() {
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "Thread allocation counting is not supported");
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    private static void assertWithinBudget(String search, long bytes, long nodes, double budget) {
+        assertTrue(nodes > 0, search + " searched no node");
+        double bytesPerNode = (double) bytes / nodes;
+        assertTrue(bytesPerNode <= budget, String.format("%s allocated %d bytes for %d nodes, %.3f bytes per node, budget %.3f",
+                search, bytes, nodes, bytesPerNode, budget));
+    }
+
+    private static GameConfig config(int size) {
+        return GameConfig.builder().boardSize(size).debug(false).pondering(false).randomOpening(false)
+                .tacticalSearch(true).threatSearch(true).build();
+    }
+
+    /**
+     * Solves the positions, the AI to move, and returns the number of nodes the queries expanded.
+     */
+    private static long solve(ProofNumberSearch search, List<GameBoard> positions) {
+        long nodes = 0;
+        for (GameBoard board : positions) {
+            nodes += search.solve(board, null, BoardPlayer.AI).nodes();
+        }
+        return nodes;
+    }
+
+    /**
+     * Runs the MiniMax search on every root move of the positions, the way the AI player scores them.
+     */
+    private static void searchRootMoves(MiniMaxAlgorithm minimax, List<GameBoard> positions) {
+        for (GameBoard board : positions) {
+            for (BoardNode node : board.getEmptyPositions()) {
+                board.makeMove(node, BoardPlayer.AI);
+                minimax.minimax(board, node);
+                board.resetNodePlayer(node);
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BatchWinEvaluatorTest {
+
+    @Test
+    public void testLineCounts() {
+        assertEquals(8, new BatchWinEvaluator(GameConfig.builder().boardSize(3).build()).getLineCount());
+        assertEquals(10, new BatchWinEvaluator(GameConfig.builder().boardSize(4).build()).getLineCount());
+        // 5x5 with k=4: 10 rows, 10 columns, 4 + 4 diagonals
+        assertEquals(28, new BatchWinEvaluator(GameConfig.builder().boardSize(5).winLength(4).build()).getLineCount());
+    }
+
+    @Test
+    public void testAgreesWithRuleOnRandomGames() {
+        assertAgreesWithRule(GameConfig.builder().boardSize(3).debug(false).build());
+        assertAgreesWithRule(GameConfig.builder().boardSize(4).debug(false).build());
+        assertAgreesWithRule(GameConfig.builder().rows(5).columns(6).winLength(4).debug(false).build());
+    }
+
+    private void assertAgreesWithRule(GameConfig config) {
+        BatchWinEvaluator evaluator = new BatchWinEvaluator(config);
+        Random random = new Random(33);
+        int capacity = 5000;
+        long[] aiMasks = new long[capacity];
+        long[] userMasks = new long[capacity];
+        GameResult[] expected = new GameResult[capacity];
+        int count = 0;
+
+        // Every position of random games, stopping at the first win as the rule does.
+        while (count < capacity) {
+            GameBoard board = new GameBoard(config);
+            BoardPlayer player = random.nextBoolean() ? BoardPlayer.AI : BoardPlayer.USER;
+            GameResult result = GameResult.UNDETERMINED;
+            while (result == GameResult.UNDETERMINED && count < capacity) {
+                List<BoardNode> empty = board.getEmptyPositions();
+                BoardNode move = board.makeMove(empty.get(random.nextInt(empty.size())), player);
+                result = board.getGameResult(move);
+                aiMasks[count] = evaluator.pack(board, BoardPlayer.AI);
+                userMasks[count] = evaluator.pack(board, BoardPlayer.USER);
+                expected[count] = result;
+                count++;
+                player = player == BoardPlayer.AI ? BoardPlayer.USER : BoardPlayer.AI;
+            }
+        }
+
+        GameResult[] results = new GameResult[capacity];
+        evaluator.evaluate(aiMasks, userMasks, count, results);
+        for (int b = 0; b < count; b++) {
+            assertEquals(expected[b], results[b], "board " + b + " of " + config);
+        }
+    }
+}
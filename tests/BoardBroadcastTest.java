@@ -0,0 +1,161 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the fan-out of the board updates to spectators: the deltas of polling spectators, the coalescing of
+ * the moves missed by a slow spectator, and many spectators following a game played by a GameExecutor.
+ */
+public class BoardBroadcastTest {
+
+    private static final GameConfig config = GameConfig.builder().boardSize(3).debug(false)
+            .randomOpening(false).pondering(false).build();
+
+    @Test
+    public void testPollingSpectatorReceivesDeltas() {
+        GameBoard board = new GameBoard(config);
+        board.makeMove(1, 1, BoardPlayer.USER);
+        BoardBroadcast broadcast = new BoardBroadcast(board);
+        BoardBroadcast.Subscription subscription = broadcast.subscribe();
+
+        // The first delta holds the whole board.
+        BoardBroadcast.BoardDelta first = subscription.poll();
+        assertEquals(-1, first.fromVersion());
+        assertEquals(0, first.version());
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8}, first.cells());
+        assertEquals(BoardPlayer.USER, first.players()[4]);
+        assertNull(subscription.poll());
+
+        broadcast.publish(board.makeMove(0, 0, BoardPlayer.AI), GameResult.UNDETERMINED);
+        BoardBroadcast.BoardDelta move = subscription.poll();
+        assertEquals(0, move.fromVersion());
+        assertEquals(1, move.version());
+        assertArrayEquals(new int[]{0}, move.cells());
+        assertArrayEquals(new BoardPlayer[]{BoardPlayer.AI}, move.players());
+        assertEquals(GameResult.UNDETERMINED, move.result());
+
+        // Moves published between two polls are coalesced.
+        broadcast.publish(board.makeMove(2, 2, BoardPlayer.USER), GameResult.UNDETERMINED);
+        broadcast.publish(board.makeMove(0, 2, BoardPlayer.AI), GameResult.UNDETERMINED);
+        BoardBroadcast.BoardDelta coalesced = subscription.poll();
+        assertEquals(1, coalesced.fromVersion());
+        assertEquals(3, coalesced.version());
+        assertArrayEquals(new int[]{2, 8}, coalesced.cells());
+        assertArrayEquals(new BoardPlayer[]{BoardPlayer.AI, BoardPlayer.USER}, coalesced.players());
+
+        broadcast.publish(board.makeMove(0, 1, BoardPlayer.AI), GameResult.AI_WINS);
+        assertEquals(GameResult.AI_WINS, subscription.poll().result());
+
+        subscription.close();
+        broadcast.publish(board.makeMove(2, 0, BoardPlayer.USER), GameResult.AI_WINS);
+        assertNull(subscription.poll());
+    }
+
+    @Test
+    public void testSlowSpectatorReceivesCoalescedMoves() throws InterruptedException {
+        GameBoard board = new GameBoard(GameConfig.builder().boardSize(5).debug(false).build());
+        BoardBroadcast broadcast = new BoardBroadcast(board);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        AtomicInteger concurrent = new AtomicInteger();
+        List<BoardBroadcast.BoardDelta> deltas = new ArrayList<>();
+        BoardPlayer[] view = new BoardPlayer[25];
+
+        broadcast.subscribe(delta -> {
+            assertEquals(1, concurrent.incrementAndGet(), "A spectator was called concurrently");
+            if (deltas.isEmpty()) {
+                blocked.countDown();
+                awaitQuietly(released);
+            }
+            synchronized (deltas) {
+                deltas.add(delta);
+            }
+            delta.applyTo(view);
+            concurrent.decrementAndGet();
+            if (delta.result() != GameResult.UNDETERMINED) {
+                finished.countDown();
+            }
+        });
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+        // The game goes on while the spectator is stuck on the first delta.
+        BoardPlayer player = BoardPlayer.USER;
+        for (int cell = 0; cell < 25; cell++) {
+            BoardNode node = board.makeMove(cell / 5, cell % 5, player);
+            broadcast.publish(node, cell == 24 ? GameResult.DRAW : GameResult.UNDETERMINED);
+            player = player == BoardPlayer.USER ? BoardPlayer.AI : BoardPlayer.USER;
+        }
+        released.countDown();
+
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        synchronized (deltas) {
+            assertTrue(deltas.size() <= 3, "The missed moves were not coalesced: " + deltas.size() + " deltas");
+            assertEquals(25, deltas.get(deltas.size() - 1).version());
+        }
+        for (int cell = 0; cell < 25; cell++) {
+            assertEquals(board.getNode(cell / 5, cell % 5).getPlayer(), view[cell]);
+        }
+    }
+
+    @Test
+    public void testManySpectatorsFollowAGame() throws InterruptedException {
+        GameExecutor executor = new GameExecutor(config, board -> new SyntheticUserPlayer(board, new Random(43), List.of()),
+                GameExecutor.MoveListener.NONE, false);
+        BoardBroadcast broadcast = executor.getBroadcast();
+        int spectators = 1000;
+        CountDownLatch finished = new CountDownLatch(spectators);
+        BoardPlayer[][] views = new BoardPlayer[spectators][9];
+        GameResult[] results = new GameResult[spectators];
+        for (int spectator = 0; spectator < spectators; spectator++) {
+            BoardPlayer[] view = views[spectator];
+            int index = spectator;
+            broadcast.subscribe(delta -> {
+                delta.applyTo(view);
+                if (delta.result() != GameResult.UNDETERMINED) {
+                    results[index] = delta.result();
+                    finished.countDown();
+                }
+            });
+        }
+        // A failing spectator is dropped without affecting the game or the others.
+        broadcast.subscribe(delta -> {
+            throw new IllegalStateException("Spectator failure");
+        });
+        BoardBroadcast.Subscription polling = broadcast.subscribe();
+
+        GameResult result = executor.play().result();
+
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (broadcast.pushedSubscriptions() > spectators && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(spectators, broadcast.pushedSubscriptions());
+        BoardPlayer[] expected = new BoardPlayer[9];
+        BoardBroadcast.BoardDelta last = polling.poll();
+        last.applyTo(expected);
+        assertEquals(result, last.result());
+        assertEquals(broadcast.version(), last.version());
+        for (int spectator = 0; spectator < spectators; spectator++) {
+            assertEquals(result, results[spectator]);
+            assertArrayEquals(expected, views[spectator], "Spectator " + spectator + " saw " + Arrays.toString(views[spectator]));
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the distributed root search with local worker processes and compares its moves with the ones
+ * of the sequential root loop, also when workers die in the middle of a search. Moves decided by the tactical
+ * layer are played without dispatching root moves to the workers.
+ */
+public class DistributedSearchTest {
+
+    private static final GameConfig config = GameConfig.builder().boardSize(4).debug(false)
+            .tacticalSearch(false).threatSearch(false).pondering(false).build();
+
+    @Test
+    public void testMatchesSequentialSearch() throws Exception {
+        DistributedSearch search = new DistributedSearch(config, 2);
+        try {
+            assertEquals(2, search.getWorkerCount());
+            for (GameBoard board : RandomPositions.generate(config, 43, 12, 9, 9)) {
+                assertEquals(sequentialBestMove(board), search.findBestMove(board, board.getEmptyPositions()), board.toString());
+            }
+        } finally {
+            search.close();
+        }
+    }
+
+    @Test
+    public void testSurvivesWorkerDeath() throws Exception {
+        DistributedSearch search = new DistributedSearch(config, 2);
+        try {
+            List<GameBoard> positions = RandomPositions.generate(config, 44, 6, 9, 9);
+            Thread killer = new Thread(() -> {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                search.getWorkerProcesses().get(0).destroyForcibly();
+            });
+            killer.start();
+            for (GameBoard board : positions) {
+                assertEquals(sequentialBestMove(board), search.findBestMove(board, board.getEmptyPositions()), board.toString());
+            }
+            killer.join();
+
+            search.getWorkerProcesses().get(0).waitFor();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (search.getWorkerCount() > 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, search.getWorkerCount());
+        } finally {
+            search.close();
+        }
+    }
+
+    @Test
+    public void testSearchesLocallyWithoutWorkers() throws Exception {
+        DistributedSearch search = new DistributedSearch(config, 1);
+        try {
+            Process worker = search.getWorkerProcesses().get(0);
+            worker.destroyForcibly().waitFor();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (search.getWorkerCount() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, search.getWorkerCount());
+
+            for (GameBoard board : RandomPositions.generate(config, 45, 4, 9, 9)) {
+                assertEquals(sequentialBestMove(board), search.findBestMove(board, board.getEmptyPositions()), board.toString());
+            }
+        } finally {
+            search.close();
+        }
+    }
+
+    @Test
+    public void testTacticalMovesAreNotDispatched() {
+        GameConfig tactical = config.toBuilder().tacticalSearch(true).threatSearch(true).distributedWorkers(1).build();
+
+        // O O O _
+        // X X _ _
+        // X _ _ _
+        GameBoard winning = new GameBoard(tactical);
+        AiPlayer winner = new AiPlayer(winning);
+        try {
+            DistributedSearch search = winner.getDistributedSearch();
+            assertNotNull(search);
+            winning.makeMove(0, 0, BoardPlayer.AI);
+            winning.makeMove(0, 1, BoardPlayer.AI);
+            winning.makeMove(0, 2, BoardPlayer.AI);
+            winning.makeMove(1, 0, BoardPlayer.USER);
+            winning.makeMove(1, 1, BoardPlayer.USER);
+            winning.makeMove(2, 0, BoardPlayer.USER);
+            assertSame(winning.getNode(0, 3), winner.doBestMove(winning.getEmptyPositions()));
+            assertEquals(0, search.getDispatchedTaskCount());
+        } finally {
+            winner.close();
+        }
+
+        // O O _ _
+        // X X X _
+        // O _ _ _
+        GameBoard blocking = new GameBoard(tactical);
+        AiPlayer blocker = new AiPlayer(blocking);
+        try {
+            DistributedSearch search = blocker.getDistributedSearch();
+            blocking.makeMove(1, 0, BoardPlayer.USER);
+            blocking.makeMove(1, 1, BoardPlayer.USER);
+            blocking.makeMove(1, 2, BoardPlayer.USER);
+            blocking.makeMove(0, 0, BoardPlayer.AI);
+            blocking.makeMove(0, 1, BoardPlayer.AI);
+            blocking.makeMove(2, 0, BoardPlayer.AI);
+            assertSame(blocking.getNode(1, 3), blocker.doBestMove(blocking.getEmptyPositions()));
+            assertEquals(0, search.getDispatchedTaskCount());
+
+            // Without a tactic the root moves go to the workers.
+            GameBoard quiet = RandomPositions.generate(config, 46, 1, 9, 9).get(0);
+            search.findBestMove(quiet, quiet.getEmptyPositions());
+            assertEquals(quiet.getEmptyCount(), search.getDispatchedTaskCount());
+        } finally {
+            blocker.close();
+        }
+    }
+
+    private static BoardNode sequentialBestMove(GameBoard board) {
+        MiniMaxAlgorithm engine = new MiniMaxAlgorithm(config);
+        return new AiPlayer(board.copy()).findBestMove(board, board.getEmptyPositions(), engine, new Logger("DistributedSearchTest", false));
+    }
+}
@@ -0,0 +1,281 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the engine variants alongside a reference search on seeded random reachable positions.
+ * The reference is a plain MiniMax without alpha-beta pruning or transposition table, scoring each root move
+ * the way {@link MiniMaxAlgorithm} does. Every candidate must agree with it, and the MiniMax search must not
+ * search more nodes, or search them much slower, than recorded here.
+ */
+public class EngineDifferentialTest {
+
+    // Positions generated per board size, with the AI to move.
+    private static final int POSITIONS = 60;
+
+    // 4x4 positions keep at most this many empty cells, so the reference search stays fast.
+    private static final int MAX_EMPTY_4X4 = 9;
+
+    // Nodes searched by a cold MiniMaxAlgorithm over all the root moves of the positions, at the time of writing.
+    private static final long BASELINE_NODES_3X3 = 55_798;
+    private static final long BASELINE_NODES_4X4 = 104_458;
+
+    // Allowed growth of the node counts, and minimal speed of the MiniMax search relative to the reference.
+    // The speed is relative so the gate holds on any machine; it measures 0.5 to 0.6 at the time of writing,
+    // and the minimum is 0.8 times the slowest measure.
+    private static final double NODE_COUNT_TOLERANCE = 1.10;
+    private static final double MIN_RELATIVE_NODES_PER_SECOND = 0.4;
+
+    private static final GameConfig config3x3 = GameConfig.builder().boardSize(3).debug(false).pondering(false).build();
+    private static final GameConfig config4x4 = GameConfig.builder().boardSize(4).debug(false).pondering(false).build();
+
+    @Test
+    public void testMiniMaxMatchesReference3x3() {
+        assertMiniMaxMatchesReference(config3x3, positions(config3x3, 37, 9), BASELINE_NODES_3X3);
+    }
+
+    @Test
+    public void testMiniMaxMatchesReference4x4() {
+        assertMiniMaxMatchesReference(config4x4, positions(config4x4, 37, MAX_EMPTY_4X4), BASELINE_NODES_4X4);
+    }
+
+    @Test
+    public void testProofNumberSearchMatchesReference() {
+        for (GameConfig config : List.of(config3x3, config4x4)) {
+            for (Position position : positions(config, 38, MAX_EMPTY_4X4)) {
+                ProofResult proof = new ProofNumberSearch().solve(position.board, null, BoardPlayer.AI);
+                assertEquals(outcome(position.bestScore()), proof.result(), position.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testMoveSelectionMatchesReference() {
+        GameConfig plain = config3x3.toBuilder().tacticalSearch(false).threatSearch(false).build();
+        for (Position position : positions(plain, 39, 9)) {
+            BoardNode move = findBestMove(position);
+            assertTrue(position.optimalMoves().contains(move), "Suboptimal move " + move + " on " + position);
+        }
+
+        // The tactical and threat-space layers may pick a slower win, but never a worse outcome.
+        for (GameConfig config : List.of(config3x3, config4x4)) {
+            for (Position position : positions(config, 39, MAX_EMPTY_4X4)) {
+                BoardNode move = findBestMove(position);
+                assertEquals(outcome(position.bestScore()), outcome(position.scoreOf(move)),
+                        "Move " + move + " changes the outcome of " + position);
+            }
+        }
+    }
+
+    @Test
+    public void testEnginePortfolioMatchesReference() {
+        for (GameConfig config : List.of(config3x3, config4x4)) {
+            // The deadline is generous, so every move is proven.
+            GameConfig portfolioConfig = config.toBuilder().enginePortfolio(true).portfolioDeadlineMillis(60_000).build();
+            EnginePortfolio portfolio = new EnginePortfolio(portfolioConfig, TranspositionTable.create(portfolioConfig));
+            try {
+                for (Position position : positions(config, 42, MAX_EMPTY_4X4)) {
+                    BoardNode move = portfolio.findBestMove(position.board, position.board.getEmptyPositions());
+                    assertEquals(outcome(position.bestScore()), outcome(position.scoreOf(move)),
+                            "Move " + move + " changes the outcome of " + position);
+                }
+            } finally {
+                portfolio.close();
+            }
+        }
+    }
+
+    @Test
+    public void testTacticsAreSound() {
+        for (GameConfig config : List.of(config3x3, config4x4)) {
+            for (Position position : positions(config, 40, MAX_EMPTY_4X4)) {
+                GameResult best = outcome(position.bestScore());
+                ThreatTable table = new ThreatTable(position.board);
+
+                TacticalDecision decision = new TacticalAnalyzer(position.board, table)
+                        .analyze(BoardPlayer.AI, position.board.getEmptyPositions());
+                boolean keepsBest = decision.candidates().stream()
+                        .anyMatch(node -> outcome(position.scoreOf(node)) == best);
+                assertTrue(keepsBest, "Tactics (" + decision.reason() + ") dropped every best move of " + position);
+
+                BoardNode forcedWin = new ThreatSpaceSearch(position.board, table).findForcedWin(BoardPlayer.AI);
+                if (forcedWin != null) {
+                    assertEquals(GameResult.AI_WINS, outcome(position.scoreOf(forcedWin)), position.toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBatchEvaluatorMatchesRule() {
+        for (GameConfig config : List.of(config3x3, config4x4)) {
+            BatchWinEvaluator evaluator = new BatchWinEvaluator(config);
+            for (Position position : positions(config, 41, MAX_EMPTY_4X4)) {
+                GameBoard board = position.board;
+                for (BoardNode node : board.getEmptyPositions()) {
+                    board.makeMove(node, BoardPlayer.AI);
+                    GameResult[] result = new GameResult[1];
+                    evaluator.evaluate(new long[]{evaluator.pack(board, BoardPlayer.AI)},
+                            new long[]{evaluator.pack(board, BoardPlayer.USER)}, 1, result);
+                    assertEquals(board.getGameResult(node), result[0], position + " after " + node);
+                    board.resetNodePlayer(node);
+                }
+            }
+        }
+    }
+
+    private void assertMiniMaxMatchesReference(GameConfig config, List<Position> positions, long baselineNodes) {
+        // Warm up both searches before timing them.
+        for (int round = 0; round < 2; round++) {
+            for (Position position : positions) {
+                searchAll(new MiniMaxAlgorithm(config), position);
+                reference(position.board);
+            }
+        }
+
+        long coldNodes = 0;
+        long coldNanos = 0;
+        long referenceNodes = 0;
+        long referenceNanos = 0;
+        MiniMaxAlgorithm warm = new MiniMaxAlgorithm(config);
+        for (Position position : positions) {
+            long start = System.nanoTime();
+            ReferenceSearch reference = reference(position.board);
+            referenceNanos += System.nanoTime() - start;
+            referenceNodes += reference.nodes;
+
+            MiniMaxAlgorithm cold = new MiniMaxAlgorithm(config);
+            start = System.nanoTime();
+            int[] coldScores = searchAll(cold, position);
+            coldNanos += System.nanoTime() - start;
+            coldNodes += cold.getNodeCount();
+
+            assertArrayEquals(position.scores, coldScores, "Cold MiniMax scores differ on " + position);
+            // The warm engine reuses the entries of the previous positions, including bounds.
+            assertArrayEquals(position.scores, searchAll(warm, position), "Warm MiniMax scores differ on " + position);
+        }
+
+        assertTrue(coldNodes <= baselineNodes * NODE_COUNT_TOLERANCE,
+                "MiniMax searched " + coldNodes + " nodes, the baseline is " + baselineNodes);
+        double relativeSpeed = ((double) coldNodes / coldNanos) / ((double) referenceNodes / referenceNanos);
+        assertTrue(relativeSpeed >= MIN_RELATIVE_NODES_PER_SECOND,
+                "MiniMax searched nodes at " + relativeSpeed + " times the speed of the reference search");
+    }
+
+    private BoardNode findBestMove(Position position) {
+        GameBoard board = position.board;
+        MiniMaxAlgorithm engine = new MiniMaxAlgorithm(board.getConfig());
+        Logger quiet = new Logger("EngineDifferentialTest", false);
+        return new AiPlayer(board.copy()).findBestMove(board, board.getEmptyPositions(), engine, quiet);
+    }
+
+    private static int[] searchAll(MiniMaxAlgorithm engine, Position position) {
+        List<BoardNode> moves = position.board.getEmptyPositions();
+        int[] scores = new int[moves.size()];
+        for (int m = 0; m < moves.size(); m++) {
+            position.board.makeMove(moves.get(m), BoardPlayer.AI);
+            scores[m] = engine.minimax(position.board, moves.get(m));
+            position.board.resetNodePlayer(moves.get(m));
+        }
+        return scores;
+    }
+
+    /**
+     * Generates reachable undecided positions with the AI to move, see {@link RandomPositions},
+     * with the reference score of each of their moves.
+     */
+    private static List<Position> positions(GameConfig config, long seed, int maxEmpty) {
+        List<Position> positions = new ArrayList<>();
+        for (GameBoard board : RandomPositions.generate(config, seed, POSITIONS, 3, maxEmpty)) {
+            positions.add(new Position(board, reference(board).scores));
+        }
+        return positions;
+    }
+
+    private static ReferenceSearch reference(GameBoard board) {
+        ReferenceSearch search = new ReferenceSearch();
+        List<BoardNode> moves = board.getEmptyPositions();
+        search.scores = new int[moves.size()];
+        for (int m = 0; m < moves.size(); m++) {
+            board.makeMove(moves.get(m), BoardPlayer.AI);
+            search.scores[m] = search.score(board, moves.get(m), false, 0);
+            board.resetNodePlayer(moves.get(m));
+        }
+        return search;
+    }
+
+    private static GameResult outcome(int score) {
+        return score > 0 ? GameResult.AI_WINS : score < 0 ? GameResult.USER_WINS : GameResult.DRAW;
+    }
+
+    /**
+     * A position with the AI to move and the reference score of each of its moves.
+     */
+    private record Position(GameBoard board, int[] scores) {
+
+        int bestScore() {
+            int best = Integer.MIN_VALUE;
+            for (int score : scores) {
+                best = Math.max(best, score);
+            }
+            return best;
+        }
+
+        int scoreOf(BoardNode node) {
+            return scores[board.getEmptyPositions().indexOf(node)];
+        }
+
+        List<BoardNode> optimalMoves() {
+            List<BoardNode> moves = board.getEmptyPositions();
+            List<BoardNode> optimal = new ArrayList<>();
+            for (int m = 0; m < moves.size(); m++) {
+                if (scores[m] == bestScore()) {
+                    optimal.add(moves.get(m));
+                }
+            }
+            return optimal;
+        }
+
+        @Override
+        public String toString() {
+            return "\n" + board;
+        }
+    }
+
+    /**
+     * Exhaustive MiniMax without pruning, the reference every engine is compared with.
+     */
+    private static class ReferenceSearch {
+        private int[] scores;
+        private long nodes;
+
+        int score(GameBoard board, BoardNode lastMove, boolean isMaximizing, int depth) {
+            nodes++;
+            switch (board.getGameResult(lastMove)) {
+                case AI_WINS -> {
+                    return MiniMaxAlgorithm.WIN_SCORE - depth;
+                }
+                case USER_WINS -> {
+                    return depth - MiniMaxAlgorithm.WIN_SCORE;
+                }
+                case DRAW -> {
+                    return 0;
+                }
+                default -> {
+                }
+            }
+
+            int best = isMaximizing ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+            for (BoardNode node : board.getEmptyPositions()) {
+                board.makeMove(node, isMaximizing ? BoardPlayer.AI : BoardPlayer.USER);
+                int score = score(board, node, !isMaximizing, depth + 1);
+                board.resetNodePlayer(node);
+                best = isMaximizing ? Math.max(best, score) : Math.min(best, score);
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EngineMetricsTest {
+
+    @Test
+    public void testGamesAreVisibleOverJmx() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(EngineMetrics.OBJECT_NAME);
+        EngineMetrics.get();
+        assertTrue(server.isRegistered(name));
+
+        long gamesBefore = (Long) server.getAttribute(name, "GamesCompleted");
+        long movesBefore = (Long) server.getAttribute(name, "MovesTotal");
+        long aiMovesBefore = (Long) server.getAttribute(name, "AiMovesTotal");
+        long nodesBefore = (Long) server.getAttribute(name, "NodesTotal");
+
+        GameConfig config = GameConfig.builder().boardSize(3).debug(false).randomOpening(false).pondering(false).build();
+        GameResult result = new GameExecutor(config,
+                board -> new SyntheticUserPlayer(board, new Random(36), List.of()),
+                GameExecutor.MoveListener.NONE, false).play().result();
+
+        assertEquals(gamesBefore + 1, (Long) server.getAttribute(name, "GamesCompleted"));
+        assertEquals(0L, (Long) server.getAttribute(name, "ActiveGames"));
+        assertTrue((Long) server.getAttribute(name, "MovesTotal") >= movesBefore + 5);
+        assertTrue((Long) server.getAttribute(name, "AiMovesTotal") >= aiMovesBefore + 2);
+        assertTrue((Long) server.getAttribute(name, "NodesTotal") > nodesBefore);
+        assertTrue((Double) server.getAttribute(name, "AiMoveLatencyP99Millis") > 0);
+        assertTrue((Long) server.getAttribute(name, "CacheCapacity") > 0);
+        double hitRate = (Double) server.getAttribute(name, "CacheHitRate");
+        assertTrue(hitRate > 0 && hitRate <= 1);
+
+        TabularData results = (TabularData) server.getAttribute(name, "GameResults");
+        CompositeData row = results.get(new Object[]{result.name()});
+        assertTrue((Long) row.get("value") >= 1);
+    }
+}
@@ -0,0 +1,73 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.valueAtPercentile(99));
+        assertEquals(0, histogram.getMean());
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(50, histogram.valueAtPercentile(50));
+        assertEquals(99, histogram.valueAtPercentile(99));
+        assertEquals(100, histogram.valueAtPercentile(100));
+        assertEquals(50.5, histogram.getMean(), 1e-9);
+    }
+
+    @Test
+    public void testPercentilesWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1 us to 10 s, one value each
+        for (long value = 1_000; value <= 10_000_000_000L; value += 1_000_000) {
+            histogram.record(value);
+        }
+        long count = histogram.getCount();
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            long rank = (long) Math.ceil(percentile / 100 * count);
+            long exact = 1_000 + (rank - 1) * 1_000_000;
+            long measured = histogram.valueAtPercentile(percentile);
+            assertTrue(measured >= exact, "p" + percentile + " " + measured + " < " + exact);
+            assertTrue(measured <= exact * 1.01, "p" + percentile + " " + measured + " > " + exact);
+        }
+        assertEquals(9_999_001_000L, histogram.getMax());
+    }
+
+    @Test
+    public void testTailIsNotHiddenByTheMedian() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 9990; i++) {
+            histogram.record(1_000_000);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(500_000_000);
+        }
+        assertTrue(histogram.valueAtPercentile(50) < 1_010_000);
+        assertTrue(histogram.valueAtPercentile(99.9) < 1_010_000);
+        assertEquals(500_000_000, histogram.valueAtPercentile(99.95));
+    }
+
+    @Test
+    public void testAddMergesCounts() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        first.record(10);
+        second.record(20);
+        second.record(Long.MAX_VALUE);
+        first.add(second);
+        assertEquals(3, first.getCount());
+        assertEquals(Long.MAX_VALUE, first.getMax());
+        assertEquals(20, first.valueAtPercentile(66));
+    }
+}
@@ -0,0 +1,46 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests a small {@link LoadGenerator} run, the configuration of its synthetic games and the validation of its parameters.
+ */
+public class LoadGeneratorTest {
+
+    @Test
+    public void testRunCompletesEveryGame() throws InterruptedException {
+        LoadReport report = LoadGenerator.builder().games(12).concurrency(4).seed(35)
+                .script(List.of(new int[]{1, 1})).build().run();
+
+        assertEquals(12, report.games());
+        assertEquals(0, report.failedGames());
+        assertEquals(12, report.results().values().stream().mapToInt(Integer::intValue).sum());
+        assertFalse(report.results().containsKey(GameResult.UNDETERMINED));
+        // The user opens in the center, so the AI moves at most four times a game.
+        long aiMoves = report.aiMoveLatency().getCount();
+        assertTrue(aiMoves >= 12 && aiMoves <= 12 * 4, "AI moves: " + aiMoves);
+        assertTrue(report.moves() > aiMoves);
+    }
+
+    @Test
+    public void testSyntheticGamesDoNotPonder() {
+        assertFalse(LoadGenerator.builder().build().getGameConfig().isPondering());
+
+        GameConfig pondering = GameConfig.builder().boardSize(4).debug(false).pondering(true).build();
+        GameConfig config = LoadGenerator.builder().gameConfig(pondering).build().getGameConfig();
+        assertFalse(config.isPondering());
+        assertEquals(4, config.getRows());
+    }
+
+    @Test
+    public void testInvalidParametersAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> LoadGenerator.builder().gameConfig(null).build());
+        assertThrows(IllegalArgumentException.class, () -> LoadGenerator.builder().games(-1).build());
+        assertThrows(IllegalArgumentException.class, () -> LoadGenerator.builder().concurrency(0).build());
+        assertThrows(IllegalArgumentException.class, () -> LoadGenerator.builder().gamesPerSecond(-1).build());
+        assertThrows(IllegalArgumentException.class,
+                () -> LoadGenerator.builder().script(List.of(new int[]{3, 0})).build());
+    }
+}
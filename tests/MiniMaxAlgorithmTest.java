@@ -6,25 +6,15 @@ import java.util.List;
 
 public class MiniMaxAlgorithmTest {
 
+    private static final GameConfig config = GameConfig.builder().boardSize(3).build();
+
     private MiniMaxAlgorithm miniMax;
     private GameBoard gameBoard;
 
-    private final static int originalSize = Settings.BOARD_SIZE;
-
     @BeforeEach
     public void setUp() {
-        miniMax = new MiniMaxAlgorithm();
-        gameBoard = new GameBoard();  // Assuming default constructor initializes an empty board
-    }
-
-    @BeforeAll
-    public static void beforeAll(){
-        Settings.BOARD_SIZE = 3;
-    }
-
-    @AfterAll
-    public static void afterAll(){
-        Settings.BOARD_SIZE = originalSize;
+        miniMax = new MiniMaxAlgorithm(config);
+        gameBoard = new GameBoard(config);  // Empty 3x3 board
     }
 
     @Test
@@ -93,6 +83,79 @@ public class MiniMaxAlgorithmTest {
         assertEquals(0, aiMove.getJ());
     }
 
+    @Test
+    public void testRootSearchMatchesFullWindowSearch() {
+        for (int size = 3; size <= 4; size++) {
+            GameConfig sized = GameConfig.builder().boardSize(size).debug(false).build();
+            long sharedNodes = 0;
+            long fullWindowNodes = 0;
+            for (GameBoard board : RandomPositions.generate(sized, 48, 30, 1, 9)) {
+                MiniMaxAlgorithm fullWindow = new MiniMaxAlgorithm(sized);
+                RootSearchResult expected = fullWindowRoot(fullWindow, board);
+                fullWindowNodes += fullWindow.getNodeCount();
+
+                MiniMaxAlgorithm root = new MiniMaxAlgorithm(sized);
+                RootSearchResult result = root.searchRoot(board, board.getEmptyPositions());
+                sharedNodes += root.getNodeCount();
+                assertEquals(expected, result, board.toString());
+
+                // Aspiration windows far below and far above the score are searched again to the same result.
+                assertEquals(expected, new MiniMaxAlgorithm(sized).searchRoot(board, board.getEmptyPositions(), -MiniMaxAlgorithm.WIN_SCORE), board.toString());
+                assertEquals(expected, new MiniMaxAlgorithm(sized).searchRoot(board, board.getEmptyPositions(), MiniMaxAlgorithm.WIN_SCORE), board.toString());
+            }
+            assertTrue(sharedNodes < fullWindowNodes, size + "x" + size + ": the shared bound searched "
+                    + sharedNodes + " nodes, the full windows " + fullWindowNodes);
+        }
+    }
+
+    @Test
+    public void testRootSearchUsesPreviousScore() {
+        // Both players draw with perfect play, so the root score stays 0 and the aspiration window holds.
+        GameConfig quiet = config.toBuilder().debug(false).build();
+        MiniMaxAlgorithm root = new MiniMaxAlgorithm(quiet);
+        GameBoard board = new GameBoard(quiet);
+        board.makeMove(1, 1, BoardPlayer.USER);
+        RootSearchResult first = root.searchRoot(board, board.getEmptyPositions());
+        assertEquals(0, first.score());
+        board.makeMove(first.move(), BoardPlayer.AI);
+        board.makeMove(0, 1, BoardPlayer.USER);
+        assertEquals(0, root.searchRoot(board, board.getEmptyPositions()).score());
+        assertEquals(2, root.getRootSearchCount());
+        assertEquals(0, root.getAspirationFailCount());
+    }
+
+    @Test
+    public void testImmediateWinEndsRootSearch() {
+        gameBoard.makeMove(0, 0, BoardPlayer.AI);
+        gameBoard.makeMove(0, 1, BoardPlayer.AI);
+        gameBoard.makeMove(1, 0, BoardPlayer.USER);
+        gameBoard.makeMove(1, 1, BoardPlayer.USER);
+        List<BoardNode> candidates = List.of(gameBoard.getNode(0, 2), gameBoard.getNode(1, 2), gameBoard.getNode(2, 2));
+
+        RootSearchResult result = miniMax.searchRoot(gameBoard, candidates);
+        assertSame(gameBoard.getNode(0, 2), result.move());
+        assertEquals(MiniMaxAlgorithm.WIN_SCORE, result.score());
+        assertEquals(1, miniMax.getNodeCount(), "The moves after the win were searched");
+    }
+
+    /**
+     * Searches every root move with a full window, the best being the first of the highest score.
+     */
+    private static RootSearchResult fullWindowRoot(MiniMaxAlgorithm engine, GameBoard board) {
+        int bestScore = Integer.MIN_VALUE;
+        BoardNode bestMove = null;
+        for (BoardNode node : board.getEmptyPositions()) {
+            board.makeMove(node, BoardPlayer.AI);
+            int score = engine.minimax(board, node);
+            board.resetNodePlayer(node);
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = node;
+            }
+        }
+        return new RootSearchResult(bestMove, bestScore);
+    }
+
     private BoardNode getBestAIMove(GameBoard gameBoard) {
         List<BoardNode> emptySpots = gameBoard.getEmptyPositions();
 
@@ -0,0 +1,146 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the W-TinyLFU cache and the move suggestion cache built on it: the capacity and the statistics,
+ * the resistance of the popular entries to a scan, the symmetric positions sharing an entry, and the
+ * games replaying cached AI moves.
+ */
+public class MoveSuggestionCacheTest {
+
+    private static final GameConfig config = GameConfig.builder().boardSize(3).debug(false)
+            .randomOpening(false).pondering(false).build();
+
+    @Test
+    public void testCapacityAndStats() {
+        TinyLfuCache<Integer, String> cache = new TinyLfuCache<>(100);
+        assertNull(cache.get(1));
+        cache.put(1, "one");
+        assertEquals("one", cache.get(1));
+        cache.put(1, "uno");
+        assertEquals("uno", cache.get(1));
+
+        Random random = new Random(45);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(random.nextInt(1_000_000), "value");
+            assertTrue(cache.size() <= cache.capacity());
+        }
+        TinyLfuCache.Stats stats = cache.stats();
+        assertEquals(2, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(cache.size(), stats.size());
+        assertTrue(stats.evictions() >= 10_000 - 100);
+        assertEquals(2 / 3.0, stats.hitRate(), 1e-9);
+    }
+
+    @Test
+    public void testScanDoesNotEvictPopularEntries() {
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(100);
+        for (int round = 0; round < 5; round++) {
+            for (int key = 0; key < 50; key++) {
+                if (cache.get(key) == null) {
+                    cache.put(key, key);
+                }
+            }
+        }
+
+        // A scan of keys seen once, a hundred times larger than the cache.
+        for (int key = 1000; key < 11_000; key++) {
+            assertNull(cache.get(key));
+            cache.put(key, key);
+        }
+
+        int resident = 0;
+        for (int key = 0; key < 50; key++) {
+            if (cache.get(key) != null) {
+                resident++;
+            }
+        }
+        assertTrue(resident >= 45, "Only " + resident + " popular entries survived the scan");
+    }
+
+    @Test
+    public void testSymmetricPositionsShareAnEntry() {
+        MoveSuggestionCache cache = new MoveSuggestionCache(64);
+        GameBoard board = new GameBoard(config);
+        board.makeMove(0, 1, BoardPlayer.USER);
+        cache.put(board, new RootSearchResult(board.getNode(0, 0), 0));
+
+        // The position rotated by a quarter turn, where (0, 0) is now (0, 2), or (2, 2) by its own mirror symmetry.
+        GameBoard rotated = new GameBoard(config);
+        rotated.makeMove(1, 2, BoardPlayer.USER);
+        RootSearchResult suggestion = cache.get(rotated);
+        assertNotNull(suggestion);
+        assertEquals(0, suggestion.score());
+        assertTrue(suggestion.move() == rotated.getNode(0, 2) || suggestion.move() == rotated.getNode(2, 2),
+                "Unexpected move " + suggestion.move());
+
+        // Another position, and the same position searched by another engine, are not cached.
+        GameBoard other = new GameBoard(config);
+        other.makeMove(1, 1, BoardPlayer.USER);
+        assertNull(cache.get(other));
+        GameBoard shallow = new GameBoard(config.toBuilder().maxSearchDepth(2).build());
+        shallow.makeMove(0, 1, BoardPlayer.USER);
+        assertNull(cache.get(shallow));
+
+        assertEquals(1, cache.stats().hits());
+        assertEquals(2, cache.stats().misses());
+    }
+
+    @Test
+    public void testGamesReplayCachedMoves() {
+        // A capacity of its own, so the shared cache is not the one of another test.
+        GameConfig cached = config.toBuilder().moveCacheEntries(4099).build();
+        List<BoardNode> firstGame = new ArrayList<>();
+        List<BoardNode> secondGame = new ArrayList<>();
+
+        GameResult first = play(cached, firstGame);
+        long hitsBefore = MoveSuggestionCache.shared(4099).stats().hits();
+        GameResult second = play(cached, secondGame);
+
+        assertEquals(first, second);
+        assertEquals(firstGame.toString(), secondGame.toString());
+        assertEquals(firstGame.size() / 2, MoveSuggestionCache.shared(4099).stats().hits() - hitsBefore);
+    }
+
+    @Test
+    public void testGuessedPortfolioMovesAreNotCached() {
+        // Capacities of their own, so the shared caches are not the ones of another test.
+        GameConfig proving = config.toBuilder().enginePortfolio(true).moveCacheEntries(4111).build();
+        GameBoard board = new GameBoard(proving);
+        board.makeMove(1, 1, BoardPlayer.USER);
+        assertNotNull(aiMove(board));
+        assertNotNull(MoveSuggestionCache.shared(4111).get(board));
+
+        // The empty 4x4 board is not solved within a millisecond, the portfolio guesses its move.
+        GameConfig guessing = GameConfig.builder().boardSize(4).debug(false).randomOpening(false).pondering(false)
+                .enginePortfolio(true).portfolioDeadlineMillis(1).moveCacheEntries(4127).build();
+        GameBoard large = new GameBoard(guessing);
+        large.makeMove(1, 1, BoardPlayer.USER);
+        assertNotNull(aiMove(large));
+        assertNull(MoveSuggestionCache.shared(4127).get(large));
+    }
+
+    /**
+     * Lets the AI choose its move on a copy of the board, which is left unchanged.
+     */
+    private static BoardNode aiMove(GameBoard board) {
+        GameBoard copy = board.copy();
+        AiPlayer player = new AiPlayer(copy);
+        try {
+            return player.doBestMove(copy.getEmptyPositions());
+        } finally {
+            player.close();
+        }
+    }
+
+    private static GameResult play(GameConfig config, List<BoardNode> moves) {
+        return new GameExecutor(config, board -> new SyntheticUserPlayer(board, new Random(46), List.of()),
+                (player, node, elapsedNanos) -> moves.add(node), false).play().result();
+    }
+}
@@ -0,0 +1,92 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the perft counts against the known totals of 3x3 tic-tac-toe, the counts of a position against the sum
+ * of the counts of its children, and the parallel counts against the sequential ones on larger boards.
+ */
+public class PerftTest {
+
+    private static final GameConfig config = GameConfig.builder().boardSize(3).debug(false).build();
+
+    @Test
+    public void testKnownTotalsOfEmptyBoard() {
+        Perft.Counts counts = Perft.count(new GameBoard(config), BoardPlayer.USER, 9);
+        assertArrayEquals(new long[]{9, 72, 504, 3024, 15120, 54720, 148176, 200448, 127872}, counts.nodesPerPly());
+        assertEquals(255_168, counts.games());
+        assertEquals(131_184, counts.userWins());
+        assertEquals(77_904, counts.aiWins());
+        assertEquals(46_080, counts.draws());
+        assertEquals(549_945, counts.nodes());
+
+        // The first player wins as often whichever side it is.
+        Perft.Counts aiFirst = Perft.count(new GameBoard(config), BoardPlayer.AI, 9);
+        assertEquals(131_184, aiFirst.aiWins());
+        assertEquals(77_904, aiFirst.userWins());
+
+        // A depth limit stops before the first win.
+        Perft.Counts shallow = Perft.count(new GameBoard(config), BoardPlayer.USER, 4);
+        assertArrayEquals(new long[]{9, 72, 504, 3024}, shallow.nodesPerPly());
+        assertEquals(0, shallow.games());
+        assertEquals(0, Perft.count(new GameBoard(config), BoardPlayer.USER, 0).nodes());
+        assertThrows(IllegalArgumentException.class, () -> Perft.count(new GameBoard(config), BoardPlayer.USER, -1));
+    }
+
+    @Test
+    public void testPositionCountsAddUpOverChildren() {
+        GameBoard board = new GameBoard(config);
+        board.makeMove(1, 1, BoardPlayer.USER);
+        board.makeMove(0, 0, BoardPlayer.AI);
+        Perft.Counts counts = Perft.count(board, BoardPlayer.USER, 7);
+        assertEquals(7, counts.nodesPerPly()[0]);
+
+        long[] children = new long[7];
+        long games = 0;
+        long userWins = 0;
+        for (BoardNode node : board.getEmptyPositions()) {
+            GameBoard child = board.copy();
+            BoardNode move = child.makeMove(node, BoardPlayer.USER);
+            children[0]++;
+            if (child.getGameResult(move) != GameResult.UNDETERMINED) {
+                continue;
+            }
+            Perft.Counts childCounts = Perft.count(child, BoardPlayer.AI, 6);
+            for (int ply = 0; ply < 6; ply++) {
+                children[ply + 1] += childCounts.nodesPerPly()[ply];
+            }
+            games += childCounts.games();
+            userWins += childCounts.userWins();
+        }
+        assertArrayEquals(children, counts.nodesPerPly());
+        assertEquals(games, counts.games());
+        assertEquals(userWins, counts.userWins());
+        // The position is left unchanged.
+        assertEquals(7, board.getEmptyCount());
+    }
+
+    @Test
+    public void testParallelCountsMatchSequentialCounts() {
+        GameConfig larger = GameConfig.builder().boardSize(4).winLength(3).debug(false).build();
+        GameConfig cube = GameConfig.builder().cube(3).debug(false).build();
+        ForkJoinPool sequential = new ForkJoinPool(1);
+        ForkJoinPool parallel = new ForkJoinPool(4);
+        try {
+            Perft.Counts one = Perft.count(new GameBoard(larger), BoardPlayer.USER, 6, sequential);
+            Perft.Counts four = Perft.count(new GameBoard(larger), BoardPlayer.USER, 6, parallel);
+            assertArrayEquals(one.nodesPerPly(), four.nodesPerPly());
+            assertEquals(one.userWins(), four.userWins());
+            assertEquals(one.aiWins(), four.aiWins());
+            assertTrue(four.userWins() > 0 && four.aiWins() > 0);
+            assertEquals(16L * 15 * 14 * 13 * 12, four.nodesPerPly()[4]);
+
+            Perft.Counts cubeCounts = Perft.count(new GameBoard(cube), BoardPlayer.USER, 4, parallel);
+            assertArrayEquals(new long[]{27, 27 * 26, 27 * 26 * 25, 27 * 26 * 25 * 24}, cubeCounts.nodesPerPly());
+        } finally {
+            sequential.shutdown();
+            parallel.shutdown();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests pondering on the user's time: a reply precomputed for the move the user plays (a ponder hit),
+ * no reply for a position that was not pondered (a ponder miss), a running search stopped on demand
+ * and its thread released on close, and scheduled pondering yielding to a saturated scheduler.
+ */
+public class PondererTest {
+
+    private static final GameConfig config = GameConfig.builder().boardSize(3).debug(false)
+            .randomOpening(false).build();
+
+    @Test
+    public void testPonderingIsOffByDefault() {
+        assertFalse(GameConfig.defaults().isPondering());
+        assertTrue(config.toBuilder().pondering(true).build().isPondering());
+    }
+
+    @Test
+    public void testPonderHit() throws InterruptedException {
+        GameBoard board = new GameBoard(config);
+        board.makeMove(1, 1, BoardPlayer.USER);
+        board.makeMove(0, 0, BoardPlayer.AI);
+        Ponderer ponderer = new Ponderer(new AiPlayer(new GameBoard(config)));
+        try {
+            ponderer.start(board);
+
+            // The user threatens the middle column, the reply blocks it.
+            GameBoard afterUser = board.copy();
+            afterUser.makeMove(0, 1, BoardPlayer.USER);
+            BoardNode reply = awaitReply(ponderer, afterUser);
+            assertSame(afterUser.getNode(2, 1), reply);
+            // The pondered board was a copy.
+            assertTrue(board.isNodeEmpty(0, 1));
+        } finally {
+            ponderer.close();
+        }
+    }
+
+    @Test
+    public void testPonderMiss() throws InterruptedException {
+        GameBoard board = new GameBoard(config);
+        board.makeMove(1, 1, BoardPlayer.USER);
+        board.makeMove(0, 0, BoardPlayer.AI);
+        Ponderer ponderer = new Ponderer(new AiPlayer(new GameBoard(config)));
+        try {
+            ponderer.start(board);
+            GameBoard afterUser = board.copy();
+            afterUser.makeMove(2, 2, BoardPlayer.USER);
+            assertNotNull(awaitReply(ponderer, afterUser));
+
+            // A position that was not pondered has no reply.
+            GameBoard other = new GameBoard(config);
+            other.makeMove(0, 1, BoardPlayer.USER);
+            assertNull(ponderer.lookup(other));
+
+            // A new session discards the replies of the previous one.
+            ponderer.start(other);
+            ponderer.stop();
+            assertNull(ponderer.lookup(afterUser));
+        } finally {
+            ponderer.close();
+        }
+    }
+
+    @Test
+    public void testStopCancelsSearchAndCloseReleasesThread() throws InterruptedException {
+        // An empty 5x5 board cannot be solved, so the search only ends when it is cancelled.
+        GameConfig large = GameConfig.builder().boardSize(5).winLength(4).debug(false).randomOpening(false).build();
+        GameBoard board = new GameBoard(large);
+        Ponderer ponderer = new Ponderer(new AiPlayer(new GameBoard(large)));
+        ponderer.start(board);
+        Thread.sleep(100);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), ponderer::stop);
+        // Stopping twice, or with no session, is harmless.
+        ponderer.stop();
+
+        ponderer.start(board);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), ponderer::close);
+        assertThrows(RejectedExecutionException.class, () -> ponderer.start(board));
+    }
+
+    @Test
+    public void testScheduledPonderingYieldsToSaturatedScheduler() throws InterruptedException {
+        GameConfig scheduled = config.toBuilder().moveScheduling(true).build();
+        GameBoard board = new GameBoard(scheduled);
+        board.makeMove(1, 1, BoardPlayer.USER);
+        board.makeMove(0, 0, BoardPlayer.AI);
+        GameBoard afterUser = board.copy();
+        afterUser.makeMove(0, 1, BoardPlayer.USER);
+
+        // Every slot of the scheduler is taken, so pondering stops before its first search.
+        AiMoveScheduler.Session session = AiMoveScheduler.get().register(AiMoveScheduler.Priority.INTERACTIVE);
+        List<AiMoveScheduler.Grant> grants = new ArrayList<>();
+        AiMoveScheduler.Grant grant;
+        while ((grant = session.tryAcquire(GameConfig.UNLIMITED_DEPTH)) != null) {
+            grants.add(grant);
+        }
+        Ponderer ponderer = new Ponderer(new AiPlayer(new GameBoard(scheduled)));
+        try {
+            ponderer.start(board);
+            Thread.sleep(200);
+            ponderer.stop();
+            assertNull(ponderer.lookup(afterUser));
+
+            // With free slots, it searches the replies again.
+            grants.forEach(AiMoveScheduler.Grant::close);
+            ponderer.start(board);
+            assertSame(afterUser.getNode(2, 1), awaitReply(ponderer, afterUser));
+        } finally {
+            grants.forEach(AiMoveScheduler.Grant::close);
+            ponderer.close();
+        }
+    }
+
+    private static BoardNode awaitReply(Ponderer ponderer, GameBoard board) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        BoardNode reply;
+        while ((reply = ponderer.lookup(board)) == null) {
+            assertTrue(System.nanoTime() < deadline, "The position was not pondered");
+            Thread.sleep(1);
+        }
+        return reply;
+    }
+}
@@ -0,0 +1,100 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the base-3 ranking of positions, the incremental key of the board, and the packed position arrays.
+ */
+public class PositionIndexTest {
+
+    @Test
+    public void testRankUnrankRoundTrip() {
+        GameConfig config = GameConfig.builder().rows(3).columns(3).build();
+        PositionIndex index = PositionIndex.of(config);
+        assertEquals(19_683, index.size());
+
+        GameBoard board = new GameBoard(config);
+        Set<String> positions = new HashSet<>();
+        for (long rank = 0; rank < index.size(); rank++) {
+            index.unrank(rank, board);
+            assertEquals(rank, index.rank(board));
+            assertEquals(rank, board.toKey());
+            positions.add(board.toHash());
+        }
+        // Every rank is a distinct position.
+        assertEquals(index.size(), positions.size());
+
+        assertThrows(IllegalArgumentException.class, () -> index.unrank(index.size(), board));
+        assertThrows(IllegalArgumentException.class, () -> index.rank(new GameBoard(GameConfig.builder().boardSize(4).build())));
+    }
+
+    @Test
+    public void testIncrementalKeyFollowsMoves() {
+        for (GameConfig config : List.of(GameConfig.builder().boardSize(4).build(),
+                GameConfig.builder().rows(5).columns(7).winLength(4).build())) {
+            PositionIndex index = PositionIndex.of(config);
+            Random random = new Random(46);
+            for (int game = 0; game < 200; game++) {
+                GameBoard board = new GameBoard(config);
+                List<BoardNode> played = new ArrayList<>();
+                for (int ply = 0; ply < config.getRows() * config.getColumns(); ply++) {
+                    // Mostly moves, sometimes an undo, as in a search.
+                    if (!played.isEmpty() && random.nextInt(4) == 0) {
+                        board.resetNodePlayer(played.remove(played.size() - 1));
+                    } else {
+                        List<BoardNode> empty = board.getEmptyPositions();
+                        BoardPlayer player = random.nextBoolean() ? BoardPlayer.AI : BoardPlayer.USER;
+                        played.add(board.makeMove(empty.get(random.nextInt(empty.size())), player));
+                    }
+                    assertEquals(index.rank(board), board.toKey());
+                }
+                assertEquals(board.toKey(), board.copy().toKey());
+            }
+        }
+    }
+
+    @Test
+    public void testMovesOfAnotherBoardChangeThisBoard() {
+        GameConfig config = GameConfig.builder().boardSize(3).build();
+        GameBoard board = new GameBoard(config);
+        GameBoard copy = board.copy();
+
+        BoardNode node = copy.makeMove(board.getNode(1, 1), BoardPlayer.AI);
+        assertSame(copy.getNode(1, 1), node);
+        assertTrue(board.isNodeEmpty(1, 1));
+        assertEquals(0, board.toKey());
+        assertEquals(PositionIndex.of(config).rank(copy), copy.toKey());
+    }
+
+    @Test
+    public void testPackedArrays() {
+        for (int bits : new int[]{1, 2, 4, 8, 16, 32}) {
+            PackedPositionArray array = new PackedPositionArray(1000, bits);
+            long max = (1L << bits) - 1;
+            for (long i = 0; i < array.size(); i++) {
+                array.set(i, (i * 7919) & max);
+            }
+            for (long i = 0; i < array.size(); i++) {
+                assertEquals((i * 7919) & max, array.get(i), bits + " bits at " + i);
+            }
+            assertEquals((1000L * bits + 63) / 64 * 8, array.sizeInBytes());
+
+            array.clear();
+            assertEquals(0, array.get(999));
+            assertThrows(IllegalArgumentException.class, () -> array.set(0, max + 1));
+            assertThrows(IndexOutOfBoundsException.class, () -> array.get(1000));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new PackedPositionArray(10, 3));
+
+        // One bit per 4x4 position: 3^16 bits, about 5 MB.
+        PackedPositionArray positions = PackedPositionArray.forPositions(new PositionIndex(4, 4), 1);
+        assertEquals(43_046_721, positions.size());
+        assertEquals(5_380_848, positions.sizeInBytes());
+    }
+}
@@ -0,0 +1,103 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProofNumberSearchTest {
+
+    private static final GameConfig config = GameConfig.builder().boardSize(3).debug(false).build();
+
+    private ProofNumberSearch search;
+    private GameBoard gameBoard;
+
+    @BeforeEach
+    public void setUp() {
+        search = new ProofNumberSearch();
+        gameBoard = new GameBoard(config);
+    }
+
+    @Test
+    public void testEmptyBoardIsDraw() {
+        ProofResult result = search.solve(gameBoard, null, BoardPlayer.USER);
+
+        assertEquals(GameResult.DRAW, result.result());
+        assertEquals(0, result.disproofNumber(), "A draw disproves the win of both sides");
+    }
+
+    @Test
+    public void testImmediateWinIsProven() {
+        gameBoard.makeMove(0, 0, BoardPlayer.AI);
+        gameBoard.makeMove(1, 0, BoardPlayer.AI);
+        gameBoard.makeMove(0, 1, BoardPlayer.USER);
+        BoardNode lastMove = gameBoard.makeMove(1, 1, BoardPlayer.USER);
+
+        ProofResult result = search.solve(gameBoard, lastMove, BoardPlayer.AI);
+
+        assertEquals(GameResult.AI_WINS, result.result());
+        assertEquals(0, result.proofNumber());
+    }
+
+    @Test
+    public void testUnblockedDoubleThreatIsLost() {
+        // The user threatens both the top row and the left column, the AI can only block one
+        gameBoard.makeMove(0, 0, BoardPlayer.USER);
+        gameBoard.makeMove(1, 1, BoardPlayer.AI);
+        gameBoard.makeMove(0, 1, BoardPlayer.USER);
+        gameBoard.makeMove(2, 2, BoardPlayer.AI);
+        BoardNode lastMove = gameBoard.makeMove(1, 0, BoardPlayer.USER);
+
+        ProofResult result = search.solve(gameBoard, lastMove, BoardPlayer.AI);
+
+        assertEquals(GameResult.USER_WINS, result.result());
+        assertEquals(0, result.proofNumber());
+    }
+
+    @Test
+    public void testAgreesWithMiniMaxOnRandomPositions() {
+        Random random = new Random(30);
+        for (int game = 0; game < 40; game++) {
+            GameBoard board = new GameBoard(config);
+            BoardNode lastMove = null;
+            BoardPlayer toMove = BoardPlayer.USER;
+            int moves = 1 + random.nextInt(5);
+            for (int m = 0; m < moves && (lastMove == null || board.getGameResult(lastMove) == GameResult.UNDETERMINED); m++) {
+                List<BoardNode> empty = board.getEmptyPositions();
+                lastMove = board.makeMove(empty.get(random.nextInt(empty.size())), toMove);
+                toMove = toMove == BoardPlayer.AI ? BoardPlayer.USER : BoardPlayer.AI;
+            }
+            if (board.getGameResult(lastMove) != GameResult.UNDETERMINED || toMove != BoardPlayer.USER) {
+                continue;
+            }
+
+            int score = new MiniMaxAlgorithm(config).minimax(board, lastMove);
+            GameResult expected = score > 0 ? GameResult.AI_WINS : score < 0 ? GameResult.USER_WINS : GameResult.DRAW;
+            assertEquals(expected, search.solve(board, lastMove, BoardPlayer.USER).result(), board.toString());
+        }
+    }
+
+    @Test
+    public void testSmallTableStaysWithinTheNodeBudget() {
+        // Far more positions than entries, so the entries of the current path must survive the collisions.
+        ProofNumberSearch small = new ProofNumberSearch(1 << 6, 1 << 20);
+        ProofResult result = small.solve(gameBoard, null, BoardPlayer.USER);
+
+        assertTrue(result.result() == GameResult.DRAW || result.result() == GameResult.UNDETERMINED, result.toString());
+        assertTrue(result.nodes() <= 2 * (1 << 20), result.toString());
+
+        gameBoard.makeMove(0, 0, BoardPlayer.AI);
+        gameBoard.makeMove(1, 0, BoardPlayer.AI);
+        gameBoard.makeMove(0, 1, BoardPlayer.USER);
+        BoardNode lastMove = gameBoard.makeMove(1, 1, BoardPlayer.USER);
+        assertEquals(GameResult.AI_WINS, small.solve(gameBoard, lastMove, BoardPlayer.AI).result());
+    }
+
+    @Test
+    public void testNodeBudgetLeavesResultUndetermined() {
+        ProofNumberSearch limited = new ProofNumberSearch(1 << 10, 5);
+
+        assertEquals(GameResult.UNDETERMINED, limited.solve(gameBoard, null, BoardPlayer.USER).result());
+    }
+}
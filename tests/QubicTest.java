@@ -0,0 +1,134 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the 4x4x4 Qubic board: its 76 lines, the win detection on the occupancy masks against a whole-board
+ * check, the AI winning and blocking through the layers, and complete games.
+ */
+public class QubicTest {
+
+    private static final GameConfig config = GameConfig.builder().cube(4).debug(false).randomOpening(false)
+            .pondering(false).maxSearchDepth(2).offHeapCacheMinCells(65).build();
+
+    @Test
+    public void testCubeLines() {
+        CubeLines qubic = CubeLines.of(4);
+        assertEquals(76, qubic.lineCount());
+        assertEquals(49, CubeLines.of(3).lineCount());
+
+        // A corner, like a cell of the inner cube, is on a row, a column, a pillar, three plane diagonals and a
+        // space diagonal. A cell on an edge between two corners is on a single plane diagonal.
+        assertEquals(7, countThrough(qubic, 1L));
+        assertEquals(7, countThrough(qubic, 1L << cell(1, 1, 1)));
+        assertEquals(4, countThrough(qubic, 1L << cell(0, 0, 1)));
+        for (long mask : qubic.masks()) {
+            assertEquals(4, Long.bitCount(mask));
+        }
+        assertEquals(76, new BatchWinEvaluator(config).getLineCount());
+
+        assertEquals(4, config.getLayers());
+        assertEquals(16, config.getRows());
+        assertEquals(4, config.getWinLength());
+        assertThrows(IllegalArgumentException.class, () -> GameConfig.builder().cube(5).build());
+        assertThrows(IllegalArgumentException.class, () -> GameConfig.builder().boardSize(4).layers(4).build());
+        assertThrows(IllegalArgumentException.class, () -> config.toBuilder().winLength(3).build());
+    }
+
+    @Test
+    public void testWinsThroughTheLayers() {
+        // A space diagonal, a pillar and a diagonal of a vertical plane.
+        assertWins(new int[][]{{0, 0, 0}, {1, 1, 1}, {2, 2, 2}, {3, 3, 3}});
+        assertWins(new int[][]{{0, 2, 1}, {1, 2, 1}, {2, 2, 1}, {3, 2, 1}});
+        assertWins(new int[][]{{3, 0, 2}, {2, 1, 2}, {1, 2, 2}, {0, 3, 2}});
+
+        // Four marks on a row of the grid spanning two layers are not a line.
+        GameBoard board = new GameBoard(config);
+        int[] cells = {cell(0, 3, 2), cell(0, 3, 3), cell(1, 0, 0), cell(1, 0, 1)};
+        for (int c : cells) {
+            assertEquals(GameResult.UNDETERMINED, board.getGameResult(board.makeMove(c / 4, c % 4, BoardPlayer.USER)));
+        }
+    }
+
+    @Test
+    public void testMaskWinsMatchWholeBoardCheck() {
+        BatchWinEvaluator evaluator = new BatchWinEvaluator(config);
+        GameResult[] expected = new GameResult[1];
+        Random random = new Random(47);
+        for (int game = 0; game < 300; game++) {
+            GameBoard board = new GameBoard(config);
+            BoardPlayer player = BoardPlayer.USER;
+            GameResult result = GameResult.UNDETERMINED;
+            while (result == GameResult.UNDETERMINED) {
+                List<BoardNode> emptySpots = board.getEmptyPositions();
+                BoardNode node = board.makeMove(emptySpots.get(random.nextInt(emptySpots.size())), player);
+                result = board.getGameResult(node);
+                assertEquals(evaluator.pack(board, BoardPlayer.AI), board.getMarks(BoardPlayer.AI));
+                assertEquals(evaluator.pack(board, BoardPlayer.USER), board.getMarks(BoardPlayer.USER));
+                evaluator.evaluate(new long[]{board.getMarks(BoardPlayer.AI)}, new long[]{board.getMarks(BoardPlayer.USER)}, 1, expected);
+                assertEquals(expected[0], result, board.toString());
+                player = player == BoardPlayer.USER ? BoardPlayer.AI : BoardPlayer.USER;
+            }
+        }
+    }
+
+    @Test
+    public void testAiWinsAndBlocksThroughTheLayers() {
+        // The AI completes its space diagonal rather than block the pillar of the user.
+        GameBoard board = new GameBoard(config);
+        play(board, BoardPlayer.AI, cell(0, 0, 0), cell(1, 1, 1), cell(2, 2, 2));
+        play(board, BoardPlayer.USER, cell(0, 3, 0), cell(1, 3, 0), cell(2, 3, 0));
+        BoardNode move = new AiPlayer(board).doBestMove(board.getEmptyPositions());
+        assertEquals(cell(3, 3, 3), move.getI() * 4 + move.getJ());
+        assertEquals(GameResult.AI_WINS, board.getGameResult(move));
+
+        // Without a win of its own, the AI blocks the pillar.
+        board = new GameBoard(config);
+        play(board, BoardPlayer.AI, cell(0, 0, 0), cell(1, 1, 2));
+        play(board, BoardPlayer.USER, cell(0, 3, 0), cell(1, 3, 0), cell(2, 3, 0));
+        move = new AiPlayer(board).doBestMove(board.getEmptyPositions());
+        assertEquals(cell(3, 3, 0), move.getI() * 4 + move.getJ());
+    }
+
+    @Test
+    public void testGamesComplete() {
+        for (long seed = 0; seed < 3; seed++) {
+            long gameSeed = seed;
+            TicTacToeResult result = new GameExecutor(config, board -> new SyntheticUserPlayer(board, new Random(gameSeed), List.of()),
+                    GameExecutor.MoveListener.NONE, false).play();
+            assertNotEquals(GameResult.UNDETERMINED, result.result());
+        }
+    }
+
+    private static void assertWins(int[][] line) {
+        GameBoard board = new GameBoard(config);
+        for (int i = 0; i < line.length; i++) {
+            int c = cell(line[i][0], line[i][1], line[i][2]);
+            BoardNode node = board.makeMove(c / 4, c % 4, BoardPlayer.USER);
+            assertEquals(i == line.length - 1 ? GameResult.USER_WINS : GameResult.UNDETERMINED, board.getGameResult(node));
+        }
+    }
+
+    private static void play(GameBoard board, BoardPlayer player, int... cells) {
+        for (int c : cells) {
+            board.makeMove(c / 4, c % 4, player);
+        }
+    }
+
+    private static int cell(int layer, int row, int column) {
+        return (layer * 4 + row) * 4 + column;
+    }
+
+    private static int countThrough(CubeLines lines, long cell) {
+        int count = 0;
+        for (long mask : lines.masks()) {
+            if ((mask & cell) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
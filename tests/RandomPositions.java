@@ -0,0 +1,46 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates seeded random positions for the tests comparing or measuring searches.
+ */
+final class RandomPositions {
+
+    private RandomPositions() {
+    }
+
+    /**
+     * Plays seeded random moves from the empty board, the user moving first, until the AI is to move with at most
+     * a random number of empty cells between the given bounds, skipping finished games.
+     *
+     * @param config The configuration of the boards.
+     * @param seed The seed of the moves.
+     * @param count The number of positions.
+     * @param minEmpty The smallest bound of the empty cells.
+     * @param maxEmpty The largest bound of the empty cells, lowered to the cells of the board after the first move.
+     * @return The undecided positions, with the AI to move.
+     */
+    static List<GameBoard> generate(GameConfig config, long seed, int count, int minEmpty, int maxEmpty) {
+        Random random = new Random(seed);
+        List<GameBoard> positions = new ArrayList<>();
+        while (positions.size() < count) {
+            GameBoard board = new GameBoard(config);
+            BoardPlayer player = BoardPlayer.USER;
+            boolean finished = false;
+            List<BoardNode> emptySpots = board.getEmptyPositions();
+            int largest = Math.min(maxEmpty, emptySpots.size() - 1);
+            int stopAt = largest > minEmpty ? minEmpty + random.nextInt(largest - minEmpty + 1) : largest;
+            while (!finished && (emptySpots.size() > stopAt || player != BoardPlayer.AI)) {
+                BoardNode node = board.makeMove(emptySpots.get(random.nextInt(emptySpots.size())), player);
+                finished = board.getGameResult(node) != GameResult.UNDETERMINED;
+                player = player == BoardPlayer.USER ? BoardPlayer.AI : BoardPlayer.USER;
+                emptySpots = board.getEmptyPositions();
+            }
+            if (!finished) {
+                positions.add(board);
+            }
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,221 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the persistence of the solved positions: a snapshot loaded back holds the same entries, and corrupt,
+ * truncated, stale and foreign files (another board, the cube board of the same grid, other evaluation weights)
+ * are rejected. Configurations naming the same cache file do not share or overwrite each other's table.
+ * A snapshot taken while searches write to the table never pairs a position with another position's data.
+ */
+public class SearchCacheStoreTest {
+
+    // Heap tables, so the tests of large boards do not reserve direct memory.
+    private static final GameConfig config = GameConfig.builder().boardSize(3).debug(false)
+            .transpositionTableSize(1 << 10).offHeapCacheMinCells(Integer.MAX_VALUE).build();
+
+    @Test
+    public void testSnapshotRoundTrip(@TempDir Path directory) throws IOException {
+        TranspositionTable table = filledTable(config);
+        Path file = directory.resolve("cache/search.bin");
+        SearchCacheStore.save(table, config, file);
+
+        TranspositionTable loaded = SearchCacheStore.load(config, file);
+        assertNotNull(loaded);
+        assertEquals(table.occupancy(), loaded.occupancy());
+        for (long key = 1; key <= 100; key++) {
+            assertEquals(table.probe(key), loaded.probe(key));
+        }
+        assertFalse(Files.exists(directory.resolve("cache/search.bin.tmp")));
+
+        // An empty table is a valid snapshot too.
+        SearchCacheStore.save(TranspositionTable.create(config), config, file);
+        assertEquals(0, SearchCacheStore.load(config, file).occupancy());
+        assertNull(SearchCacheStore.load(config, directory.resolve("missing.bin")));
+    }
+
+    @Test
+    public void testSnapshotDuringWritesKeepsEntriesConsistent(@TempDir Path directory) throws Exception {
+        // Many more keys than slots, so the writers keep overwriting the slots the snapshot reads.
+        TranspositionTable table = TranspositionTable.create(config);
+        int keys = 1 << 14;
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread[] writers = new Thread[3];
+        for (int w = 0; w < writers.length; w++) {
+            int first = w * keys / writers.length;
+            writers[w] = new Thread(() -> {
+                for (int i = first; running.get(); i = (i + 1) % keys) {
+                    long key = spread(i);
+                    table.store(key, scoreOf(key), TranspositionTable.EXACT, i % 9, TranspositionTable.FULL_DRAFT);
+                }
+            });
+            writers[w].start();
+        }
+        try {
+            Path file = directory.resolve("search.bin");
+            for (int snapshot = 0; snapshot < 200; snapshot++) {
+                SearchCacheStore.save(table, config, file);
+                TranspositionTable loaded = SearchCacheStore.load(config, file);
+                assertNotNull(loaded);
+                for (int i = 0; i < keys; i++) {
+                    long key = spread(i);
+                    long entry = loaded.probe(key);
+                    if (entry != TranspositionTable.MISS) {
+                        assertEquals(scoreOf(key), TranspositionTable.score(entry), "Data of key " + key);
+                        assertEquals(i % 9, TranspositionTable.bestCell(entry), "Data of key " + key);
+                    }
+                }
+            }
+        } finally {
+            running.set(false);
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        }
+    }
+
+    @Test
+    public void testSnapshotOfAnEntryOverwrittenWhileReadIsNotPairedWithItsOldData(@TempDir Path directory)
+            throws IOException {
+        // Every slot is overwritten by another position right after its data is read, as a search would.
+        TranspositionTable table = new OverwrittenWhileReadTable(config.getTranspositionTableSize());
+        for (int i = 0; i < 100; i++) {
+            long key = spread(i);
+            table.store(key, scoreOf(key), TranspositionTable.EXACT, i % 9, TranspositionTable.FULL_DRAFT);
+        }
+        Path file = directory.resolve("search.bin");
+        SearchCacheStore.save(table, config, file);
+
+        TranspositionTable loaded = SearchCacheStore.load(config, file);
+        assertNotNull(loaded);
+        for (int i = 0; i < 200; i++) {
+            long key = spread(i);
+            long entry = loaded.probe(key);
+            assertEquals(TranspositionTable.MISS, entry, "Key " + key + " was paired with the data of another key");
+        }
+    }
+
+    @Test
+    public void testCorruptFilesAreRejected(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("search.bin");
+        SearchCacheStore.save(filledTable(config), config, file);
+        byte[] valid = Files.readAllBytes(file);
+
+        // A flipped bit in the entries fails the checksum.
+        byte[] flipped = valid.clone();
+        flipped[flipped.length - 1] ^= 1;
+        Files.write(file, flipped);
+        assertNull(SearchCacheStore.load(config, file));
+
+        // A truncated file does not hold the entries of its header.
+        Files.write(file, Arrays.copyOf(valid, valid.length - 8));
+        assertNull(SearchCacheStore.load(config, file));
+        Files.write(file, Arrays.copyOf(valid, 10));
+        assertNull(SearchCacheStore.load(config, file));
+
+        Files.writeString(file, "not a search cache, but long enough to hold a header of the format");
+        assertNull(SearchCacheStore.load(config, file));
+    }
+
+    @Test
+    public void testStaleVersionIsRejected(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("search.bin");
+        SearchCacheStore.save(filledTable(config), config, file);
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(Integer.BYTES);
+            raw.writeInt(2);
+        }
+        assertNull(SearchCacheStore.load(config, file));
+    }
+
+    @Test
+    public void testForeignFilesAreRejected(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("search.bin");
+        SearchCacheStore.save(filledTable(config), config, file);
+        assertNull(SearchCacheStore.load(config.toBuilder().boardSize(4).build(), file));
+        assertNull(SearchCacheStore.load(config.toBuilder().winLength(2).build(), file));
+
+        // The cube is stored as a flat grid of the same rows, columns and win length.
+        GameConfig flat = config.toBuilder().rows(16).columns(4).winLength(4).build();
+        GameConfig cube = config.toBuilder().cube(4).build();
+        assertEquals(flat.getRows(), cube.getRows());
+        SearchCacheStore.save(filledTable(flat), flat, file);
+        assertNotNull(SearchCacheStore.load(flat, file));
+        assertNull(SearchCacheStore.load(cube, file));
+
+        // Scores at the depth limit depend on the evaluation weights.
+        GameConfig tuned = withWeights(config, directory.resolve("tuned.properties"), new double[]{1, 2, 3, 4});
+        GameConfig retuned = withWeights(config, directory.resolve("retuned.properties"), new double[]{1, 2, 3, 5});
+        SearchCacheStore.save(filledTable(tuned), tuned, file);
+        assertNotNull(SearchCacheStore.load(tuned, file));
+        assertNull(SearchCacheStore.load(retuned, file));
+        assertNull(SearchCacheStore.load(config, file));
+    }
+
+    @Test
+    public void testConfigurationsSharingAFileKeepTheirOwnTables(@TempDir Path directory) {
+        Path file = directory.resolve("shared.bin");
+        GameConfig first = config.toBuilder().searchCacheFile(file).searchCacheSnapshotSeconds(3600).build();
+        GameConfig other = first.toBuilder().boardSize(4).build();
+
+        TranspositionTable shared = SearchCacheStore.tableFor(first);
+        assertSame(shared, SearchCacheStore.tableFor(first));
+        TranspositionTable own = SearchCacheStore.tableFor(other);
+        assertNotSame(shared, own);
+        assertNotSame(own, SearchCacheStore.tableFor(other));
+    }
+
+    private static TranspositionTable filledTable(GameConfig config) {
+        TranspositionTable table = TranspositionTable.create(config);
+        for (long key = 1; key <= 100; key++) {
+            table.store(key, (int) key - 50, TranspositionTable.EXACT, (int) key % 9, TranspositionTable.FULL_DRAFT);
+        }
+        return table;
+    }
+
+    /**
+     * Heap table overwriting each occupied slot with the entry of another position right after its data is read.
+     */
+    private static final class OverwrittenWhileReadTable extends HeapTranspositionTable {
+
+        // Index of the next overwriting position, after the positions stored by the test.
+        private int next = 100;
+
+        OverwrittenWhileReadTable(int size) {
+            super(size);
+        }
+
+        @Override
+        protected long readDataSlot(long slot) {
+            long data = super.readDataSlot(slot);
+            if (data != MISS) {
+                long key = spread(next++);
+                long entry = (scoreOf(key) & 0xFFFFFFFFL) | ((long) EXACT << 32) | ((long) FULL_DRAFT << 44);
+                writeSlots(slot, key ^ entry, entry);
+            }
+            return data;
+        }
+    }
+
+    // Spreads the keys over all their bits, so a torn entry does not decode to another key of the test.
+    private static long spread(int i) {
+        return (i + 1) * 0x9E3779B97F4A7C15L;
+    }
+
+    private static int scoreOf(long key) {
+        return (int) (key >>> 48);
+    }
+
+    private static GameConfig withWeights(GameConfig config, Path file, double[] weights) throws IOException {
+        new HeuristicEvaluator(config, weights).save(file);
+        return config.toBuilder().evaluationFile(file).build();
+    }
+}
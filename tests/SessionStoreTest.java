@@ -0,0 +1,202 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the durable game sessions: recovery after a clean shutdown and after a crash, compaction of the
+ * event log, and the resumption of an interrupted game by the GameExecutor.
+ */
+public class SessionStoreTest {
+
+    private static final GameConfig config = GameConfig.builder().boardSize(4).debug(false).pondering(false).build();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRecoversSessionsInProgress() throws IOException {
+        SessionStore store = new SessionStore(directory, SessionStore.DEFAULT_SEGMENT_BYTES);
+        List<GameSession> expected = new ArrayList<>();
+        Random random = new Random(47);
+        long lastId = -1;
+        for (int game = 0; game < 20; game++) {
+            lastId = store.startSession(config);
+            int[] moves = playRandomly(store, lastId, random);
+            if (game % 3 == 0) {
+                store.finishSession(lastId, GameResult.DRAW);
+            } else {
+                expected.add(new GameSession(lastId, 4, 4, 4, moves));
+            }
+        }
+        store.close();
+        assertThrows(IllegalStateException.class, () -> store.startSession(config));
+
+        SessionStore reopened = new SessionStore(directory, SessionStore.DEFAULT_SEGMENT_BYTES);
+        try {
+            assertEquals(expected, reopened.recoveredSessions());
+            assertTrue(reopened.startSession(config) > lastId);
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void testRecoversAfterCrash() throws IOException {
+        SessionStore store = new SessionStore(directory.resolve("live"), SessionStore.DEFAULT_SEGMENT_BYTES);
+        try {
+            long id = store.startSession(config);
+            int[] moves = playRandomly(store, id, new Random(48));
+            store.sync().join();
+
+            // The files as a crash would leave them: no final compaction, and a record torn in the middle.
+            Path crashed = copy(directory.resolve("live"), directory.resolve("crashed"));
+            try (DirectoryStream<Path> segments = Files.newDirectoryStream(crashed, "events-*.log")) {
+                for (Path segment : segments) {
+                    Files.write(segment, new byte[]{0, 0, 0, 2, 0, 0, 0}, StandardOpenOption.APPEND);
+                }
+            }
+
+            SessionStore recovered = new SessionStore(crashed, SessionStore.DEFAULT_SEGMENT_BYTES);
+            try {
+                assertEquals(List.of(new GameSession(id, 4, 4, 4, moves)), recovered.recoveredSessions());
+            } finally {
+                recovered.close();
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testCompactsTheLog() throws IOException {
+        // Ten records per segment, so the log is rotated and compacted many times.
+        SessionStore store = new SessionStore(directory, 320);
+        List<GameSession> expected = new ArrayList<>();
+        Random random = new Random(49);
+        for (int game = 0; game < 100; game++) {
+            long id = store.startSession(config);
+            int[] moves = playRandomly(store, id, random);
+            if (random.nextBoolean()) {
+                store.finishSession(id, GameResult.AI_WINS);
+            } else {
+                expected.add(new GameSession(id, 4, 4, 4, moves));
+            }
+            store.sync().join();
+        }
+        store.close();
+
+        assertEquals(1, count("snapshot-*.bin"));
+        assertTrue(count("events-*.log") <= 2, "Old segments were not deleted");
+
+        SessionStore reopened = new SessionStore(directory, 320);
+        try {
+            assertEquals(expected, reopened.recoveredSessions());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void testGameExecutorResumesInterruptedGame() throws IOException {
+        GameConfig persisted = config.toBuilder().randomOpening(false).sessionDirectory(directory.resolve("before")).build();
+        GameExecutor interrupted = new GameExecutor(persisted, board -> new InterruptedUserPlayer(board, 2),
+                GameExecutor.MoveListener.NONE, false);
+        assertThrows(IllegalStateException.class, interrupted::play);
+        SessionStore.forDirectory(directory.resolve("before")).sync().join();
+
+        // Restart: a new process recovers the sessions from a copy of the files.
+        Path after = copy(directory.resolve("before"), directory.resolve("after"));
+        List<GameSession> sessions = SessionStore.forDirectory(after).recoveredSessions();
+        assertEquals(1, sessions.size());
+        GameSession session = sessions.get(0);
+        assertEquals(4, session.moves().length);
+        assertEquals(BoardPlayer.USER, session.nextPlayer());
+
+        GameConfig resumed = persisted.toBuilder().sessionDirectory(after).build();
+        TicTacToeResult result = new GameExecutor(resumed, session, board -> new SyntheticUserPlayer(board, new Random(50), List.of()),
+                GameExecutor.MoveListener.NONE, false).play();
+        assertNotEquals(GameResult.UNDETERMINED, result.result());
+
+        // The finished game is not recovered anymore.
+        SessionStore.forDirectory(after).sync().join();
+        Path finished = copy(after, directory.resolve("finished"));
+        assertEquals(List.of(), SessionStore.forDirectory(finished).recoveredSessions());
+
+        // Compact before the temporary directory is deleted, rather than in the shutdown hooks.
+        for (Path store : List.of(directory.resolve("before"), after, finished)) {
+            SessionStore.forDirectory(store).close();
+        }
+    }
+
+    /**
+     * Logs the moves of a random game, stopped before it is decided.
+     */
+    private static int[] playRandomly(SessionStore store, long id, Random random) {
+        GameBoard board = new GameBoard(config);
+        List<Integer> cells = new ArrayList<>();
+        BoardPlayer player = BoardPlayer.USER;
+        int plies = random.nextInt(10);
+        for (int ply = 0; ply < plies; ply++) {
+            List<BoardNode> empty = board.getEmptyPositions();
+            BoardNode node = board.makeMove(empty.get(random.nextInt(empty.size())), player);
+            if (board.getGameResult(node) != GameResult.UNDETERMINED) {
+                board.resetNodePlayer(node);
+                break;
+            }
+            store.recordMove(id, ply, node, board.getColumns());
+            cells.add(node.getI() * board.getColumns() + node.getJ());
+            player = player == BoardPlayer.USER ? BoardPlayer.AI : BoardPlayer.USER;
+        }
+        return cells.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private int count(String glob) throws IOException {
+        int count = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, glob)) {
+            for (Path ignored : files) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Path copy(Path from, Path to) throws IOException {
+        Files.createDirectories(to);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(from)) {
+            for (Path file : files) {
+                Files.copy(file, to.resolve(file.getFileName()));
+            }
+        }
+        return to;
+    }
+
+    /**
+     * A user who plays a few random moves, then fails, like a game interrupted by a restart.
+     */
+    private static class InterruptedUserPlayer extends SyntheticUserPlayer {
+        private int movesLeft;
+
+        InterruptedUserPlayer(GameBoard gameBoard, int moves) {
+            super(gameBoard, new Random(51), List.of());
+            this.movesLeft = moves;
+        }
+
+        @Override
+        public BoardNode doMove() {
+            if (movesLeft-- == 0) {
+                throw new IllegalStateException("Interrupted");
+            }
+            return super.doMove();
+        }
+    }
+}
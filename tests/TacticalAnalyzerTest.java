@@ -0,0 +1,123 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests each decision of the tactical layer on a 7x7 board won with 4 in a row, the AI to move.
+ * The board diagrams show the AI as O and the user as X.
+ */
+public class TacticalAnalyzerTest {
+
+    private static final GameConfig config = GameConfig.builder().rows(7).columns(7).winLength(4).debug(false).build();
+
+    private GameBoard gameBoard;
+
+    @BeforeEach
+    public void setUp() {
+        gameBoard = new GameBoard(config);
+    }
+
+    @Test
+    public void testImmediateWinIsPlayedBeforeABlock() {
+        // Row 3: X O O O _ _ _, row 5: O X X X _ _ _
+        place(BoardPlayer.USER, 3, 0);
+        place(BoardPlayer.AI, 3, 1, 3, 2, 3, 3);
+        place(BoardPlayer.AI, 5, 0);
+        place(BoardPlayer.USER, 5, 1, 5, 2, 5, 3);
+
+        TacticalDecision decision = analyze();
+
+        assertTrue(decision.isDecided());
+        assertSame(node(3, 4), decision.move());
+        assertEquals(List.of(node(3, 4)), decision.candidates());
+        assertEquals("immediate win", decision.reason());
+    }
+
+    @Test
+    public void testSingleThreatIsBlocked() {
+        // Row 3: O X X X _ _ _
+        place(BoardPlayer.AI, 3, 0);
+        place(BoardPlayer.USER, 3, 1, 3, 2, 3, 3);
+
+        TacticalDecision decision = analyze();
+
+        assertSame(node(3, 4), decision.move());
+        assertEquals(List.of(node(3, 4)), decision.candidates());
+        assertEquals("forced block", decision.reason());
+    }
+
+    @Test
+    public void testUnstoppableThreatsLeaveOnlyTheBlocks() {
+        // Row 3: _ X X X _ _ _, open on both ends
+        place(BoardPlayer.AI, 0, 0);
+        place(BoardPlayer.USER, 3, 1, 3, 2, 3, 3);
+
+        TacticalDecision decision = analyze();
+
+        assertFalse(decision.isDecided());
+        assertEquals(Set.of(node(3, 0), node(3, 4)), new HashSet<>(decision.candidates()));
+        assertEquals("unstoppable threats", decision.reason());
+    }
+
+    @Test
+    public void testForkIsPlayed() {
+        // Row 3: _ _ O O _ _ _, a third mark next to the pair threatens both ends of the row
+        place(BoardPlayer.AI, 3, 2, 3, 3);
+        place(BoardPlayer.USER, 0, 0);
+
+        TacticalDecision decision = analyze();
+
+        assertTrue(decision.isDecided());
+        assertTrue(Set.of(node(3, 1), node(3, 4)).contains(decision.move()), "Fork " + decision.move());
+        assertEquals("fork", decision.reason());
+    }
+
+    @Test
+    public void testOpponentForkNarrowsTheCandidates() {
+        // Row 3: _ _ X X _ _ _, row 6: O O _ _ _ _ _
+        // The user forks on (3,1) or (3,4). The AI defuses it on a fork cell, on a cell of the lines the fork
+        // threatens, or with a threat of its own on (6,2) or (6,3).
+        place(BoardPlayer.USER, 3, 2, 3, 3);
+        place(BoardPlayer.AI, 6, 0, 6, 1);
+
+        TacticalDecision decision = analyze();
+
+        assertFalse(decision.isDecided());
+        assertEquals(Set.of(node(3, 0), node(3, 1), node(3, 4), node(3, 5), node(6, 2), node(6, 3)),
+                new HashSet<>(decision.candidates()));
+        assertEquals("opponent fork", decision.reason());
+    }
+
+    @Test
+    public void testQuietPositionKeepsEveryCandidate() {
+        place(BoardPlayer.USER, 3, 3);
+        place(BoardPlayer.AI, 2, 2);
+        List<BoardNode> emptySpots = gameBoard.getEmptyPositions();
+
+        TacticalDecision decision = new TacticalAnalyzer(gameBoard, new ThreatTable(gameBoard))
+                .analyze(BoardPlayer.AI, emptySpots);
+
+        assertFalse(decision.isDecided());
+        assertSame(emptySpots, decision.candidates());
+        assertEquals("no tactic", decision.reason());
+    }
+
+    private TacticalDecision analyze() {
+        return new TacticalAnalyzer(gameBoard, new ThreatTable(gameBoard)).analyze(BoardPlayer.AI, gameBoard.getEmptyPositions());
+    }
+
+    private void place(BoardPlayer player, int... cells) {
+        for (int c = 0; c < cells.length; c += 2) {
+            gameBoard.makeMove(cells[c], cells[c + 1], player);
+        }
+    }
+
+    private BoardNode node(int i, int j) {
+        return gameBoard.getNode(i, j);
+    }
+}
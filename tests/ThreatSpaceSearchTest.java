@@ -0,0 +1,112 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the threat-space search on a 7x7 board won with 4 in a row, where a line can be extended
+ * on both sides and forced wins take several threats.
+ */
+public class ThreatSpaceSearchTest {
+
+    private static final GameConfig config = GameConfig.builder().rows(7).columns(7).winLength(4).debug(false).build();
+
+    @Test
+    public void testForcedWinByContinuousThreats() {
+        // O O _ _ X _ _
+        // _ _ _ _ O O X
+        // _ _ O _ _ _ _
+        // No single move creates two threats, but (0,2) forces the block on (0,3), then (1,2) threatens
+        // both (3,2) in its column and (1,3) in its row.
+        GameBoard board = forcedWinBoard();
+        ThreatTable table = new ThreatTable(board);
+        for (int cell : table.threatCreatingCells(BoardPlayer.AI, new ArrayList<>())) {
+            table.place(cell, BoardPlayer.AI);
+            assertEquals(1, table.winningCellsThrough(cell, BoardPlayer.AI, new ArrayList<>()).size(), "Cell " + cell);
+            table.remove(cell, BoardPlayer.AI);
+        }
+
+        BoardNode first = new ThreatSpaceSearch(board).findForcedWin(BoardPlayer.AI);
+        assertSame(board.getNode(0, 2), first);
+
+        board.makeMove(first, BoardPlayer.AI);
+        board.makeMove(0, 3, BoardPlayer.USER);
+        BoardNode fork = new ThreatSpaceSearch(board).findForcedWin(BoardPlayer.AI);
+        assertSame(board.getNode(1, 2), fork);
+        board.makeMove(fork, BoardPlayer.AI);
+        assertEquals(List.of(cell(1, 3), cell(3, 2)), new ThreatTable(board).winningCells(BoardPlayer.AI, new ArrayList<>())
+                .stream().sorted().toList());
+    }
+
+    @Test
+    public void testNoForcedWinWithoutThreats() {
+        GameBoard board = new GameBoard(config);
+        board.makeMove(3, 3, BoardPlayer.AI);
+        board.makeMove(3, 4, BoardPlayer.USER);
+        assertNull(new ThreatSpaceSearch(board).findForcedWin(BoardPlayer.AI));
+
+        // A node limit too small for the sequence gives up on it.
+        GameBoard limited = new GameBoard(config.toBuilder().threatSearchNodeLimit(1).build());
+        copyMarks(forcedWinBoard(), limited);
+        assertNull(new ThreatSpaceSearch(limited).findForcedWin(BoardPlayer.AI));
+    }
+
+    @Test
+    public void testDefenceAgainstAForcedWin() {
+        // Rows 3 to 5:
+        // O X X _ O _ _
+        // _ _ _ _ _ _ _
+        // _ _ _ X _ _ _
+        // The user wins with (4,2), threatening both ends of the diagonal, and only the AI taking it refutes.
+        GameBoard board = new GameBoard(config);
+        board.makeMove(3, 1, BoardPlayer.USER);
+        board.makeMove(3, 2, BoardPlayer.USER);
+        board.makeMove(5, 3, BoardPlayer.USER);
+        board.makeMove(3, 0, BoardPlayer.AI);
+        board.makeMove(3, 4, BoardPlayer.AI);
+        assertSame(board.getNode(4, 2), new ThreatSpaceSearch(board).findForcedWin(BoardPlayer.USER));
+
+        List<BoardNode> defences = new ThreatSpaceSearch(board).findDefences(BoardPlayer.AI, board.getEmptyPositions());
+        assertEquals(List.of(board.getNode(4, 2)), defences);
+
+        board.makeMove(4, 2, BoardPlayer.AI);
+        assertNull(new ThreatSpaceSearch(board).findForcedWin(BoardPlayer.USER));
+    }
+
+    @Test
+    public void testCandidatesAreKeptWithoutAForcedWin() {
+        GameBoard board = new GameBoard(config);
+        board.makeMove(3, 3, BoardPlayer.USER);
+        List<BoardNode> candidates = board.getEmptyPositions();
+
+        assertSame(candidates, new ThreatSpaceSearch(board).findDefences(BoardPlayer.AI, candidates));
+    }
+
+    private static GameBoard forcedWinBoard() {
+        GameBoard board = new GameBoard(config);
+        board.makeMove(0, 0, BoardPlayer.AI);
+        board.makeMove(0, 1, BoardPlayer.AI);
+        board.makeMove(2, 2, BoardPlayer.AI);
+        board.makeMove(1, 4, BoardPlayer.AI);
+        board.makeMove(1, 5, BoardPlayer.AI);
+        board.makeMove(0, 4, BoardPlayer.USER);
+        board.makeMove(1, 6, BoardPlayer.USER);
+        return board;
+    }
+
+    private static void copyMarks(GameBoard from, GameBoard to) {
+        for (int i = 0; i < from.getRows(); i++) {
+            for (int j = 0; j < from.getColumns(); j++) {
+                if (!from.isNodeEmpty(i, j)) {
+                    to.makeMove(i, j, from.getNode(i, j).getPlayer());
+                }
+            }
+        }
+    }
+
+    private static int cell(int i, int j) {
+        return i * config.getColumns() + j;
+    }
+}
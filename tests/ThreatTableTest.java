@@ -0,0 +1,99 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the threat table on a 7x7 board won with 4 in a row, where the windows are segments of the rows,
+ * columns and diagonals: the window counts kept by placing and removing marks match the counts of a table
+ * built from scratch, and the threat queries find the open segments.
+ */
+public class ThreatTableTest {
+
+    private static final GameConfig config = GameConfig.builder().rows(7).columns(7).winLength(4).debug(false).build();
+
+    @Test
+    public void testWindowsAreTheSegmentsOfTheWinLength() {
+        ThreatTable table = new ThreatTable(new GameBoard(config));
+
+        // 4 segments in each of the 7 rows and 7 columns, 16 in each diagonal direction.
+        assertEquals(4 * 7 + 4 * 7 + 16 + 16, table.windowCount());
+        for (int[] window : ThreatTable.windowsOf(config)) {
+            assertEquals(4, window.length);
+        }
+    }
+
+    @Test
+    public void testIncrementalCountsMatchAFreshTable() {
+        Random random = new Random(28);
+        for (int sequence = 0; sequence < 20; sequence++) {
+            GameBoard board = new GameBoard(config);
+            ThreatTable table = new ThreatTable(board);
+            List<BoardNode> occupied = new ArrayList<>();
+
+            for (int step = 0; step < 200; step++) {
+                List<BoardNode> empty = board.getEmptyPositions();
+                if (!empty.isEmpty() && (occupied.isEmpty() || random.nextInt(3) > 0)) {
+                    BoardNode node = empty.get(random.nextInt(empty.size()));
+                    BoardPlayer player = random.nextBoolean() ? BoardPlayer.AI : BoardPlayer.USER;
+                    table.place(cellOf(node), player);
+                    occupied.add(board.makeMove(node, player));
+                } else {
+                    BoardNode node = occupied.remove(random.nextInt(occupied.size()));
+                    table.remove(cellOf(node), node.getPlayer());
+                    board.resetNodePlayer(node);
+                }
+                assertSameCounts(new ThreatTable(board), table, board.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testThreatsOfOpenSegments() {
+        GameBoard board = new GameBoard(config);
+        board.makeMove(3, 1, BoardPlayer.AI);
+        board.makeMove(3, 2, BoardPlayer.AI);
+        board.makeMove(3, 3, BoardPlayer.AI);
+        ThreatTable table = new ThreatTable(board);
+
+        // Three in the middle row threaten both ends of it.
+        assertEquals(Set.of(cell(3, 0), cell(3, 4)), new TreeSet<>(table.winningCells(BoardPlayer.AI, new ArrayList<>())));
+        assertTrue(table.winningCells(BoardPlayer.USER, new ArrayList<>()).isEmpty());
+        assertTrue(table.isWinningCell(cell(3, 4), BoardPlayer.AI));
+        assertFalse(table.isWinningCell(cell(3, 5), BoardPlayer.AI));
+
+        // A user mark on one end leaves the other segment open.
+        table.place(cell(3, 4), BoardPlayer.USER);
+        assertEquals(List.of(cell(3, 0)), table.winningCells(BoardPlayer.AI, new ArrayList<>()));
+        table.remove(cell(3, 4), BoardPlayer.USER);
+
+        // The mark completing the segment on the left end creates the threat on the right end.
+        table.place(cell(3, 0), BoardPlayer.AI);
+        assertEquals(List.of(cell(3, 4)), table.winningCellsThrough(cell(3, 3), BoardPlayer.AI, new ArrayList<>()));
+    }
+
+    private static void assertSameCounts(ThreatTable expected, ThreatTable actual, String board) {
+        for (int window = 0; window < expected.windowCount(); window++) {
+            for (BoardPlayer player : new BoardPlayer[]{BoardPlayer.AI, BoardPlayer.USER}) {
+                assertEquals(expected.marksIn(window, player), actual.marksIn(window, player),
+                        player + " marks in window " + window + " of\n" + board);
+            }
+        }
+        for (int cell = 0; cell < expected.size(); cell++) {
+            assertEquals(expected.isEmpty(cell), actual.isEmpty(cell), "Cell " + cell + " of\n" + board);
+        }
+    }
+
+    private static int cellOf(BoardNode node) {
+        return cell(node.getI(), node.getJ());
+    }
+
+    private static int cell(int i, int j) {
+        return i * config.getColumns() + j;
+    }
+}
@@ -166,6 +166,78 @@ public class TicTacToeRuleTest {
         assertEquals(GameResult.UNDETERMINED, rule.determineWinner(board, emptyNodes, lastPlayedNode));
     }
 
+    @Test
+    public void testKInARowOnOffMainDiagonal() {
+        // 5x5 board, 3 in a row on a diagonal that is not one of the two main diagonals
+        BoardNode[][] wideBoard = createBoard(5, 5);
+        List<BoardNode> wideEmptyNodes = collectNodes(wideBoard);
+        playMoves(wideBoard, wideEmptyNodes, BoardPlayer.USER, 0, 2, 1, 3, 2, 4);
+        playMoves(wideBoard, wideEmptyNodes, BoardPlayer.AI, 4, 0, 4, 1);
+
+        TicTacToeRule kRule = new TicTacToeRule(3);
+        assertEquals(GameResult.USER_WINS, kRule.determineWinner(wideBoard, wideEmptyNodes, wideBoard[1][3]));
+    }
+
+    @Test
+    public void testKInARowOnAntiDiagonalFromMiddle() {
+        BoardNode[][] wideBoard = createBoard(6, 6);
+        List<BoardNode> wideEmptyNodes = collectNodes(wideBoard);
+        playMoves(wideBoard, wideEmptyNodes, BoardPlayer.AI, 1, 4, 2, 3, 3, 2, 4, 1);
+        playMoves(wideBoard, wideEmptyNodes, BoardPlayer.USER, 0, 0, 0, 1, 0, 2);
+
+        TicTacToeRule kRule = new TicTacToeRule(4);
+        assertEquals(GameResult.AI_WINS, kRule.determineWinner(wideBoard, wideEmptyNodes, wideBoard[2][3]));
+    }
+
+    @Test
+    public void testKInARowOnRectangularBoard() {
+        // 3x7 board, 5 in a row horizontally
+        BoardNode[][] wideBoard = createBoard(3, 7);
+        List<BoardNode> wideEmptyNodes = collectNodes(wideBoard);
+        playMoves(wideBoard, wideEmptyNodes, BoardPlayer.USER, 1, 2, 1, 3, 1, 4, 1, 5, 1, 6);
+        playMoves(wideBoard, wideEmptyNodes, BoardPlayer.AI, 0, 0, 0, 1, 2, 0, 2, 1);
+
+        TicTacToeRule kRule = new TicTacToeRule(5);
+        assertEquals(GameResult.USER_WINS, kRule.determineWinner(wideBoard, wideEmptyNodes, wideBoard[1][4]));
+    }
+
+    @Test
+    public void testBrokenLineIsNotAWin() {
+        BoardNode[][] wideBoard = createBoard(5, 5);
+        List<BoardNode> wideEmptyNodes = collectNodes(wideBoard);
+        playMoves(wideBoard, wideEmptyNodes, BoardPlayer.USER, 2, 0, 2, 1, 2, 3, 2, 4);
+        playMoves(wideBoard, wideEmptyNodes, BoardPlayer.AI, 2, 2, 0, 0, 0, 1);
+
+        TicTacToeRule kRule = new TicTacToeRule(3);
+        assertEquals(GameResult.UNDETERMINED, kRule.determineWinner(wideBoard, wideEmptyNodes, wideBoard[2][3]));
+    }
+
+    private BoardNode[][] createBoard(int rows, int columns) {
+        BoardNode[][] nodes = new BoardNode[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                nodes[i][j] = new BoardNode(i, j);
+            }
+        }
+        return nodes;
+    }
+
+    private List<BoardNode> collectNodes(BoardNode[][] nodes) {
+        List<BoardNode> all = new ArrayList<>();
+        for (BoardNode[] row : nodes) {
+            all.addAll(List.of(row));
+        }
+        return all;
+    }
+
+    private void playMoves(BoardNode[][] nodes, List<BoardNode> empty, BoardPlayer player, int... coordinates) {
+        for (int c = 0; c < coordinates.length; c += 2) {
+            BoardNode node = nodes[coordinates[c]][coordinates[c + 1]];
+            node.setPlayer(player);
+            empty.remove(node);
+        }
+    }
+
     private void addDummyMovesToMeetMinimum() {
         int totalMovesMade = BOARD_SIZE * BOARD_SIZE - emptyNodes.size();
         int minMovesRequired = BOARD_SIZE + (BOARD_SIZE - 1);
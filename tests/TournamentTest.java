@@ -0,0 +1,118 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the Elo estimates of {@link TournamentReport} and small {@link Tournament}s between engines.
+ */
+public class TournamentTest {
+
+    private static final GameConfig config = GameConfig.builder().boardSize(3).debug(false).build();
+
+    @Test
+    public void testEloEstimates() {
+        TournamentReport.Elo even = TournamentReport.Elo.of(10, 20, 10);
+        assertEquals(0, even.estimate(), 1e-9);
+        assertTrue(even.lower() < 0 && even.upper() > 0);
+
+        // A 75% score is 191 Elo.
+        TournamentReport.Elo strong = TournamentReport.Elo.of(60, 30, 10);
+        assertEquals(190.85, strong.estimate(), 0.01);
+        assertTrue(strong.lower() < strong.estimate() && strong.estimate() < strong.upper());
+        assertEquals(-strong.estimate(), TournamentReport.Elo.of(10, 30, 60).estimate(), 1e-9);
+
+        // More games narrow the interval.
+        TournamentReport.Elo more = TournamentReport.Elo.of(600, 300, 100);
+        assertTrue(more.upper() - more.lower() < strong.upper() - strong.lower());
+
+        // A perfect score stays finite, and neither it nor all draws collapse the interval to a point.
+        TournamentReport.Elo perfect = TournamentReport.Elo.of(10, 0, 0);
+        assertTrue(Double.isFinite(perfect.estimate()) && perfect.estimate() > 0);
+        assertTrue(perfect.lower() < perfect.estimate() && perfect.estimate() < perfect.upper());
+        assertTrue(Double.isFinite(perfect.upper()));
+        TournamentReport.Elo drawn = TournamentReport.Elo.of(0, 100, 0);
+        assertEquals(0, drawn.estimate(), 1e-9);
+        assertTrue(drawn.lower() < drawn.estimate() && drawn.estimate() < drawn.upper());
+        assertEquals(-drawn.lower(), drawn.upper(), 1e-9);
+    }
+
+    @Test
+    public void testJsonEscapesEngineNames() {
+        String name = "say \"hi\"\\\n";
+        TournamentReport report = new TournamentReport(
+                List.of(new TournamentReport.Standing(name, 1, 0, 0, 3, 1000)),
+                List.of(new TournamentReport.Pairing(name, "plain", 1, 0, 0)), 0, 1000);
+
+        String json = report.toJson();
+        assertTrue(json.contains("{\"engine\": \"say \\\"hi\\\"\\\\\\n\", \"wins\""), json);
+        assertTrue(json.contains("\"opponent\": \"plain\""), json);
+    }
+
+    @Test
+    public void testExactEnginesDrawEachOther() throws InterruptedException {
+        TournamentReport report = Tournament.builder()
+                .engine("exact", config)
+                .engine("plain", config.toBuilder().tacticalSearch(false).threatSearch(false).build())
+                .gamesPerPair(8).openingPlies(0).concurrency(4)
+                .build().run();
+
+        assertEquals(0, report.failedGames());
+        TournamentReport.Pairing pairing = report.pairings().get(0);
+        assertEquals(8, pairing.draws());
+        assertEquals(0, pairing.elo().estimate(), 1e-9);
+        for (TournamentReport.Standing standing : report.standings()) {
+            assertEquals(8, standing.draws());
+            assertTrue(standing.moves() > 0 && standing.meanMoveMillis() > 0);
+        }
+    }
+
+    @Test
+    public void testExactEngineNeverLosesToShallowEngine() throws InterruptedException {
+        // Without random openings, the exact engine only plays positions it cannot lose.
+        TournamentReport report = Tournament.builder()
+                .engine("exact", config)
+                .engine("depth1", config.toBuilder().maxSearchDepth(1).tacticalSearch(false).threatSearch(false).build())
+                .gamesPerPair(2).openingPlies(0)
+                .build().run();
+
+        TournamentReport.Standing exact = report.standings().get(0);
+        assertEquals(0, exact.losses(), exact.toString());
+        assertTrue(exact.wins() > 0, exact.toString());
+        assertTrue(exact.elo().estimate() > 0);
+    }
+
+    @Test
+    public void testRoundRobinFromRandomOpenings() throws InterruptedException {
+        TournamentReport report = Tournament.builder()
+                .engine("exact", config)
+                .engine("depth1", config.toBuilder().maxSearchDepth(1).tacticalSearch(false).threatSearch(false).build())
+                .engine("depth2", config.toBuilder().maxSearchDepth(2).tacticalSearch(false).threatSearch(false).build())
+                .gamesPerPair(20).openingPlies(2).concurrency(4).seed(7)
+                .build().run();
+
+        assertEquals(0, report.failedGames());
+        assertEquals(3, report.pairings().size());
+        for (TournamentReport.Pairing pairing : report.pairings()) {
+            assertEquals(20, pairing.wins() + pairing.draws() + pairing.losses(), pairing.toString());
+        }
+        // Both sides of every opening are played, so the exact engine scores better than its opponents.
+        TournamentReport.Standing exact = report.standings().get(0);
+        assertTrue(exact.wins() > exact.losses(), exact.toString());
+
+        // Every win of an engine is a loss of its opponent.
+        int wins = report.standings().stream().mapToInt(TournamentReport.Standing::wins).sum();
+        int losses = report.standings().stream().mapToInt(TournamentReport.Standing::losses).sum();
+        assertEquals(wins, losses);
+    }
+
+    @Test
+    public void testRejectsUnevenSchedules() {
+        Tournament.Builder builder = Tournament.builder().engine("a", config).engine("b", config);
+        assertThrows(IllegalArgumentException.class, () -> builder.gamesPerPair(3).build());
+        assertThrows(IllegalArgumentException.class, () -> builder.gamesPerPair(2).openingPlies(5).build());
+        assertThrows(IllegalArgumentException.class, () -> Tournament.builder().engine("a", config)
+                .engine("b", GameConfig.builder().boardSize(4).build()).build());
+    }
+}
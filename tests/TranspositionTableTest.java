@@ -0,0 +1,106 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests both layouts of the transposition table: the entries stored, replaced and cleared, the capacity rounded
+ * to a power of two, torn entries of concurrent writers never returned, and the off-heap table of a configuration
+ * shared by the whole process while heap tables stay per search.
+ */
+public class TranspositionTableTest {
+
+    @Test
+    public void testStoreProbeAndClear() {
+        for (TranspositionTable table : List.of(new HeapTranspositionTable(1000), new OffHeapTranspositionTable(1000))) {
+            assertEquals(1024, table.capacity());
+            assertEquals(TranspositionTable.MISS, table.probe(42));
+
+            table.store(42, -7, TranspositionTable.LOWER, 12, 300);
+            long entry = table.probe(42);
+            assertEquals(-7, TranspositionTable.score(entry));
+            assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+            assertEquals(12, TranspositionTable.bestCell(entry));
+            assertEquals(TranspositionTable.FULL_DRAFT, TranspositionTable.draft(entry));
+
+            // A new result for the position replaces the entry, an unknown best cell included.
+            table.store(42, 3, TranspositionTable.EXACT, -1, 4);
+            entry = table.probe(42);
+            assertEquals(3, TranspositionTable.score(entry));
+            assertEquals(-1, TranspositionTable.bestCell(entry));
+            assertEquals(4, TranspositionTable.draft(entry));
+            assertEquals(1, table.occupancy());
+            assertEquals(1, table.filledSlots());
+
+            long slot = 0;
+            while (table.dataAt(slot) == TranspositionTable.MISS) {
+                slot++;
+            }
+            assertEquals(42, table.keyAt(slot));
+            assertEquals(entry, table.dataAt(slot));
+
+            table.clear();
+            assertEquals(TranspositionTable.MISS, table.probe(42));
+            assertEquals(0, table.occupancy());
+            assertEquals(0, table.filledSlots());
+        }
+    }
+
+    @Test
+    public void testConcurrentWritersNeverExposeTornEntries() throws Exception {
+        // A tiny table, so the writers keep overwriting each other's slots.
+        TranspositionTable table = new OffHeapTranspositionTable(16);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 200_000; i++) {
+                        long key = i % 64 + 1;
+                        // The score and the best cell are derived from the key, so a mixed entry shows.
+                        table.store(key, (int) key, TranspositionTable.EXACT, (int) key, 1);
+                        long entry = table.probe(key ^ 1);
+                        if (entry != TranspositionTable.MISS) {
+                            assertEquals(key ^ 1, TranspositionTable.score(entry));
+                            assertEquals(key ^ 1, TranspositionTable.bestCell(entry));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testOffHeapTableIsSharedPerConfiguration() {
+        // A geometry no other test uses, so the shared table starts empty.
+        GameConfig config = GameConfig.builder().rows(5).columns(6).winLength(4).debug(false)
+                .offHeapCacheMegabytes(1).build();
+        TranspositionTable table = TranspositionTable.create(config);
+        assertInstanceOf(OffHeapTranspositionTable.class, table);
+        assertEquals((1 << 20) / TranspositionTable.ENTRY_BYTES, table.capacity());
+
+        // Another game of the same configuration, even with another search depth, shares the solved positions.
+        table.store(7, 1, TranspositionTable.EXACT, 0, TranspositionTable.FULL_DRAFT);
+        TranspositionTable other = TranspositionTable.create(config.toBuilder().maxSearchDepth(3).build());
+        assertSame(table, other);
+        assertEquals(1, TranspositionTable.score(other.probe(7)));
+        assertNotSame(table, TranspositionTable.create(config.toBuilder().winLength(5).build()));
+
+        // Heap tables are not shared.
+        GameConfig small = config.toBuilder().offHeapCacheMinCells(Integer.MAX_VALUE)
+                .transpositionTableSize(1 << 10).build();
+        TranspositionTable heap = TranspositionTable.create(small);
+        assertInstanceOf(HeapTranspositionTable.class, heap);
+        assertNotSame(heap, TranspositionTable.create(small));
+    }
+}
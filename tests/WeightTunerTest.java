@@ -0,0 +1,91 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the heuristic evaluator and the tuning of its weights: the score as the weighted count of the open
+ * windows, the fit lowering the loss and its weights surviving a round trip through a file, the AI searching
+ * with the tuned weights, and the fit not depending on the number of threads.
+ */
+public class WeightTunerTest {
+
+    private static final GameConfig config = GameConfig.builder().boardSize(4).debug(false)
+            .randomOpening(false).pondering(false).build();
+
+    @Test
+    public void testScoreIsWeightedCountOfOpenWindows() {
+        HeuristicEvaluator evaluator = new HeuristicEvaluator(config, new double[]{1, 3, 9, 2, 5, 7});
+        GameBoard board = new GameBoard(config);
+        board.makeMove(0, 0, BoardPlayer.AI);
+        board.makeMove(0, 1, BoardPlayer.AI);
+        board.makeMove(3, 3, BoardPlayer.USER);
+
+        double[] features = new double[HeuristicEvaluator.featureCount(4)];
+        evaluator.features(board, BoardPlayer.USER, features);
+        // Row 0 holds two AI marks, columns 0 and 1 one each; the user holds row 3 and column 3,
+        // and the diagonal holding both is blocked.
+        assertArrayEquals(new double[]{-2, 0, 0, 2, 1, 0}, features);
+        assertEquals(-2 * 1 + 2 * 2 + 5, evaluator.evaluate(board, BoardPlayer.USER));
+
+        // The mirrored position, with the players swapped, has the opposite score.
+        GameBoard swapped = new GameBoard(config);
+        swapped.makeMove(0, 0, BoardPlayer.USER);
+        swapped.makeMove(0, 1, BoardPlayer.USER);
+        swapped.makeMove(3, 3, BoardPlayer.AI);
+        assertEquals(-evaluator.evaluate(board, BoardPlayer.USER), evaluator.evaluate(swapped, BoardPlayer.AI));
+        assertThrows(IllegalArgumentException.class, () -> new HeuristicEvaluator(config, new double[4]));
+    }
+
+    @Test
+    public void testTuningLowersLossAndWeightsRoundTrip(@TempDir Path directory) throws Exception {
+        for (int labelDepth : new int[]{0, 2}) {
+            WeightTuner.TuningResult result = WeightTuner.builder().gameConfig(config).games(60)
+                    .labelDepth(labelDepth).epochs(150).threads(4).seed(47).build().run();
+            assertTrue(result.positions() > 60 * 4, "Only " + result.positions() + " positions");
+            assertTrue(result.finalLoss() < result.initialLoss(),
+                    "Depth " + labelDepth + ": " + result.initialLoss() + " -> " + result.finalLoss());
+
+            Path file = directory.resolve("weights" + labelDepth + ".properties");
+            result.evaluator().save(file);
+            assertArrayEquals(result.evaluator().getWeights(), HeuristicEvaluator.load(config, file).getWeights());
+            GameConfig other = GameConfig.builder().boardSize(5).winLength(3).build();
+            assertThrows(IllegalArgumentException.class, () -> HeuristicEvaluator.load(other, file));
+        }
+    }
+
+    @Test
+    public void testDepthLimitedSearchUsesTunedWeights(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("weights.properties");
+        new HeuristicEvaluator(config, HeuristicEvaluator.defaultWeights(4)).save(file);
+        GameConfig shallow = config.toBuilder().maxSearchDepth(2).build();
+        GameConfig tuned = shallow.toBuilder().evaluationFile(file).build();
+
+        GameBoard board = new GameBoard(config);
+        board.makeMove(1, 1, BoardPlayer.USER);
+        assertEquals(0, new MiniMaxAlgorithm(shallow).searchRoot(board, board.getEmptyPositions()).score());
+        RootSearchResult result = new MiniMaxAlgorithm(tuned).searchRoot(board, board.getEmptyPositions());
+        assertNotEquals(0, result.score());
+        assertTrue(Math.abs(result.score()) <= HeuristicEvaluator.MAX_SCORE);
+
+        // The AI plays a full game with the weights.
+        GameResult game = new GameExecutor(tuned, user -> new SyntheticUserPlayer(user, new Random(48), List.of()),
+                GameExecutor.MoveListener.NONE, false).play().result();
+        assertNotEquals(GameResult.UNDETERMINED, game);
+        assertThrows(IllegalArgumentException.class, () -> tuned.toBuilder().distributedWorkers(2).build());
+    }
+
+    @Test
+    public void testFitDoesNotDependOnThreads() throws Exception {
+        WeightTuner.Builder builder = WeightTuner.builder().gameConfig(config).games(40).epochs(50).seed(49);
+        WeightTuner.TuningResult single = builder.threads(1).build().run();
+        WeightTuner.TuningResult parallel = builder.threads(6).build().run();
+        assertEquals(single.positions(), parallel.positions());
+        assertArrayEquals(single.evaluator().getWeights(), parallel.evaluator().getWeights());
+        assertEquals(single.finalLoss(), parallel.finalLoss());
+    }
+}